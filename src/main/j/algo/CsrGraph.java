@@ -0,0 +1,246 @@
+package j.algo;
+
+import java.io.*;
+
+/**
+ * An immutable directed graph in compressed sparse row (CSR) form.
+ *
+ * The vertices are indexed from 0 to numVertices()-1. The outgoing edges
+ * of vertex v are numbered consecutively from firstEdge(v), inclusive,
+ * to endEdge(v), exclusive, and edge e leads to target(e) with an
+ * optional weight(e). The whole graph takes two int arrays, plus a float
+ * array if weighted, and no object is allocated per vertex or edge.
+ * <pre>
+ * for (int e = g.firstEdge(v); e &lt; g.endEdge(v); e++)
+ *     visit(g.target(e));
+ * </pre>
+ *
+ * Undirected graphs are represented by storing each edge in both
+ * directions.
+ *
+ * This class is thread-safe.
+ */
+public final class CsrGraph implements Serializable
+{
+    private static final long serialVersionUID = -3024744406713321676L;
+
+    /** offsets[v] is the number of the first outgoing edge of vertex v.
+     * offsets[numVertices] is the number of edges. */
+    private final int[] offsets;
+
+    /** targets[e] is the target vertex of edge e. */
+    private final int[] targets;
+
+    /** weights[e] is the weight of edge e; null if unweighted. */
+    private final float[] weights;
+
+    private CsrGraph(int[] offsets, int[] targets, float[] weights)
+    {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Builds an unweighted directed graph with an edge from src[i] to
+     * dst[i] for each i. The outgoing edges of each vertex keep their
+     * relative order in the arrays.
+     * @param numVertices Number of vertices, which are indexed from 0.
+     * @exception IllegalArgumentException if numVertices is negative or
+     *            the arrays have different lengths.
+     * @exception IndexOutOfBoundsException if a vertex index is out of
+     *            bounds.
+     */
+    public static CsrGraph fromEdges(int numVertices, int[] src, int[] dst)
+    {
+        return build(numVertices, src, dst, null, false);
+    }
+
+    /**
+     * Builds a weighted directed graph with an edge from src[i] to dst[i]
+     * of weight weight[i] for each i.
+     * @see #fromEdges(int,int[],int[])
+     */
+    public static CsrGraph fromEdges(int numVertices, int[] src, int[] dst,
+        float[] weight)
+    {
+        if (weight == null) throw new NullPointerException("weight is null");
+        return build(numVertices, src, dst, weight, false);
+    }
+
+    /**
+     * Builds an unweighted undirected graph with an edge between src[i]
+     * and dst[i] for each i. Each edge is stored in both directions, so
+     * the resulting graph has twice as many edges.
+     * @see #fromEdges(int,int[],int[])
+     */
+    public static CsrGraph fromUndirectedEdges(int numVertices,
+        int[] src, int[] dst)
+    {
+        return build(numVertices, src, dst, null, true);
+    }
+
+    /**
+     * Builds a weighted undirected graph with an edge between src[i] and
+     * dst[i] of weight weight[i] for each i.
+     * @see #fromUndirectedEdges(int,int[],int[])
+     */
+    public static CsrGraph fromUndirectedEdges(int numVertices,
+        int[] src, int[] dst, float[] weight)
+    {
+        if (weight == null) throw new NullPointerException("weight is null");
+        return build(numVertices, src, dst, weight, true);
+    }
+
+    private static CsrGraph build(int numVertices, int[] src, int[] dst,
+        float[] weight, boolean undirected)
+    {
+        if (numVertices < 0)
+            throw new IllegalArgumentException("numVertices must >= 0");
+
+        final int m = src.length;
+        if (dst.length != m || (weight != null && weight.length != m))
+            throw new IllegalArgumentException("array lengths differ");
+
+        final long numEdges = undirected ? 2L * m : m;
+        if (numEdges > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many edges");
+
+        // Counting sort of the edges by source vertex. offsets[v+1] first
+        // counts the out-degree of v and then, after the prefix sum,
+        // becomes the next free slot of v while the edges are placed.
+        final int[] offsets = new int[numVertices + 1];
+        for (int i = 0; i < m; i++)
+        {
+            checkVertex(src[i], numVertices);
+            checkVertex(dst[i], numVertices);
+            offsets[src[i] + 1]++;
+            if (undirected) offsets[dst[i] + 1]++;
+        }
+
+        for (int v = 0; v < numVertices; v++)
+            offsets[v + 1] += offsets[v];
+
+        final int[] targets = new int[(int)numEdges];
+        final float[] weights = weight == null ? null : new float[(int)numEdges];
+        final int[] next = new int[numVertices];
+        System.arraycopy(offsets, 0, next, 0, numVertices);
+
+        for (int i = 0; i < m; i++)
+        {
+            int e = next[src[i]]++;
+            targets[e] = dst[i];
+            if (weights != null) weights[e] = weight[i];
+
+            if (undirected)
+            {
+                e = next[dst[i]]++;
+                targets[e] = src[i];
+                if (weights != null) weights[e] = weight[i];
+            }
+        }
+
+        return new CsrGraph(offsets, targets, weights);
+    }
+
+    private static void checkVertex(int v, int numVertices)
+    {
+        if (v < 0 || v >= numVertices)
+            throw new IndexOutOfBoundsException("vertex: " + v);
+    }
+
+    /**
+     * Gets the graph with every edge reversed. The transpose of an
+     * undirected graph is the same graph.
+     */
+    public CsrGraph transpose()
+    {
+        final int n = numVertices();
+        final int m = numEdges();
+        final int[] src = new int[m];
+        for (int v = 0; v < n; v++)
+        {
+            for (int e = this.offsets[v]; e < this.offsets[v + 1]; e++)
+                src[e] = v;
+        }
+
+        return build(n, this.targets, src, this.weights, false);
+    }
+
+    /**
+     * Gets the number of vertices.
+     */
+    public int numVertices()
+    {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Gets the number of (directed) edges.
+     */
+    public int numEdges()
+    {
+        return this.targets.length;
+    }
+
+    /**
+     * Checks whether the edges have weights.
+     */
+    public boolean isWeighted()
+    {
+        return this.weights != null;
+    }
+
+    /**
+     * Gets the number of outgoing edges of a vertex.
+     * @exception IndexOutOfBoundsException if v is out of bounds.
+     */
+    public int degree(int v)
+    {
+        return this.offsets[v + 1] - this.offsets[v];
+    }
+
+    /**
+     * Gets the number of the first outgoing edge of a vertex.
+     * @exception IndexOutOfBoundsException if v is out of bounds.
+     */
+    public int firstEdge(int v)
+    {
+        return this.offsets[v];
+    }
+
+    /**
+     * Gets one plus the number of the last outgoing edge of a vertex.
+     * @exception IndexOutOfBoundsException if v is out of bounds.
+     */
+    public int endEdge(int v)
+    {
+        return this.offsets[v + 1];
+    }
+
+    /**
+     * Gets the target vertex of an edge.
+     * @exception IndexOutOfBoundsException if e is out of bounds.
+     */
+    public int target(int e)
+    {
+        return this.targets[e];
+    }
+
+    /**
+     * Gets the weight of an edge.
+     * @return 1 if the graph is unweighted.
+     * @exception IndexOutOfBoundsException if e is out of bounds.
+     */
+    public float weight(int e)
+    {
+        if (this.weights == null)
+        {
+            if (e < 0 || e >= this.targets.length)
+                throw new IndexOutOfBoundsException("edge: " + e);
+            return 1;
+        }
+
+        return this.weights[e];
+    }
+}
@@ -0,0 +1,119 @@
+package j.algo;
+
+import java.io.*;
+
+/**
+ * A Fenwick tree (binary indexed tree) over a fixed number of double
+ * values, supporting point updates and prefix sums in O(log n) time.
+ *
+ * The tree is a single double array; no method allocates. Each sum adds
+ * up O(log n) partial sums, so rounding errors are bounded accordingly,
+ * but a long-lived tree that sees many updates accumulates the rounding
+ * error of every update. Rebuild it periodically from exact values if
+ * that matters.
+ *
+ * This class is not thread-safe.
+ * @see LongFenwickTree
+ */
+public class DoubleFenwickTree implements Serializable
+{
+    private static final long serialVersionUID = -6024744406713321677L;
+
+    /** tree[i] is the sum of the values at zero-based indices
+     * [i - lowbit(i), i), where i is one-based. tree[0] is unused. */
+    private final double[] tree;
+
+    /**
+     * Constructs a tree of a specified number of values, all zero.
+     * @exception IllegalArgumentException if size is negative.
+     */
+    public DoubleFenwickTree(int size)
+    {
+        if (size < 0)
+            throw new IllegalArgumentException("size must >= 0");
+
+        this.tree = new double[size + 1];
+    }
+
+    /**
+     * Constructs a tree with the given initial values in O(n) time.
+     * @param values Not modified.
+     */
+    public DoubleFenwickTree(double[] values)
+    {
+        final int n = values.length;
+        this.tree = new double[n + 1];
+        System.arraycopy(values, 0, this.tree, 1, n);
+
+        for (int i = 1; i <= n; i++)
+        {
+            final int p = i + (i & -i);
+            if (p <= n) this.tree[p] += this.tree[i];
+        }
+    }
+
+    /**
+     * Gets the number of values.
+     */
+    public int size()
+    {
+        return this.tree.length - 1;
+    }
+
+    /**
+     * Adds a delta to the value at an index.
+     * @exception IndexOutOfBoundsException if idx is out of bounds.
+     */
+    public void add(int idx, double delta)
+    {
+        checkIndex(idx, size() - 1);
+
+        final double[] t = this.tree;
+        for (int i = idx + 1; i < t.length; i += i & -i)
+            t[i] += delta;
+    }
+
+    /**
+     * Gets the sum of the values at indices [0, end).
+     * @exception IndexOutOfBoundsException if end is negative or greater
+     *            than the size.
+     */
+    public double prefixSum(int end)
+    {
+        checkIndex(end, size());
+
+        final double[] t = this.tree;
+        double s = 0;
+        for (int i = end; i > 0; i -= i & -i)
+            s += t[i];
+        return s;
+    }
+
+    /**
+     * Gets the sum of the values at indices [from, to).
+     * @exception IndexOutOfBoundsException if from or to is out of bounds,
+     *            or from is greater than to.
+     */
+    public double sum(int from, int to)
+    {
+        if (from > to)
+            throw new IndexOutOfBoundsException(from + " > " + to);
+
+        return prefixSum(to) - prefixSum(from);
+    }
+
+    /**
+     * Sets all values to zero.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.tree.length; i++)
+            this.tree[i] = 0;
+    }
+
+    private static void checkIndex(int idx, int max)
+    {
+        if (idx < 0 || idx > max)
+            throw new IndexOutOfBoundsException("index: " + idx);
+    }
+}
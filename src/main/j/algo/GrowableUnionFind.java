@@ -0,0 +1,243 @@
+package j.algo;
+
+import java.io.*;
+
+/**
+ * A union find structure, with ranking and path compression, whose
+ * number of elements need not be known in advance.
+ *
+ * New elements are added one at a time or in bulk and always start out
+ * disjoint from every other element. The storage is segmented into
+ * fixed-size chunks so that growing never copies existing element data;
+ * only the (small) table of chunk references is resized.
+ *
+ * This class is not thread-safe.
+ * @see UnionFind
+ */
+public class GrowableUnionFind implements Serializable
+{
+    private static final long serialVersionUID = -5024744406713321677L;
+
+    /** log_2 of the number of elements per chunk. */
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The element data split into chunks of CHUNK_SIZE each. Only the
+     * first ceil(numElems / CHUNK_SIZE) chunks are allocated.
+     *
+     * A non-positive value indicates that the element is a canonical root
+     * of the membership set (or tree). The magnitude of the value is an
+     * upper bound of the height of the tree minus one, so that a freshly
+     * allocated (zero-filled) chunk represents singleton sets.
+     * A positive value indicates that the element is a non-root. The value
+     * is one plus the zero-based index of its parent in the tree. */
+    private int[][] chunks;
+
+    /** Number of elements. */
+    private int numElems;
+
+    /** Number of disjoint sets (or trees). */
+    private int numDisjoint;
+
+    /**
+     * Constructs an instance with no elements.
+     */
+    public GrowableUnionFind()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructs an instance with a specified initial number of elements,
+     * all of which are disjoint.
+     * @param numElems The initial number of elements.
+     * @exception IllegalArgumentException if numElems is negative.
+     */
+    public GrowableUnionFind(int numElems)
+    {
+        if (numElems < 0)
+        {
+            throw new IllegalArgumentException("numElems must >= 0");
+        }
+
+        this.chunks = new int[4][];
+        this.numElems = 0;
+        this.numDisjoint = 0;
+        ensureSize(numElems);
+    }
+
+    /**
+     * Adds a new element that is disjoint from all existing elements.
+     * @return The zero-based index of the new element.
+     * @exception IllegalStateException if there are already
+     *            Integer.MAX_VALUE elements.
+     */
+    public int add()
+    {
+        final int idx = this.numElems;
+        if (idx == Integer.MAX_VALUE)
+            throw new IllegalStateException("too many elements");
+
+        ensureSize(idx + 1);
+        return idx;
+    }
+
+    /**
+     * Grows this structure, if necessary, so that it has at least a
+     * specified number of elements. Every added element is disjoint
+     * from all other elements.
+     * @param numElems The minimum number of elements.
+     * @exception IllegalArgumentException if numElems is negative.
+     */
+    public void ensureSize(int numElems)
+    {
+        if (numElems < 0)
+            throw new IllegalArgumentException("numElems must >= 0");
+
+        if (numElems <= this.numElems) return;
+
+        // Number of chunks needed, computed with long to prevent overflow.
+        final int numChunks =
+            (int)(((long)numElems + CHUNK_MASK) >>> CHUNK_SHIFT);
+
+        if (numChunks > this.chunks.length)
+        {
+            int[][] newChunks = new int[
+                Math.max(numChunks, this.chunks.length * 2)][];
+            System.arraycopy(this.chunks, 0, newChunks, 0, this.chunks.length);
+            this.chunks = newChunks;
+        }
+
+        final int oldNumChunks =
+            (int)(((long)this.numElems + CHUNK_MASK) >>> CHUNK_SHIFT);
+
+        for (int i = oldNumChunks; i < numChunks; i++)
+            this.chunks[i] = new int[CHUNK_SIZE];
+
+        this.numDisjoint += numElems - this.numElems;
+        this.numElems = numElems;
+    }
+
+    /**
+     * Gets the total number of elements.
+     */
+    public int size()
+    {
+        return this.numElems;
+    }
+
+    /**
+     * Checks whether two elements are in the same set.
+     * The order of specifying the element indices does not matter.
+     * @param a The zero-based index of the first element.
+     * @param b The zero-based index of the other element.
+     * @return true if a and b are in the same set or a and b are the same;
+     *         false otherwise.
+     * @exception IndexOutOfBoundsException
+     *            if a or b is negative or out of bounds.
+     */
+    public boolean connected(int a, int b)
+    {
+        return find(a) == find(b);
+    }
+
+    /**
+     * Union the sets that contain two specified elements.
+     * The order of specifying the elements does not matter.
+     * @param a Zero-based index of the first element.
+     * @param b Zero-based index of the other element.
+     * @return true if the two sets are  disjoint prior to union;
+     *         false otherwise.
+     * @exception IndexOutOfBoundsException
+     *            if a or b is negative or out of bounds.
+     */
+    public boolean union(int a, int b)
+    {
+        int x = find(a);
+        int y = find(b);
+
+        if (x == y) return false;
+
+        int rx = get(x);
+        int ry = get(y);
+
+        // If root x has a greater height than root y,
+        // then make y a child of x.
+        if (rx < ry)
+        {
+            // swap x and y
+            int t = x;
+            x = y;
+            y = t;
+        }
+        else if (rx == ry)
+        {
+            set(y, ry - 1);
+        }
+
+        // make x a child of y
+        set(x, y + 1);
+        this.numDisjoint --;
+        return true;
+    }
+
+    /**
+     * Gets the number of disjoint sets.
+     * @return Returns a number between 0 and the
+     *         total number of elements, inclusively.
+     */
+    public int getDistinctCount()
+    {
+        return this.numDisjoint;
+    }
+
+    /**
+     * Checks whether all the elements are connected together, that is,
+     * they are all in the same set.
+     */
+    public boolean areAllConnected()
+    {
+        return this.numDisjoint <= 1;
+    }
+
+    private int get(int idx)
+    {
+        return this.chunks[idx >>> CHUNK_SHIFT][idx & CHUNK_MASK];
+    }
+
+    private void set(int idx, int val)
+    {
+        this.chunks[idx >>> CHUNK_SHIFT][idx & CHUNK_MASK] = val;
+    }
+
+    /**
+     * Gets the zero-based index of the canonical root of an element.
+     * Two elements are in the same set if and only if they have the
+     * same canonical root. The root of a set may change after a union.
+     * @param idx The zero-based index of the element.
+     * @exception IndexOutOfBoundsException
+     *            if idx is negative or out of bounds.
+     */
+    public int find(int idx)
+    {
+        if (idx < 0 || idx >= this.numElems)
+            throw new IndexOutOfBoundsException("index: " + idx);
+
+        int root = idx;
+        int parent;
+        while ((parent = get(root)) > 0)
+            root = parent - 1;
+
+        // Perform path compression with a second pass so that no
+        // temporary storage is needed.
+        while (idx != root)
+        {
+            final int next = get(idx) - 1;
+            set(idx, root + 1);
+            idx = next;
+        }
+
+        return root;
+    }
+}
@@ -0,0 +1,215 @@
+package j.algo;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of integer ids from 0 to capacity-1, each with a
+ * double priority, that supports changing the priority of an id already
+ * in the heap.
+ *
+ * The heap is backed by three primitive arrays allocated once at
+ * construction, so no object is created per operation. This makes it
+ * suitable for algorithms such as Dijkstra's that repeatedly lower the
+ * priority of queued elements.
+ *
+ * This class is not thread-safe.
+ */
+public class IndexedDoubleHeap
+{
+    /** heap[i] is the id at index i of the heap. */
+    private final int[] heap;
+
+    /** pos[id] is the index of id in heap, or -1 if not in the heap. */
+    private final int[] pos;
+
+    /** keys[id] is the priority of id, if in the heap. */
+    private final double[] keys;
+
+    /** Number of ids in the heap. */
+    private int size;
+
+    /**
+     * @param capacity One plus the largest id that can be stored.
+     * @exception IllegalArgumentException if capacity is negative.
+     */
+    public IndexedDoubleHeap(int capacity)
+    {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must >= 0");
+
+        this.heap = new int[capacity];
+        this.pos = new int[capacity];
+        this.keys = new double[capacity];
+        this.size = 0;
+
+        for (int i = 0; i < capacity; i++)
+            this.pos[i] = -1;
+    }
+
+    /**
+     * Gets one plus the largest id that can be stored.
+     */
+    public int capacity()
+    {
+        return this.heap.length;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Checks whether an id is in the heap.
+     * @exception IndexOutOfBoundsException if id is out of bounds.
+     */
+    public boolean contains(int id)
+    {
+        return this.pos[id] >= 0;
+    }
+
+    /**
+     * Gets the priority of an id in the heap.
+     * @exception NoSuchElementException if the id is not in the heap.
+     * @exception IndexOutOfBoundsException if id is out of bounds.
+     */
+    public double getKey(int id)
+    {
+        if (this.pos[id] < 0) throw new NoSuchElementException();
+        return this.keys[id];
+    }
+
+    /**
+     * Adds an id with a priority, or lowers the priority of an id
+     * already in the heap. A higher priority for an id already in the
+     * heap is ignored.
+     * @return true if the id was added or its priority lowered;
+     *         false otherwise.
+     * @exception IndexOutOfBoundsException if id is out of bounds.
+     */
+    public boolean offer(int id, double key)
+    {
+        int i = this.pos[id];
+        if (i < 0)
+        {
+            i = this.size++;
+        }
+        else if (!(key < this.keys[id]))
+        {
+            return false;
+        }
+
+        this.keys[id] = key;
+        siftUp(i, id);
+        return true;
+    }
+
+    /**
+     * Sets the priority of an id, adding it to the heap if absent.
+     * Unlike offer, this can also raise the priority.
+     * @exception IndexOutOfBoundsException if id is out of bounds.
+     */
+    public void update(int id, double key)
+    {
+        final int i = this.pos[id];
+        if (i < 0 || key < this.keys[id])
+        {
+            offer(id, key);
+            return;
+        }
+
+        this.keys[id] = key;
+        siftDown(i, id);
+    }
+
+    /**
+     * Gets but does not remove the id with the lowest priority.
+     * @exception NoSuchElementException if the heap is empty.
+     */
+    public int peek()
+    {
+        if (this.size == 0) throw new NoSuchElementException();
+        return this.heap[0];
+    }
+
+    /**
+     * Gets the lowest priority in the heap.
+     * @exception NoSuchElementException if the heap is empty.
+     */
+    public double peekKey()
+    {
+        return this.keys[peek()];
+    }
+
+    /**
+     * Gets and removes the id with the lowest priority.
+     * @exception NoSuchElementException if the heap is empty.
+     */
+    public int poll()
+    {
+        final int top = peek();
+        this.pos[top] = -1;
+
+        final int last = this.heap[--this.size];
+        if (this.size > 0) siftDown(0, last);
+        return top;
+    }
+
+    /**
+     * Removes all ids. This takes time proportional to the size, not the
+     * capacity.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.size; i++)
+            this.pos[this.heap[i]] = -1;
+        this.size = 0;
+    }
+
+    /** Moves id up from a vacant slot i to its place. */
+    private void siftUp(int i, int id)
+    {
+        final double key = this.keys[id];
+        while (i > 0)
+        {
+            final int p = (i - 1) >>> 1;
+            final int pid = this.heap[p];
+            if (!(key < this.keys[pid])) break;
+
+            this.heap[i] = pid;
+            this.pos[pid] = i;
+            i = p;
+        }
+
+        this.heap[i] = id;
+        this.pos[id] = i;
+    }
+
+    /** Moves id down from a vacant slot i to its place. */
+    private void siftDown(int i, int id)
+    {
+        final double key = this.keys[id];
+        final int half = this.size >>> 1;
+        while (i < half)
+        {
+            int c = 2 * i + 1;
+            int cid = this.heap[c];
+            if (c + 1 < this.size && this.keys[this.heap[c + 1]] < this.keys[cid])
+                cid = this.heap[++c];
+
+            if (!(this.keys[cid] < key)) break;
+
+            this.heap[i] = cid;
+            this.pos[cid] = i;
+            i = c;
+        }
+
+        this.heap[i] = id;
+        this.pos[id] = i;
+    }
+}
@@ -0,0 +1,325 @@
+package j.algo;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Kruskal's algorithm for minimum spanning forests and single-linkage
+ * clustering over graphs given as primitive edge arrays.
+ *
+ * An edge i goes between vertices src[i] and dst[i] and has weight
+ * weight[i]. The graph is treated as undirected; self loops and parallel
+ * edges are allowed. Edges are sorted by weight using a parallel sort on
+ * primitive keys, so no object is created per edge. NaN weights are
+ * ordered after positive infinity.
+ *
+ * @see UnionFind
+ */
+public final class Kruskal
+{
+    // Cannot instantiate
+    private Kruskal(){}
+
+    /**
+     * Computes a minimum spanning forest, that is, a minimum spanning tree
+     * for each connected component of the graph. Processing stops as soon
+     * as all vertices are connected.
+     * @param numVertices Number of vertices, which are indexed from 0.
+     * @return The indices of the edges in the forest, in ascending order
+     *         of weight.
+     * @exception IllegalArgumentException if numVertices is non-positive
+     *            or the arrays have different lengths.
+     * @exception IndexOutOfBoundsException if a vertex index is out of
+     *            bounds.
+     */
+    public static int[] minimumSpanningForest(int numVertices,
+        int[] src, int[] dst, float[] weight)
+    {
+        checkLengths(src, dst, weight.length);
+        return spanningForest(numVertices, src, dst, sortedOrder(weight), 1);
+    }
+
+    /**
+     * Same as {@link #minimumSpanningForest(int,int[],int[],float[])}
+     * but for double weights.
+     */
+    public static int[] minimumSpanningForest(int numVertices,
+        int[] src, int[] dst, double[] weight)
+    {
+        checkLengths(src, dst, weight.length);
+        return spanningForest(numVertices, src, dst, sortedOrder(weight), 1);
+    }
+
+    /**
+     * Partitions the vertices into clusters by single-linkage clustering,
+     * that is, by merging the closest pair of clusters until only a
+     * target number of clusters remain. Processing stops as soon as the
+     * target is reached.
+     * @param numVertices Number of vertices, which are indexed from 0.
+     * @param numClusters The target number of clusters. There will be
+     *        more clusters if the graph has more connected components.
+     * @return The zero-based cluster number of each vertex. Cluster numbers
+     *         are assigned in order of the lowest-numbered vertex in each
+     *         cluster.
+     * @exception IllegalArgumentException if numVertices or numClusters is
+     *            non-positive, or the arrays have different lengths.
+     * @exception IndexOutOfBoundsException if a vertex index is out of
+     *            bounds.
+     */
+    public static int[] cluster(int numVertices, int numClusters,
+        int[] src, int[] dst, float[] weight)
+    {
+        checkLengths(src, dst, weight.length);
+        return cluster(numVertices, numClusters, src, dst, sortedOrder(weight));
+    }
+
+    /**
+     * Same as {@link #cluster(int,int,int[],int[],float[])}
+     * but for double weights.
+     */
+    public static int[] cluster(int numVertices, int numClusters,
+        int[] src, int[] dst, double[] weight)
+    {
+        checkLengths(src, dst, weight.length);
+        return cluster(numVertices, numClusters, src, dst, sortedOrder(weight));
+    }
+
+    private static int[] cluster(int numVertices, int numClusters,
+        int[] src, int[] dst, int[] order)
+    {
+        if (numClusters <= 0)
+            throw new IllegalArgumentException("numClusters must > 0");
+
+        final UnionFind uf = new UnionFind(numVertices);
+        run(uf, src, dst, order, numClusters, null);
+
+        // A root's entry doubles as the cluster number of its set, which
+        // is also the root's own label.
+        final int[] labels = new int[numVertices];
+        Arrays.fill(labels, -1);
+
+        int next = 0;
+        for (int v = 0; v < numVertices; v++)
+        {
+            final int root = uf.find(v);
+            if (labels[root] < 0) labels[root] = next++;
+            labels[v] = labels[root];
+        }
+
+        return labels;
+    }
+
+    private static int[] spanningForest(int numVertices,
+        int[] src, int[] dst, int[] order, int numClusters)
+    {
+        final UnionFind uf = new UnionFind(numVertices);
+        final int[] chosen = new int[Math.min(order.length, numVertices - 1)];
+        final int n = run(uf, src, dst, order, numClusters, chosen);
+        return n == chosen.length ? chosen : Arrays.copyOf(chosen, n);
+    }
+
+    /**
+     * Unions the edges in the given order until there are at most
+     * numClusters sets.
+     * @param chosen If non-null, receives the indices of the edges that
+     *        joined two sets.
+     * @return The number of edges that joined two sets.
+     */
+    private static int run(UnionFind uf, int[] src, int[] dst, int[] order,
+        int numClusters, int[] chosen)
+    {
+        int n = 0;
+        for (int i = 0; i < order.length; i++)
+        {
+            if (uf.getDistinctCount() <= numClusters) break;
+
+            final int e = order[i];
+            if (uf.union(src[e], dst[e]))
+            {
+                if (chosen != null) chosen[n] = e;
+                n++;
+            }
+        }
+
+        return n;
+    }
+
+    private static void checkLengths(int[] src, int[] dst, int len)
+    {
+        if (src.length != len || dst.length != len)
+            throw new IllegalArgumentException("array lengths differ");
+    }
+
+    /**
+     * Gets the edge indices sorted by ascending weight. Each float key is
+     * mapped to an int with the same ordering and packed together with
+     * the edge index into a long, which is then sorted in parallel.
+     */
+    private static int[] sortedOrder(float[] weight)
+    {
+        final int len = weight.length;
+        final long[] packed = new long[len];
+        for (int i = 0; i < len; i++)
+        {
+            packed[i] = ((long)sortableBits(weight[i]) << 32) | i;
+        }
+
+        Arrays.parallelSort(packed);
+
+        final int[] order = new int[len];
+        for (int i = 0; i < len; i++)
+            order[i] = (int)packed[i];
+        return order;
+    }
+
+    /**
+     * Gets the edge indices sorted by ascending weight. Double keys do
+     * not fit alongside the index in a long, so the keys and indices are
+     * sorted as pairs by a parallel merge sort.
+     */
+    private static int[] sortedOrder(double[] weight)
+    {
+        final int len = weight.length;
+        final long[] keys = new long[len];
+        final int[] order = new int[len];
+        for (int i = 0; i < len; i++)
+        {
+            keys[i] = sortableBits(weight[i]);
+            order[i] = i;
+        }
+
+        ForkJoinPool.commonPool().invoke(new PairSort(
+            keys, order, new long[len], new int[len], 0, len));
+        return order;
+    }
+
+    /**
+     * Maps a float to an int such that signed comparison of the ints
+     * agrees with the numerical ordering of the floats.
+     */
+    private static int sortableBits(float f)
+    {
+        final int b = Float.floatToIntBits(f);
+        return b ^ ((b >> 31) & Integer.MAX_VALUE);
+    }
+
+    /**
+     * Maps a double to a long such that signed comparison of the longs
+     * agrees with the numerical ordering of the doubles.
+     */
+    private static long sortableBits(double d)
+    {
+        final long b = Double.doubleToLongBits(d);
+        return b ^ ((b >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * A stable merge sort of (key, value) pairs by key, which sorts the
+     * two halves of large ranges in parallel.
+     */
+    private static final class PairSort extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        /** Ranges at most this long are sorted sequentially. */
+        private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+        /** Ranges at most this long are insertion sorted. */
+        private static final int INSERTION_THRESHOLD = 32;
+
+        private final long[] keys;
+        private final int[] vals;
+        private final long[] tmpKeys;
+        private final int[] tmpVals;
+        private final int lo;
+        private final int hi;
+
+        PairSort(long[] keys, int[] vals, long[] tmpKeys, int[] tmpVals,
+            int lo, int hi)
+        {
+            this.keys = keys;
+            this.vals = vals;
+            this.tmpKeys = tmpKeys;
+            this.tmpVals = tmpVals;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.hi - this.lo <= PARALLEL_THRESHOLD)
+            {
+                sort(this.lo, this.hi);
+                return;
+            }
+
+            final int mid = (this.lo + this.hi) >>> 1;
+            invokeAll(
+                new PairSort(this.keys, this.vals, this.tmpKeys, this.tmpVals,
+                    this.lo, mid),
+                new PairSort(this.keys, this.vals, this.tmpKeys, this.tmpVals,
+                    mid, this.hi));
+            merge(this.lo, mid, this.hi);
+        }
+
+        private void sort(int from, int to)
+        {
+            if (to - from <= INSERTION_THRESHOLD)
+            {
+                for (int i = from + 1; i < to; i++)
+                {
+                    final long k = this.keys[i];
+                    final int v = this.vals[i];
+                    int j = i - 1;
+                    for (; j >= from && this.keys[j] > k; j--)
+                    {
+                        this.keys[j + 1] = this.keys[j];
+                        this.vals[j + 1] = this.vals[j];
+                    }
+                    this.keys[j + 1] = k;
+                    this.vals[j + 1] = v;
+                }
+                return;
+            }
+
+            final int mid = (from + to) >>> 1;
+            sort(from, mid);
+            sort(mid, to);
+            merge(from, mid, to);
+        }
+
+        /** Merges the sorted ranges [from, mid) and [mid, to). */
+        private void merge(int from, int mid, int to)
+        {
+            // Already in order?
+            if (this.keys[mid - 1] <= this.keys[mid]) return;
+
+            int i = from;
+            int j = mid;
+            int k = from;
+            while (i < mid && j < to)
+            {
+                if (this.keys[j] < this.keys[i])
+                {
+                    this.tmpKeys[k] = this.keys[j];
+                    this.tmpVals[k++] = this.vals[j++];
+                }
+                else
+                {
+                    this.tmpKeys[k] = this.keys[i];
+                    this.tmpVals[k++] = this.vals[i++];
+                }
+            }
+
+            // Whatever is left in [j, to) is already in place.
+            System.arraycopy(this.keys, i, this.tmpKeys, k, mid - i);
+            System.arraycopy(this.vals, i, this.tmpVals, k, mid - i);
+            k += mid - i;
+
+            System.arraycopy(this.tmpKeys, from, this.keys, from, k - from);
+            System.arraycopy(this.tmpVals, from, this.vals, from, k - from);
+        }
+    }
+}
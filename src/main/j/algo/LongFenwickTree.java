@@ -0,0 +1,158 @@
+package j.algo;
+
+import java.io.*;
+
+/**
+ * A Fenwick tree (binary indexed tree) over a fixed number of long
+ * values, supporting point updates and prefix sums in O(log n) time.
+ *
+ * The tree is a single long array; no method allocates. Sums wrap
+ * around silently on overflow, like ordinary long arithmetic.
+ *
+ * This class is not thread-safe.
+ * @see DoubleFenwickTree
+ */
+public class LongFenwickTree implements Serializable
+{
+    private static final long serialVersionUID = -6024744406713321676L;
+
+    /** tree[i] is the sum of the values at zero-based indices
+     * [i - lowbit(i), i), where i is one-based. tree[0] is unused. */
+    private final long[] tree;
+
+    /**
+     * Constructs a tree of a specified number of values, all zero.
+     * @exception IllegalArgumentException if size is negative.
+     */
+    public LongFenwickTree(int size)
+    {
+        if (size < 0)
+            throw new IllegalArgumentException("size must >= 0");
+
+        this.tree = new long[size + 1];
+    }
+
+    /**
+     * Constructs a tree with the given initial values in O(n) time.
+     * @param values Not modified.
+     */
+    public LongFenwickTree(long[] values)
+    {
+        final int n = values.length;
+        this.tree = new long[n + 1];
+        System.arraycopy(values, 0, this.tree, 1, n);
+
+        for (int i = 1; i <= n; i++)
+        {
+            final int p = i + (i & -i);
+            if (p <= n) this.tree[p] += this.tree[i];
+        }
+    }
+
+    /**
+     * Gets the number of values.
+     */
+    public int size()
+    {
+        return this.tree.length - 1;
+    }
+
+    /**
+     * Adds a delta to the value at an index.
+     * @exception IndexOutOfBoundsException if idx is out of bounds.
+     */
+    public void add(int idx, long delta)
+    {
+        checkIndex(idx, size() - 1);
+
+        final long[] t = this.tree;
+        for (int i = idx + 1; i < t.length; i += i & -i)
+            t[i] += delta;
+    }
+
+    /**
+     * Sets the value at an index.
+     * @exception IndexOutOfBoundsException if idx is out of bounds.
+     */
+    public void set(int idx, long value)
+    {
+        add(idx, value - get(idx));
+    }
+
+    /**
+     * Gets the value at an index.
+     * @exception IndexOutOfBoundsException if idx is out of bounds.
+     */
+    public long get(int idx)
+    {
+        return sum(idx, idx + 1);
+    }
+
+    /**
+     * Gets the sum of the values at indices [0, end).
+     * @exception IndexOutOfBoundsException if end is negative or greater
+     *            than the size.
+     */
+    public long prefixSum(int end)
+    {
+        checkIndex(end, size());
+
+        final long[] t = this.tree;
+        long s = 0;
+        for (int i = end; i > 0; i -= i & -i)
+            s += t[i];
+        return s;
+    }
+
+    /**
+     * Gets the sum of the values at indices [from, to).
+     * @exception IndexOutOfBoundsException if from or to is out of bounds,
+     *            or from is greater than to.
+     */
+    public long sum(int from, int to)
+    {
+        if (from > to)
+            throw new IndexOutOfBoundsException(from + " > " + to);
+
+        return prefixSum(to) - prefixSum(from);
+    }
+
+    /**
+     * Finds the smallest end such that prefixSum(end) &gt;= target, which
+     * is well defined only if all values are non-negative.
+     * @return size() + 1 if even the sum of all values is less than target.
+     */
+    public int lowerBound(long target)
+    {
+        if (target <= 0) return 0;
+
+        final long[] t = this.tree;
+        int pos = 0;
+        for (int step = Integer.highestOneBit(t.length - 1); step > 0; step >>= 1)
+        {
+            final int next = pos + step;
+            if (next < t.length && t[next] < target)
+            {
+                pos = next;
+                target -= t[next];
+            }
+        }
+
+        return pos + 1;
+    }
+
+    /**
+     * Sets all values to zero.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.tree.length; i++)
+            this.tree[i] = 0;
+    }
+
+    private static void checkIndex(int idx, int max)
+    {
+        if (idx < 0 || idx > max)
+            throw new IndexOutOfBoundsException("index: " + idx);
+    }
+}
@@ -0,0 +1,242 @@
+package j.algo;
+
+import java.io.*;
+
+/**
+ * A segment tree over a fixed number of long values, supporting adding
+ * a delta to a range of values and querying the sum, minimum or maximum
+ * of a range, each in O(log n) time.
+ *
+ * Range updates are applied lazily: a node that is entirely covered by
+ * an update records the pending delta instead of passing it on to its
+ * children until a later operation needs to descend below it.
+ *
+ * The tree is stored in four arrays of about 2n elements each; no method
+ * allocates. Sums wrap around silently on overflow, like ordinary long
+ * arithmetic.
+ *
+ * This class is not thread-safe.
+ */
+public class LongSegmentTree implements Serializable
+{
+    private static final long serialVersionUID = -7024744406713321676L;
+
+    /** Number of values. */
+    private final int size;
+
+    /** Number of leaves, the smallest power of two that is at least size.
+     * Node 1 is the root and node i has children 2i and 2i+1. */
+    private final int leaves;
+
+    /** Aggregates of each node's range, excluding pending deltas of the
+     * node's ancestors. Leaves beyond size have a sum of 0 and
+     * min/max of Long.MAX_VALUE/Long.MIN_VALUE so that they never
+     * affect a result. */
+    private final long[] sum;
+    private final long[] min;
+    private final long[] max;
+
+    /** Delta not yet passed on to the children of each node. */
+    private final long[] lazy;
+
+    /**
+     * Constructs a tree of a specified number of values, all zero.
+     * @exception IllegalArgumentException if size is negative.
+     */
+    public LongSegmentTree(int size)
+    {
+        this(new long[checkSize(size)]);
+    }
+
+    /**
+     * Constructs a tree with the given initial values in O(n) time.
+     * @param values Not modified.
+     */
+    public LongSegmentTree(long[] values)
+    {
+        this.size = values.length;
+
+        int l = 1;
+        while (l < this.size) l <<= 1;
+        this.leaves = l;
+
+        this.sum = new long[2 * l];
+        this.min = new long[2 * l];
+        this.max = new long[2 * l];
+        this.lazy = new long[2 * l];
+
+        for (int i = 0; i < l; i++)
+        {
+            final boolean real = i < this.size;
+            this.sum[l + i] = real ? values[i] : 0;
+            this.min[l + i] = real ? values[i] : Long.MAX_VALUE;
+            this.max[l + i] = real ? values[i] : Long.MIN_VALUE;
+        }
+
+        for (int i = l - 1; i >= 1; i--)
+            pull(i);
+    }
+
+    private static int checkSize(int size)
+    {
+        if (size < 0)
+            throw new IllegalArgumentException("size must >= 0");
+        return size;
+    }
+
+    /**
+     * Gets the number of values.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Adds a delta to each value at indices [from, to).
+     * @exception IndexOutOfBoundsException if from or to is out of bounds,
+     *            or from is greater than to.
+     */
+    public void add(int from, int to, long delta)
+    {
+        checkRange(from, to);
+        if (from < to) add(1, 0, this.leaves, from, to, delta);
+    }
+
+    /**
+     * Sets the value at an index.
+     * @exception IndexOutOfBoundsException if idx is out of bounds.
+     */
+    public void set(int idx, long value)
+    {
+        add(idx, idx + 1, value - get(idx));
+    }
+
+    /**
+     * Gets the value at an index.
+     * @exception IndexOutOfBoundsException if idx is out of bounds.
+     */
+    public long get(int idx)
+    {
+        return sum(idx, idx + 1);
+    }
+
+    /**
+     * Gets the sum of the values at indices [from, to).
+     * @return 0 if the range is empty.
+     * @exception IndexOutOfBoundsException if from or to is out of bounds,
+     *            or from is greater than to.
+     */
+    public long sum(int from, int to)
+    {
+        checkRange(from, to);
+        return query(this.sum, 1, 0, this.leaves, from, to, 0);
+    }
+
+    /**
+     * Gets the minimum of the values at indices [from, to).
+     * @return Long.MAX_VALUE if the range is empty.
+     * @exception IndexOutOfBoundsException if from or to is out of bounds,
+     *            or from is greater than to.
+     */
+    public long min(int from, int to)
+    {
+        checkRange(from, to);
+        return query(this.min, 1, 0, this.leaves, from, to, Long.MAX_VALUE);
+    }
+
+    /**
+     * Gets the maximum of the values at indices [from, to).
+     * @return Long.MIN_VALUE if the range is empty.
+     * @exception IndexOutOfBoundsException if from or to is out of bounds,
+     *            or from is greater than to.
+     */
+    public long max(int from, int to)
+    {
+        checkRange(from, to);
+        return query(this.max, 1, 0, this.leaves, from, to, Long.MIN_VALUE);
+    }
+
+    private void checkRange(int from, int to)
+    {
+        if (from < 0 || to > this.size || from > to)
+            throw new IndexOutOfBoundsException(
+                "range: [" + from + ", " + to + ")");
+    }
+
+    /**
+     * Adds delta to [from, to) within node covering [lo, hi).
+     */
+    private void add(int node, int lo, int hi, int from, int to, long delta)
+    {
+        if (from <= lo && hi <= to)
+        {
+            apply(node, hi - lo, delta);
+            return;
+        }
+
+        push(node, hi - lo);
+
+        final int mid = (lo + hi) >>> 1;
+        if (from < mid) add(2 * node, lo, mid, from, to, delta);
+        if (to > mid) add(2 * node + 1, mid, hi, from, to, delta);
+        pull(node);
+    }
+
+    /**
+     * Aggregates one of sum, min or max over [from, to) within node
+     * covering [lo, hi).
+     * @param agg One of the sum, min or max arrays.
+     * @param identity The result for an empty range.
+     */
+    private long query(long[] agg, int node, int lo, int hi,
+        int from, int to, long identity)
+    {
+        if (from >= to) return identity;
+        if (from <= lo && hi <= to) return agg[node];
+
+        push(node, hi - lo);
+
+        final int mid = (lo + hi) >>> 1;
+        final long left = from < mid
+            ? query(agg, 2 * node, lo, mid, from, Math.min(to, mid), identity)
+            : identity;
+        final long right = to > mid
+            ? query(agg, 2 * node + 1, mid, hi, Math.max(from, mid), to, identity)
+            : identity;
+
+        if (agg == this.sum) return left + right;
+        if (agg == this.min) return Math.min(left, right);
+        return Math.max(left, right);
+    }
+
+    /** Adds delta to every real value under a node of len leaves. */
+    private void apply(int node, int len, long delta)
+    {
+        this.sum[node] += delta * len;
+        this.min[node] += delta;
+        this.max[node] += delta;
+        this.lazy[node] += delta;
+    }
+
+    /** Passes the pending delta of a node of len leaves to its children. */
+    private void push(int node, int len)
+    {
+        final long d = this.lazy[node];
+        if (d == 0) return;
+
+        apply(2 * node, len >>> 1, d);
+        apply(2 * node + 1, len >>> 1, d);
+        this.lazy[node] = 0;
+    }
+
+    /** Recomputes the aggregates of a node from its children. */
+    private void pull(int node)
+    {
+        final int l = 2 * node;
+        final int r = l + 1;
+        this.sum[node] = this.sum[l] + this.sum[r];
+        this.min[node] = Math.min(this.min[l], this.min[r]);
+        this.max[node] = Math.max(this.max[l], this.max[r]);
+    }
+}
@@ -0,0 +1,286 @@
+package j.algo;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * A union find structure, with ranking and path compression, indexed by
+ * long values so that it can hold more than Integer.MAX_VALUE elements.
+ *
+ * The element data lives outside of the Java heap, either in direct
+ * buffers or in a memory-mapped file, split into segments of at most
+ * 1 GiB each. Both kinds of storage start out zero-filled, and a zero
+ * entry denotes a singleton set, so construction does not need to touch
+ * every element.
+ *
+ * Direct buffer memory and file mappings are released only when the
+ * buffers are garbage collected. Calling {@link #close()} releases the
+ * underlying file handle, if any, and makes this instance unusable.
+ *
+ * This class is not thread-safe.
+ * @see UnionFind
+ */
+public class LongUnionFind implements Closeable
+{
+    /** log_2 of the number of elements per segment. */
+    private static final int SEG_SHIFT = 27;
+    private static final long SEG_SIZE = 1L << SEG_SHIFT;
+    private static final long SEG_MASK = SEG_SIZE - 1;
+
+    /** The element data split into segments of SEG_SIZE each, except
+     * possibly the last.
+     *
+     * A non-positive value indicates that the element is a canonical root
+     * of the membership set (or tree). The magnitude of the value is an
+     * upper bound of the height of the tree minus one.
+     * A positive value indicates that the element is a non-root. The value
+     * is one plus the zero-based index of its parent in the tree. */
+    private LongBuffer[] segs;
+
+    /** The file channel backing the segments; null if the storage is
+     * not memory-mapped. */
+    private FileChannel channel;
+
+    /** Total number of elements. */
+    private final long numElems;
+
+    /** Number of disjoint sets (or trees). */
+    private long numDisjoint;
+
+    /**
+     * Constructs an instance with a specified number of elements, backed
+     * by direct (off-heap) buffers. All elements are initially disjoint.
+     * @param numElems The total number of elements.
+     * @exception IllegalArgumentException if numElems is non-positive.
+     * @exception OutOfMemoryError if the direct buffers cannot be allocated.
+     */
+    public LongUnionFind(long numElems)
+    {
+        this.numElems = checkNumElems(numElems);
+        this.numDisjoint = numElems;
+        this.channel = null;
+        this.segs = new LongBuffer[numSegs(numElems)];
+
+        for (int i = 0; i < this.segs.length; i++)
+        {
+            this.segs[i] = ByteBuffer
+                .allocateDirect((int)(segLength(i) * 8))
+                .order(ByteOrder.nativeOrder())
+                .asLongBuffer();
+        }
+    }
+
+    /**
+     * Constructs an instance with a specified number of elements, backed
+     * by a memory-mapped file. All elements are initially disjoint.
+     * Any existing content of the file will be discarded.
+     * @param numElems The total number of elements.
+     * @param file The file to map. It will be created if it does not exist
+     *        and will be 8 * numElems bytes long.
+     * @exception IllegalArgumentException if numElems is non-positive.
+     * @exception IOException if the file cannot be created or mapped.
+     */
+    public LongUnionFind(long numElems, File file)
+        throws IOException
+    {
+        this.numElems = checkNumElems(numElems);
+        this.numDisjoint = numElems;
+        this.segs = new LongBuffer[numSegs(numElems)];
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            // Truncate then extend so that the content is all zeros.
+            raf.setLength(0);
+            raf.setLength(numElems * 8);
+
+            this.channel = raf.getChannel();
+
+            for (int i = 0; i < this.segs.length; i++)
+            {
+                this.segs[i] = this.channel
+                    .map(FileChannel.MapMode.READ_WRITE,
+                        (i * SEG_SIZE) * 8, segLength(i) * 8)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+            }
+        }
+        catch (IOException e)
+        {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private static long checkNumElems(long numElems)
+    {
+        if (numElems <= 0)
+            throw new IllegalArgumentException("numElems must > 0");
+
+        // The byte size of the storage must fit in a long.
+        if (numElems > Long.MAX_VALUE / 8)
+            throw new IllegalArgumentException("numElems is too large");
+
+        return numElems;
+    }
+
+    private static int numSegs(long numElems)
+    {
+        return (int)((numElems + SEG_MASK) >>> SEG_SHIFT);
+    }
+
+    /** Gets the number of elements in a segment. */
+    private long segLength(int seg)
+    {
+        return Math.min(SEG_SIZE, this.numElems - seg * SEG_SIZE);
+    }
+
+    /**
+     * Gets the total number of elements.
+     */
+    public long size()
+    {
+        return this.numElems;
+    }
+
+    /**
+     * Checks whether two elements are in the same set.
+     * The order of specifying the element indices does not matter.
+     * @param a The zero-based index of the first element.
+     * @param b The zero-based index of the other element.
+     * @return true if a and b are in the same set or a and b are the same;
+     *         false otherwise.
+     * @exception IndexOutOfBoundsException
+     *            if a or b is negative or out of bounds.
+     * @exception IllegalStateException if this instance is closed.
+     */
+    public boolean connected(long a, long b)
+    {
+        return find(a) == find(b);
+    }
+
+    /**
+     * Union the sets that contain two specified elements.
+     * The order of specifying the elements does not matter.
+     * @param a Zero-based index of the first element.
+     * @param b Zero-based index of the other element.
+     * @return true if the two sets are  disjoint prior to union;
+     *         false otherwise.
+     * @exception IndexOutOfBoundsException
+     *            if a or b is negative or out of bounds.
+     * @exception IllegalStateException if this instance is closed.
+     */
+    public boolean union(long a, long b)
+    {
+        long x = find(a);
+        long y = find(b);
+
+        if (x == y) return false;
+
+        long rx = get(x);
+        long ry = get(y);
+
+        // If root x has a greater height than root y,
+        // then make y a child of x.
+        if (rx < ry)
+        {
+            // swap x and y
+            long t = x;
+            x = y;
+            y = t;
+        }
+        else if (rx == ry)
+        {
+            set(y, ry - 1);
+        }
+
+        // make x a child of y
+        set(x, y + 1);
+        this.numDisjoint --;
+        return true;
+    }
+
+    /**
+     * Gets the number of disjoint sets.
+     * @return Returns a number between 1 and the
+     *         total number of elements, inclusively.
+     */
+    public long getDistinctCount()
+    {
+        return this.numDisjoint;
+    }
+
+    /**
+     * Checks whether all the elements are connected together, that is,
+     * they are all in the same set.
+     */
+    public boolean areAllConnected()
+    {
+        return this.numDisjoint <= 1;
+    }
+
+    /**
+     * Flushes the element data to the backing file, if any, and releases
+     * the file handle. Subsequent operations on this instance will throw
+     * an IllegalStateException. Closing a closed instance has no effect.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.segs == null) return;
+
+        this.segs = null;
+
+        if (this.channel != null)
+        {
+            this.channel.force(false);
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    private long get(long idx)
+    {
+        return this.segs[(int)(idx >>> SEG_SHIFT)].get((int)(idx & SEG_MASK));
+    }
+
+    private void set(long idx, long val)
+    {
+        this.segs[(int)(idx >>> SEG_SHIFT)].put((int)(idx & SEG_MASK), val);
+    }
+
+    /**
+     * Gets the zero-based index of the canonical root of an element.
+     * Two elements are in the same set if and only if they have the
+     * same canonical root. The root of a set may change after a union.
+     * @param idx The zero-based index of the element.
+     * @exception IndexOutOfBoundsException
+     *            if idx is negative or out of bounds.
+     * @exception IllegalStateException if this instance is closed.
+     */
+    public long find(long idx)
+    {
+        if (this.segs == null)
+            throw new IllegalStateException("closed");
+
+        if (idx < 0 || idx >= this.numElems)
+            throw new IndexOutOfBoundsException("index: " + idx);
+
+        long root = idx;
+        long parent;
+        while ((parent = get(root)) > 0)
+            root = parent - 1;
+
+        // Perform path compression with a second pass so that no
+        // temporary storage is needed.
+        while (idx != root)
+        {
+            final long next = get(idx) - 1;
+            set(idx, root + 1);
+            idx = next;
+        }
+
+        return root;
+    }
+}
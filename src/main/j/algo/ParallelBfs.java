@@ -0,0 +1,380 @@
+package j.algo;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A parallel, direction-optimizing breadth-first search over a
+ * {@link CsrGraph}.
+ *
+ * Each level of the search is expanded either top-down, where the
+ * vertices in the frontier claim their unvisited neighbors, or bottom-up,
+ * where every unvisited vertex looks for a neighbor in the frontier.
+ * Top-down is cheaper while the frontier is small; bottom-up is cheaper
+ * once the frontier's edges outnumber the edges left to explore, as
+ * most of an unvisited vertex's scan stops at its first frontier
+ * neighbor. The search switches between the two per level, following
+ * Beamer et al.
+ *
+ * An instance holds the frontier buffers and the visited bitmap for one
+ * graph and reuses them across searches, so repeated searches only
+ * allocate when a per-task output buffer has to grow.
+ *
+ * This class is not thread-safe; use one instance per concurrent search.
+ */
+public class ParallelBfs
+{
+    /** Go bottom-up when the frontier's edges exceed 1/ALPHA of the
+     * edges of unvisited vertices. */
+    private static final int ALPHA = 14;
+
+    /** Go back top-down when the frontier has less than 1/BETA of all
+     * vertices. */
+    private static final int BETA = 24;
+
+    /** Minimum number of frontier vertices per top-down task. */
+    private static final int TOP_DOWN_GRAIN = 1024;
+
+    /** Minimum number of bitmap words (of 64 vertices) per bottom-up
+     * task. */
+    private static final int BOTTOM_UP_GRAIN = 64;
+
+    private final CsrGraph graph;
+    private final CsrGraph transpose;
+    private final ForkJoinPool pool;
+
+    /** Bit v is set iff vertex v has been visited. */
+    private final AtomicLongArray visited;
+
+    /** The vertices in the current level, and in the next level once
+     * a step has completed. */
+    private int[] frontier;
+    private int frontierSize;
+    private int[] next;
+
+    /** Per-task output buffers, grown as needed like ArrayQueue. */
+    private final int[][] taskBufs;
+    private final int[] taskSizes;
+
+    /** Per-task sums of the out- and in-degrees of the vertices found. */
+    private final long[] taskOutDegrees;
+    private final long[] taskInDegrees;
+
+    // State of the current search.
+    private int[] level;
+    private int[] parent;
+    private int depth;
+    private int numTasks;
+
+    /**
+     * Creates a search over a graph, using the common fork/join pool.
+     * The transpose of the graph is computed here; use the other
+     * constructor to avoid that for undirected graphs.
+     */
+    public ParallelBfs(CsrGraph graph)
+    {
+        this(graph, graph.transpose(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param graph The graph to search.
+     * @param transpose The graph with every edge reversed. For an
+     *        undirected graph, this can be the graph itself.
+     * @param pool The pool to run the search in.
+     * @exception IllegalArgumentException if the two graphs have
+     *            different numbers of vertices or edges.
+     */
+    public ParallelBfs(CsrGraph graph, CsrGraph transpose, ForkJoinPool pool)
+    {
+        if (graph.numVertices() != transpose.numVertices()
+         || graph.numEdges() != transpose.numEdges())
+            throw new IllegalArgumentException("transpose does not match");
+
+        final int n = graph.numVertices();
+        this.graph = graph;
+        this.transpose = transpose;
+        this.pool = pool;
+        this.visited = new AtomicLongArray((n + 63) >>> 6);
+        this.frontier = new int[n];
+        this.next = new int[n];
+
+        final int maxTasks = Math.max(1, pool.getParallelism() * 4);
+        this.taskBufs = new int[maxTasks][];
+        this.taskSizes = new int[maxTasks];
+        this.taskOutDegrees = new long[maxTasks];
+        this.taskInDegrees = new long[maxTasks];
+        for (int i = 0; i < maxTasks; i++)
+            this.taskBufs[i] = new int[16];
+    }
+
+    /**
+     * Computes the breadth-first level of every vertex from a source over
+     * an unweighted graph.
+     * @return level[v] is the number of edges on a shortest path from
+     *         the source to v, or -1 if v is unreachable.
+     * @exception IndexOutOfBoundsException if source is out of bounds.
+     */
+    public static int[] levels(CsrGraph graph, int source)
+    {
+        final int[] level = new int[graph.numVertices()];
+        new ParallelBfs(graph).search(source, level, null);
+        return level;
+    }
+
+    /**
+     * Runs a breadth-first search from a source vertex.
+     * @param level Receives, for each vertex v, the number of edges on a
+     *        shortest path from the source to v, or -1 if v is
+     *        unreachable. Must have at least numVertices() elements.
+     * @param parent If non-null, receives, for each reachable vertex other
+     *        than the source, its predecessor on a shortest path; -1 for
+     *        the source and unreachable vertices. Must have at least
+     *        numVertices() elements.
+     * @return The number of reachable vertices, including the source.
+     * @exception IndexOutOfBoundsException if source is out of bounds.
+     * @exception IllegalArgumentException if an array is too short.
+     */
+    public int search(int source, int[] level, int[] parent)
+    {
+        final int n = this.graph.numVertices();
+        if (source < 0 || source >= n)
+            throw new IndexOutOfBoundsException("source: " + source);
+
+        if (level.length < n || (parent != null && parent.length < n))
+            throw new IllegalArgumentException("array too short");
+
+        Arrays.fill(level, 0, n, -1);
+        if (parent != null) Arrays.fill(parent, 0, n, -1);
+        for (int i = 0; i < this.visited.length(); i++)
+            this.visited.set(i, 0);
+
+        this.level = level;
+        this.parent = parent;
+        this.depth = 0;
+
+        level[source] = 0;
+        this.visited.set(source >>> 6, 1L << source);
+        this.frontier[0] = source;
+        this.frontierSize = 1;
+
+        int reached = 1;
+        long frontierEdges = this.graph.degree(source);
+        long unexploredEdges =
+            this.transpose.numEdges() - this.transpose.degree(source);
+        boolean bottomUp = false;
+
+        try
+        {
+            while (this.frontierSize > 0)
+            {
+                if (!bottomUp)
+                    bottomUp = frontierEdges > unexploredEdges / ALPHA;
+                else
+                    bottomUp = this.frontierSize >= n / BETA;
+
+                final int numTasks = bottomUp
+                    ? numTasks((n + 63) >>> 6, BOTTOM_UP_GRAIN)
+                    : numTasks(this.frontierSize, TOP_DOWN_GRAIN);
+
+                this.numTasks = numTasks;
+                this.pool.invoke(new Step(0, numTasks, bottomUp));
+
+                // Gather the task outputs into the next frontier.
+                int size = 0;
+                frontierEdges = 0;
+                for (int t = 0; t < numTasks; t++)
+                {
+                    System.arraycopy(this.taskBufs[t], 0,
+                        this.next, size, this.taskSizes[t]);
+                    size += this.taskSizes[t];
+                    frontierEdges += this.taskOutDegrees[t];
+                    unexploredEdges -= this.taskInDegrees[t];
+                }
+
+                final int[] tmp = this.frontier;
+                this.frontier = this.next;
+                this.next = tmp;
+                this.frontierSize = size;
+                this.depth++;
+                reached += size;
+            }
+        }
+        finally
+        {
+            this.level = null;
+            this.parent = null;
+        }
+
+        return reached;
+    }
+
+    private int numTasks(int work, int grain)
+    {
+        final int n = (int)(((long)work + grain - 1) / grain);
+        return Math.max(1, Math.min(n, this.taskBufs.length));
+    }
+
+    /**
+     * Expands the frontier[lo..hi) top-down into the output of a task.
+     */
+    private void topDown(int task, int lo, int hi)
+    {
+        final CsrGraph g = this.graph;
+        final int[] lvl = this.level;
+        final int[] par = this.parent;
+        final int nextDepth = this.depth + 1;
+
+        int[] buf = this.taskBufs[task];
+        int size = 0;
+        long outDegrees = 0;
+        long inDegrees = 0;
+
+        for (int i = lo; i < hi; i++)
+        {
+            final int u = this.frontier[i];
+            final int end = g.endEdge(u);
+            for (int e = g.firstEdge(u); e < end; e++)
+            {
+                final int v = g.target(e);
+                if (!claim(v)) continue;
+
+                lvl[v] = nextDepth;
+                if (par != null) par[v] = u;
+
+                if (size == buf.length)
+                    buf = this.taskBufs[task] = Arrays.copyOf(buf, size * 2);
+                buf[size++] = v;
+                outDegrees += g.degree(v);
+                inDegrees += this.transpose.degree(v);
+            }
+        }
+
+        this.taskSizes[task] = size;
+        this.taskOutDegrees[task] = outDegrees;
+        this.taskInDegrees[task] = inDegrees;
+    }
+
+    /**
+     * Atomically marks a vertex as visited.
+     * @return true if the vertex was not visited before.
+     */
+    private boolean claim(int v)
+    {
+        final int w = v >>> 6;
+        final long bit = 1L << v;
+        long old;
+        do
+        {
+            old = this.visited.get(w);
+            if ((old & bit) != 0) return false;
+        }
+        while (!this.visited.compareAndSet(w, old, old | bit));
+
+        return true;
+    }
+
+    /**
+     * Expands the unvisited vertices in bitmap words [lo, hi) bottom-up
+     * into the output of a task. Each task owns whole bitmap words, so
+     * the words are updated without compare-and-set.
+     */
+    private void bottomUp(int task, int lo, int hi)
+    {
+        final CsrGraph t = this.transpose;
+        final int[] lvl = this.level;
+        final int[] par = this.parent;
+        final int curDepth = this.depth;
+        final int n = t.numVertices();
+
+        int[] buf = this.taskBufs[task];
+        int size = 0;
+        long outDegrees = 0;
+        long inDegrees = 0;
+
+        for (int w = lo; w < hi; w++)
+        {
+            long bits = this.visited.get(w);
+            if (bits == -1L) continue;
+
+            final int base = w << 6;
+            final int limit = Math.min(64, n - base);
+            for (int b = 0; b < limit; b++)
+            {
+                if ((bits & (1L << b)) != 0) continue;
+
+                final int v = base + b;
+                final int end = t.endEdge(v);
+                for (int e = t.firstEdge(v); e < end; e++)
+                {
+                    final int u = t.target(e);
+
+                    // Vertices found in this step have level depth+1,
+                    // so a racy read cannot mistake them for the frontier.
+                    if (lvl[u] != curDepth) continue;
+
+                    bits |= 1L << b;
+                    lvl[v] = curDepth + 1;
+                    if (par != null) par[v] = u;
+
+                    if (size == buf.length)
+                        buf = this.taskBufs[task] = Arrays.copyOf(buf, size * 2);
+                    buf[size++] = v;
+                    outDegrees += this.graph.degree(v);
+                    inDegrees += t.degree(v);
+                    break;
+                }
+            }
+
+            this.visited.set(w, bits);
+        }
+
+        this.taskSizes[task] = size;
+        this.taskOutDegrees[task] = outDegrees;
+        this.taskInDegrees[task] = inDegrees;
+    }
+
+    /**
+     * Runs the tasks [lo, hi) of one level, splitting in halves.
+     */
+    private final class Step extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+        private final boolean bottomUp;
+
+        Step(int lo, int hi, boolean bottomUp)
+        {
+            this.lo = lo;
+            this.hi = hi;
+            this.bottomUp = bottomUp;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.hi - this.lo > 1)
+            {
+                final int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new Step(this.lo, mid, this.bottomUp),
+                    new Step(mid, this.hi, this.bottomUp));
+                return;
+            }
+
+            // Split the work evenly among the tasks.
+            final int task = this.lo;
+            final long total = this.bottomUp
+                ? visited.length() : frontierSize;
+            final int from = (int)(total * task / numTasks);
+            final int to = (int)(total * (task + 1) / numTasks);
+
+            if (this.bottomUp)
+                ParallelBfs.this.bottomUp(task, from, to);
+            else
+                topDown(task, from, to);
+        }
+    }
+}
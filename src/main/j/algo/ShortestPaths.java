@@ -0,0 +1,228 @@
+package j.algo;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Single-source shortest paths over a weighted {@link CsrGraph} by
+ * Dijkstra's algorithm, with an A* variant for point-to-point queries.
+ *
+ * An instance is a reusable workspace for one graph: the distance,
+ * parent and heap arrays are allocated once, and each query only touches
+ * the entries of the vertices it reaches. Entries left over from earlier
+ * queries are told apart by a per-query stamp, so a query that settles k
+ * vertices costs O(k log k) plus the edges scanned, however large the
+ * graph is.
+ *
+ * Edge weights must be non-negative. An unweighted graph is treated as
+ * having unit weights.
+ *
+ * This class is not thread-safe; use one instance per thread.
+ */
+public class ShortestPaths
+{
+    private final CsrGraph graph;
+
+    /** The distance of each reached vertex from the source. */
+    private final double[] dist;
+
+    /** The predecessor of each reached vertex; -1 for the source. */
+    private final int[] parent;
+
+    /** The A* estimate of each reached vertex. */
+    private final double[] estimate;
+
+    /** stamp[v] == curStamp iff v was reached by the current query. */
+    private final int[] stamp;
+    private int curStamp;
+
+    private final IndexedDoubleHeap heap;
+
+    /** Source of the last query; -1 if none. */
+    private int source;
+
+    public ShortestPaths(CsrGraph graph)
+    {
+        final int n = graph.numVertices();
+        this.graph = graph;
+        this.dist = new double[n];
+        this.parent = new int[n];
+        this.estimate = new double[n];
+        this.stamp = new int[n];
+        this.curStamp = 0;
+        this.heap = new IndexedDoubleHeap(n);
+        this.source = -1;
+    }
+
+    /**
+     * Computes the shortest paths from a source to every vertex.
+     * @exception IndexOutOfBoundsException if source is out of bounds.
+     * @exception IllegalArgumentException if a negative weight is found.
+     */
+    public void dijkstra(int source)
+    {
+        search(source, -1, null);
+    }
+
+    /**
+     * Computes a shortest path from a source to a target, stopping as soon
+     * as the target is settled.
+     * @return The distance to the target; positive infinity if the target
+     *         is unreachable.
+     * @exception IndexOutOfBoundsException if source or target is out of
+     *            bounds.
+     * @exception IllegalArgumentException if a negative weight is found.
+     */
+    public double dijkstra(int source, int target)
+    {
+        checkVertex(target);
+        search(source, target, null);
+        return distance(target);
+    }
+
+    /**
+     * Computes a shortest path from a source to a target by A* search.
+     * @param heuristic Gives a lower bound of the distance from a vertex
+     *        to the target. It must be consistent, that is, h(u) is at
+     *        most w(u, v) + h(v) for every edge (u, v), as is the case for
+     *        straight-line distances on road networks. It is called at most
+     *        once per reached vertex.
+     * @return The distance to the target; positive infinity if the target
+     *         is unreachable.
+     * @exception IndexOutOfBoundsException if source or target is out of
+     *            bounds.
+     * @exception IllegalArgumentException if a negative weight is found.
+     */
+    public double aStar(int source, int target, IntToDoubleFunction heuristic)
+    {
+        if (heuristic == null)
+            throw new NullPointerException("heuristic is null");
+
+        checkVertex(target);
+        search(source, target, heuristic);
+        return distance(target);
+    }
+
+    /**
+     * Gets the distance from the source of the last query to a vertex.
+     * After a point-to-point query, only the distances of settled
+     * vertices are final.
+     * @return positive infinity if the vertex was not reached.
+     * @exception IndexOutOfBoundsException if v is out of bounds.
+     */
+    public double distance(int v)
+    {
+        return this.stamp[v] == this.curStamp && this.source >= 0
+            ? this.dist[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Gets the predecessor of a vertex on the shortest path found by the
+     * last query.
+     * @return -1 if v is the source or was not reached.
+     * @exception IndexOutOfBoundsException if v is out of bounds.
+     */
+    public int parent(int v)
+    {
+        return this.stamp[v] == this.curStamp && this.source >= 0
+            ? this.parent[v] : -1;
+    }
+
+    /**
+     * Gets the vertices on the shortest path found by the last query from
+     * its source to a vertex.
+     * @return The vertices from the source to target, inclusive;
+     *         null if target was not reached.
+     * @exception IndexOutOfBoundsException if target is out of bounds.
+     */
+    public int[] path(int target)
+    {
+        if (distance(target) == Double.POSITIVE_INFINITY) return null;
+
+        int len = 1;
+        for (int v = target; this.parent[v] >= 0; v = this.parent[v])
+            len++;
+
+        final int[] path = new int[len];
+        for (int v = target; len > 0; v = this.parent[v])
+            path[--len] = v;
+        return path;
+    }
+
+    private void checkVertex(int v)
+    {
+        if (v < 0 || v >= this.graph.numVertices())
+            throw new IndexOutOfBoundsException("vertex: " + v);
+    }
+
+    /**
+     * Runs Dijkstra's algorithm, or A* if a heuristic is given.
+     * @param target -1 to compute paths to all vertices.
+     */
+    private void search(int source, int target, IntToDoubleFunction heuristic)
+    {
+        checkVertex(source);
+        newStamp();
+
+        final CsrGraph g = this.graph;
+        final IndexedDoubleHeap h = this.heap;
+        final double[] d = this.dist;
+        final double[] est = this.estimate;
+
+        this.source = source;
+        h.clear();
+        reach(source, 0, -1, heuristic);
+        h.offer(source, est[source]);
+
+        while (!h.isEmpty())
+        {
+            final int u = h.poll();
+            if (u == target) return;
+
+            final double du = d[u];
+            final int end = g.endEdge(u);
+            for (int e = g.firstEdge(u); e < end; e++)
+            {
+                final float w = g.weight(e);
+                if (w < 0)
+                    throw new IllegalArgumentException("negative weight: " + w);
+
+                final int v = g.target(e);
+                final double dv = du + w;
+
+                if (this.stamp[v] != this.curStamp)
+                {
+                    reach(v, dv, u, heuristic);
+                    h.offer(v, dv + est[v]);
+                }
+                else if (dv < d[v] && h.contains(v))
+                {
+                    // Settled vertices (not in the heap) are final.
+                    d[v] = dv;
+                    this.parent[v] = u;
+                    h.offer(v, dv + est[v]);
+                }
+            }
+        }
+    }
+
+    /** Records the first time a vertex is reached by the current query. */
+    private void reach(int v, double d, int p, IntToDoubleFunction heuristic)
+    {
+        this.stamp[v] = this.curStamp;
+        this.dist[v] = d;
+        this.parent[v] = p;
+        this.estimate[v] =
+            heuristic == null ? 0 : heuristic.applyAsDouble(v);
+    }
+
+    private void newStamp()
+    {
+        if (++this.curStamp == 0)
+        {
+            // Wrapped around, so stale stamps could look current.
+            for (int i = 0; i < this.stamp.length; i++)
+                this.stamp[i] = 0;
+            this.curStamp = 1;
+        }
+    }
+}
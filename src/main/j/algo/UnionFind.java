@@ -1,8 +1,7 @@
 package j.algo;
 
-import java.util.Queue;
+import java.util.Arrays;
 import java.io.*;
-import j.collections.ArrayQueue;
 
 /**
  * An implementation of the union find solution with ranking and 
@@ -28,9 +27,6 @@ public class UnionFind implements Serializable
      * is the zero-based index of its parent in the tree. */
     private final int[] rank;
 
-    /** Temp storage for path compression. */
-    private final transient Queue<Integer> pathQ;
-
     /** Number of disjoint sets (or trees). */
     private int numDisjoint;
 
@@ -50,7 +46,7 @@ public class UnionFind implements Serializable
         
         this.numDisjoint = numElems;
         this.rank = new int[numElems];
-        this.pathQ = new ArrayQueue<Integer>(32);
+        Arrays.fill(this.rank, -1);
     }
     
     /**
@@ -128,32 +124,37 @@ public class UnionFind implements Serializable
     
     /**
      * Gets the zero-based index of the canonical root of an element.
+     * Two elements are in the same set if and only if they have the
+     * same canonical root. The root of a set may change after a union.
      * @param idx The zero-based index of the element.
+     * @exception IndexOutOfBoundsException 
+     *            if idx is negative or out of bounds.
      */
-    private int find(int idx)
+    public int find(int idx)
     {
+        int root = idx;
+
         // This loop's max iteration is bounded by the maximum length 
         // of a path (due to ranking), which is log_2(Integer.MAX_VALUE + 1)
         while(true)
         {
-            final int theRank = this.rank[idx];
+            final int theRank = this.rank[root];
 
             // If this elem is a canonical root, then break.
             if (theRank < 0) break;
 
-            // Remember index for path compression later.
-            this.pathQ.offer(idx);
-            
-            idx = theRank;
+            root = theRank;
         }
 
-        Integer polled;
-
-        // Perform path compression.
-        while ((polled = this.pathQ.poll()) != null)
-            this.rank[polled] = idx;
+        // Perform path compression by walking the path a second time,
+        // so that no temporary storage is needed.
+        while (idx != root)
+        {
+            final int next = this.rank[idx];
+            this.rank[idx] = root;
+            idx = next;
+        }
 
-        return idx;
+        return root;
     }
 }
-
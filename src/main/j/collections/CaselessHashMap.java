@@ -0,0 +1,350 @@
+package j.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import j.str.StrUtil;
+
+/**
+ * A hash map with String keys that are compared ignoring case, which can
+ * be queried with any CharSequence without allocating.
+ *
+ * Lookups with get(), containsKey() and remove() accept a String, a
+ * StringBuilder, a {@link j.str.ByteSlice} over a raw request buffer or
+ * any other CharSequence, and neither wrap nor copy it. Keys are compared
+ * char by char after case folding (see {@link StrUtil#foldCase(char)}),
+ * which is exact for ASCII text such as HTTP header names. A key keeps
+ * the case it was first put with.
+ *
+ * The map uses open addressing with linear probing over parallel arrays
+ * of keys, values and cached hash codes, so an entry costs no object
+ * beyond its key. Null keys are not permitted; null values are.
+ *
+ * The iterators of this map do not support removal and throw a
+ * ConcurrentModificationException if the map is modified while
+ * iterating.
+ *
+ * This class is not thread-safe.
+ * @param <V> Class of the values.
+ */
+public class CaselessHashMap<V> extends AbstractMap<String, V>
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Maximum load factor is 1/2. */
+    private static final int LOAD_SHIFT = 1;
+
+    /** keys[i] is the key in slot i, or null if the slot is free. */
+    private String[] keys;
+    private Object[] vals;
+
+    /** hashes[i] is the caseless hash code of keys[i]. */
+    private int[] hashes;
+
+    /** No. of entries */
+    private int size;
+
+    /** modification counter */
+    private int modCount;
+
+    private Set<Map.Entry<String, V>> entrySet;
+
+    public CaselessHashMap()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of entries that can be put before
+     *        the map resizes.
+     * @exception IllegalArgumentException if expectedSize is negative.
+     */
+    public CaselessHashMap(int expectedSize)
+    {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("expected size must >= 0");
+
+        int cap = 4;
+        while (cap >>> LOAD_SHIFT < expectedSize) cap <<= 1;
+        allocate(cap);
+    }
+
+    private void allocate(int cap)
+    {
+        this.keys = new String[cap];
+        this.vals = new Object[cap];
+        this.hashes = new int[cap];
+    }
+
+    /** Spreads the high bits of a hash code so masking uses them too. */
+    private static int spread(int h)
+    {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the slot of a key.
+     * @return The slot if found; else -1.
+     */
+    private int find(Object key)
+    {
+        if (!(key instanceof CharSequence)) return -1;
+
+        final CharSequence cs = (CharSequence)key;
+        final int h = StrUtil.caselessHashCode(cs);
+        final int mask = this.keys.length - 1;
+
+        for (int i = spread(h) & mask; ; i = (i + 1) & mask)
+        {
+            final String k = this.keys[i];
+            if (k == null) return -1;
+            if (this.hashes[i] == h && StrUtil.equalsIgnoreCase(k, cs))
+                return i;
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * @param key A CharSequence. Other objects are never found.
+     */
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @param key A CharSequence. Other objects are never found.
+     * @return The value of the key, or null if not found.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key)
+    {
+        final int i = find(key);
+        return i >= 0 ? (V)this.vals[i] : null;
+    }
+
+    /**
+     * Gets the key stored in this map that equals a given key ignoring
+     * case, with the case it was first put with.
+     * @param key A CharSequence. Other objects are never found.
+     * @return null if not found.
+     */
+    public String getKey(Object key)
+    {
+        final int i = find(key);
+        return i >= 0 ? this.keys[i] : null;
+    }
+
+    /**
+     * Associates a value with a key. If the map already has the key in
+     * a different case, the stored key keeps its original case.
+     * @return The previous value of the key, or null if none.
+     * @exception NullPointerException if key is null.
+     */
+    @Override
+    public V put(String key, V value)
+    {
+        return put((CharSequence)key, value);
+    }
+
+    /**
+     * Same as put(String, V), except that the key is converted to a
+     * String only if it is not in the map yet.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(CharSequence key, V value)
+    {
+        if (key == null) throw new NullPointerException("key is null");
+
+        final int h = StrUtil.caselessHashCode(key);
+        final int mask = this.keys.length - 1;
+
+        int i = spread(h) & mask;
+        for (; this.keys[i] != null; i = (i + 1) & mask)
+        {
+            if (this.hashes[i] == h && StrUtil.equalsIgnoreCase(this.keys[i], key))
+            {
+                final V old = (V)this.vals[i];
+                this.vals[i] = value;
+                return old;
+            }
+        }
+
+        this.modCount++;
+        this.keys[i] = key.toString();
+        this.vals[i] = value;
+        this.hashes[i] = h;
+
+        if (++this.size > this.keys.length >>> LOAD_SHIFT)
+            resize(this.keys.length * 2);
+
+        return null;
+    }
+
+    private void resize(int cap)
+    {
+        final String[] oldKeys = this.keys;
+        final Object[] oldVals = this.vals;
+        final int[] oldHashes = this.hashes;
+
+        allocate(cap);
+        final int mask = cap - 1;
+
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldKeys[j] == null) continue;
+
+            int i = spread(oldHashes[j]) & mask;
+            while (this.keys[i] != null) i = (i + 1) & mask;
+
+            this.keys[i] = oldKeys[j];
+            this.vals[i] = oldVals[j];
+            this.hashes[i] = oldHashes[j];
+        }
+    }
+
+    /**
+     * @param key A CharSequence. Other objects are never found.
+     * @return The removed value, or null if not found.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key)
+    {
+        int i = find(key);
+        if (i < 0) return null;
+
+        final V old = (V)this.vals[i];
+        this.modCount++;
+        this.size--;
+
+        // Shift later entries of the probe sequence back into the hole,
+        // so that lookups never need tombstones.
+        final int mask = this.keys.length - 1;
+        for (int j = (i + 1) & mask; this.keys[j] != null; j = (j + 1) & mask)
+        {
+            final int home = spread(this.hashes[j]) & mask;
+
+            // Move j into i only if its home slot is not within (i, j].
+            if (((j - home) & mask) >= ((j - i) & mask))
+            {
+                this.keys[i] = this.keys[j];
+                this.vals[i] = this.vals[j];
+                this.hashes[i] = this.hashes[j];
+                i = j;
+            }
+        }
+
+        this.keys[i] = null;
+        this.vals[i] = null;
+        return old;
+    }
+
+    @Override
+    public void clear()
+    {
+        this.modCount++;
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            this.keys[i] = null;
+            this.vals[i] = null;
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Gets a view of the entries. The view and its iterator do not
+     * support removal, and setValue() on an entry does not write
+     * through to the map.
+     */
+    @Override
+    public Set<Map.Entry<String, V>> entrySet()
+    {
+        if (this.entrySet == null)
+        {
+            this.entrySet = new AbstractSet<Map.Entry<String, V>>()
+            {
+                @Override
+                public Iterator<Map.Entry<String, V>> iterator()
+                {
+                    return new Iter();
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+            };
+        }
+
+        return this.entrySet;
+    }
+
+    private class Iter implements Iterator<Map.Entry<String, V>>
+    {
+        private final int expectedModCount;
+
+        private int cur; // next slot to look at
+        private int left; // num entries left
+
+        public Iter()
+        {
+            this.cur = 0;
+            this.left = size;
+            this.expectedModCount = modCount;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.left > 0;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<String, V> next()
+        {
+            if (this.left > 0)
+            {
+                if (modCount == this.expectedModCount)
+                {
+                    while (keys[this.cur] == null) this.cur++;
+
+                    this.left--;
+                    final int i = this.cur++;
+                    return new AbstractMap.SimpleEntry<String, V>(
+                        keys[i], (V)vals[i]);
+                }
+
+                throw new ConcurrentModificationException();
+            }
+
+            throw new NoSuchElementException();
+        }
+    }
+}
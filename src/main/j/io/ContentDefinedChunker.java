@@ -0,0 +1,278 @@
+package j.io;
+
+import j.str.RollingHash;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a byte stream into chunks at boundaries chosen by the content
+ * rather than by offset, FastCDC style, so that inserting or removing
+ * bytes changes only the chunks around the edit and the rest can still
+ * be found as duplicates.
+ *
+ * A boundary is placed where the Gear hash of the preceding bytes has a
+ * given number of zero high bits, but never less than min bytes or more
+ * than max bytes after the previous boundary. Chunk sizes are normalized
+ * around avg: before avg bytes, a boundary needs two more zero bits than
+ * avg alone would, and after avg, two fewer. Hashing starts after min
+ * bytes, so the skipped bytes cost nothing.
+ *
+ * Read chunks with {@link #next()}, which reads the stream through an
+ * internal buffer of 2 max bytes and exposes each chunk as a range of that
+ * buffer, valid until the next call, so chunking allocates nothing. For
+ * data already in memory, use {@link #nextCut(byte[], int, int)}.
+ *
+ * This class is not thread-safe.
+ */
+public class ContentDefinedChunker implements Closeable
+{
+    public static final int DEFAULT_MIN = 2048;
+    public static final int DEFAULT_AVG = 8192;
+    public static final int DEFAULT_MAX = 65536;
+
+    private final int min;
+    private final int avg;
+    private final int max;
+
+    /** Zero bits a boundary needs before and after avg bytes */
+    private final long maskS;
+    private final long maskL;
+
+    /** Null if constructed for nextCut() only */
+    private final InputStream in;
+    private final byte[] buf;
+
+    /** Start of the unchunked bytes in buffer */
+    private int start;
+
+    /** No. of valid bytes in buffer */
+    private int count;
+    private boolean eof;
+
+    /** Stream offset of buf[start] */
+    private long streamPos;
+
+    private int chunkOff;
+    private int chunkLen;
+    private long chunkPos;
+    private boolean hashed;
+    private long hash;
+
+    /**
+     * Constructs a chunker for nextCut() only.
+     * @exception IllegalArgumentException if the sizes are not
+     *            0 < min <= avg <= max, or avg is less than 16.
+     */
+    public ContentDefinedChunker(int min, int avg, int max)
+    {
+        this(null, min, avg, max);
+    }
+
+    /**
+     * Constructs a chunker of a stream with the default sizes.
+     * @exception IllegalArgumentException if inner is null.
+     */
+    public ContentDefinedChunker(InputStream inner)
+    {
+        this(checkInner(inner), DEFAULT_MIN, DEFAULT_AVG, DEFAULT_MAX);
+    }
+
+    /**
+     * Constructs a chunker of a stream.
+     * @exception IllegalArgumentException if inner is null, or the sizes
+     *            are not 0 < min <= avg <= max, or avg is less than 16.
+     */
+    public ContentDefinedChunker(InputStream inner, int min, int avg, int max)
+    {
+        if (min <= 0 || min > avg || avg > max)
+            throw new IllegalArgumentException("sizes must be 0 < min <= avg <= max");
+
+        if (avg < 16)
+            throw new IllegalArgumentException("avg must >= 16");
+
+        this.min = min;
+        this.avg = avg;
+        this.max = max;
+
+        final int bits = 31 - Integer.numberOfLeadingZeros(avg);
+        this.maskS = -1L << (64 - (bits + 2));
+        this.maskL = -1L << (64 - (bits - 2));
+
+        this.in = inner;
+        this.buf = inner == null ? null : new byte[2 * max];
+    }
+
+    private static InputStream checkInner(InputStream inner)
+    {
+        if (inner == null)
+            throw new IllegalArgumentException("inner is null");
+
+        return inner;
+    }
+
+    /**
+     * Finds the end of the chunk that starts at b[off], taking the data
+     * to end at off + len if that is less than max bytes away.
+     * @return The length of the chunk, 0 iff len is 0.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public int nextCut(byte[] b, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > b.length - off)
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len);
+
+        if (len <= this.min) return len;
+
+        final int n = Math.min(len, this.max);
+        final int normal = Math.min(this.avg, n);
+        final long maskS = this.maskS;
+        final long maskL = this.maskL;
+        long h = 0;
+        int i = off + this.min;
+
+        for (; i < off + normal; i++)
+        {
+            h = RollingHash.gear(h, b[i]);
+            if ((h & maskS) == 0) return i + 1 - off;
+        }
+
+        for (; i < off + n; i++)
+        {
+            h = RollingHash.gear(h, b[i]);
+            if ((h & maskL) == 0) return i + 1 - off;
+        }
+
+        return n;
+    }
+
+    /**
+     * Same as nextCut(byte[], int, int) over the remaining bytes of a
+     * buffer. The position of the buffer is not changed.
+     */
+    public int nextCut(ByteBuffer b)
+    {
+        if (b.hasArray())
+            return nextCut(b.array(), b.arrayOffset() + b.position(), b.remaining());
+
+        final int off = b.position();
+        final int len = b.remaining();
+        if (len <= this.min) return len;
+
+        final int n = Math.min(len, this.max);
+        final int normal = Math.min(this.avg, n);
+        long h = 0;
+        int i = off + this.min;
+
+        for (; i < off + normal; i++)
+        {
+            h = RollingHash.gear(h, b.get(i));
+            if ((h & this.maskS) == 0) return i + 1 - off;
+        }
+
+        for (; i < off + n; i++)
+        {
+            h = RollingHash.gear(h, b.get(i));
+            if ((h & this.maskL) == 0) return i + 1 - off;
+        }
+
+        return n;
+    }
+
+    /**
+     * Reads the next chunk of the stream.
+     * @return false if the stream has ended.
+     * @exception IllegalStateException if constructed without a stream.
+     */
+    public boolean next() throws IOException
+    {
+        if (this.in == null)
+            throw new IllegalStateException("no stream");
+
+        // Have max bytes ready, or all that is left.
+        while (this.count - this.start < this.max && !this.eof)
+        {
+            if (this.start > 0 && this.buf.length - this.start < this.max)
+            {
+                this.count -= this.start;
+                System.arraycopy(this.buf, this.start, this.buf, 0, this.count);
+                this.start = 0;
+            }
+
+            final int n = this.in.read(this.buf, this.count, this.buf.length - this.count);
+            if (n < 0) this.eof = true;
+            else this.count += n;
+        }
+
+        final int len = nextCut(this.buf, this.start, this.count - this.start);
+        if (len == 0) return false;
+
+        this.chunkOff = this.start;
+        this.chunkLen = len;
+        this.chunkPos = this.streamPos;
+        this.hashed = false;
+
+        this.start += len;
+        this.streamPos += len;
+        return true;
+    }
+
+    /**
+     * Gets the buffer holding the current chunk, which must not be
+     * modified. Its content changes on the next call to next().
+     */
+    public byte[] buffer()
+    {
+        return this.buf;
+    }
+
+    /**
+     * Gets the offset of the current chunk in buffer().
+     */
+    public int offset()
+    {
+        return this.chunkOff;
+    }
+
+    /**
+     * Gets the length of the current chunk.
+     */
+    public int length()
+    {
+        return this.chunkLen;
+    }
+
+    /**
+     * Gets the offset of the current chunk in the stream.
+     */
+    public long position()
+    {
+        return this.chunkPos;
+    }
+
+    /**
+     * Gets a 64-bit FNV-1a hash of the current chunk. It is not
+     * cryptographic; to key stored chunks, feed the chunk to a
+     * MessageDigest instead.
+     */
+    public long hash()
+    {
+        if (!this.hashed)
+        {
+            long h = 0xCBF29CE484222325L;
+            for (int i = this.chunkOff; i < this.chunkOff + this.chunkLen; i++)
+                h = (h ^ (this.buf[i] & 255)) * 0x100000001B3L;
+
+            this.hash = h;
+            this.hashed = true;
+        }
+
+        return this.hash;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (this.in != null) this.in.close();
+    }
+}
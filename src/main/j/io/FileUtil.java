@@ -1,18 +1,29 @@
 package j.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.util.Arrays;
 
 public final class FileUtil
 {
     private FileUtil(){}
 
     public static final String DEFAULT_CHARSET = "utf-8";
-    
+
     public static final String LINE_SEP = System.getProperty("line.separator");
 
+    /** Files at least this large are memory-mapped by readAllChars() */
+    private static final long MAP_THRESHOLD = 1L << 20;
+
+    /** Largest array the VM can allocate */
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
     /**
      * Reads an entire UTF-8 text file into memory as a {@link String}.
-     * This can handle various line ending conventions, but line endings 
+     * This can handle various line ending conventions, but line endings
      * will be converted into the underlying platform's default.
      */
     public static String readAll(File file)
@@ -23,7 +34,7 @@ public final class FileUtil
 
     /**
      * Reads an entire UTF-8 text file into memory as a {@link String}.
-     * This can handle various line ending conventions, but line endings 
+     * This can handle various line ending conventions, but line endings
      * will be converted into the underlying platform's default.
      */
     public static String readAll(String filePath)
@@ -34,7 +45,7 @@ public final class FileUtil
 
     /**
      * Reads an entire text file into memory as a {@link String}.
-     * This can handle various line ending conventions, but line endings 
+     * This can handle various line ending conventions, but line endings
      * will be converted into the underlying platform's default.
      */
     public static String readAll(String filePath, String charset)
@@ -45,35 +56,223 @@ public final class FileUtil
 
     /**
      * Reads an entire text file into memory as a {@link String}.
-     * This can handle various line ending conventions, but line endings 
+     * This can handle various line ending conventions, but line endings
      * will be converted into the underlying platform's default.
      */
     public static String readAll(File file, String charset)
         throws IOException
     {
-        StringBuilder sb = new StringBuilder();
-        BufferedReader br = null;
-    
+        return readAll(file, toCharset(charset), false);
+    }
+
+    private static Charset toCharset(String charset)
+        throws UnsupportedEncodingException
+    {
+        try
+        {
+            return Charset.forName(charset);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // As InputStreamReader would throw.
+            throw new UnsupportedEncodingException(charset);
+        }
+    }
+
+    /**
+     * Reads an entire text file into memory as a {@link String}, reading
+     * the file with one sized read and decoding it once.
+     *
+     * @param keepLineSeps If true, the text is returned as is. If false,
+     *        the LF, CR and CRLF line endings are converted into the
+     *        underlying platform's default and a line ending at the end
+     *        is dropped, as readAll(File, String) does.
+     * @exception IOException if the file cannot be read or is 2 GB or
+     *            larger.
+     */
+    public static String readAll(File file, Charset charset, boolean keepLineSeps)
+        throws IOException
+    {
+        final byte[] b = readAllBytes(file);
+        if (keepLineSeps) return new String(b, charset);
+
+        if (!charset.equals(StandardCharsets.UTF_8) &&
+            !charset.equals(StandardCharsets.ISO_8859_1) &&
+            !charset.equals(StandardCharsets.US_ASCII))
+            return joinLines(new String(b, charset), true);
+
+        // In these charsets, CR and LF bytes are always CR and LF chars,
+        // so the last line ending can be left out of the String instead of
+        // cut off it.
+        int n = b.length;
+        if (n > 0 && b[n - 1] == '\n') n--;
+        if (n > 0 && b[n - 1] == '\r') n--;
+        return joinLines(new String(b, 0, n, charset), false);
+    }
+
+    /**
+     * Converts the line endings of a text into LINE_SEP, as joining the
+     * lines of BufferedReader.readLine() does.
+     * @param dropLast Whether to drop a line ending at the end.
+     */
+    private static String joinLines(String s, boolean dropLast)
+    {
+        int len = s.length();
+        if (dropLast && len > 0)
+        {
+            if (s.charAt(len - 1) == '\n') len--;
+            if (len > 0 && s.charAt(len - 1) == '\r') len--;
+        }
+
+        // Often there is nothing to convert.
+        final int cr = s.indexOf('\r');
+        if (LINE_SEP.equals("\n") && (cr < 0 || cr >= len))
+            return len == s.length() ? s : s.substring(0, len);
+
+        final StringBuilder sb = new StringBuilder(len + 16);
+        int start = 0;
+        for (int i = 0; i < len; i++)
+        {
+            final char c = s.charAt(i);
+            if (c != '\n' && c != '\r') continue;
+
+            sb.append(s, start, i).append(LINE_SEP);
+            if (c == '\r' && i + 1 < len && s.charAt(i + 1) == '\n') i++;
+            start = i + 1;
+        }
+
+        sb.append(s, start, len);
+        return sb.toString();
+    }
+
+    /**
+     * Reads an entire file into memory with one read of its size.
+     * @exception IOException if the file cannot be read or is 2 GB or
+     *            larger.
+     */
+    public static byte[] readAllBytes(File file)
+        throws IOException
+    {
+        final FileInputStream in = new FileInputStream(file);
         try
         {
-            String line;
-            String lineSep = "";
+            final FileChannel ch = in.getChannel();
+            final long size = ch.size();
+            if (size > MAX_ARRAY)
+                throw new IOException("file too large: " + file);
+
+            byte[] b = new byte[(int)size];
+            int n = 0;
+            while (true)
+            {
+                // The file may have grown or shrunk since.
+                if (n == b.length)
+                {
+                    final int c = in.read();
+                    if (c < 0) return b;
+                    if (n == MAX_ARRAY)
+                        throw new IOException("file too large: " + file);
+
+                    b = Arrays.copyOf(b, (int)Math.min(MAX_ARRAY, Math.max(8192, 2L * n)));
+                    b[n++] = (byte)c;
+                }
+
+                final int k = in.read(b, n, b.length - n);
+                if (k < 0) return n == b.length ? b : Arrays.copyOf(b, n);
+                n += k;
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads and decodes an entire text file into a char buffer, keeping
+     * the line endings. A file of 1 MB or more is memory-mapped and
+     * decoded from the mapping, so it is never read into a byte array of
+     * its size.
+     * Malformed input is replaced, as new String(byte[], Charset) does.
+     *
+     * @return A buffer backed by an array, from position 0 to the limit.
+     * @exception IOException if the file cannot be read or is 2 GB or
+     *            larger.
+     */
+    public static CharBuffer readAllChars(File file, Charset charset)
+        throws IOException
+    {
+        final ByteBuffer in = file.length() >= MAP_THRESHOLD ?
+            map(file) : ByteBuffer.wrap(readAllBytes(file));
+
+        final CharsetDecoder dec = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
 
-            br = new BufferedReader(new InputStreamReader(
-                    new FileInputStream(file), charset));
+        // Enough for UTF-8 and single byte charsets, which produce at most
+        // a char per byte.
+        CharBuffer out = CharBuffer.allocate((int)Math.min(MAX_ARRAY,
+            (long)(in.remaining() * (double)dec.maxCharsPerByte())));
 
-            while ((line = br.readLine()) != null)
+        if (in.hasArray())
+        {
+            while (dec.decode(in, out, true).isOverflow()) out = grow(out, file);
+        }
+        else
+        {
+            // Decoders are much faster over arrays, so copy the mapping
+            // through a small array.
+            final ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+            boolean end = false;
+            while (!end)
             {
-                sb.append(lineSep);
-                sb.append(line);
-                lineSep = LINE_SEP;
+                final ByteBuffer src = in.duplicate();
+                src.limit(src.position() + Math.min(chunk.remaining(), src.remaining()));
+                chunk.put(src);
+                in.position(src.position());
+                end = !in.hasRemaining();
+
+                chunk.flip();
+                while (dec.decode(chunk, out, end).isOverflow()) out = grow(out, file);
+                chunk.compact();
             }
+        }
+
+        while (dec.flush(out).isOverflow()) out = grow(out, file);
+
+        out.flip();
+        return out;
+    }
+
+    private static ByteBuffer map(File file)
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel ch = raf.getChannel();
+            final long size = ch.size();
+            if (size > MAX_ARRAY)
+                throw new IOException("file too large: " + file);
 
-            return sb.toString();
+            // The mapping stays valid once closed.
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
         }
         finally
         {
-            if (br != null) br.close();
+            raf.close();
         }
     }
-}
\ No newline at end of file
+
+    private static CharBuffer grow(CharBuffer out, File file)
+        throws IOException
+    {
+        if (out.capacity() == MAX_ARRAY)
+            throw new IOException("file too large: " + file);
+
+        final CharBuffer o = CharBuffer.allocate(
+            (int)Math.min(MAX_ARRAY, 2L * out.capacity() + 16));
+        out.flip();
+        return o.put(out);
+    }
+}
@@ -0,0 +1,186 @@
+package j.io;
+
+import j.str.Hex;
+
+import java.io.*;
+
+/**
+ * An input stream that reads ASCII hex digits, in either case, from the
+ * underlying stream and returns the bytes they encode. The digits are
+ * read in bulk into an internal buffer and decoded with a lookup table.
+ * A pair of digits may be split across reads of the underlying stream.
+ * This class is not thread-safe.
+ */
+public class HexDecodingInputStream extends FilterInputStream
+{
+    private static final int DEFAULT_BUF_SIZE = 8192;
+
+    /** Buffer of undecoded digits */
+    private final byte[] buf;
+
+    /** Index of the next undecoded digit in buffer */
+    private int pos;
+
+    /** No. of valid bytes in buffer */
+    private int count;
+
+    /** No. of digits decoded so far, for error messages */
+    private long decoded;
+
+    /** Whether the stream is closed. */
+    private boolean closed;
+
+    /**
+     * @exception IllegalArgumentException if inner is null.
+     */
+    public HexDecodingInputStream(InputStream inner)
+    {
+        this(inner, DEFAULT_BUF_SIZE);
+    }
+
+    /**
+     * @param size Size of the buffer of undecoded digits.
+     * @exception IllegalArgumentException if inner is null or size is
+     *            less than 2.
+     */
+    public HexDecodingInputStream(InputStream inner, int size)
+    {
+        super(inner);
+
+        if (inner == null)
+            throw new IllegalArgumentException("inner is null");
+
+        if (size < 2)
+            throw new IllegalArgumentException("size must >= 2");
+
+        this.buf = new byte[size];
+        this.closed = false;
+    }
+
+    private void checkClose() throws IOException
+    {
+        if (this.closed) throw new IOException("stream closed");
+    }
+
+    /**
+     * @return false, not supported.
+     */
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    /**
+     * does nothing since not supported
+     */
+    @Override
+    public void mark(int k)
+    {
+        // nothing
+    }
+
+    /**
+     * @exception IOException always thrown since not supported.
+     */
+    @Override
+    public void reset() throws IOException
+    {
+        throw new IOException("not supported");
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        checkClose();
+        return (this.count - this.pos + this.in.available()) / 2;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        byte[] b = {0};
+        final int read = this.read(b, 0, 1);
+        if (read > 0) return ((int)b[0]) & 255;
+        return -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len)
+        throws IOException
+    {
+        checkClose();
+
+        if (off < 0 || len < 0 || len > b.length - off)
+            throw new IndexOutOfBoundsException();
+
+        if (len == 0) return 0;
+
+        // Fill until there is a pair of digits, keeping an odd one.
+        while (this.count - this.pos < 2)
+        {
+            if (this.pos > 0)
+            {
+                this.count -= this.pos;
+                System.arraycopy(this.buf, this.pos, this.buf, 0, this.count);
+                this.pos = 0;
+            }
+
+            final int n = this.in.read(this.buf, this.count,
+                this.buf.length - this.count);
+            if (n < 0)
+            {
+                if (this.count > 0)
+                    throw new EOFException("odd number of hex digits");
+                return -1;
+            }
+
+            this.count += n;
+        }
+
+        final int n = Math.min(len, (this.count - this.pos) / 2);
+        try
+        {
+            Hex.decode(this.buf, this.pos, 2 * n, b, off);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException("invalid hex digits after offset " +
+                this.decoded, e);
+        }
+
+        this.pos += 2 * n;
+        this.decoded += 2 * n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n)
+        throws IOException
+    {
+        if (n <= 0) return 0;
+
+        // Decoding validates the skipped digits too.
+        final byte[] localBuf = new byte[(int)Math.min(n, this.buf.length / 2)];
+        long left = n;
+        while (left > 0)
+        {
+            final int nread = read(localBuf, 0,
+                (int)Math.min(left, localBuf.length));
+            if (nread < 0) break;
+
+            left -= nread;
+        }
+
+        return n - left;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        // close() can be called multiple times.
+        if (this.closed) return;
+        this.closed = true;
+        this.in.close();
+    }
+}
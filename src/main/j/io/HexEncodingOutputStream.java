@@ -0,0 +1,139 @@
+package j.io;
+
+import j.str.Hex;
+
+import java.io.*;
+
+/**
+ * An output stream that writes each byte written to it as two ASCII hex
+ * digits to the underlying stream. The digits are encoded straight into
+ * an internal buffer, with no String in between.
+ * This class is not thread-safe.
+ */
+public class HexEncodingOutputStream extends FilterOutputStream
+{
+    private static final int DEFAULT_BUF_SIZE = 8192;
+
+    private final Hex hex;
+
+    /** Buffer of encoded digits */
+    private final byte[] buf;
+
+    /** No. of valid bytes in buffer */
+    private int count;
+
+    /** Scratch for write(int) */
+    private final byte[] one = new byte[1];
+
+    /** Whether the stream is closed. */
+    private boolean closed;
+
+    /**
+     * Constructs a stream that writes lowercase digits.
+     * @exception IllegalArgumentException if out is null.
+     */
+    public HexEncodingOutputStream(OutputStream out)
+    {
+        this(out, Hex.LOWER, DEFAULT_BUF_SIZE);
+    }
+
+    /**
+     * @param hex Hex.LOWER or Hex.UPPER.
+     * @param size Size of the buffer of encoded digits.
+     * @exception IllegalArgumentException if out or hex is null, or
+     *            size is less than 2.
+     */
+    public HexEncodingOutputStream(OutputStream out, Hex hex, int size)
+    {
+        super(out);
+
+        if (out == null)
+            throw new IllegalArgumentException("out is null");
+
+        if (hex == null)
+            throw new IllegalArgumentException("hex is null");
+
+        if (size < 2)
+            throw new IllegalArgumentException("size must >= 2");
+
+        this.hex = hex;
+        this.buf = new byte[size & ~1];
+        this.count = 0;
+        this.closed = false;
+    }
+
+    private void checkClose() throws IOException
+    {
+        if (this.closed) throw new IOException("stream closed");
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if (this.count > 0)
+        {
+            this.out.write(this.buf, 0, this.count);
+            this.count = 0;
+        }
+    }
+
+    @Override
+    public void write(int i) throws IOException
+    {
+        checkClose();
+
+        if (this.count == this.buf.length)
+            flushBuffer();
+
+        this.one[0] = (byte)i;
+        this.hex.encode(this.one, 0, 1, this.buf, this.count);
+        this.count += 2;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len)
+        throws IOException
+    {
+        checkClose();
+
+        if (off < 0 || len < 0 || len > b.length - off)
+            throw new IndexOutOfBoundsException();
+
+        while (len > 0)
+        {
+            if (this.count == this.buf.length)
+                flushBuffer();
+
+            final int n = Math.min(len, (this.buf.length - this.count) / 2);
+            this.hex.encode(b, off, n, this.buf, this.count);
+            this.count += 2 * n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        checkClose();
+        flushBuffer();
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        // close() can be called multiple times.
+        if (this.closed) return;
+        this.closed = true;
+
+        try
+        {
+            flushBuffer();
+            this.out.flush();
+        }
+        finally
+        {
+            this.out.close();
+        }
+    }
+}
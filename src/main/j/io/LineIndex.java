@@ -0,0 +1,378 @@
+package j.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An index of the line starts of a text file, for reading any line or
+ * range of lines without reading the lines before it.
+ *
+ * The index keeps the offset of every rate-th line start, which for the
+ * default rate of 1024 is 8 bytes per 1024 lines. To read line n, the
+ * file is jumped to the sample at or before it, then at most rate - 1
+ * lines are skipped. The file is memory-mapped, so the jump costs no
+ * read or seek call, and the skipped lines are scanned 8 bytes at a time.
+ *
+ * An index is built in parallel with {@link MappedLines}, and can be
+ * saved next to the file, in a file with the suffix ".lidx". The saved
+ * index records the size and last modified time of the file, and
+ * {@link #open(File)} rebuilds it if either has changed. Lines are
+ * terminated as in MappedLines, and numbered from one.
+ *
+ * The file must not be modified while an index of it is in use. The
+ * mapping is released when the index is garbage collected.
+ *
+ * This class is thread-safe.
+ */
+public final class LineIndex
+{
+    public static final int DEFAULT_RATE = 1024;
+
+    /** Suffix of the index file of a text file */
+    public static final String SUFFIX = ".lidx";
+
+    private static final int MAGIC = 0x5844494C; // "LIDX" in little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final int rate;
+    private final long fileSize;
+    private final long lastModified;
+    private final long lineCount;
+
+    /** Offset of lines 1, rate + 1, 2 rate + 1 and so on */
+    private final long[] samples;
+
+    private final MappedLines.Segments segments;
+
+    private LineIndex(int rate, long fileSize, long lastModified,
+        long lineCount, long[] samples, MappedLines.Segments segments)
+    {
+        this.rate = rate;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.lineCount = lineCount;
+        this.samples = samples;
+        this.segments = segments;
+    }
+
+    /**
+     * Gets the file an index of a text file is saved in.
+     */
+    public static File indexFile(File file)
+    {
+        return new File(file.getPath() + SUFFIX);
+    }
+
+    /**
+     * Opens an index of a file with the default rate.
+     * @see #open(File, int)
+     */
+    public static LineIndex open(File file) throws IOException
+    {
+        return open(file, DEFAULT_RATE);
+    }
+
+    /**
+     * Opens the saved index of a file, or builds and saves one if there
+     * is none, or it is of another rate, or it cannot be read, or the
+     * file has changed since.
+     * If the index cannot be saved, it is still returned.
+     *
+     * @exception IllegalArgumentException if rate is non-positive.
+     * @exception IOException if the file cannot be read or mapped.
+     */
+    public static LineIndex open(File file, int rate) throws IOException
+    {
+        if (rate <= 0)
+            throw new IllegalArgumentException("rate must > 0");
+
+        final File idx = indexFile(file);
+        LineIndex saved;
+        try
+        {
+            saved = load(file, idx);
+        }
+        catch (IOException e)
+        {
+            // Such as an index that cannot be read; rebuild it.
+            saved = null;
+        }
+
+        if (saved != null && saved.rate == rate) return saved;
+
+        final LineIndex index = build(file, rate, ForkJoinPool.commonPool());
+        try
+        {
+            index.save(idx);
+        }
+        catch (IOException e)
+        {
+            // Such as a read-only directory; rebuild next time.
+        }
+
+        return index;
+    }
+
+    /**
+     * Builds an index of a file without saving it.
+     * @exception IllegalArgumentException if rate is non-positive.
+     * @exception IOException if the file cannot be read or mapped.
+     */
+    public static LineIndex build(File file, int rate, ForkJoinPool pool)
+        throws IOException
+    {
+        return build(file, rate, pool,
+            MappedLines.defaultSegments(pool, file.length()));
+    }
+
+    static LineIndex build(File file, final int rate, ForkJoinPool pool,
+        int segments) throws IOException
+    {
+        if (rate <= 0)
+            throw new IllegalArgumentException("rate must > 0");
+
+        // Taken before reading, so a change while building makes the
+        // index stale.
+        final long lastModified = file.lastModified();
+        final long size = file.length();
+
+        final MappedLines.Segments s = MappedLines.map(file, segments);
+
+        final Samples all = MappedLines.process(s, pool, Samples::new,
+            (Samples acc, long lineNum, long offset, ByteBuffer line) ->
+            {
+                if ((lineNum - 1) % rate == 0) acc.add(offset);
+                acc.lines = lineNum;
+            },
+            Samples::merge);
+
+        return new LineIndex(rate, size, lastModified, all.lines,
+            Arrays.copyOf(all.offsets, all.size), s);
+    }
+
+    /**
+     * Loads a saved index.
+     * @return null if the index file is missing, corrupt or stale.
+     * @exception IOException if the index file or the file cannot be read.
+     */
+    private static LineIndex load(File file, File idx) throws IOException
+    {
+        if (!idx.isFile()) return null;
+
+        final long lastModified = file.lastModified();
+        final long size = file.length();
+        final RandomAccessFile raf = new RandomAccessFile(idx, "r");
+        try
+        {
+            final FileChannel ch = raf.getChannel();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+            readFully(ch, header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                return null;
+
+            final int rate = header.getInt();
+            header.getInt();
+            if (header.getLong() != size || header.getLong() != lastModified)
+                return null;
+
+            final long lineCount = header.getLong();
+            final long n = header.getLong();
+            if (rate <= 0 || lineCount < 0 || lineCount > size ||
+                n != (lineCount + rate - 1) / rate ||
+                HEADER_SIZE + 8 * n != ch.size())
+                return null;
+
+            final ByteBuffer b = ByteBuffer.allocate((int)(8 * n)).order(ORDER);
+            readFully(ch, b, HEADER_SIZE);
+            b.flip();
+            final long[] samples = new long[(int)n];
+            b.asLongBuffer().get(samples);
+
+            // Each sample is the offset of a line, the first at 0.
+            if (n > 0 && samples[0] != 0) return null;
+            for (int i = 0; i < samples.length; i++)
+            {
+                if (samples[i] >= size || (i > 0 && samples[i] <= samples[i - 1]))
+                    return null;
+            }
+
+            return new LineIndex(rate, size, lastModified, lineCount,
+                samples, MappedLines.map(file, 1));
+        }
+        catch (EOFException e)
+        {
+            return null;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer b, long pos)
+        throws IOException
+    {
+        while (b.hasRemaining())
+        {
+            final int n = ch.read(b, pos);
+            if (n < 0) throw new EOFException();
+            pos += n;
+        }
+    }
+
+    /**
+     * Saves this index. It is written to a temporary file first, which
+     * then replaces idx, so a failed save leaves any old index intact.
+     * @exception IOException if the index cannot be written.
+     */
+    public void save(File idx) throws IOException
+    {
+        final File tmp = new File(idx.getPath() + ".tmp");
+        final FileOutputStream out = new FileOutputStream(tmp);
+        try
+        {
+            final FileChannel ch = out.getChannel();
+            final ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE + 8 * this.samples.length).order(ORDER);
+            b.putInt(MAGIC).putInt(VERSION).putInt(this.rate).putInt(0);
+            b.putLong(this.fileSize).putLong(this.lastModified);
+            b.putLong(this.lineCount).putLong(this.samples.length);
+            for (long s : this.samples) b.putLong(s);
+            b.flip();
+
+            while (b.hasRemaining()) ch.write(b);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        Files.move(tmp.toPath(), idx.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Gets the no. of lines in the file.
+     */
+    public long lineCount()
+    {
+        return this.lineCount;
+    }
+
+    /**
+     * Gets the no. of lines per sampled offset.
+     */
+    public int rate()
+    {
+        return this.rate;
+    }
+
+    /**
+     * Reads line n, decoded as UTF-8.
+     * @exception IndexOutOfBoundsException if n is not from 1 to lineCount().
+     */
+    public String readLine(long n)
+    {
+        return readLines(n, 1).get(0);
+    }
+
+    /**
+     * Reads count lines from line first, decoded as UTF-8.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public List<String> readLines(long first, int count)
+    {
+        return readLines(first, count, new ArrayList<String>(Math.max(count, 0)),
+            (List<String> acc, long lineNum, long offset, ByteBuffer line) ->
+                acc.add(StandardCharsets.UTF_8.decode(line).toString()));
+    }
+
+    /**
+     * Hands count lines from line first to a consumer, as MappedLines
+     * does, with no bytes copied.
+     * @return acc.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public <A> A readLines(long first, long count, A acc,
+        MappedLines.LineConsumer<A> consumer)
+    {
+        if (first < 1 || count < 0 || count > this.lineCount - first + 1)
+            throw new IndexOutOfBoundsException("first: " + first + ", count: " + count);
+
+        if (count == 0) return acc;
+
+        final long last = first + count - 1;
+        final int k = (int)((first - 1) / this.rate);
+        final long off = this.samples[k];
+        long lineNum = (long)k * this.rate + 1;
+
+        final long[] bases = this.segments.bases;
+        int seg = Arrays.binarySearch(bases, off);
+        if (seg < 0) seg = -seg - 2;
+
+        ByteBuffer b = this.segments.maps[seg];
+        ByteBuffer view = b.asReadOnlyBuffer();
+        int end = b.limit();
+        int i = (int)(off - bases[seg]);
+
+        while (true)
+        {
+            // Lines do not span segments.
+            if (i == end)
+            {
+                b = this.segments.maps[++seg];
+                view = b.asReadOnlyBuffer();
+                end = b.limit();
+                i = 0;
+            }
+
+            final int t = MappedLines.nextTerminator(b, i, end);
+            if (lineNum >= first)
+            {
+                view.limit(t);
+                view.position(i);
+                consumer.accept(acc, lineNum, bases[seg] + i, view);
+                if (lineNum == last) return acc;
+            }
+
+            lineNum++;
+            i = t == end ? end : MappedLines.skipTerminator(b, t, end);
+        }
+    }
+
+    /** Growable list of sampled offsets of a segment */
+    private static final class Samples
+    {
+        long[] offsets = new long[16];
+        int size;
+
+        /** Last line no. seen */
+        long lines;
+
+        void add(long offset)
+        {
+            if (this.size == this.offsets.length)
+                this.offsets = Arrays.copyOf(this.offsets, 2 * this.size);
+
+            this.offsets[this.size++] = offset;
+        }
+
+        Samples merge(Samples next)
+        {
+            for (int i = 0; i < next.size; i++) add(next.offsets[i]);
+            this.lines = Math.max(this.lines, next.lines);
+            return this;
+        }
+    }
+}
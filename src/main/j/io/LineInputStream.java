@@ -4,35 +4,84 @@
 
 package j.io;
 
+import j.str.ByteSlice;
+
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * This stream allows reading of data in the form of lines as well as
  * in bytes from an underlying binary stream.
  *
+ * The underlying stream is read ahead into an internal buffer, which
+ * lines and bytes are both read from, so that reading a header line by
+ * line and then the body in bytes costs one read of the underlying
+ * stream per buffer refill. Do not read the underlying stream directly
+ * once it is wrapped.
+ *
  * This class is not thread-safe
  */
 public class LineInputStream extends FilterInputStream
 {
-    private final ByteArrayOutputStream bout;
+    private static final int DEFAULT_BUF_SIZE = 8192;
+
+    /** Read-ahead buffer of the underlying stream */
+    private byte[] buf;
+
+    /** Index of the next unread byte in buf */
+    private int pos;
+
+    /** No. of valid bytes in buf */
+    private int count;
+
+    /** Bytes of a line that spans refills of buf */
+    private byte[] line;
+
+    /** The last line read is lineArr[lineOff..lineOff+lineLen), where
+     * lineArr is either buf or line. */
+    private byte[] lineArr;
+    private int lineOff;
+    private int lineLen;
+
+    /** OR of the bytes of the line, to tell if it is all ASCII */
+    private int lineBits;
 
     /** -1 indicates there is no last byte; else
      * it will be from 0 to 255. */
     private int lastByte;
 
+    private int maxLineLen;
+
     /**
      * @param ist Underlying binary stream.
      * @exception IllegalArgumentException if ist is null
      */
     public LineInputStream(InputStream ist)
+    {
+        this(ist, DEFAULT_BUF_SIZE);
+    }
+
+    /**
+     * @param ist Underlying binary stream.
+     * @param size Size of the read-ahead buffer.
+     * @exception IllegalArgumentException if ist is null or size is
+     *            non-positive.
+     */
+    public LineInputStream(InputStream ist, int size)
     {
         super(ist);
 
         if (ist == null)
             throw new IllegalArgumentException("input stream is null");
 
+        if (size <= 0)
+            throw new IllegalArgumentException("size must > 0");
+
         this.lastByte = -1;
-        this.bout = new ByteArrayOutputStream();
+        this.maxLineLen = Integer.MAX_VALUE;
+        this.buf = new byte[size];
+        this.line = new byte[128];
     }
 
     /**
@@ -44,75 +93,229 @@ public class LineInputStream extends FilterInputStream
         return false;
     }
 
+    /**
+     * Sets the maximum no. of bytes in a line, excluding the terminator,
+     * to bound the memory used on malformed input. It is unlimited by
+     * default.
+     * @exception IllegalArgumentException if max is non-positive.
+     */
+    public void setMaxLineLength(int max)
+    {
+        if (max <= 0)
+            throw new IllegalArgumentException("max must > 0");
+
+        this.maxLineLen = max;
+    }
+
+    /**
+     * Gets the maximum no. of bytes in a line.
+     */
+    public int getMaxLineLength()
+    {
+        return this.maxLineLen;
+    }
+
     /**
      * Reads bytes starting from the current position until
-     * it is terminated by either a line feed (LF), 
-     * a carriage return (CR), a CRLF sequence or the end-of-stream 
+     * it is terminated by either a line feed (LF),
+     * a carriage return (CR), a CRLF sequence or the end-of-stream
      * condition.
      *
      * The bytes in the line will be interpreted using the UTF-8 charset.
+     * A line of only ASCII bytes, which is checked while it is read, is
+     * copied straight into the String without decoding.
      *
      * @return If end of stream and nothing is read, returns
-     *         null; else returns the line read, 
+     *         null; else returns the line read,
      *         excluding the line terminator.
      *
-     * @exception IOException if the stream is closed or an I/O error occurs.
+     * @exception IOException if the stream is closed, an I/O error occurs
+     *            or the line is longer than getMaxLineLength(), in which
+     *            case the whole line, with its terminator, is skipped so
+     *            the next read starts at the next line.
      */
     public String readLine() throws IOException
+    {
+        if (!fillLine()) return null;
+
+        // ASCII is a subset of both charsets, and ISO-8859-1 needs no
+        // decoding.
+        return new String(this.lineArr, this.lineOff, this.lineLen,
+            (this.lineBits & 0x80) == 0 ?
+                StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a line like readLine(), but points a byte slice at the raw
+     * bytes of the line in an internal buffer instead of decoding them.
+     * The bytes are valid until the next read from this stream.
+     *
+     * @param slice The slice to point at the line.
+     * @return slice, or null if end of stream and nothing is read.
+     * @exception IOException if the stream is closed, an I/O error occurs
+     *            or the line is too long, as for readLine().
+     */
+    public ByteSlice readLine(ByteSlice slice) throws IOException
+    {
+        if (!fillLine()) return null;
+
+        return slice.set(this.lineArr, this.lineOff, this.lineLen);
+    }
+
+    /**
+     * Refills the buffer from the underlying stream. Must only be called
+     * when the buffer is used up.
+     * @return -1 if end of stream.
+     */
+    private int fill(InputStream localIn) throws IOException
+    {
+        final int n = localIn.read(this.buf, 0, this.buf.length);
+        this.pos = 0;
+        this.count = Math.max(n, 0);
+        return n;
+    }
+
+    /** Appends to the line buffer. */
+    private int append(int len, byte[] b, int off, int n)
+    {
+        if (len + n > this.line.length)
+            this.line = Arrays.copyOf(this.line, Math.max(len + n, 2 * this.line.length));
+
+        System.arraycopy(b, off, this.line, len, n);
+        return len + n;
+    }
+
+    /**
+     * Reads the next line. A line within the buffer is left there;
+     * otherwise it is gathered into the line buffer.
+     * @return false if end of stream and nothing is read.
+     */
+    private boolean fillLine() throws IOException
     {
         final InputStream localIn = getIn();
 
-        this.bout.reset();
+        // No. of bytes gathered into the line buffer.
+        int len = 0;
+        boolean gathered = false;
+        int bits = 0;
 
         if (this.lastByte >= 0)
         {
-            this.bout.write(this.lastByte);
+            this.line[len++] = (byte)this.lastByte;
+            gathered = true;
+            bits = this.lastByte;
             this.lastByte = -1;
         }
 
-    loop:
         while(true)
         {
-            final int cur = localIn.read();
-                
-            switch(cur)
+            if (this.pos == this.count && fill(localIn) < 0)
+            {
+                // nothing is read, so there is no line.
+                if (!gathered) return false;
+
+                setLine(this.line, 0, len, bits);
+                return true;
+            }
+
+            // Scan for a terminator and ASCII in one pass.
+            final byte[] b = this.buf;
+            final int start = this.pos;
+            final int end = this.count;
+            int i = start;
+            int x = 0;
+            while (i < end)
+            {
+                final byte c = b[i];
+                if (c == '\n' || c == '\r') break;
+                x |= c;
+                i++;
+            }
+
+            bits |= x;
+
+            if (len + (i - start) > this.maxLineLen)
+            {
+                this.pos = i;
+                skipLine(localIn);
+                throw new IOException("line longer than " + this.maxLineLen + " bytes");
+            }
+
+            if (i == end)
+            {
+                len = append(len, b, start, end - start);
+                gathered = true;
+                this.pos = end;
+                continue;
+            }
+
+            final boolean cr = b[i] == '\r';
+            this.pos = i + 1;
+
+            // Gather the line before a refill to look past the CR
+            // overwrites it.
+            if (gathered || (cr && this.pos == this.count))
+            {
+                len = append(len, b, start, i - start);
+                setLine(this.line, 0, len, bits);
+            }
+            else
+            {
+                setLine(b, start, i - start, bits);
+            }
+
+            if (cr)
+            {
+                if (this.pos < this.count || fill(localIn) >= 0)
+                {
+                    final int next = this.buf[this.pos++] & 255;
+                    if (next != '\n') this.lastByte = next;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Skips the rest of the current line and its terminator, handling a
+     * CR as fillLine() does.
+     */
+    private void skipLine(InputStream localIn) throws IOException
+    {
+        while (this.pos < this.count || fill(localIn) >= 0)
+        {
+            final byte c = this.buf[this.pos++];
+            if (c == '\n') return;
+            if (c == '\r')
             {
-            case '\r':
-                this.lastByte = localIn.read();
-                if (this.lastByte == '\n')
-                    this.lastByte = -1;
-
-                // fall thru
-            case '\n':
-                break;
-                   
-            case -1:
-                if (this.bout.size() > 0)
-                    break;
-                
-                // nothing is read, so return null.
-                return null;
-
-            default:
-                this.bout.write(cur);
-                continue loop;
+                if (this.pos < this.count || fill(localIn) >= 0)
+                {
+                    final int next = this.buf[this.pos++] & 255;
+                    if (next != '\n') this.lastByte = next;
+                }
+                return;
             }
+        }
+    }
 
-            final byte[] buf = this.bout.toByteArray();
-            
-            return new String(buf, "UTF-8");
-        } // while
-    } // method
+    private void setLine(byte[] arr, int off, int len, int bits)
+    {
+        this.lineArr = arr;
+        this.lineOff = off;
+        this.lineLen = len;
+        this.lineBits = bits;
+    }
 
     /**
      * Does nothing since not supported.
      */
     @Override
-    public void mark(int k) 
+    public void mark(int k)
     {
         // nothing
     }
-    
+
     /**
      * @exception IOException always thrown since not supported.
      */
@@ -122,6 +325,38 @@ public class LineInputStream extends FilterInputStream
         throw new IOException("not supported");
     }
 
+    @Override
+    public int available() throws IOException
+    {
+        final InputStream localIn = getIn();
+
+        return (this.lastByte >= 0 ? 1 : 0) + (this.count - this.pos) +
+            localIn.available();
+    }
+
+    /**
+     * Reads from the buffer, or from the underlying stream if the buffer
+     * is used up and the read is at least as large as the buffer.
+     */
+    private int readBuffered(InputStream localIn, byte[] b, int off, int len)
+        throws IOException
+    {
+        if (len <= 0) return 0;
+
+        if (this.pos == this.count)
+        {
+            if (len >= this.buf.length)
+                return localIn.read(b, off, len);
+
+            if (fill(localIn) < 0) return -1;
+        }
+
+        final int n = Math.min(len, this.count - this.pos);
+        System.arraycopy(this.buf, this.pos, b, off, n);
+        this.pos += n;
+        return n;
+    }
+
     @Override
     public int read(byte[] b, int off, int len)
         throws IOException
@@ -130,12 +365,12 @@ public class LineInputStream extends FilterInputStream
 
         if (this.lastByte < 0 || len <= 0)
         {
-            return localIn.read(b, off, len);
+            return readBuffered(localIn, b, off, len);
         }
 
         b[off] = (byte)(this.lastByte & 255);
         this.lastByte = -1;
-        final int read = localIn.read(b, off+1, len-1);
+        final int read = readBuffered(localIn, b, off+1, len-1);
         if (read >= 0) return read+1;
         return 1;
     }
@@ -146,7 +381,12 @@ public class LineInputStream extends FilterInputStream
         final InputStream localIn = getIn();
 
         if (this.lastByte < 0)
-            return localIn.read();
+        {
+            if (this.pos == this.count && fill(localIn) < 0)
+                return -1;
+
+            return this.buf[this.pos++] & 255;
+        }
 
         final int ret = this.lastByte;
         this.lastByte = -1;
@@ -162,6 +402,22 @@ public class LineInputStream extends FilterInputStream
         return localIn;
     }
 
+    /** Skips from the buffer, then the underlying stream. */
+    private long skipBuffered(InputStream localIn, long n) throws IOException
+    {
+        if (n <= 0) return 0;
+
+        final int buffered = this.count - this.pos;
+        if (buffered > 0)
+        {
+            final int k = (int)Math.min(n, buffered);
+            this.pos += k;
+            return k;
+        }
+
+        return localIn.skip(n);
+    }
+
     @Override
     public long skip(long n) throws IOException
     {
@@ -169,11 +425,11 @@ public class LineInputStream extends FilterInputStream
 
         if (this.lastByte < 0 || n <= 0)
         {
-            return localIn.skip(n);
+            return skipBuffered(localIn, n);
         }
 
         this.lastByte = -1;
-        final long nskip = localIn.skip(n-1);
+        final long nskip = skipBuffered(localIn, n-1);
         if (nskip >= 0) return nskip+1;
         return 1;
     }
@@ -189,6 +445,6 @@ public class LineInputStream extends FilterInputStream
 
         localIn.close();
         this.in = null;
+        this.pos = this.count = 0;
     }
 }
-
@@ -1,38 +1,124 @@
 package j.io;
 
+import j.str.CharSlice;
+
 import java.io.*;
+import java.util.Arrays;
 
 /**
- * A line reader that keeps track of the line number. It has the exact
- * same functionality as BufferedReader except that it has the additional
- * ability to keep track of the current line number.
+ * A line reader that keeps track of the line number. It has the same
+ * functionality as BufferedReader except that it has the additional
+ * ability to keep track of the current line number, and can read a line
+ * into a CharSlice without creating a String.
  * In order for the class to accurately keep track of the line number,
- * callers must not use the read, skip, reset and mark methods.
+ * callers must not use the read and skip methods. Mark and reset are not
+ * supported.
+ *
+ * Unlike BufferedReader, this class is not thread-safe.
  * @author Lucas Tan
  */
 public class LineReader extends BufferedReader
 {
+    private static final int DEFAULT_BUF_SIZE = 8192;
+
     private int lineNum;
 
+    /** Null once closed */
+    private Reader reader;
+
+    /** Read-ahead buffer, which BufferedReader does not expose */
+    private final char[] buf;
+    private int pos;
+    private int count;
+
+    /** Whether to skip the next char if it is a LF, after a CR */
+    private boolean skipLF;
+
+    /** Chars of a line that spans refills of buf */
+    private char[] line;
+
+    /** The last line read is lineArr[lineOff..lineOff+lineLen), where
+     * lineArr is either buf or line. */
+    private char[] lineArr;
+    private int lineOff;
+    private int lineLen;
+
+    private int maxLineLen;
+
     public LineReader(Reader r)
     {
-        super(r);
-        this.lineNum = 0;
+        this(r, DEFAULT_BUF_SIZE);
     }
 
     public LineReader(Reader r, int bufSize)
     {
-        super(r, bufSize);
+        // The buffer of BufferedReader is left unused.
+        super(r, 1);
+
+        if (bufSize <= 0)
+            throw new IllegalArgumentException("bufSize must > 0");
+
         this.lineNum = 0;
+        this.reader = r;
+        this.buf = new char[bufSize];
+        this.line = new char[128];
+        this.maxLineLen = Integer.MAX_VALUE;
     }
 
+    /**
+     * Sets the maximum no. of chars in a line, excluding the terminator,
+     * to bound the memory used on malformed input. It is unlimited by
+     * default.
+     * @exception IllegalArgumentException if max is non-positive.
+     */
+    public void setMaxLineLength(int max)
+    {
+        if (max <= 0)
+            throw new IllegalArgumentException("max must > 0");
+
+        this.maxLineLen = max;
+    }
+
+    /**
+     * Gets the maximum no. of chars in a line.
+     */
+    public int getMaxLineLength()
+    {
+        return this.maxLineLen;
+    }
+
+    /**
+     * Same as BufferedReader.readLine().
+     * @exception IOException if the reader is closed, an I/O error occurs
+     *            or the line is longer than getMaxLineLength(), in which
+     *            case the whole line, with its terminator, is skipped and
+     *            counted, so the next read starts at the next line.
+     */
     @Override
     public String readLine()
         throws IOException
     {
-        String s = super.readLine();
-        if (s != null) this.lineNum++;
-        return s;
+        if (!fillLine()) return null;
+
+        return new String(this.lineArr, this.lineOff, this.lineLen);
+    }
+
+    /**
+     * Reads a line like readLine(), but points a char slice at the line
+     * in an internal buffer instead of copying it into a String. The
+     * chars are valid until the next read from this reader.
+     *
+     * @param slice The slice to point at the line.
+     * @return slice, or null if end of stream and nothing is read.
+     * @exception IOException if the reader is closed, an I/O error occurs
+     *            or the line is too long, as for readLine().
+     */
+    public CharSlice readLine(CharSlice slice)
+        throws IOException
+    {
+        if (!fillLine()) return null;
+
+        return slice.set(this.lineArr, this.lineOff, this.lineLen);
     }
 
     /** Gets the one-based line number of the line last returned by
@@ -40,5 +126,247 @@ public class LineReader extends BufferedReader
      *  @return the line number if readLine() has been called; 0 otherwise.
      */
     public int getLineNum(){ return this.lineNum; }
-}
 
+    private Reader getReader() throws IOException
+    {
+        final Reader r = this.reader;
+        if (r == null)
+            throw new IOException("stream closed");
+
+        return r;
+    }
+
+    /**
+     * Makes sure the buffer has a char, past any LF to skip.
+     * @return false if end of stream.
+     */
+    private boolean ensure(Reader r) throws IOException
+    {
+        while (true)
+        {
+            if (this.pos == this.count)
+            {
+                final int n = r.read(this.buf, 0, this.buf.length);
+                if (n < 0) return false;
+
+                this.pos = 0;
+                this.count = n;
+                continue;
+            }
+
+            if (this.skipLF)
+            {
+                this.skipLF = false;
+                if (this.buf[this.pos] == '\n')
+                {
+                    this.pos++;
+                    continue;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /** Appends to the line buffer. */
+    private int append(int len, char[] c, int off, int n)
+    {
+        if (len + n > this.line.length)
+            this.line = Arrays.copyOf(this.line, Math.max(len + n, 2 * this.line.length));
+
+        System.arraycopy(c, off, this.line, len, n);
+        return len + n;
+    }
+
+    /**
+     * Reads the next line. A line within the buffer is left there;
+     * otherwise it is gathered into the line buffer.
+     * @return false if end of stream and nothing is read.
+     */
+    private boolean fillLine() throws IOException
+    {
+        final Reader r = getReader();
+
+        // No. of chars gathered into the line buffer.
+        int len = 0;
+        boolean gathered = false;
+
+        while (true)
+        {
+            if (!ensure(r))
+            {
+                if (!gathered) return false;
+
+                setLine(this.line, 0, len);
+                return true;
+            }
+
+            final char[] c = this.buf;
+            final int start = this.pos;
+            final int end = this.count;
+            int i = start;
+            while (i < end)
+            {
+                final char ch = c[i];
+                if (ch == '\n' || ch == '\r') break;
+                i++;
+            }
+
+            if (len + (i - start) > this.maxLineLen)
+            {
+                this.pos = i;
+                skipLine(r);
+                this.lineNum++;
+                throw new IOException("line longer than " + this.maxLineLen + " chars");
+            }
+
+            if (i == end)
+            {
+                len = append(len, c, start, end - start);
+                gathered = true;
+                this.pos = end;
+                continue;
+            }
+
+            if (gathered)
+            {
+                len = append(len, c, start, i - start);
+                setLine(this.line, 0, len);
+            }
+            else
+            {
+                setLine(c, start, i - start);
+            }
+
+            // A LF after a CR is skipped lazily, so the line stays in the
+            // buffer.
+            this.skipLF = c[i] == '\r';
+            this.pos = i + 1;
+            return true;
+        }
+    }
+
+    /**
+     * Skips the rest of the current line and its terminator; a LF after
+     * a CR is skipped lazily, as in fillLine().
+     */
+    private void skipLine(Reader r) throws IOException
+    {
+        while (ensure(r))
+        {
+            final char c = this.buf[this.pos++];
+            if (c == '\n') return;
+            if (c == '\r')
+            {
+                this.skipLF = true;
+                return;
+            }
+        }
+    }
+
+    private void setLine(char[] arr, int off, int len)
+    {
+        this.lineArr = arr;
+        this.lineOff = off;
+        this.lineLen = len;
+        this.lineNum++;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        final Reader r = getReader();
+        if (!ensure(r)) return -1;
+
+        return this.buf[this.pos++];
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException
+    {
+        final Reader r = getReader();
+
+        if (off < 0 || len < 0 || len > cbuf.length - off)
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len);
+
+        if (len == 0) return 0;
+        if (!ensure(r)) return -1;
+
+        final int n = Math.min(len, this.count - this.pos);
+        System.arraycopy(this.buf, this.pos, cbuf, off, n);
+        this.pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        final Reader r = getReader();
+
+        if (n < 0)
+            throw new IllegalArgumentException("skip value is negative");
+
+        long left = n;
+        while (left > 0 && ensure(r))
+        {
+            final int k = (int)Math.min(left, this.count - this.pos);
+            this.pos += k;
+            left -= k;
+        }
+
+        return n - left;
+    }
+
+    @Override
+    public boolean ready() throws IOException
+    {
+        final Reader r = getReader();
+
+        // A LF to skip may be all that is buffered.
+        if (this.skipLF && this.pos < this.count && this.buf[this.pos] == '\n')
+        {
+            this.skipLF = false;
+            this.pos++;
+        }
+
+        return this.pos < this.count || r.ready();
+    }
+
+    /**
+     * @return false, not supported.
+     */
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    /**
+     * @exception IOException always thrown since not supported.
+     */
+    @Override
+    public void mark(int readAheadLimit) throws IOException
+    {
+        throw new IOException("not supported");
+    }
+
+    /**
+     * @exception IOException always thrown since not supported.
+     */
+    @Override
+    public void reset() throws IOException
+    {
+        throw new IOException("not supported");
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        final Reader r = this.reader;
+        if (r == null) return;
+
+        this.reader = null;
+        this.pos = this.count = 0;
+        super.close();
+    }
+}
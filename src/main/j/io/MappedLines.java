@@ -0,0 +1,370 @@
+package j.io;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Processes the lines of a file in parallel over memory-mapped segments.
+ *
+ * The file is split into segments of about equal size, each moved
+ * forward to the start of a line so no line spans two segments, and each
+ * segment is mapped into memory. A first pass counts the lines of every
+ * segment in parallel, so that prefix sums of the counts give the number
+ * of the first line of each segment. A second pass hands every line of a
+ * segment, with its line number and file offset, to a consumer that
+ * folds it into an accumulator of that segment; the accumulators are
+ * then merged in file order by a reducer, much like a Collector.
+ *
+ * Lines are terminated as in LineInputStream, by LF, CR or CRLF, and a
+ * terminator at the end of the file does not start another line. Each
+ * line is passed as a view of the mapped segment, with no bytes copied.
+ *
+ * A segment must be under 2 GB, so larger files are always split, and a
+ * line longer than 1 GB may make a file fail to map.
+ */
+public final class MappedLines
+{
+    private MappedLines(){}
+
+    /** Nominal maximum size of a segment, leaving room to reach the
+     * start of the next line within 2 GB. */
+    private static final long MAX_SEGMENT = 1L << 30;
+
+    /** Minimum size of a segment with the default no. of segments */
+    private static final long MIN_SEGMENT = 1L << 20;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long LFS = ONES * '\n';
+    private static final long CRS = ONES * '\r';
+
+    /**
+     * Receives the lines of a segment.
+     */
+    public interface LineConsumer<A>
+    {
+        /**
+         * @param acc The accumulator of the segment.
+         * @param lineNum The one-based line number.
+         * @param offset The offset of the line in the file.
+         * @param line The bytes of the line, excluding the terminator,
+         *        from the position to the limit of a read-only buffer.
+         *        It is only valid during this call.
+         */
+        void accept(A acc, long lineNum, long offset, ByteBuffer line);
+    }
+
+    /**
+     * Processes a file with the common fork/join pool, in 4 segments per
+     * thread of the pool, or fewer for files under a few MB.
+     * @see #process(File, int, ForkJoinPool, Supplier, LineConsumer, BinaryOperator)
+     */
+    public static <A> A process(File file, Supplier<A> supplier,
+        LineConsumer<A> consumer, BinaryOperator<A> reducer)
+        throws IOException
+    {
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        return process(file, defaultSegments(pool, file.length()), pool,
+            supplier, consumer, reducer);
+    }
+
+    static int defaultSegments(ForkJoinPool pool, long size)
+    {
+        final long n = Math.min(4L * pool.getParallelism(),
+            (size + MIN_SEGMENT - 1) / MIN_SEGMENT);
+
+        return (int)Math.max(n, 1);
+    }
+
+    /**
+     * Processes the lines of a file.
+     *
+     * @param file The file to read.
+     * @param segments The no. of segments to split the file into, which
+     *        is raised for files over 1 GB per segment.
+     * @param pool The pool to run the tasks in.
+     * @param supplier Creates the accumulator of a segment.
+     * @param consumer Folds each line of a segment into its accumulator.
+     * @param reducer Merges the accumulator of a segment into that of the
+     *        segments before it, returning the result.
+     * @return The merged accumulators, or a new accumulator if the file
+     *         is empty.
+     * @exception IllegalArgumentException if segments is non-positive.
+     * @exception IOException if the file cannot be read or mapped.
+     */
+    public static <A> A process(File file, int segments, ForkJoinPool pool,
+        Supplier<A> supplier, LineConsumer<A> consumer,
+        BinaryOperator<A> reducer)
+        throws IOException
+    {
+        if (segments <= 0)
+            throw new IllegalArgumentException("segments must > 0");
+
+        return process(map(file, segments), pool, supplier, consumer, reducer);
+    }
+
+    static <A> A process(Segments s, ForkJoinPool pool,
+        Supplier<A> supplier, LineConsumer<A> consumer,
+        BinaryOperator<A> reducer)
+    {
+        if (s.maps.length == 0) return supplier.get();
+
+        // Line no. of the first line of each segment, less one.
+        final long[] counts = new long[s.maps.length];
+        pool.invoke(new Count(s, counts, 0, counts.length));
+
+        long total = 0;
+        for (int k = 0; k < counts.length; k++)
+        {
+            final long c = counts[k];
+            counts[k] = total;
+            total += c;
+        }
+
+        return pool.invoke(new Process<A>(s, counts, supplier, consumer,
+            reducer, 0, counts.length));
+    }
+
+    /** The mapped segments of a file */
+    static final class Segments
+    {
+        /** Offset of each segment in the file */
+        final long[] bases;
+        final ByteBuffer[] maps;
+
+        Segments(long[] bases, ByteBuffer[] maps)
+        {
+            this.bases = bases;
+            this.maps = maps;
+        }
+    }
+
+    /**
+     * Splits a file into at least n segments at line starts and maps
+     * them, dropping empty segments.
+     */
+    static Segments map(File file, int n) throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            final FileChannel ch = raf.getChannel();
+            final long size = ch.size();
+            final int k = (int)Math.min(size, Math.max(n, (size + MAX_SEGMENT - 1) / MAX_SEGMENT));
+
+            final long[] bounds = new long[k + 1];
+            int m = 0;
+            for (int i = 1; i <= k; i++)
+            {
+                final long b = i == k ? size : lineStart(ch, size * i / k, size);
+                if (b > bounds[m]) bounds[++m] = b;
+            }
+
+            final long[] bases = new long[m];
+            final ByteBuffer[] maps = new ByteBuffer[m];
+            for (int i = 0; i < m; i++)
+            {
+                final long len = bounds[i + 1] - bounds[i];
+                if (len > Integer.MAX_VALUE)
+                    throw new IOException("line too long to map at offset " + bounds[i]);
+
+                bases[i] = bounds[i];
+                maps[i] = ch.map(FileChannel.MapMode.READ_ONLY, bounds[i], len)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            return new Segments(bases, maps);
+        }
+        finally
+        {
+            // The mappings stay valid.
+            raf.close();
+        }
+    }
+
+    /**
+     * Finds the first line start at or after pos.
+     */
+    private static long lineStart(FileChannel ch, long pos, long size)
+        throws IOException
+    {
+        if (pos == 0) return 0;
+
+        final ByteBuffer b = ByteBuffer.allocate(8192);
+
+        // Start from the byte before pos, since it may end a line.
+        long p = pos - 1;
+        int prev = -1;
+        while (p < size)
+        {
+            b.clear();
+            final int n = ch.read(b, p);
+            if (n <= 0) break;
+
+            for (int i = 0; i < n; i++)
+            {
+                final int c = b.get(i);
+                if (prev == '\r' && c != '\n') return p + i;
+                if (c == '\n') return p + i + 1;
+                prev = c;
+            }
+
+            p += n;
+        }
+
+        return size;
+    }
+
+    /**
+     * Finds the first CR or LF in b[from..end), 8 bytes at a time.
+     * b must be little-endian.
+     * @return The index found, or end if none.
+     */
+    static int nextTerminator(ByteBuffer b, int from, int end)
+    {
+        int i = from;
+        for (; i + 8 <= end; i += 8)
+        {
+            final long w = b.getLong(i);
+            final long lf = w ^ LFS;
+            final long cr = w ^ CRS;
+
+            // The lowest flagged byte is the first zero byte.
+            final long z = ((lf - ONES) & ~lf | (cr - ONES) & ~cr) & HIGHS;
+            if (z != 0) return i + (Long.numberOfTrailingZeros(z) >>> 3);
+        }
+
+        for (; i < end; i++)
+        {
+            final byte c = b.get(i);
+            if (c == '\n' || c == '\r') return i;
+        }
+
+        return end;
+    }
+
+    /**
+     * Gets the index of the line start after the terminator at b[t].
+     */
+    static int skipTerminator(ByteBuffer b, int t, int end)
+    {
+        if (b.get(t) == '\r' && t + 1 < end && b.get(t + 1) == '\n')
+            return t + 2;
+
+        return t + 1;
+    }
+
+    private static final class Count extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Segments s;
+        private final long[] counts;
+        private final int lo;
+        private final int hi;
+
+        Count(Segments s, long[] counts, int lo, int hi)
+        {
+            this.s = s;
+            this.counts = counts;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.hi - this.lo > 1)
+            {
+                final int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new Count(this.s, this.counts, this.lo, mid),
+                    new Count(this.s, this.counts, mid, this.hi));
+                return;
+            }
+
+            final ByteBuffer b = this.s.maps[this.lo];
+            final int end = b.limit();
+            long n = 0;
+            int i = 0;
+            while (i < end)
+            {
+                // Only the last segment may end without a terminator.
+                final int t = nextTerminator(b, i, end);
+                n++;
+                if (t == end) break;
+                i = skipTerminator(b, t, end);
+            }
+
+            this.counts[this.lo] = n;
+        }
+    }
+
+    private static final class Process<A> extends RecursiveTask<A>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Segments s;
+        private final long[] firstLines;
+        private final Supplier<A> supplier;
+        private final LineConsumer<A> consumer;
+        private final BinaryOperator<A> reducer;
+        private final int lo;
+        private final int hi;
+
+        Process(Segments s, long[] firstLines, Supplier<A> supplier,
+            LineConsumer<A> consumer, BinaryOperator<A> reducer, int lo, int hi)
+        {
+            this.s = s;
+            this.firstLines = firstLines;
+            this.supplier = supplier;
+            this.consumer = consumer;
+            this.reducer = reducer;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected A compute()
+        {
+            if (this.hi - this.lo > 1)
+            {
+                final int mid = (this.lo + this.hi) >>> 1;
+                final Process<A> left = new Process<A>(this.s, this.firstLines,
+                    this.supplier, this.consumer, this.reducer, this.lo, mid);
+                final Process<A> right = new Process<A>(this.s, this.firstLines,
+                    this.supplier, this.consumer, this.reducer, mid, this.hi);
+
+                right.fork();
+                final A a = left.compute();
+                return this.reducer.apply(a, right.join());
+            }
+
+            final A acc = this.supplier.get();
+            final ByteBuffer b = this.s.maps[this.lo];
+            final ByteBuffer line = b.asReadOnlyBuffer();
+            final long base = this.s.bases[this.lo];
+            final int end = b.limit();
+            long lineNum = this.firstLines[this.lo];
+
+            for (int i = 0; i < end; )
+            {
+                final int t = nextTerminator(b, i, end);
+                line.limit(t);
+                line.position(i);
+                this.consumer.accept(acc, ++lineNum, base + i, line);
+
+                if (t == end) break;
+                i = skipTerminator(b, t, end);
+            }
+
+            return acc;
+        }
+    }
+}
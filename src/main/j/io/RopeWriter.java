@@ -0,0 +1,156 @@
+package j.io;
+
+import j.str.Rope;
+
+import java.io.*;
+
+/**
+ * Behaves like StringBuilderWriter except that the text is kept in a
+ * Rope, so that writing a very large text never copies it all into a
+ * bigger array, and the text written so far can be taken at any time
+ * without copying it. Writes are gathered in a chunk-sized buffer before
+ * they are added to the rope.
+ * This class is not thread-safe.
+ */
+public class RopeWriter extends Writer
+{
+    private Rope rope;
+
+    /** Chars written but not yet added to the rope */
+    private final char[] buf;
+    private int count;
+
+    public RopeWriter()
+    {
+        this(Rope.EMPTY);
+    }
+
+    /**
+     * Constructs a writer that appends to a rope.
+     * @exception IllegalArgumentException if rope is null.
+     */
+    public RopeWriter(Rope rope)
+    {
+        if (rope == null)
+            throw new IllegalArgumentException("rope is null");
+
+        this.rope = rope;
+        this.buf = new char[Rope.CHUNK_SIZE];
+        this.count = 0;
+    }
+
+    private void flushBuffer()
+    {
+        if (this.count > 0)
+        {
+            this.rope = this.rope.concat(Rope.of(this.buf, 0, this.count));
+            this.count = 0;
+        }
+    }
+
+    /**
+     * Gets the text written so far. The writer can still be written to
+     * afterwards, which does not change the rope returned.
+     */
+    public Rope getRope()
+    {
+        flushBuffer();
+        return this.rope;
+    }
+
+    public RopeWriter append(char c)
+    {
+        write(c);
+        return this;
+    }
+
+    public RopeWriter append(CharSequence cs)
+    {
+        final CharSequence real = (cs == null ? "null" : cs);
+        return append(real, 0, real.length());
+    }
+
+    public RopeWriter append(CharSequence cs, int s, int e)
+    {
+        final CharSequence real = (cs == null ? "null" : cs);
+        if (s < 0 || e > real.length() || s > e)
+            throw new IndexOutOfBoundsException();
+
+        // Large ropes are shared rather than copied.
+        if (real instanceof Rope && e - s >= Rope.CHUNK_SIZE)
+        {
+            flushBuffer();
+            this.rope = this.rope.concat(((Rope)real).subSequence(s, e));
+            return this;
+        }
+
+        if (real instanceof String)
+        {
+            write((String)real, s, e - s);
+            return this;
+        }
+
+        for (int i = s; i < e; i++) write(real.charAt(i));
+        return this;
+    }
+
+    public void flush(){/*nothing*/}
+
+    public void close(){/*nothing*/}
+
+    public void write(int c)
+    {
+        if (this.count == this.buf.length) flushBuffer();
+        this.buf[this.count++] = (char)c;
+    }
+
+    public void write(char[] c)
+    {
+        write(c, 0, c.length);
+    }
+
+    public void write(String s)
+    {
+        write(s, 0, s.length());
+    }
+
+    public void write(String str, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > str.length() - off)
+            throw new IndexOutOfBoundsException();
+
+        while (len > 0)
+        {
+            if (this.count == this.buf.length) flushBuffer();
+
+            final int n = Math.min(len, this.buf.length - this.count);
+            str.getChars(off, off + n, this.buf, this.count);
+            this.count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    public void write(char[] c, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > c.length - off)
+            throw new IndexOutOfBoundsException();
+
+        while (len > 0)
+        {
+            if (this.count == this.buf.length) flushBuffer();
+
+            final int n = Math.min(len, this.buf.length - this.count);
+            System.arraycopy(c, off, this.buf, this.count, n);
+            this.count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getRope().toString();
+    }
+}
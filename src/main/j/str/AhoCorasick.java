@@ -0,0 +1,555 @@
+package j.str;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * An Aho-Corasick automaton that finds all occurrences of a fixed set of
+ * patterns in a text in a single pass, in time linear in the length of
+ * the text plus the number of matches.
+ *
+ * The automaton is compiled once and is immutable, so it can be shared
+ * by any number of threads. Each search keeps its state in a
+ * {@link Matcher}, which can be fed consecutive pieces of a stream, such
+ * as the buffers read from a ChunkedInputStream, and finds matches that
+ * span piece boundaries.
+ *
+ * Transitions on ASCII chars are taken from a dense table indexed by
+ * state and char class, where chars that occur in no pattern share one
+ * class, so the inner loop does two array reads per char. Other chars
+ * follow the failure links through sorted per-state arrays of the trie
+ * edges.
+ *
+ * Bytes are read as ISO-8859-1 chars, so a pattern that is to match
+ * bytes must consist of chars from 0 to 255. To match UTF-8 text as
+ * bytes, give each pattern as its UTF-8 bytes decoded as ISO-8859-1.
+ *
+ * If case is ignored, chars are compared after case folding (see
+ * {@link StrUtil#foldCase(char)}).
+ */
+public final class AhoCorasick
+{
+    /**
+     * Receives the matches found by a {@link Matcher}.
+     */
+    public interface MatchHandler
+    {
+        /**
+         * Called for each match, in order of the end position. Matches
+         * with the same end are reported longest first.
+         * @param pattern Index of the pattern in the list given to the
+         *        automaton.
+         * @param end Position just past the last char of the match,
+         *        counted from the start of the stream fed to the matcher.
+         *        The match starts at end - patternLength(pattern).
+         * @return true to continue searching; false to stop.
+         */
+        boolean onMatch(int pattern, long end);
+    }
+
+    private final String[] patterns;
+    private final boolean ignoreCase;
+
+    /** Char class of each ASCII char. Class 0 is for chars that occur in
+     * no pattern. If case is ignored, both cases share a class. */
+    private final int[] classOf;
+    private final int numClasses;
+
+    /** delta[s * numClasses + k] is the next state from state s on a char
+     * of class k, with failure links already followed. State 0 is the
+     * root. */
+    private final int[] delta;
+
+    /** Trie edges on non-ASCII chars: those of state s are at indices
+     * [edgeStart[s], edgeStart[s + 1]), sorted by char. */
+    private final int[] edgeStart;
+    private final char[] edgeChar;
+    private final int[] edgeTarget;
+
+    /** Failure link of each state. */
+    private final int[] fail;
+
+    /** The nearest state on the failure chain of each state, including
+     * itself, at which some pattern ends; 0 if none. */
+    private final int[] out;
+
+    /** First pattern that ends at each state; -1 if none. */
+    private final int[] firstPattern;
+
+    /** Next pattern equal to each pattern; -1 if none. */
+    private final int[] nextPattern;
+
+    /**
+     * Compiles an automaton for a list of patterns.
+     * @param patterns Not modified. May contain duplicates, which are all
+     *        reported.
+     * @param ignoreCase Whether to ignore case when matching.
+     * @exception IllegalArgumentException if any pattern is empty.
+     * @exception NullPointerException if patterns or any pattern is null.
+     */
+    public AhoCorasick(List<? extends CharSequence> patterns, boolean ignoreCase)
+    {
+        final int n = patterns.size();
+        this.patterns = new String[n];
+        this.ignoreCase = ignoreCase;
+        this.nextPattern = new int[n];
+        Arrays.fill(this.nextPattern, -1);
+
+        // Assign char classes.
+        this.classOf = new int[128];
+        int k = 1;
+        int maxStates = 1;
+        for (int p = 0; p < n; p++)
+        {
+            final String s = patterns.get(p).toString();
+            if (s.isEmpty())
+                throw new IllegalArgumentException("empty pattern: " + p);
+
+            this.patterns[p] = s;
+            maxStates += s.length();
+
+            for (int i = 0; i < s.length(); i++)
+            {
+                final char c = fold(s.charAt(i));
+                if (c < 128 && this.classOf[c] == 0)
+                    this.classOf[c] = k++;
+            }
+        }
+
+        if (ignoreCase)
+        {
+            for (char c = 'A'; c <= 'Z'; c++)
+                this.classOf[c] = this.classOf[c + ('a' - 'A')];
+        }
+
+        this.numClasses = k;
+
+        // Build the trie. ASCII edges go straight into delta; others are
+        // collected as (state << 16 | char) keys.
+        int[] d = new int[this.numClasses * 16];
+        final Map<Long, Integer> wide = new HashMap<Long, Integer>();
+        final int[] first = new int[maxStates];
+        Arrays.fill(first, -1);
+        int numStates = 1;
+
+        for (int p = 0; p < n; p++)
+        {
+            final String s = this.patterns[p];
+            int state = 0;
+
+            for (int i = 0; i < s.length(); i++)
+            {
+                final char c = fold(s.charAt(i));
+                int next;
+                if (c < 128)
+                {
+                    final int idx = state * this.numClasses + this.classOf[c];
+                    next = d[idx];
+                    if (next == 0)
+                    {
+                        next = numStates++;
+                        d[idx] = next;
+                        if (numStates * this.numClasses > d.length)
+                            d = Arrays.copyOf(d, d.length * 2);
+                    }
+                }
+                else
+                {
+                    final Long key = ((long)state << 16) | c;
+                    final Integer t = wide.get(key);
+                    if (t == null)
+                    {
+                        next = numStates++;
+                        wide.put(key, next);
+                        if (numStates * this.numClasses > d.length)
+                            d = Arrays.copyOf(d, d.length * 2);
+                    }
+                    else
+                    {
+                        next = t;
+                    }
+                }
+
+                state = next;
+            }
+
+            // Keep equal patterns in index order.
+            if (first[state] < 0)
+            {
+                first[state] = p;
+            }
+            else
+            {
+                int q = first[state];
+                while (this.nextPattern[q] >= 0) q = this.nextPattern[q];
+                this.nextPattern[q] = p;
+            }
+        }
+
+        this.delta = Arrays.copyOf(d, numStates * this.numClasses);
+        this.firstPattern = Arrays.copyOf(first, numStates);
+
+        // Lay out the non-ASCII edges by state, then by char.
+        final long[] keys = new long[wide.size()];
+        int e = 0;
+        for (Long key : wide.keySet()) keys[e++] = key;
+        Arrays.sort(keys);
+
+        this.edgeStart = new int[numStates + 1];
+        this.edgeChar = new char[keys.length];
+        this.edgeTarget = new int[keys.length];
+        for (e = 0; e < keys.length; e++)
+        {
+            this.edgeStart[(int)(keys[e] >>> 16) + 1]++;
+            this.edgeChar[e] = (char)keys[e];
+            this.edgeTarget[e] = wide.get(keys[e]);
+        }
+        for (int s = 0; s < numStates; s++)
+            this.edgeStart[s + 1] += this.edgeStart[s];
+
+        // Compute failure links in breadth-first order, so that the
+        // failure target of a state is complete before the state itself.
+        this.fail = new int[numStates];
+        this.out = new int[numStates];
+        final int[] queue = new int[numStates];
+        int head = 0, tail = 0;
+        queue[tail++] = 0;
+
+        while (head < tail)
+        {
+            final int s = queue[head++];
+            final int f = this.fail[s];
+            final int row = s * this.numClasses;
+
+            // Class 0 always leads to the root.
+            for (int c = 1; c < this.numClasses; c++)
+            {
+                final int t = this.delta[row + c];
+                if (t != 0)
+                {
+                    linkChild(t, s == 0 ? 0 : this.delta[f * this.numClasses + c]);
+                    queue[tail++] = t;
+                }
+                else
+                {
+                    this.delta[row + c] = this.delta[f * this.numClasses + c];
+                }
+            }
+
+            for (e = this.edgeStart[s]; e < this.edgeStart[s + 1]; e++)
+            {
+                final int t = this.edgeTarget[e];
+                linkChild(t, s == 0 ? 0 : wideStep(f, this.edgeChar[e]));
+                queue[tail++] = t;
+            }
+        }
+    }
+
+    private void linkChild(int t, int f)
+    {
+        this.fail[t] = f;
+        this.out[t] = this.firstPattern[t] >= 0 ? t : this.out[f];
+    }
+
+    private char fold(char c)
+    {
+        return this.ignoreCase ? StrUtil.foldCase(c) : c;
+    }
+
+    /**
+     * Gets the number of patterns.
+     */
+    public int patternCount()
+    {
+        return this.patterns.length;
+    }
+
+    /**
+     * Gets a pattern.
+     * @exception IndexOutOfBoundsException if idx is out of bounds.
+     */
+    public String pattern(int idx)
+    {
+        return this.patterns[idx];
+    }
+
+    /**
+     * Gets the length of a pattern.
+     * @exception IndexOutOfBoundsException if idx is out of bounds.
+     */
+    public int patternLength(int idx)
+    {
+        return this.patterns[idx].length();
+    }
+
+    /**
+     * Gets the number of states of the automaton.
+     */
+    public int stateCount()
+    {
+        return this.fail.length;
+    }
+
+    /**
+     * Creates a new matcher positioned at the start of a stream.
+     */
+    public Matcher matcher()
+    {
+        return new Matcher();
+    }
+
+    /**
+     * Determines whether a char sequence contains any pattern.
+     */
+    public boolean containsAny(CharSequence text)
+    {
+        final FirstMatch h = new FirstMatch();
+        new Matcher().feed(text, h);
+        return h.found;
+    }
+
+    /**
+     * Determines whether b[off..off+len) contains any pattern.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public boolean containsAny(byte[] b, int off, int len)
+    {
+        final FirstMatch h = new FirstMatch();
+        new Matcher().feed(b, off, len, h);
+        return h.found;
+    }
+
+    /** Stops at the first match. */
+    private static final class FirstMatch implements MatchHandler
+    {
+        boolean found;
+
+        @Override
+        public boolean onMatch(int pattern, long end)
+        {
+            this.found = true;
+            return false;
+        }
+    }
+
+    /**
+     * Gets the next state from a state on a char.
+     */
+    private int step(int s, char c)
+    {
+        return c < 128
+            ? this.delta[s * this.numClasses + this.classOf[c]]
+            : slowStep(s, c);
+    }
+
+    /**
+     * Gets the next state from a state on a non-ASCII char, which may
+     * fold to an ASCII char if case is ignored.
+     */
+    private int slowStep(int s, char c)
+    {
+        c = fold(c);
+        return c < 128
+            ? this.delta[s * this.numClasses + this.classOf[c]]
+            : wideStep(s, c);
+    }
+
+    /**
+     * Gets the next state from a state on a folded non-ASCII char by
+     * following failure links.
+     */
+    private int wideStep(int s, char c)
+    {
+        if (this.edgeChar.length == 0) return 0;
+
+        for (;;)
+        {
+            final int from = this.edgeStart[s];
+            final int to = this.edgeStart[s + 1];
+            if (from < to)
+            {
+                final int e = Arrays.binarySearch(this.edgeChar, from, to, c);
+                if (e >= 0) return this.edgeTarget[e];
+            }
+
+            if (s == 0) return 0;
+            s = this.fail[s];
+        }
+    }
+
+    /**
+     * Reports the matches ending at a state.
+     * @return false if the handler asked to stop.
+     */
+    private boolean report(int s, long end, MatchHandler h)
+    {
+        for (int t = this.out[s]; t != 0; t = this.out[this.fail[t]])
+        {
+            for (int p = this.firstPattern[t]; p >= 0; p = this.nextPattern[p])
+                if (!h.onMatch(p, end)) return false;
+        }
+
+        return true;
+    }
+
+    private static void checkRange(int arrayLen, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > arrayLen - off)
+            throw new IndexOutOfBoundsException(
+                "off: " + off + ", len: " + len);
+    }
+
+    /**
+     * The state of a search over a stream fed in pieces.
+     *
+     * Each feed() method scans a piece and reports the matches ending in
+     * it, including those that started in earlier pieces. If the handler
+     * asks to stop, the method returns early; the rest of the piece can
+     * be fed again to resume, but the other matches ending at the same
+     * char as the last one reported are skipped.
+     *
+     * This class is not thread-safe.
+     */
+    public final class Matcher
+    {
+        private int state;
+        private long position;
+
+        private Matcher()
+        {
+        }
+
+        /**
+         * Gets the number of chars or bytes consumed so far.
+         */
+        public long position()
+        {
+            return this.position;
+        }
+
+        /**
+         * Positions this matcher at the start of a new stream.
+         */
+        public void reset()
+        {
+            this.state = 0;
+            this.position = 0;
+        }
+
+        /**
+         * Scans a char sequence.
+         * @return The number of chars consumed, which is less than the
+         *         length only if the handler asked to stop.
+         */
+        public int feed(CharSequence text, MatchHandler h)
+        {
+            final int len = text.length();
+            int s = this.state;
+            int i = 0;
+
+            while (i < len)
+            {
+                s = step(s, text.charAt(i++));
+                if (out[s] != 0 && !report(s, this.position + i, h)) break;
+            }
+
+            this.state = s;
+            this.position += i;
+            return i;
+        }
+
+        /**
+         * Scans c[off..off+len).
+         * @return The number of chars consumed, which is less than len
+         *         only if the handler asked to stop.
+         * @exception IndexOutOfBoundsException if the range is out of bounds.
+         */
+        public int feed(char[] c, int off, int len, MatchHandler h)
+        {
+            checkRange(c.length, off, len);
+
+            final int[] delta = AhoCorasick.this.delta;
+            final int[] classOf = AhoCorasick.this.classOf;
+            final int[] out = AhoCorasick.this.out;
+            final int w = numClasses;
+            final int end = off + len;
+            int s = this.state;
+            int i = off;
+
+            while (i < end)
+            {
+                final char ch = c[i++];
+                s = ch < 128 ? delta[s * w + classOf[ch]] : slowStep(s, ch);
+                if (out[s] != 0 && !report(s, this.position + (i - off), h)) break;
+            }
+
+            this.state = s;
+            this.position += i - off;
+            return i - off;
+        }
+
+        /**
+         * Scans b[off..off+len).
+         * @return The number of bytes consumed, which is less than len
+         *         only if the handler asked to stop.
+         * @exception IndexOutOfBoundsException if the range is out of bounds.
+         */
+        public int feed(byte[] b, int off, int len, MatchHandler h)
+        {
+            checkRange(b.length, off, len);
+
+            final int[] delta = AhoCorasick.this.delta;
+            final int[] classOf = AhoCorasick.this.classOf;
+            final int[] out = AhoCorasick.this.out;
+            final int w = numClasses;
+            final int end = off + len;
+            int s = this.state;
+            int i = off;
+
+            while (i < end)
+            {
+                final int ch = b[i++];
+                s = ch >= 0 ? delta[s * w + classOf[ch]] : slowStep(s, (char)(ch & 255));
+                if (out[s] != 0 && !report(s, this.position + (i - off), h)) break;
+            }
+
+            this.state = s;
+            this.position += i - off;
+            return i - off;
+        }
+
+        /**
+         * Scans the remaining bytes of a buffer, advancing its position
+         * past the bytes consumed.
+         * @return The number of bytes consumed, which is less than the
+         *         number remaining only if the handler asked to stop.
+         */
+        public int feed(ByteBuffer buf, MatchHandler h)
+        {
+            final int pos = buf.position();
+            final int len = buf.remaining();
+            int n;
+
+            if (buf.hasArray())
+            {
+                n = feed(buf.array(), buf.arrayOffset() + pos, len, h);
+            }
+            else
+            {
+                int s = this.state;
+                n = 0;
+                while (n < len)
+                {
+                    s = step(s, (char)(buf.get(pos + n++) & 255));
+                    if (out[s] != 0 && !report(s, this.position + n, h)) break;
+                }
+
+                this.state = s;
+                this.position += n;
+            }
+
+            buf.position(pos + n);
+            return n;
+        }
+    }
+}
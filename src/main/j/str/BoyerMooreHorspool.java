@@ -0,0 +1,342 @@
+package j.str;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A precompiled pattern for finding a substring with the
+ * Boyer-Moore-Horspool algorithm, which skips up to the length of the
+ * pattern at each mismatch, so long patterns such as multipart boundary
+ * markers are found in sublinear time on average.
+ *
+ * The pattern can be searched for directly in bytes, without decoding
+ * them into a String first, and in chars. Bytes are read as ISO-8859-1
+ * chars, so a pattern with a char above 255 never matches any bytes.
+ * For chars, the skip table is indexed by the low 8 bits of each char,
+ * which keeps it at 256 entries; chars that share their low bits only
+ * shorten the skips.
+ *
+ * A {@link StreamMatcher} finds the pattern in a stream read in pieces,
+ * such as the buffers read from an InputStream, including occurrences
+ * that span two or more pieces.
+ *
+ * This class is immutable and thread-safe.
+ */
+public final class BoyerMooreHorspool
+{
+    private final char[] pattern;
+
+    /** The pattern as ISO-8859-1 bytes; null if it has a char above 255. */
+    private final byte[] bytes;
+
+    /** skip[x] is how far to move the pattern when the text char aligned
+     * with its last char has x as its low 8 bits. */
+    private final int[] skip;
+
+    /**
+     * @exception IllegalArgumentException if pattern is empty.
+     * @exception NullPointerException if pattern is null.
+     */
+    public BoyerMooreHorspool(CharSequence pattern)
+    {
+        final int m = pattern.length();
+        if (m == 0) throw new IllegalArgumentException("empty pattern");
+
+        this.pattern = new char[m];
+        byte[] b = new byte[m];
+        for (int i = 0; i < m; i++)
+        {
+            final char c = pattern.charAt(i);
+            this.pattern[i] = c;
+            if (c > 255) b = null;
+            if (b != null) b[i] = (byte)c;
+        }
+
+        this.bytes = b;
+        this.skip = new int[256];
+        for (int i = 0; i < 256; i++) this.skip[i] = m;
+        for (int i = 0; i < m - 1; i++) this.skip[this.pattern[i] & 255] = m - 1 - i;
+    }
+
+    /**
+     * Constructs a pattern of bytes, each read as an ISO-8859-1 char.
+     * @param pattern Not modified.
+     * @exception IllegalArgumentException if pattern is empty.
+     */
+    public BoyerMooreHorspool(byte[] pattern)
+    {
+        this(new ByteSlice(pattern, 0, pattern.length));
+    }
+
+    /**
+     * Gets the length of the pattern.
+     */
+    public int length()
+    {
+        return this.pattern.length;
+    }
+
+    /**
+     * Finds the first occurrence in b[from..to).
+     * @return The index of the occurrence, or -1 if none.
+     * @exception IndexOutOfBoundsException if from or to is out of bounds,
+     *            or from is greater than to.
+     */
+    public int indexIn(byte[] b, int from, int to)
+    {
+        checkRange(b.length, from, to);
+        if (this.bytes == null) return -1;
+
+        final byte[] p = this.bytes;
+        final int[] skip = this.skip;
+        final int last = p.length - 1;
+        final byte pLast = p[last];
+
+        for (int i = from; i <= to - p.length; )
+        {
+            final byte c = b[i + last];
+            if (c == pLast)
+            {
+                int j = last - 1;
+                while (j >= 0 && b[i + j] == p[j]) j--;
+                if (j < 0) return i;
+            }
+
+            i += skip[c & 255];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence in the remaining bytes of a buffer. The
+     * position of the buffer is not changed.
+     * @return The absolute index of the occurrence in the buffer, or -1
+     *         if none.
+     */
+    public int indexIn(ByteBuffer buf)
+    {
+        final int from = buf.position();
+        final int to = buf.limit();
+
+        if (buf.hasArray())
+        {
+            final int base = buf.arrayOffset();
+            final int i = indexIn(buf.array(), base + from, base + to);
+            return i < 0 ? -1 : i - base;
+        }
+
+        if (this.bytes == null) return -1;
+
+        final byte[] p = this.bytes;
+        final int last = p.length - 1;
+
+        for (int i = from; i <= to - p.length; )
+        {
+            final byte c = buf.get(i + last);
+            if (c == p[last])
+            {
+                int j = last - 1;
+                while (j >= 0 && buf.get(i + j) == p[j]) j--;
+                if (j < 0) return i;
+            }
+
+            i += this.skip[c & 255];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence in c[from..to).
+     * @return The index of the occurrence, or -1 if none.
+     * @exception IndexOutOfBoundsException if from or to is out of bounds,
+     *            or from is greater than to.
+     */
+    public int indexIn(char[] c, int from, int to)
+    {
+        checkRange(c.length, from, to);
+
+        final char[] p = this.pattern;
+        final int[] skip = this.skip;
+        final int last = p.length - 1;
+        final char pLast = p[last];
+
+        for (int i = from; i <= to - p.length; )
+        {
+            final char x = c[i + last];
+            if (x == pLast)
+            {
+                int j = last - 1;
+                while (j >= 0 && c[i + j] == p[j]) j--;
+                if (j < 0) return i;
+            }
+
+            i += skip[x & 255];
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the first occurrence in a char sequence at or after an index.
+     * @return The index of the occurrence, or -1 if none.
+     * @exception IndexOutOfBoundsException if from is negative or greater
+     *            than the length.
+     */
+    public int indexIn(CharSequence s, int from)
+    {
+        final int to = s.length();
+        checkRange(to, from, to);
+
+        final char[] p = this.pattern;
+        final int last = p.length - 1;
+
+        for (int i = from; i <= to - p.length; )
+        {
+            final char x = s.charAt(i + last);
+            if (x == p[last])
+            {
+                int j = last - 1;
+                while (j >= 0 && s.charAt(i + j) == p[j]) j--;
+                if (j < 0) return i;
+            }
+
+            i += this.skip[x & 255];
+        }
+
+        return -1;
+    }
+
+    private static void checkRange(int len, int from, int to)
+    {
+        if (from < 0 || to > len || from > to)
+            throw new IndexOutOfBoundsException(
+                "range: [" + from + ", " + to + ")");
+    }
+
+    /**
+     * Creates a new matcher positioned at the start of a stream.
+     */
+    public StreamMatcher matcher()
+    {
+        return new StreamMatcher();
+    }
+
+    /**
+     * The state of a search over a stream of bytes fed in pieces.
+     *
+     * The matcher keeps the last length() - 1 bytes fed, so that an
+     * occurrence that starts in earlier pieces is found in a later one.
+     * After an occurrence is found, searching resumes just past it, so
+     * overlapping occurrences are not found.
+     *
+     * This class is not thread-safe.
+     */
+    public final class StreamMatcher
+    {
+        /** The last bytes fed that may start an occurrence, followed by
+         * room for as many bytes of the next piece. */
+        private final byte[] carry;
+        private int carryLen;
+
+        private long position;
+
+        private StreamMatcher()
+        {
+            this.carry = new byte[2 * (pattern.length - 1)];
+        }
+
+        /**
+         * Gets the number of bytes consumed so far.
+         */
+        public long position()
+        {
+            return this.position;
+        }
+
+        /**
+         * Gets the position in the stream of the start of the last
+         * occurrence found, if the last call to find() found one.
+         */
+        public long matchStart()
+        {
+            return this.position - pattern.length;
+        }
+
+        /**
+         * Positions this matcher at the start of a new stream.
+         */
+        public void reset()
+        {
+            this.carryLen = 0;
+            this.position = 0;
+        }
+
+        /**
+         * Searches the next piece of the stream, b[off..off+len).
+         * @return -1 if no occurrence ends in the piece, in which case the
+         *         whole piece is consumed. Otherwise, the number of bytes
+         *         consumed, up to and including the end of the first
+         *         occurrence; feed the rest of the piece to find the next.
+         * @exception IndexOutOfBoundsException if the range is out of bounds.
+         */
+        public int find(byte[] b, int off, int len)
+        {
+            if (off < 0 || len < 0 || len > b.length - off)
+                throw new IndexOutOfBoundsException(
+                    "off: " + off + ", len: " + len);
+
+            final int m = pattern.length;
+            final int k = this.carryLen;
+
+            if (bytes == null)
+            {
+                this.position += len;
+                return -1;
+            }
+
+            // Look for an occurrence that starts in the carried bytes.
+            if (k > 0)
+            {
+                final int n = Math.min(len, m - 1);
+                System.arraycopy(b, off, this.carry, k, n);
+
+                final int j = indexIn(this.carry, 0, k + n);
+                if (j >= 0)
+                {
+                    this.carryLen = 0;
+                    return consumed(j + m - k);
+                }
+
+                if (len < m - 1)
+                {
+                    // Keep the last m - 1 bytes of carry + piece.
+                    final int keep = Math.min(k + n, m - 1);
+                    System.arraycopy(this.carry, k + n - keep, this.carry, 0, keep);
+                    this.carryLen = keep;
+                    this.position += len;
+                    return -1;
+                }
+            }
+
+            final int i = indexIn(b, off, off + len);
+            if (i >= 0)
+            {
+                this.carryLen = 0;
+                return consumed(i - off + m);
+            }
+
+            final int keep = Math.min(len, m - 1);
+            System.arraycopy(b, off + len - keep, this.carry, 0, keep);
+            this.carryLen = keep;
+            this.position += len;
+            return -1;
+        }
+
+        private int consumed(int n)
+        {
+            this.position += n;
+            return n;
+        }
+    }
+}
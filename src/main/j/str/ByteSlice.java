@@ -0,0 +1,121 @@
+package j.str;
+
+/**
+ * A mutable view of a range of a byte array as a CharSequence, each byte
+ * being one char in the ISO-8859-1 (Latin-1) charset, which maps bytes
+ * 0 to 255 to the chars of the same value.
+ *
+ * This lets text in a raw protocol buffer, such as a header name, be
+ * looked up or compared without decoding it into a String first. The
+ * view does not copy the bytes, so changing the array changes the view.
+ * An instance can be pointed at another range with set() and reused.
+ *
+ * Two views are equal only if they are the same instance, since their
+ * content can change.
+ *
+ * This class is not thread-safe.
+ */
+public final class ByteSlice implements CharSequence
+{
+    private byte[] buf;
+    private int off;
+    private int len;
+
+    /**
+     * Constructs an empty view.
+     */
+    public ByteSlice()
+    {
+        this.buf = new byte[0];
+        this.off = 0;
+        this.len = 0;
+    }
+
+    /**
+     * Constructs a view of buf[off..off+len).
+     * @exception NullPointerException if buf is null.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public ByteSlice(byte[] buf, int off, int len)
+    {
+        set(buf, off, len);
+    }
+
+    /**
+     * Points this view at buf[off..off+len).
+     * @return this view.
+     * @exception NullPointerException if buf is null.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public ByteSlice set(byte[] buf, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > buf.length - off)
+            throw new IndexOutOfBoundsException(
+                "off: " + off + ", len: " + len);
+
+        this.buf = buf;
+        this.off = off;
+        this.len = len;
+        return this;
+    }
+
+    /**
+     * Gets the underlying array.
+     */
+    public byte[] array()
+    {
+        return this.buf;
+    }
+
+    /**
+     * Gets the index of the first byte of this view in the array.
+     */
+    public int offset()
+    {
+        return this.off;
+    }
+
+    @Override
+    public int length()
+    {
+        return this.len;
+    }
+
+    /**
+     * Gets the byte at an index of this view, as a char from 0 to 255.
+     * @exception IndexOutOfBoundsException if index is out of bounds.
+     */
+    @Override
+    public char charAt(int index)
+    {
+        if (index < 0 || index >= this.len)
+            throw new IndexOutOfBoundsException("index: " + index);
+
+        return (char)(this.buf[this.off + index] & 255);
+    }
+
+    /**
+     * Gets a new view of a range of this view, sharing the same array.
+     */
+    @Override
+    public ByteSlice subSequence(int start, int end)
+    {
+        if (start < 0 || end > this.len || start > end)
+            throw new IndexOutOfBoundsException(
+                "start: " + start + ", end: " + end);
+
+        return new ByteSlice(this.buf, this.off + start, end - start);
+    }
+
+    /**
+     * Decodes the bytes of this view into a new String.
+     */
+    @Override
+    public String toString()
+    {
+        char[] c = new char[this.len];
+        for (int i = 0; i < this.len; i++)
+            c[i] = (char)(this.buf[this.off + i] & 255);
+        return new String(c);
+    }
+}
@@ -14,6 +14,11 @@ import java.io.*;
  * the actual string value, including the case, will be preserved for
  * later retrieval. Note that varying accented forms of a character 
  * will be generally considered different.
+ *
+ * ASCII strings, typical of protocol text such as HTTP header
+ * names, are compared and hashed char by char without allocating. 
+ * Other strings are handled by a locale-neutral collator, which is much
+ * slower. Both ways give the same results.
  * 
  * All instances of this class are immutable, just like
  * all instances of the String class are.
@@ -35,6 +40,31 @@ public final class CaselessString
         NEUTRAL_COLLATOR.setStrength(Collator.SECONDARY);
         NEUTRAL_COLLATOR.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
     }
+
+    /** ASCII_ORDER[c] is the single collation element of ASCII char c,
+     * as returned by the collator's CollationElementIterator;
+     * NULLORDER if c does not map to exactly one element. */
+    private static final int[] ASCII_ORDER = new int[128];
+
+    static
+    {
+        // Take the elements from the collator itself so that the fast
+        // path cannot disagree with it.
+        Arrays.fill(ASCII_ORDER, CollationElementIterator.NULLORDER);
+
+        if (NEUTRAL_COLLATOR instanceof RuleBasedCollator)
+        {
+            RuleBasedCollator rbc = (RuleBasedCollator)NEUTRAL_COLLATOR;
+            for (char c = 0; c < ASCII_ORDER.length; c++)
+            {
+                CollationElementIterator it =
+                    rbc.getCollationElementIterator(String.valueOf(c));
+                final int first = it.next();
+                if (it.next() == CollationElementIterator.NULLORDER)
+                    ASCII_ORDER[c] = first;
+            }
+        }
+    }
     
     private final String value;
     private final int hashCode;
@@ -53,9 +83,138 @@ public final class CaselessString
         this.value = value;
 
         // We can cache the hashCode here since string is immutable
-        this.hashCode = this.value.toLowerCase(Locale.ROOT).hashCode();
+        this.hashCode = caselessHash(value);
     }
-    
+
+    /**
+     * Computes value.toLowerCase(Locale.ROOT).hashCode() without
+     * allocating a lower-cased copy when the value is ASCII.
+     */
+    private static int caselessHash(String value)
+    {
+        final int len = value.length();
+        int h = 0;
+        for (int i = 0; i < len; i++)
+        {
+            char c = value.charAt(i);
+            if (c >= 128)
+                return value.toLowerCase(Locale.ROOT).hashCode();
+
+            if ('A' <= c && c <= 'Z') c += 'a' - 'A';
+            h = 31 * h + c;
+        }
+
+        return h;
+    }
+
+    /**
+     * Checks whether a string can be compared using ASCII_ORDER.
+     */
+    private static boolean isFastPath(String s)
+    {
+        final int len = s.length();
+        for (int i = 0; i < len; i++)
+        {
+            final char c = s.charAt(i);
+            if (c >= 128 || ASCII_ORDER[c] == CollationElementIterator.NULLORDER)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Compares two strings in the same way as the neutral collator.
+     * For strings whose chars each map to one collation element, this
+     * walks the elements exactly as RuleBasedCollator.compare does at
+     * secondary strength, but without its locking and allocations.
+     */
+    private static int compare(String a, String b)
+    {
+        if (!isFastPath(a) || !isFastPath(b))
+            return NEUTRAL_COLLATOR.compare(a, b);
+
+        final int aLen = a.length();
+        final int bLen = b.length();
+        int i = 0;
+        int j = 0;
+
+        // The first secondary difference decides, unless a primary 
+        // difference is found later. Ignorable chars (such as whitespace)
+        // have no primary order and only count as secondary differences.
+        int result = 0;
+
+        while (i < aLen && j < bLen)
+        {
+            final int s = ASCII_ORDER[a.charAt(i)];
+            final int t = ASCII_ORDER[b.charAt(j)];
+
+            if (s == t)
+            {
+                i++;
+                j++;
+                continue;
+            }
+
+            final int ps = CollationElementIterator.primaryOrder(s);
+            final int pt = CollationElementIterator.primaryOrder(t);
+
+            if (ps != pt)
+            {
+                if (s == 0) { i++; continue; }
+                if (t == 0) { j++; continue; }
+
+                if (ps == 0)
+                {
+                    if (result == 0) result = 1;
+                    i++;
+                }
+                else if (pt == 0)
+                {
+                    if (result == 0) result = -1;
+                    j++;
+                }
+                else
+                {
+                    return ps < pt ? -1 : 1;
+                }
+
+                continue;
+            }
+
+            // Same primary order, so only the case (tertiary order), 
+            // which we ignore, or the secondary order can differ.
+            if (result == 0)
+            {
+                final int ss = CollationElementIterator.secondaryOrder(s);
+                final int st = CollationElementIterator.secondaryOrder(t);
+                if (ss != st) result = ss < st ? -1 : 1;
+            }
+
+            i++;
+            j++;
+        }
+
+        // Leftover chars are a primary difference unless ignorable.
+        for (; i < aLen; i++)
+        {
+            final int s = ASCII_ORDER[a.charAt(i)];
+            if (CollationElementIterator.primaryOrder(s) != 0) return 1;
+            if (CollationElementIterator.secondaryOrder(s) != 0 && result == 0)
+                result = 1;
+        }
+
+        for (; j < bLen; j++)
+        {
+            final int t = ASCII_ORDER[b.charAt(j)];
+            if (CollationElementIterator.primaryOrder(t) != 0) return -1;
+            if (CollationElementIterator.secondaryOrder(t) != 0 && result == 0)
+                result = -1;
+        }
+
+        return result;
+    }
+
     /**
      * Gets the underlying string value stored in this object, 
      * with the case preserved (as passed to the constructor)
@@ -84,16 +243,18 @@ public final class CaselessString
     @Override
     public boolean equals(Object obj)
     {
+        if (obj == this) return true;
+
         if (obj instanceof String)
         {
-            return NEUTRAL_COLLATOR.equals((String)obj, this.value);
+            return compare((String)obj, this.value) == 0;
         }
         
         if (obj instanceof CaselessString)
         {
             CaselessString cis = (CaselessString)obj; 
             return cis.hashCode == this.hashCode &&
-                NEUTRAL_COLLATOR.equals(cis.value, this.value);
+                compare(cis.value, this.value) == 0;
         }
         
         return false;
@@ -113,7 +274,7 @@ public final class CaselessString
     @Override
     public int compareTo(CaselessString o)
     {
-        return NEUTRAL_COLLATOR.compare(this.value, o.value);
+        return compare(this.value, o.value);
     }
 
     /**
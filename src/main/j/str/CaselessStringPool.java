@@ -0,0 +1,300 @@
+package j.str;
+
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A pool that maps char or byte sequences, ignoring case, to canonical
+ * {@link CaselessString} instances, so that the many copies of the same
+ * name seen by a server or proxy share one instance and compare equal by
+ * reference.
+ *
+ * The pool has two parts. The seed names given at construction, by
+ * default the well-known HTTP header names, are always retained and
+ * always map to the same instance. Any other name goes through a bounded
+ * cache in which each name can occupy only one slot, decided by its hash
+ * code; a name evicts whatever was in its slot. Such names therefore get
+ * the same instance only while they stay in the cache, which keeps
+ * memory bounded no matter how many distinct names arrive.
+ *
+ * Lookups of ASCII names compare chars after case folding (see
+ * {@link StrUtil#foldCase(char)}) and allocate only on a miss. Other
+ * names are compared with {@link CaselessString#equals(Object)}, since
+ * Unicode case folding matches names the collator does not, such as a
+ * dotless i with an i; so the canonical instance is always equal to the
+ * name looked up. Bytes are read as ISO-8859-1 chars.
+ *
+ * This class is thread-safe. Lookups do not lock.
+ */
+public final class CaselessStringPool
+{
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    /**
+     * Common HTTP request and response header names.
+     */
+    public static final List<String> HTTP_HEADER_NAMES =
+        Collections.unmodifiableList(Arrays.asList(
+            "Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language",
+            "Accept-Ranges", "Access-Control-Allow-Credentials",
+            "Access-Control-Allow-Headers", "Access-Control-Allow-Methods",
+            "Access-Control-Allow-Origin", "Access-Control-Expose-Headers",
+            "Access-Control-Max-Age", "Access-Control-Request-Headers",
+            "Access-Control-Request-Method", "Age", "Allow", "Authorization",
+            "Cache-Control", "Connection", "Content-Disposition",
+            "Content-Encoding", "Content-Language", "Content-Length",
+            "Content-Location", "Content-Range", "Content-Security-Policy",
+            "Content-Type", "Cookie", "Date", "ETag", "Expect", "Expires",
+            "Forwarded", "From", "Host", "If-Match", "If-Modified-Since",
+            "If-None-Match", "If-Range", "If-Unmodified-Since", "Keep-Alive",
+            "Last-Modified", "Link", "Location", "Max-Forwards", "Origin",
+            "Pragma", "Proxy-Authenticate", "Proxy-Authorization",
+            "Proxy-Connection", "Range", "Referer", "Retry-After", "Server",
+            "Set-Cookie", "Strict-Transport-Security", "TE", "Trailer",
+            "Transfer-Encoding", "Upgrade", "User-Agent", "Vary", "Via",
+            "Warning", "WWW-Authenticate", "X-Content-Type-Options",
+            "X-Forwarded-For", "X-Forwarded-Host", "X-Forwarded-Proto",
+            "X-Frame-Options", "X-Real-IP", "X-Requested-With"));
+
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /** Open-addressing table of the seed names; never modified after
+     * construction. Its length is a power of two. */
+    private final CaselessString[] seeds;
+    private final int[] seedHashes;
+
+    /** Direct-mapped cache of other names; null if there is none. */
+    private final AtomicReferenceArray<CaselessString> cache;
+
+    /**
+     * Constructs a pool seeded with {@link #HTTP_HEADER_NAMES} and a cache
+     * of a default size.
+     */
+    public CaselessStringPool()
+    {
+        this(HTTP_HEADER_NAMES, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param seedNames Names that are always retained. Names that equal
+     *        an earlier one ignoring case are skipped.
+     * @param cacheSize Maximum number of other names retained; rounded up
+     *        to a power of two. If zero, other names are not retained and
+     *        each lookup of one returns a new instance.
+     * @exception IllegalArgumentException if cacheSize is negative or
+     *            greater than 2^30.
+     * @exception NullPointerException if seedNames or any of its names
+     *            is null.
+     */
+    public CaselessStringPool(Collection<String> seedNames, int cacheSize)
+    {
+        if (cacheSize < 0 || cacheSize > (1 << 30))
+            throw new IllegalArgumentException("invalid cache size");
+
+        int cap = 4;
+        while (cap < seedNames.size() * 2) cap <<= 1;
+        this.seeds = new CaselessString[cap];
+        this.seedHashes = new int[cap];
+
+        for (String name : seedNames)
+        {
+            final int h = StrUtil.caselessHashCode(name);
+            int i = spread(h) & (cap - 1);
+            while (this.seeds[i] != null
+                && !StrUtil.equalsIgnoreCase(this.seeds[i], name))
+                i = (i + 1) & (cap - 1);
+
+            if (this.seeds[i] == null)
+            {
+                this.seeds[i] = new CaselessString(name);
+                this.seedHashes[i] = h;
+            }
+        }
+
+        if (cacheSize == 0)
+        {
+            this.cache = null;
+        }
+        else
+        {
+            int size = 1;
+            while (size < cacheSize) size <<= 1;
+            this.cache = new AtomicReferenceArray<CaselessString>(size);
+        }
+    }
+
+    /** Spreads the high bits of a hash code so masking uses them too. */
+    private static int spread(int h)
+    {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the canonical instance for a char sequence.
+     * @exception NullPointerException if cs is null.
+     */
+    public CaselessString intern(CharSequence cs)
+    {
+        if (cs instanceof CaselessString) return intern((CaselessString)cs);
+        return lookup(cs, 0, cs.length(), null);
+    }
+
+    /**
+     * Gets the canonical instance for chars c[off..off+len).
+     * The chars are copied only on a miss.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public CaselessString intern(char[] c, int off, int len)
+    {
+        checkRange(c.length, off, len);
+        return lookup(c, off, len, null);
+    }
+
+    /**
+     * Gets the canonical instance for bytes b[off..off+len), each read as
+     * an ISO-8859-1 char. The bytes are decoded only on a miss.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public CaselessString intern(byte[] b, int off, int len)
+    {
+        checkRange(b.length, off, len);
+        return lookup(b, off, len, null);
+    }
+
+    /**
+     * Gets the canonical instance equal to a CaselessString. If there is
+     * none yet, the argument itself becomes canonical if the pool has
+     * room to retain it.
+     * @exception NullPointerException if s is null.
+     */
+    public CaselessString intern(CaselessString s)
+    {
+        final String v = s.getValue();
+        return lookup(v, 0, v.length(), s);
+    }
+
+    private static void checkRange(int arrayLen, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > arrayLen - off)
+            throw new IndexOutOfBoundsException(
+                "off: " + off + ", len: " + len);
+    }
+
+    /**
+     * Looks up a name given as src[off..off+len), where src is a
+     * CharSequence, char[] or byte[].
+     * @param onMiss The instance to retain on a miss; if null, a new one
+     *        is created from src.
+     */
+    private CaselessString lookup(Object src, int off, int len,
+        CaselessString onMiss)
+    {
+        final int h = hash(src, off, len);
+
+        // Only needed to compare non-ASCII names.
+        final boolean ascii = isAscii(src, off, len);
+        CaselessString key = onMiss;
+        if (key == null && !ascii)
+            key = new CaselessString(toString(src, off, len));
+
+        final int mask = this.seeds.length - 1;
+        for (int i = spread(h) & mask; this.seeds[i] != null; i = (i + 1) & mask)
+        {
+            if (this.seedHashes[i] == h
+                && matches(this.seeds[i], src, off, len, ascii, key))
+                return this.seeds[i];
+        }
+
+        int slot = 0;
+        if (this.cache != null)
+        {
+            slot = spread(h) & (this.cache.length() - 1);
+            final CaselessString cached = this.cache.get(slot);
+            if (cached != null && matches(cached, src, off, len, ascii, key))
+                return cached;
+        }
+
+        final CaselessString s = key != null
+            ? key : new CaselessString(toString(src, off, len));
+
+        if (this.cache != null) this.cache.set(slot, s);
+        return s;
+    }
+
+    /** Gets the char at index i of src, as in lookup(). */
+    private static char charAt(Object src, int i)
+    {
+        if (src instanceof byte[]) return (char)(((byte[])src)[i] & 255);
+        if (src instanceof char[]) return ((char[])src)[i];
+        return ((CharSequence)src).charAt(i);
+    }
+
+    /** Same as StrUtil.caselessHashCode() over src[off..off+len). */
+    private static int hash(Object src, int off, int len)
+    {
+        int h = 0;
+        for (int i = off; i < off + len; i++)
+            h = 31 * h + StrUtil.foldCase(charAt(src, i));
+        return h;
+    }
+
+    private static boolean isAscii(Object src, int off, int len)
+    {
+        for (int i = off; i < off + len; i++)
+            if (charAt(src, i) >= 128) return false;
+        return true;
+    }
+
+    /**
+     * Checks whether a pooled instance equals src[off..off+len).
+     * @param ascii Whether src[off..off+len) is ASCII.
+     * @param key The name as a CaselessString, if already made.
+     */
+    private static boolean matches(CaselessString pooled, Object src,
+        int off, int len, boolean ascii, CaselessString key)
+    {
+        final String s = pooled.getValue();
+
+        // For ASCII, folding matches exactly what the collator does.
+        if (ascii && isAscii(s, 0, s.length()))
+            return matchesFolded(s, src, off, len);
+
+        if (key == null) key = new CaselessString(toString(src, off, len));
+        return pooled.equals(key);
+    }
+
+    /** Same as StrUtil.equalsIgnoreCase() with src[off..off+len). */
+    private static boolean matchesFolded(String s, Object src, int off, int len)
+    {
+        if (s.length() != len) return false;
+
+        for (int i = 0; i < len; i++)
+        {
+            final char x = s.charAt(i);
+            final char y = charAt(src, off + i);
+            if (x != y && StrUtil.foldCase(x) != StrUtil.foldCase(y))
+                return false;
+        }
+
+        return true;
+    }
+
+    private static String toString(Object src, int off, int len)
+    {
+        if (src instanceof byte[]) return new String((byte[])src, off, len, LATIN1);
+        if (src instanceof char[]) return new String((char[])src, off, len);
+        return ((CharSequence)src).subSequence(off, off + len).toString();
+    }
+
+    /**
+     * Gets the number of seed names.
+     */
+    public int seedCount()
+    {
+        int n = 0;
+        for (CaselessString s : this.seeds)
+            if (s != null) n++;
+        return n;
+    }
+}
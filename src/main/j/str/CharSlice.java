@@ -0,0 +1,117 @@
+package j.str;
+
+/**
+ * A mutable view of a range of a char array as a CharSequence.
+ *
+ * This lets text in a reader's buffer, such as a line, be inspected
+ * without copying it into a String first. The view does not copy the
+ * chars, so changing the array changes the view. An instance can be
+ * pointed at another range with set() and reused.
+ *
+ * Two views are equal only if they are the same instance, since their
+ * content can change.
+ *
+ * This class is not thread-safe.
+ *
+ * @see ByteSlice
+ */
+public final class CharSlice implements CharSequence
+{
+    private char[] buf;
+    private int off;
+    private int len;
+
+    /**
+     * Constructs an empty view.
+     */
+    public CharSlice()
+    {
+        this.buf = new char[0];
+        this.off = 0;
+        this.len = 0;
+    }
+
+    /**
+     * Constructs a view of buf[off..off+len).
+     * @exception NullPointerException if buf is null.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public CharSlice(char[] buf, int off, int len)
+    {
+        set(buf, off, len);
+    }
+
+    /**
+     * Points this view at buf[off..off+len).
+     * @return this view.
+     * @exception NullPointerException if buf is null.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public CharSlice set(char[] buf, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > buf.length - off)
+            throw new IndexOutOfBoundsException(
+                "off: " + off + ", len: " + len);
+
+        this.buf = buf;
+        this.off = off;
+        this.len = len;
+        return this;
+    }
+
+    /**
+     * Gets the underlying array.
+     */
+    public char[] array()
+    {
+        return this.buf;
+    }
+
+    /**
+     * Gets the index of the first char of this view in the array.
+     */
+    public int offset()
+    {
+        return this.off;
+    }
+
+    @Override
+    public int length()
+    {
+        return this.len;
+    }
+
+    /**
+     * @exception IndexOutOfBoundsException if index is out of bounds.
+     */
+    @Override
+    public char charAt(int index)
+    {
+        if (index < 0 || index >= this.len)
+            throw new IndexOutOfBoundsException("index: " + index);
+
+        return this.buf[this.off + index];
+    }
+
+    /**
+     * Gets a new view of a range of this view, sharing the same array.
+     */
+    @Override
+    public CharSlice subSequence(int start, int end)
+    {
+        if (start < 0 || end > this.len || start > end)
+            throw new IndexOutOfBoundsException(
+                "start: " + start + ", end: " + end);
+
+        return new CharSlice(this.buf, this.off + start, end - start);
+    }
+
+    /**
+     * Copies the chars of this view into a new String.
+     */
+    @Override
+    public String toString()
+    {
+        return new String(this.buf, this.off, this.len);
+    }
+}
@@ -0,0 +1,704 @@
+package j.str;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Utilities to enumerate, rank and unrank combinations, k-permutations
+ * and subsets of the integers 0 to n-1 without allocating.
+ *
+ * A combination of k of n is given either as a sorted int array of its
+ * k elements, enumerated in lexicographic order, or, if n is at most 64,
+ * as a long bit mask with k bits set, enumerated in increasing numeric
+ * order with Gosper's hack. The two orders differ, and so do the ranks
+ * of rank() and rankMask().
+ *
+ * A k-permutation is an array of k distinct elements from 0 to n-1,
+ * enumerated in lexicographic order. A subset of n is a bit mask, so its
+ * rank is the mask itself.
+ *
+ * Every arrangement is numbered by its rank, a long from 0, so any range
+ * of ranks can be unranked directly and split among threads with the
+ * spliterators, or among processes by index range.
+ *
+ * @see Permutations
+ */
+public final class Combinations
+{
+    private Combinations()
+    {
+    }
+
+    /**
+     * Visits bit masks.
+     */
+    public interface MaskVisitor
+    {
+        /**
+         * @return true to continue; false to stop.
+         */
+        boolean visit(long mask);
+    }
+
+    private static void checkArgs(int n, int k)
+    {
+        if (k < 0 || n < k)
+            throw new IllegalArgumentException("need 0 <= k <= n: n=" + n + ", k=" + k);
+    }
+
+    private static void checkMaskArgs(int n, int k)
+    {
+        checkArgs(n, k);
+        if (n > 64)
+            throw new IllegalArgumentException("n must <= 64: " + n);
+    }
+
+    private static void checkRange(long from, long to, long count)
+    {
+        if (from < 0 || to > count || from > to)
+            throw new IllegalArgumentException(
+                "range: [" + from + ", " + to + ")");
+    }
+
+    /**
+     * Gets the binomial coefficient C(n, k), the number of combinations
+     * of k of n.
+     * @return 0 if k is negative or greater than n.
+     * @exception IllegalArgumentException if n is negative or the result
+     *            does not fit in a long.
+     */
+    public static long binomial(int n, int k)
+    {
+        if (n < 0) throw new IllegalArgumentException("n must >= 0: " + n);
+        if (k < 0 || k > n) return 0;
+        if (k > n - k) k = n - k;
+
+        // C(n, i) = C(n, i-1) * (n-i+1) / i, which is exact when reduced by
+        // the gcd first.
+        long c = 1;
+        for (int i = 1; i <= k; i++)
+        {
+            final int m = n - i + 1;
+            final int g = gcd(m, i);
+            try
+            {
+                c = Math.multiplyExact(c / (i / g), (long)(m / g));
+            }
+            catch (ArithmeticException e)
+            {
+                throw new IllegalArgumentException(
+                    "C(" + n + ", " + k + ") overflows a long");
+            }
+        }
+        return c;
+    }
+
+    private static int gcd(int a, int b)
+    {
+        while (b != 0)
+        {
+            final int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    // ------------------------------------------------------------------
+    // Combinations as sorted index arrays, in lexicographic order.
+
+    /**
+     * Rearranges a combination into the next one in lexicographic order.
+     * @param c The k elements of a combination of n, sorted ascending.
+     * @return true if there is a next combination; false if c was the
+     *         last one, in which case it is set to the first, 0 to k-1.
+     */
+    public static boolean nextCombination(int[] c, int n)
+    {
+        final int k = c.length;
+
+        // Find the rightmost element that can still be incremented.
+        int i = k - 1;
+        while (i >= 0 && c[i] == n - k + i) i--;
+
+        if (i < 0)
+        {
+            for (int j = 0; j < k; j++) c[j] = j;
+            return false;
+        }
+
+        c[i]++;
+        for (int j = i + 1; j < k; j++) c[j] = c[j - 1] + 1;
+        return true;
+    }
+
+    /**
+     * Gets the lexicographic rank of a combination.
+     * @param c The k elements of a combination of n, sorted ascending.
+     * @return A number in [0, C(n, k)).
+     * @exception IllegalArgumentException if c is not sorted, or has an
+     *            element out of [0, n).
+     */
+    public static long rank(int[] c, int n)
+    {
+        final int k = c.length;
+        checkArgs(n, k);
+
+        // Map c to its complement-reversed combination d_j = n-1-c[k-1-j],
+        // whose colexicographic rank counts the combinations after c.
+        long colex = 0;
+        for (int j = 0; j < k; j++)
+        {
+            final int x = c[k - 1 - j];
+            if (x < 0 || x >= n || (j > 0 && x >= c[k - j]))
+                throw new IllegalArgumentException("not a sorted combination");
+
+            colex += binomial(n - 1 - x, j + 1);
+        }
+
+        return binomial(n, k) - 1 - colex;
+    }
+
+    /**
+     * Sets an array to the combination of k of n of a given lexicographic
+     * rank, where k is the length of the array.
+     * @exception IllegalArgumentException if k is greater than n, or index
+     *            is not in [0, C(n, k)).
+     */
+    public static void unrank(long index, int n, int[] c)
+    {
+        final int k = c.length;
+        checkArgs(n, k);
+
+        final long count = binomial(n, k);
+        if (index < 0 || index >= count)
+            throw new IllegalArgumentException("index out of range: " + index);
+
+        unrankColex(count - 1 - index, n - 1, c);
+        for (int j = 0, l = k - 1; j < l; j++, l--)
+        {
+            final int t = c[j];
+            c[j] = c[l];
+            c[l] = t;
+        }
+        for (int j = 0; j < k; j++) c[j] = n - 1 - c[j];
+    }
+
+    /**
+     * Sets d to the combination of colexicographic rank r, in ascending
+     * order, each element being at most max.
+     */
+    private static void unrankColex(long r, int max, int[] d)
+    {
+        int x = max;
+        for (int i = d.length; i >= 1; i--)
+        {
+            // Find the largest x with C(x, i) <= r, stepping down from the
+            // previous bound with C(x-1, i) = C(x, i) * (x-i) / x.
+            long b = binomial(x, i);
+            while (b > r)
+            {
+                b = Permutations.mulDiv(b, x - i, x);
+                x--;
+            }
+
+            d[i - 1] = x;
+            r -= b;
+            x--;
+        }
+    }
+
+    /**
+     * Visits every combination of k of n in lexicographic order, passing
+     * the same sorted array of k elements on every call.
+     * @return The number of combinations visited.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than n.
+     */
+    public static long forEach(int n, int k, Permutations.IntVisitor visitor)
+    {
+        checkArgs(n, k);
+
+        final int[] c = new int[k];
+        for (int j = 0; j < k; j++) c[j] = j;
+
+        long count = 0;
+        do
+        {
+            count++;
+            if (!visitor.visit(c)) break;
+        }
+        while (nextCombination(c, n));
+
+        return count;
+    }
+
+    /**
+     * Creates a spliterator over all combinations of k of n in
+     * lexicographic order.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than n, or the number of combinations overflows a long.
+     * @see #spliterator(int, int, long, long)
+     */
+    public static Spliterator<int[]> spliterator(int n, int k)
+    {
+        checkArgs(n, k);
+        return spliterator(n, k, 0, binomial(n, k));
+    }
+
+    /**
+     * Creates a spliterator over the combinations of k of n with
+     * lexicographic ranks in [from, to). Each spliterator passes the same
+     * array, which it owns, to every action; the action must not modify
+     * it, and must copy it to keep it.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than n, or the range is not within [0, C(n, k)].
+     */
+    public static Spliterator<int[]> spliterator(final int n, final int k,
+        long from, long to)
+    {
+        checkArgs(n, k);
+        checkRange(from, to, binomial(n, k));
+
+        return new Permutations.RangeSpliterator<int[]>(from, to)
+        {
+            @Override
+            protected int[] unrank(long index)
+            {
+                final int[] c = new int[k];
+                Combinations.unrank(index, n, c);
+                return c;
+            }
+
+            @Override
+            protected void next(int[] c)
+            {
+                nextCombination(c, n);
+            }
+
+            @Override
+            protected Permutations.RangeSpliterator<int[]> create(long from, long to)
+            {
+                return (Permutations.RangeSpliterator<int[]>)spliterator(n, k, from, to);
+            }
+        };
+    }
+
+    // ------------------------------------------------------------------
+    // Combinations as bit masks, in increasing numeric order.
+
+    /**
+     * Gets the next greater mask with the same number of bits set
+     * (Gosper's hack).
+     * @param mask Must not be 0.
+     * @return The next mask, or 0 if there is none within 64 bits. For a
+     *         combination of n less than 64, the enumeration ends when
+     *         the result has a bit at n or above set.
+     * @exception IllegalArgumentException if mask is 0.
+     */
+    public static long nextCombination(long mask)
+    {
+        if (mask == 0) throw new IllegalArgumentException("mask is 0");
+
+        final long low = mask & -mask;
+        final long ripple = mask + low;
+        if (ripple == 0) return 0;
+
+        // Move the bits to the right of the rippled block to the bottom.
+        return ripple | (((ripple ^ mask) >>> 2) / low);
+    }
+
+    /**
+     * Gets the rank of a mask among the masks with as many bits set, in
+     * increasing numeric (colexicographic) order.
+     */
+    public static long rankMask(long mask)
+    {
+        long rank = 0;
+        for (int j = 1; mask != 0; j++)
+        {
+            rank += binomial(Long.numberOfTrailingZeros(mask), j);
+            mask &= mask - 1;
+        }
+        return rank;
+    }
+
+    /**
+     * Gets the mask with k bits set of a given rank, in increasing
+     * numeric order.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than 64, or index is not in [0, C(64, k)).
+     */
+    public static long unrankMask(long index, int k)
+    {
+        checkMaskArgs(64, k);
+        if (index < 0 || index >= binomial(64, k))
+            throw new IllegalArgumentException("index out of range: " + index);
+
+        final int[] d = new int[k];
+        unrankColex(index, 63, d);
+
+        long mask = 0;
+        for (int x : d) mask |= 1L << x;
+        return mask;
+    }
+
+    /**
+     * Visits every combination of k of n as a bit mask, in increasing
+     * numeric order.
+     * @return The number of combinations visited.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than n, or n is greater than 64.
+     */
+    public static long forEachMask(int n, int k, MaskVisitor visitor)
+    {
+        checkMaskArgs(n, k);
+
+        long mask = k == 64 ? -1L : (1L << k) - 1;
+        long count = 0;
+        for (;;)
+        {
+            count++;
+            if (!visitor.visit(mask) || mask == 0) break;
+
+            mask = nextCombination(mask);
+            if (mask == 0 || (n < 64 && (mask >>> n) != 0)) break;
+        }
+
+        return count;
+    }
+
+    /**
+     * Creates a spliterator over all combinations of k of n as bit masks,
+     * in increasing numeric order.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than n, or n is greater than 64.
+     */
+    public static Spliterator.OfLong maskSpliterator(int n, int k)
+    {
+        checkMaskArgs(n, k);
+        return new MaskSpliterator(k, 0, binomial(n, k));
+    }
+
+    /**
+     * A spliterator over the masks with k bits set with ranks in
+     * [from, to).
+     */
+    private static final class MaskSpliterator implements Spliterator.OfLong
+    {
+        private final int k;
+        private long from;
+        private final long to;
+
+        /** The mask of rank from - 1; 0 until the first is produced. */
+        private long mask;
+        private boolean started;
+
+        MaskSpliterator(int k, long from, long to)
+        {
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action)
+        {
+            if (this.from >= this.to) return false;
+
+            if (this.started)
+            {
+                this.mask = nextCombination(this.mask);
+            }
+            else
+            {
+                this.mask = unrankMask(this.from, this.k);
+                this.started = true;
+            }
+
+            this.from++;
+            action.accept(this.mask);
+            return true;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit()
+        {
+            final long n = this.to - this.from;
+            if (n < 2) return null;
+
+            final long mid = this.from + n / 2;
+            final MaskSpliterator lo = new MaskSpliterator(this.k, this.from, mid);
+            lo.mask = this.mask;
+            lo.started = this.started;
+
+            this.started = false;
+            this.from = mid;
+            return lo;
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return this.to - this.from;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | DISTINCT | SORTED;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator()
+        {
+            return null;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // k-permutations, in lexicographic order.
+
+    /**
+     * Gets the number of k-permutations of n, n! / (n-k)!.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than n, or the result does not fit in a long.
+     */
+    public static long kPermutationCount(int n, int k)
+    {
+        checkArgs(n, k);
+
+        long p = 1;
+        try
+        {
+            for (int i = 0; i < k; i++) p = Math.multiplyExact(p, (long)(n - i));
+        }
+        catch (ArithmeticException e)
+        {
+            throw new IllegalArgumentException(
+                "P(" + n + ", " + k + ") overflows a long");
+        }
+        return p;
+    }
+
+    /**
+     * Rearranges a k-permutation of n into the next one in lexicographic
+     * order, in O(k) time if n is at most 64, else O(k^2).
+     * @param a k distinct elements from 0 to n-1.
+     * @return true if there is a next k-permutation; false if a was the
+     *         last one, in which case it is set to the first, 0 to k-1.
+     */
+    public static boolean nextKPermutation(int[] a, int n)
+    {
+        final int k = a.length;
+        return n <= 64 ? nextKPermutationMask(a, n, k) : nextKPermutationScan(a, n, k);
+    }
+
+    private static boolean nextKPermutationMask(int[] a, int n, int k)
+    {
+        long used = 0;
+        for (int j = 0; j < k; j++) used |= 1L << a[j];
+
+        final long all = n == 64 ? -1L : (1L << n) - 1;
+        for (int i = k - 1; i >= 0; i--)
+        {
+            used &= ~(1L << a[i]);
+            if (a[i] + 1 >= n) continue;
+
+            final long free = ~used & all & (-1L << (a[i] + 1));
+            if (free != 0)
+            {
+                a[i] = Long.numberOfTrailingZeros(free);
+                used |= 1L << a[i];
+
+                // Fill the rest with the smallest unused elements.
+                for (int j = i + 1; j < k; j++)
+                {
+                    a[j] = Long.numberOfTrailingZeros(~used);
+                    used |= 1L << a[j];
+                }
+                return true;
+            }
+        }
+
+        for (int j = 0; j < k; j++) a[j] = j;
+        return false;
+    }
+
+    private static boolean nextKPermutationScan(int[] a, int n, int k)
+    {
+        for (int i = k - 1; i >= 0; i--)
+        {
+            int v = a[i] + 1;
+            while (v < n && indexOf(a, i, v) >= 0) v++;
+
+            if (v < n)
+            {
+                a[i] = v;
+                for (int j = i + 1; j < k; j++)
+                {
+                    int f = 0;
+                    while (indexOf(a, j, f) >= 0) f++;
+                    a[j] = f;
+                }
+                return true;
+            }
+        }
+
+        for (int j = 0; j < k; j++) a[j] = j;
+        return false;
+    }
+
+    /** Finds v in a[0..len). */
+    private static int indexOf(int[] a, int len, int v)
+    {
+        for (int j = 0; j < len; j++)
+            if (a[j] == v) return j;
+        return -1;
+    }
+
+    /**
+     * Gets the lexicographic rank of a k-permutation of n.
+     * @return A number in [0, kPermutationCount(n, k)).
+     * @exception IllegalArgumentException if a has a repeated element or
+     *            one out of [0, n), or the count overflows a long.
+     */
+    public static long rankKPermutation(int[] a, int n)
+    {
+        final int k = a.length;
+        kPermutationCount(n, k);
+
+        // Digit i is the number of unused elements less than a[i], in a
+        // mixed radix whose i-th radix is n-i.
+        long rank = 0;
+        for (int i = 0; i < k; i++)
+        {
+            final int v = a[i];
+            if (v < 0 || v >= n || indexOf(a, i, v) >= 0)
+                throw new IllegalArgumentException("not a k-permutation");
+
+            int smaller = 0;
+            for (int j = 0; j < i; j++)
+                if (a[j] < v) smaller++;
+
+            rank = rank * (n - i) + (v - smaller);
+        }
+        return rank;
+    }
+
+    /**
+     * Sets an array to the k-permutation of n of a given lexicographic
+     * rank, where k is the length of the array.
+     * @exception IllegalArgumentException if k is greater than n, or index
+     *            is not in [0, kPermutationCount(n, k)).
+     */
+    public static void unrankKPermutation(long index, int n, int[] a)
+    {
+        final int k = a.length;
+        if (index < 0 || index >= kPermutationCount(n, k))
+            throw new IllegalArgumentException("index out of range: " + index);
+
+        for (int i = k - 1; i >= 0; i--)
+        {
+            a[i] = (int)(index % (n - i));
+            index /= n - i;
+        }
+
+        for (int i = 0; i < k; i++)
+        {
+            // The digit-th smallest element not in a[0..i): grow v until
+            // it skips exactly the used elements not above it.
+            final int digit = a[i];
+            int v = digit;
+            for (;;)
+            {
+                int used = 0;
+                for (int j = 0; j < i; j++)
+                    if (a[j] <= v) used++;
+
+                if (digit + used == v) break;
+                v = digit + used;
+            }
+            a[i] = v;
+        }
+    }
+
+    /**
+     * Creates a spliterator over all k-permutations of n in lexicographic
+     * order.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than n, or the count overflows a long.
+     * @see #kPermutationSpliterator(int, int, long, long)
+     */
+    public static Spliterator<int[]> kPermutationSpliterator(int n, int k)
+    {
+        return kPermutationSpliterator(n, k, 0, kPermutationCount(n, k));
+    }
+
+    /**
+     * Creates a spliterator over the k-permutations of n with
+     * lexicographic ranks in [from, to). Each spliterator passes the same
+     * array, which it owns, to every action; the action must not modify
+     * it, and must copy it to keep it.
+     * @exception IllegalArgumentException if k is negative or greater
+     *            than n, or the range is not within [0, count].
+     */
+    public static Spliterator<int[]> kPermutationSpliterator(final int n,
+        final int k, long from, long to)
+    {
+        checkRange(from, to, kPermutationCount(n, k));
+
+        return new Permutations.RangeSpliterator<int[]>(from, to)
+        {
+            @Override
+            protected int[] unrank(long index)
+            {
+                final int[] a = new int[k];
+                unrankKPermutation(index, n, a);
+                return a;
+            }
+
+            @Override
+            protected void next(int[] a)
+            {
+                nextKPermutation(a, n);
+            }
+
+            @Override
+            protected Permutations.RangeSpliterator<int[]> create(long from, long to)
+            {
+                return (Permutations.RangeSpliterator<int[]>)kPermutationSpliterator(
+                    n, k, from, to);
+            }
+        };
+    }
+
+    // ------------------------------------------------------------------
+    // Subsets as bit masks.
+
+    /**
+     * Gets the next subset of a set, both as bit masks, in increasing
+     * numeric order. Starting from 0, this enumerates all 2^bitCount(set)
+     * subsets of set and then returns 0 again.
+     */
+    public static long nextSubset(long subset, long set)
+    {
+        return (subset - set) & set;
+    }
+
+    /**
+     * Creates a spliterator over all subsets of n as bit masks from 0 to
+     * 2^n - 1, in increasing order, so the rank of a subset is its mask.
+     * @exception IllegalArgumentException if n is negative or greater
+     *            than 63.
+     */
+    public static Spliterator.OfLong subsetSpliterator(int n)
+    {
+        if (n < 0 || n > 63)
+            throw new IllegalArgumentException("n must be in [0, 63]: " + n);
+
+        return LongStream.rangeClosed(0, (1L << n) - 1).spliterator();
+    }
+}
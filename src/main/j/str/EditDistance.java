@@ -0,0 +1,262 @@
+package j.str;
+
+import java.util.Arrays;
+
+/**
+ * A precompiled pattern for computing the Levenshtein distance (unit
+ * cost insertions, deletions and substitutions) from it to many texts,
+ * such as fuzzy lookups of one query against a list of names.
+ *
+ * Uses Myers' bit-parallel algorithm, which computes a whole column of
+ * the dynamic programming matrix in a few word operations, so each
+ * comparison takes O(ceil(m/64) n) time for a pattern of length m and a
+ * text of length n, with a single 64-bit word for patterns of up to 64
+ * chars. Comparisons allocate nothing.
+ *
+ * With a threshold, a comparison stops as soon as the distance is known
+ * to exceed it, and texts whose length differs from the pattern's by
+ * more than the threshold are rejected without being read.
+ *
+ * Chars are compared exactly. This class is immutable and thread-safe.
+ *
+ * @see LevenshteinAutomaton
+ */
+public final class EditDistance
+{
+    private final int m;
+
+    /** No. of 64-bit blocks of the pattern */
+    private final int words;
+
+    /** asciiEq[c * words + b] has bit i set iff pattern[64b + i] == c */
+    private final long[] asciiEq;
+
+    /** Sorted distinct non-ASCII chars of the pattern */
+    private final char[] wideChars;
+
+    /** wideEq[k * words + b] is like asciiEq for wideChars[k] */
+    private final long[] wideEq;
+
+    /**
+     * @exception NullPointerException if pattern is null.
+     */
+    public EditDistance(CharSequence pattern)
+    {
+        this.m = pattern.length();
+        this.words = (this.m + 63) >>> 6;
+        this.asciiEq = new long[128 * this.words];
+
+        char[] wide = new char[this.m];
+        int nWide = 0;
+        for (int i = 0; i < this.m; i++)
+        {
+            final char c = pattern.charAt(i);
+            if (c < 128)
+                this.asciiEq[c * this.words + (i >>> 6)] |= 1L << i;
+            else
+                wide[nWide++] = c;
+        }
+
+        // Distinct wide chars, sorted for binary search.
+        Arrays.sort(wide, 0, nWide);
+        int distinct = 0;
+        for (int i = 0; i < nWide; i++)
+            if (distinct == 0 || wide[distinct - 1] != wide[i])
+                wide[distinct++] = wide[i];
+
+        this.wideChars = Arrays.copyOf(wide, distinct);
+        this.wideEq = new long[distinct * this.words];
+        for (int i = 0; i < this.m; i++)
+        {
+            final char c = pattern.charAt(i);
+            if (c >= 128)
+            {
+                final int k = Arrays.binarySearch(this.wideChars, c);
+                this.wideEq[k * this.words + (i >>> 6)] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Gets the length of the pattern.
+     */
+    public int length()
+    {
+        return this.m;
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings. For many
+     * comparisons against the same string, construct an instance.
+     */
+    public static int levenshtein(CharSequence a, CharSequence b)
+    {
+        // The shorter string as the pattern takes fewer blocks.
+        return a.length() <= b.length() ?
+            new EditDistance(a).distance(b) :
+            new EditDistance(b).distance(a);
+    }
+
+    /**
+     * Computes the distance from the pattern to a text.
+     */
+    public int distance(CharSequence text)
+    {
+        return distance(text, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Tells whether the distance from the pattern to a text is at most
+     * max.
+     */
+    public boolean isWithin(CharSequence text, int max)
+    {
+        return distance(text, max) <= max;
+    }
+
+    /**
+     * Computes the distance from the pattern to a text, giving up as
+     * soon as it is known to exceed max.
+     * @return The distance if it is at most max, otherwise max + 1.
+     * @exception IllegalArgumentException if max is negative or
+     *            Integer.MAX_VALUE.
+     */
+    public int distance(CharSequence text, int max)
+    {
+        if (max < 0 || max == Integer.MAX_VALUE)
+            throw new IllegalArgumentException("max: " + max);
+
+        final int n = text.length();
+        final int m = this.m;
+
+        // Each excess char costs at least one edit.
+        if (Math.abs(n - m) > max) return max + 1;
+        if (m == 0) return n;
+
+        return this.words == 1 ?
+            distance1(text, n, max) : distanceN(text, n, max);
+    }
+
+    private long wideEq(char c, int block)
+    {
+        final int k = Arrays.binarySearch(this.wideChars, c);
+        return k < 0 ? 0 : this.wideEq[k * this.words + block];
+    }
+
+    /**
+     * The case of a pattern of one block. Bit i of pv (mv) is set iff
+     * D[i+1][j] - D[i][j] is +1 (-1) for the current column j.
+     */
+    private int distance1(CharSequence text, int n, int max)
+    {
+        final long[] asciiEq = this.asciiEq;
+        final long last = 1L << (this.m - 1);
+
+        // Column 0 is D[i][0] = i.
+        long pv = -1;
+        long mv = 0;
+        int score = this.m;
+
+        for (int j = 0; j < n; j++)
+        {
+            final char c = text.charAt(j);
+            final long eq = c < 128 ? asciiEq[c] : wideEq(c, 0);
+
+            final long xv = eq | mv;
+            final long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+
+            if ((ph & last) != 0) score++;
+            else if ((mh & last) != 0) score--;
+
+            // Row 0 is D[0][j] = j, so it always rises by one.
+            ph = (ph << 1) | 1;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            // Each remaining char lowers the score by at most one.
+            if (score - (n - 1 - j) > max) return max + 1;
+        }
+
+        return score <= max ? score : max + 1;
+    }
+
+    /**
+     * The multi-block case, after Myers' block-based algorithm. The
+     * vertical deltas are kept per block and the horizontal delta at the
+     * bottom of each block is carried into the top of the next.
+     */
+    private int distanceN(CharSequence text, int n, int max)
+    {
+        final int words = this.words;
+        final long[] asciiEq = this.asciiEq;
+        final long lastBlockBottom = 1L << ((this.m - 1) & 63);
+
+        // Column 0 is D[i][0] = i. The vectors of all blocks are kept in
+        // a reused per-thread array so that comparisons allocate nothing.
+        final long[] v = vectors(2 * words);
+        Arrays.fill(v, 0, words, -1L);
+        Arrays.fill(v, words, 2 * words, 0L);
+
+        int score = this.m;
+
+        for (int j = 0; j < n; j++)
+        {
+            final char c = text.charAt(j);
+            final int base = c < 128 ? c * words : -1;
+
+            // Row 0 always rises by one.
+            int hin = 1;
+
+            for (int b = 0; b < words; b++)
+            {
+                long eq = base >= 0 ? asciiEq[base + b] : wideEq(c, b);
+                long pv = v[b];
+                long mv = v[words + b];
+
+                final long xv = eq | mv;
+                if (hin < 0) eq |= 1;
+                final long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                final long bottom = b == words - 1 ? lastBlockBottom : 1L << 63;
+                final int hout = (ph & bottom) != 0 ? 1 : (mh & bottom) != 0 ? -1 : 0;
+
+                ph <<= 1;
+                mh <<= 1;
+                if (hin < 0) mh |= 1;
+                else if (hin > 0) ph |= 1;
+
+                v[b] = mh | ~(xv | ph);
+                v[words + b] = ph & xv;
+                hin = hout;
+            }
+
+            score += hin;
+            if (score - (n - 1 - j) > max) return max + 1;
+        }
+
+        return score <= max ? score : max + 1;
+    }
+
+    private static final ThreadLocal<long[][]> VECTORS =
+        new ThreadLocal<long[][]>()
+        {
+            @Override
+            protected long[][] initialValue()
+            {
+                return new long[1][16];
+            }
+        };
+
+    private static long[] vectors(int len)
+    {
+        final long[][] holder = VECTORS.get();
+        if (holder[0].length < len)
+            holder[0] = new long[Math.max(len, 2 * holder[0].length)];
+        return holder[0];
+    }
+}
@@ -0,0 +1,484 @@
+package j.str;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+
+/**
+ * A full-text index of a byte string, built once, that counts and
+ * locates the occurrences of a pattern in time proportional to the
+ * length of the pattern rather than of the text, for answering many
+ * substring queries against the same large text.
+ *
+ * The index is the FM-index of the text: its Burrows-Wheeler transform
+ * (BWT), built from its suffix array, with occurrence counts of each
+ * byte value sampled every occRate positions of the BWT, and the suffix
+ * array sampled at every saRate-th text position. Counting a pattern of
+ * length m takes O(m occRate) time; locating each occurrence takes
+ * O(saRate occRate) more. Only the byte values that occur in the text
+ * take up room in the counts, which for sigma distinct values come to
+ * 4 sigma / occRate bytes per text byte, on top of one byte for the BWT
+ * and about 4 / saRate for the suffix array samples.
+ *
+ * An index can be saved to a file with {@link #save(File)} and mapped
+ * back into memory with {@link #map(File)}, which reads nothing up
+ * front, so a large index is paged in as queries touch it. Each section
+ * of a mapped index must be under 2 GB; shard larger texts.
+ *
+ * This class is thread-safe once built or mapped, and until closed.
+ *
+ * @see SuffixArray
+ */
+public final class FmIndex implements Closeable
+{
+    public static final int DEFAULT_OCC_RATE = 128;
+    public static final int DEFAULT_SA_RATE = 32;
+
+    /** 'FMIX' */
+    private static final int MAGIC = 0x464D4958;
+    private static final int VERSION = 1;
+
+    /** Header: magic, version, n, primary, occRate, saRate, sigma,
+     * then 256 ints of symbol indices and 256 ints of c. */
+    private static final int HEADER_SIZE = 7 * 4 + 2 * 256 * 4;
+
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** Length of the text */
+    private final int n;
+
+    /** The BWT row whose suffix is the whole text; its BWT byte is the
+     * sentinel, stored as 0 and excluded from the counts. */
+    private final int primary;
+
+    private final int occRate;
+    private final int saRate;
+
+    /** Index of each byte value among those in the text; -1 if absent */
+    private final int[] sym;
+    private final int sigma;
+
+    /** c[b] is the first BWT row of the suffixes starting with byte b */
+    private final int[] c;
+
+    /** The BWT, n + 1 bytes */
+    private final ByteBuffer bwt;
+
+    /** occ[k * sigma + sym[b]] is the no. of b in bwt[0..k*occRate) */
+    private final IntBuffer occ;
+
+    /** Bit r is set iff BWT row r has a suffix array sample */
+    private final LongBuffer marks;
+
+    /** markRank[w] is the no. of bits set in marks[0..w) */
+    private final IntBuffer markRank;
+
+    /** The suffix array samples in row order */
+    private final IntBuffer samples;
+
+    /** Non-null if mapped */
+    private final RandomAccessFile file;
+
+    private FmIndex(int n, int primary, int occRate, int saRate,
+        int[] sym, int sigma, int[] c, ByteBuffer bwt, IntBuffer occ,
+        LongBuffer marks, IntBuffer markRank, IntBuffer samples,
+        RandomAccessFile file)
+    {
+        this.n = n;
+        this.primary = primary;
+        this.occRate = occRate;
+        this.saRate = saRate;
+        this.sym = sym;
+        this.sigma = sigma;
+        this.c = c;
+        this.bwt = bwt;
+        this.occ = occ;
+        this.marks = marks;
+        this.markRank = markRank;
+        this.samples = samples;
+        this.file = file;
+    }
+
+    /**
+     * Builds the index of a text with the default sampling rates.
+     * @param text Not modified, and not referenced by the index.
+     */
+    public static FmIndex build(byte[] text)
+    {
+        return build(text, DEFAULT_OCC_RATE, DEFAULT_SA_RATE);
+    }
+
+    /**
+     * Builds the index of a text.
+     * @param text Not modified, and not referenced by the index.
+     * @param occRate Sampling rate of the occurrence counts; lower is
+     *        faster and larger.
+     * @param saRate Sampling rate of the suffix array; lower makes
+     *        locate() faster and the index larger.
+     * @exception IllegalArgumentException if a rate is non-positive, or
+     *            the text is too long.
+     */
+    public static FmIndex build(byte[] text, int occRate, int saRate)
+    {
+        if (occRate <= 0) throw new IllegalArgumentException("occRate must > 0");
+        if (saRate <= 0) throw new IllegalArgumentException("saRate must > 0");
+        if (text.length > Integer.MAX_VALUE - 2)
+            throw new IllegalArgumentException("text is too long");
+
+        final int n = text.length;
+        final int rows = n + 1;
+        final int[] sa = SuffixArray.build(text);
+
+        // Row 0 is the empty suffix, which sorts first; row r > 0 is
+        // suffix sa[r - 1].
+        final byte[] bwt = new byte[rows];
+        final long[] marks = new long[(rows + 63) >>> 6];
+        int numSamples = 0;
+        int primary = 0;
+
+        for (int r = 0; r < rows; r++)
+        {
+            final int pos = r == 0 ? n : sa[r - 1];
+            if (pos == 0) primary = r;
+            else bwt[r] = text[pos - 1];
+
+            if (pos % saRate == 0)
+            {
+                marks[r >>> 6] |= 1L << r;
+                numSamples++;
+            }
+        }
+
+        final int[] samples = new int[numSamples];
+        for (int r = 0, k = 0; r < rows; r++)
+        {
+            if ((marks[r >>> 6] & (1L << r)) != 0)
+                samples[k++] = r == 0 ? n : sa[r - 1];
+        }
+
+        final int[] markRank = new int[marks.length];
+        for (int w = 1; w < marks.length; w++)
+            markRank[w] = markRank[w - 1] + Long.bitCount(marks[w - 1]);
+
+        // Symbols and the first row of each byte value.
+        final int[] counts = new int[256];
+        for (byte b : text) counts[b & 255]++;
+
+        final int[] sym = new int[256];
+        final int[] c = new int[256];
+        int sigma = 0;
+        int next = 1;
+        for (int b = 0; b < 256; b++)
+        {
+            sym[b] = counts[b] > 0 ? sigma++ : -1;
+            c[b] = next;
+            next += counts[b];
+        }
+
+        final int blocks = rows / occRate + 1;
+        final int[] occ = new int[blocks * sigma];
+        final int[] running = new int[sigma];
+        for (int r = 0; r < rows; r++)
+        {
+            if (r % occRate == 0)
+                System.arraycopy(running, 0, occ, (r / occRate) * sigma, sigma);
+            if (r != primary) running[sym[bwt[r] & 255]]++;
+        }
+
+        if (rows % occRate == 0)
+            System.arraycopy(running, 0, occ, (rows / occRate) * sigma, sigma);
+
+        return new FmIndex(n, primary, occRate, saRate, sym, sigma, c,
+            ByteBuffer.wrap(bwt), IntBuffer.wrap(occ), LongBuffer.wrap(marks),
+            IntBuffer.wrap(markRank), IntBuffer.wrap(samples), null);
+    }
+
+    /**
+     * Gets the length of the indexed text.
+     */
+    public int textLength()
+    {
+        return this.n;
+    }
+
+    /**
+     * Counts the occurrences of a pattern in the text, including
+     * overlapping ones.
+     * @exception IllegalArgumentException if pattern is empty.
+     */
+    public int count(byte[] pattern)
+    {
+        final long range = range(pattern);
+        return (int)(range >>> 32) - (int)range;
+    }
+
+    /**
+     * Finds the positions of the occurrences of a pattern in the text, in
+     * no particular order.
+     * @param max The greatest number of positions to return.
+     * @exception IllegalArgumentException if pattern is empty or max is
+     *            negative.
+     */
+    public int[] locate(byte[] pattern, int max)
+    {
+        if (max < 0) throw new IllegalArgumentException("max must >= 0");
+
+        final long range = range(pattern);
+        final int lo = (int)range;
+        final int hi = (int)(range >>> 32);
+        final int[] pos = new int[Math.min(max, hi - lo)];
+
+        for (int i = 0; i < pos.length; i++)
+            pos[i] = position(lo + i);
+
+        return pos;
+    }
+
+    /**
+     * Finds the positions of all occurrences of a pattern in the text.
+     * @see #locate(byte[], int)
+     */
+    public int[] locate(byte[] pattern)
+    {
+        return locate(pattern, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Backward search for the rows of the suffixes starting with pattern.
+     * @return lo | (long)hi << 32 for the rows [lo, hi).
+     */
+    private long range(byte[] pattern)
+    {
+        if (pattern.length == 0)
+            throw new IllegalArgumentException("empty pattern");
+
+        int lo = 0;
+        int hi = this.n + 1;
+
+        for (int i = pattern.length - 1; i >= 0 && lo < hi; i--)
+        {
+            final int b = pattern[i] & 255;
+            if (this.sym[b] < 0) return 0;
+
+            lo = this.c[b] + occ(b, lo);
+            hi = this.c[b] + occ(b, hi);
+        }
+
+        return lo < hi ? (lo & 0xFFFFFFFFL) | ((long)hi << 32) : 0;
+    }
+
+    /**
+     * Counts b in bwt[0..row), excluding the sentinel.
+     */
+    private int occ(int b, int row)
+    {
+        final int block = row / this.occRate;
+        int count = this.occ.get(block * this.sigma + this.sym[b]);
+
+        final byte x = (byte)b;
+        final ByteBuffer bwt = this.bwt;
+        for (int r = block * this.occRate; r < row; r++)
+            if (bwt.get(r) == x) count++;
+
+        // The sentinel is stored as 0.
+        if (b == 0 && this.primary < row && this.primary >= block * this.occRate)
+            count--;
+
+        return count;
+    }
+
+    /**
+     * Gets the text position of the suffix of a row, by walking back
+     * through the text to a sampled position.
+     */
+    private int position(int row)
+    {
+        int steps = 0;
+        int r = row;
+
+        // The primary row is always sampled since position 0 is.
+        while ((this.marks.get(r >>> 6) & (1L << r)) == 0)
+        {
+            final int b = this.bwt.get(r) & 255;
+            r = this.c[b] + occ(b, r);
+            steps++;
+        }
+
+        final int w = r >>> 6;
+        final int rank = this.markRank.get(w) +
+            Long.bitCount(this.marks.get(w) & ((1L << r) - 1));
+        return this.samples.get(rank) + steps;
+    }
+
+    /**
+     * Saves the index to a file, replacing any content.
+     */
+    public void save(File f) throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try
+        {
+            raf.setLength(0);
+            final FileChannel ch = raf.getChannel();
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+            header.putInt(MAGIC).putInt(VERSION).putInt(this.n)
+                .putInt(this.primary).putInt(this.occRate)
+                .putInt(this.saRate).putInt(this.sigma);
+            for (int v : this.sym) header.putInt(v);
+            for (int v : this.c) header.putInt(v);
+            header.flip();
+            writeFully(ch, header);
+
+            writeFully(ch, dup(this.bwt));
+
+            final ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ORDER);
+            writeInts(ch, buf, dup(this.occ));
+            writeLongs(ch, buf, dup(this.marks));
+            writeInts(ch, buf, dup(this.markRank));
+            writeInts(ch, buf, dup(this.samples));
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Maps an index saved by save(File) into memory. The file must not
+     * be modified while mapped.
+     * @exception IOException if the file cannot be read or mapped, or is
+     *            not a saved index.
+     */
+    public static FmIndex map(File f) throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try
+        {
+            final FileChannel ch = raf.getChannel();
+            if (ch.size() < HEADER_SIZE) throw new IOException("not an FM-index file");
+
+            final ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ORDER);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("not an FM-index file");
+
+            final int n = header.getInt();
+            final int primary = header.getInt();
+            final int occRate = header.getInt();
+            final int saRate = header.getInt();
+            final int sigma = header.getInt();
+            final int[] sym = new int[256];
+            final int[] c = new int[256];
+            for (int i = 0; i < 256; i++) sym[i] = header.getInt();
+            for (int i = 0; i < 256; i++) c[i] = header.getInt();
+
+            final long rows = n + 1L;
+            final long occLen = (rows / occRate + 1) * sigma;
+            final long markLen = (rows + 63) >>> 6;
+
+            long off = HEADER_SIZE;
+            final ByteBuffer bwt = map(ch, off, rows);
+            off += rows;
+            final IntBuffer occ = map(ch, off, 4 * occLen).asIntBuffer();
+            off += 4 * occLen;
+            final LongBuffer marks = map(ch, off, 8 * markLen).asLongBuffer();
+            off += 8 * markLen;
+            final IntBuffer markRank = map(ch, off, 4 * markLen).asIntBuffer();
+            off += 4 * markLen;
+            final IntBuffer samples = map(ch, off, ch.size() - off).asIntBuffer();
+
+            return new FmIndex(n, primary, occRate, saRate, sym, sigma, c,
+                bwt, occ, marks, markRank, samples, raf);
+        }
+        catch (IOException e)
+        {
+            raf.close();
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            raf.close();
+            throw new IOException("corrupt FM-index file", e);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel ch, long off, long len)
+        throws IOException
+    {
+        if (len > Integer.MAX_VALUE)
+            throw new IOException("index section too large to map");
+        if (len < 0 || off + len > ch.size())
+            throw new IOException("truncated FM-index file");
+
+        return ch.map(FileChannel.MapMode.READ_ONLY, off, len).order(ORDER);
+    }
+
+    private static ByteBuffer dup(ByteBuffer b)
+    {
+        final ByteBuffer d = b.duplicate();
+        d.clear();
+        return d;
+    }
+
+    private static IntBuffer dup(IntBuffer b)
+    {
+        final IntBuffer d = b.duplicate();
+        d.clear();
+        return d;
+    }
+
+    private static LongBuffer dup(LongBuffer b)
+    {
+        final LongBuffer d = b.duplicate();
+        d.clear();
+        return d;
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b)
+        throws IOException
+    {
+        while (b.hasRemaining()) ch.write(b);
+    }
+
+    private static void writeInts(FileChannel ch, ByteBuffer buf, IntBuffer src)
+        throws IOException
+    {
+        while (src.hasRemaining())
+        {
+            buf.clear();
+            final IntBuffer view = buf.asIntBuffer();
+            final IntBuffer chunk = src.duplicate();
+            chunk.limit(src.position() + Math.min(src.remaining(), view.capacity()));
+            view.put(chunk);
+            src.position(chunk.position());
+            buf.limit(4 * view.position());
+            writeFully(ch, buf);
+        }
+    }
+
+    private static void writeLongs(FileChannel ch, ByteBuffer buf, LongBuffer src)
+        throws IOException
+    {
+        while (src.hasRemaining())
+        {
+            buf.clear();
+            final LongBuffer view = buf.asLongBuffer();
+            final LongBuffer chunk = src.duplicate();
+            chunk.limit(src.position() + Math.min(src.remaining(), view.capacity()));
+            view.put(chunk);
+            src.position(chunk.position());
+            buf.limit(8 * view.position());
+            writeFully(ch, buf);
+        }
+    }
+
+    /**
+     * Releases the file of a mapped index; the mapping itself is released
+     * when garbage collected. Does nothing for a built index.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (this.file != null) this.file.close();
+    }
+}
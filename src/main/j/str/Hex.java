@@ -0,0 +1,357 @@
+package j.str;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A hex codec that encodes into and decodes from caller-supplied arrays
+ * and buffers, so that large payloads and hot paths such as digest
+ * printing need no String or temporary array in between.
+ *
+ * Encoding uses a 256-entry table of digit pairs, and decoding a
+ * 256-entry table of digit values; the main loops handle four bytes per
+ * step and test the validity of their eight digits with one branch.
+ * Encoded bytes are ASCII.
+ *
+ * Use {@link #LOWER} or {@link #UPPER} to encode; decoding accepts
+ * either case.
+ *
+ * @see j.io.HexEncodingOutputStream
+ * @see j.io.HexDecodingInputStream
+ */
+public final class Hex
+{
+    /** Encodes with the digits a to f. */
+    public static final Hex LOWER = new Hex("0123456789abcdef");
+
+    /** Encodes with the digits A to F. */
+    public static final Hex UPPER = new Hex("0123456789ABCDEF");
+
+    /** Value of each hex digit char; -1 for other chars. */
+    private static final byte[] DEC = new byte[256];
+
+    static
+    {
+        for (int c = 0; c < 256; c++) DEC[c] = -1;
+        for (int c = '0'; c <= '9'; c++) DEC[c] = (byte)(c - '0');
+        for (int c = 'a'; c <= 'f'; c++) DEC[c] = (byte)(c - 'a' + 10);
+        for (int c = 'A'; c <= 'F'; c++) DEC[c] = (byte)(c - 'A' + 10);
+    }
+
+    /** The two digit chars of each byte value, high digit in bits 8-15. */
+    private final int[] enc;
+
+    private Hex(String digits)
+    {
+        this.enc = new int[256];
+        for (int b = 0; b < 256; b++)
+            this.enc[b] = (digits.charAt(b >>> 4) << 8) | digits.charAt(b & 15);
+    }
+
+    private static void checkRange(int arrayLen, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > arrayLen - off)
+            throw new IndexOutOfBoundsException(
+                "off: " + off + ", len: " + len);
+    }
+
+    // ------------------------------------------------------------------
+    // Encoding
+
+    /**
+     * Encodes bytes into a new String.
+     */
+    public String encode(byte[] b)
+    {
+        return encode(b, 0, b.length);
+    }
+
+    /**
+     * Encodes b[off..off+len) into a new String.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public String encode(byte[] b, int off, int len)
+    {
+        final char[] c = new char[2 * len];
+        encode(b, off, len, c, 0);
+        return new String(c);
+    }
+
+    /**
+     * Encodes src[off..off+len) into dst[dstOff..dstOff+2*len).
+     * @exception IndexOutOfBoundsException if either range is out of
+     *            bounds.
+     */
+    public void encode(byte[] src, int off, int len, char[] dst, int dstOff)
+    {
+        checkRange(src.length, off, len);
+        checkRange(dst.length, dstOff, 2 * len);
+
+        final int[] enc = this.enc;
+        final int end = off + len;
+        int i = off, j = dstOff;
+
+        for (; i + 4 <= end; i += 4, j += 8)
+        {
+            final int e0 = enc[src[i] & 255];
+            final int e1 = enc[src[i + 1] & 255];
+            final int e2 = enc[src[i + 2] & 255];
+            final int e3 = enc[src[i + 3] & 255];
+            dst[j] = (char)(e0 >>> 8);
+            dst[j + 1] = (char)(e0 & 255);
+            dst[j + 2] = (char)(e1 >>> 8);
+            dst[j + 3] = (char)(e1 & 255);
+            dst[j + 4] = (char)(e2 >>> 8);
+            dst[j + 5] = (char)(e2 & 255);
+            dst[j + 6] = (char)(e3 >>> 8);
+            dst[j + 7] = (char)(e3 & 255);
+        }
+
+        for (; i < end; i++, j += 2)
+        {
+            final int e = enc[src[i] & 255];
+            dst[j] = (char)(e >>> 8);
+            dst[j + 1] = (char)(e & 255);
+        }
+    }
+
+    /**
+     * Encodes src[off..off+len) into dst[dstOff..dstOff+2*len) as ASCII.
+     * @exception IndexOutOfBoundsException if either range is out of
+     *            bounds.
+     */
+    public void encode(byte[] src, int off, int len, byte[] dst, int dstOff)
+    {
+        checkRange(src.length, off, len);
+        checkRange(dst.length, dstOff, 2 * len);
+
+        final int[] enc = this.enc;
+        final int end = off + len;
+        int i = off, j = dstOff;
+
+        for (; i + 4 <= end; i += 4, j += 8)
+        {
+            final int e0 = enc[src[i] & 255];
+            final int e1 = enc[src[i + 1] & 255];
+            final int e2 = enc[src[i + 2] & 255];
+            final int e3 = enc[src[i + 3] & 255];
+            dst[j] = (byte)(e0 >>> 8);
+            dst[j + 1] = (byte)e0;
+            dst[j + 2] = (byte)(e1 >>> 8);
+            dst[j + 3] = (byte)e1;
+            dst[j + 4] = (byte)(e2 >>> 8);
+            dst[j + 5] = (byte)e2;
+            dst[j + 6] = (byte)(e3 >>> 8);
+            dst[j + 7] = (byte)e3;
+        }
+
+        for (; i < end; i++, j += 2)
+        {
+            final int e = enc[src[i] & 255];
+            dst[j] = (byte)(e >>> 8);
+            dst[j + 1] = (byte)e;
+        }
+    }
+
+    /**
+     * Encodes as many of the remaining bytes of src as fit into the
+     * remaining space of dst as ASCII, advancing the positions of both.
+     * @return The number of bytes of src encoded.
+     */
+    public int encode(ByteBuffer src, ByteBuffer dst)
+    {
+        final int n = Math.min(src.remaining(), dst.remaining() / 2);
+
+        if (src.hasArray() && dst.hasArray())
+        {
+            encode(src.array(), src.arrayOffset() + src.position(), n,
+                dst.array(), dst.arrayOffset() + dst.position());
+            src.position(src.position() + n);
+            dst.position(dst.position() + 2 * n);
+        }
+        else
+        {
+            for (int i = 0; i < n; i++)
+            {
+                final int e = this.enc[src.get() & 255];
+                dst.put((byte)(e >>> 8));
+                dst.put((byte)e);
+            }
+        }
+
+        return n;
+    }
+
+    // ------------------------------------------------------------------
+    // Decoding
+
+    /**
+     * Gets the value of a hex digit.
+     * @return -1 if c is not a hex digit.
+     */
+    public static int digit(int c)
+    {
+        // (255 - c) >> 31 is -1 iff c is beyond the table.
+        return DEC[c & 255] | ((255 - c) >> 31);
+    }
+
+    private static IllegalArgumentException invalid(int index)
+    {
+        return new IllegalArgumentException("not a hex digit at index " + index);
+    }
+
+    private static void checkEven(int len)
+    {
+        if ((len & 1) != 0)
+            throw new IllegalArgumentException("odd number of hex digits");
+    }
+
+    /**
+     * Decodes a hex string, in either case, into a new array.
+     * @exception IllegalArgumentException if s has an odd length or a
+     *            char that is not a hex digit.
+     */
+    public static byte[] decode(CharSequence s)
+    {
+        checkEven(s.length());
+        final byte[] b = new byte[s.length() / 2];
+        decode(s, 0, s.length(), b, 0);
+        return b;
+    }
+
+    /**
+     * Decodes the hex digits s[off..off+len) into
+     * dst[dstOff..dstOff+len/2).
+     * @return The number of bytes decoded, len/2.
+     * @exception IllegalArgumentException if len is odd or a char is not
+     *            a hex digit, in which case dst may be partly written.
+     * @exception IndexOutOfBoundsException if either range is out of
+     *            bounds.
+     */
+    public static int decode(CharSequence s, int off, int len, byte[] dst, int dstOff)
+    {
+        checkRange(s.length(), off, len);
+        checkEven(len);
+        checkRange(dst.length, dstOff, len / 2);
+
+        for (int i = off, j = dstOff; i < off + len; i += 2, j++)
+        {
+            final int v = (digit(s.charAt(i)) << 4) | digit(s.charAt(i + 1));
+            if (v < 0) throw invalid(digit(s.charAt(i)) < 0 ? i : i + 1);
+            dst[j] = (byte)v;
+        }
+
+        return len / 2;
+    }
+
+    /**
+     * Same as decode(CharSequence, int, int, byte[], int), but over a
+     * char array.
+     */
+    public static int decode(char[] src, int off, int len, byte[] dst, int dstOff)
+    {
+        checkRange(src.length, off, len);
+        checkEven(len);
+        checkRange(dst.length, dstOff, len / 2);
+
+        final int end = off + len;
+        int i = off, j = dstOff;
+
+        for (; i + 8 <= end; i += 8, j += 4)
+        {
+            final int v0 = (digit(src[i]) << 4) | digit(src[i + 1]);
+            final int v1 = (digit(src[i + 2]) << 4) | digit(src[i + 3]);
+            final int v2 = (digit(src[i + 4]) << 4) | digit(src[i + 5]);
+            final int v3 = (digit(src[i + 6]) << 4) | digit(src[i + 7]);
+            if ((v0 | v1 | v2 | v3) < 0) break;
+
+            dst[j] = (byte)v0;
+            dst[j + 1] = (byte)v1;
+            dst[j + 2] = (byte)v2;
+            dst[j + 3] = (byte)v3;
+        }
+
+        for (; i < end; i += 2, j++)
+        {
+            final int v = (digit(src[i]) << 4) | digit(src[i + 1]);
+            if (v < 0) throw invalid(digit(src[i]) < 0 ? i : i + 1);
+            dst[j] = (byte)v;
+        }
+
+        return len / 2;
+    }
+
+    /**
+     * Same as decode(CharSequence, int, int, byte[], int), but over ASCII
+     * bytes.
+     */
+    public static int decode(byte[] src, int off, int len, byte[] dst, int dstOff)
+    {
+        checkRange(src.length, off, len);
+        checkEven(len);
+        checkRange(dst.length, dstOff, len / 2);
+
+        final byte[] dec = DEC;
+        final int end = off + len;
+        int i = off, j = dstOff;
+
+        for (; i + 8 <= end; i += 8, j += 4)
+        {
+            final int v0 = (dec[src[i] & 255] << 4) | dec[src[i + 1] & 255];
+            final int v1 = (dec[src[i + 2] & 255] << 4) | dec[src[i + 3] & 255];
+            final int v2 = (dec[src[i + 4] & 255] << 4) | dec[src[i + 5] & 255];
+            final int v3 = (dec[src[i + 6] & 255] << 4) | dec[src[i + 7] & 255];
+            if ((v0 | v1 | v2 | v3) < 0) break;
+
+            dst[j] = (byte)v0;
+            dst[j + 1] = (byte)v1;
+            dst[j + 2] = (byte)v2;
+            dst[j + 3] = (byte)v3;
+        }
+
+        // The tail, and the step with the invalid digit if any.
+        for (; i < end; i += 2, j++)
+        {
+            final int v = (dec[src[i] & 255] << 4) | dec[src[i + 1] & 255];
+            if (v < 0) throw invalid(dec[src[i] & 255] < 0 ? i : i + 1);
+            dst[j] = (byte)v;
+        }
+
+        return len / 2;
+    }
+
+    /**
+     * Decodes as many pairs of the remaining ASCII hex digits of src as
+     * fit into the remaining space of dst, advancing the positions of
+     * both. A trailing odd digit is left in src.
+     * @return The number of bytes decoded.
+     * @exception IllegalArgumentException if a byte is not a hex digit, in
+     *            which case the positions are unchanged.
+     */
+    public static int decode(ByteBuffer src, ByteBuffer dst)
+    {
+        final int n = Math.min(src.remaining() / 2, dst.remaining());
+
+        if (src.hasArray() && dst.hasArray())
+        {
+            decode(src.array(), src.arrayOffset() + src.position(), 2 * n,
+                dst.array(), dst.arrayOffset() + dst.position());
+        }
+        else
+        {
+            final int sp = src.position();
+            final int dp = dst.position();
+            for (int i = 0; i < n; i++)
+            {
+                final int hi = DEC[src.get(sp + 2 * i) & 255];
+                final int lo = DEC[src.get(sp + 2 * i + 1) & 255];
+                final int v = (hi << 4) | lo;
+                if (v < 0) throw invalid(sp + 2 * i + (hi < 0 ? 0 : 1));
+                dst.put(dp + i, (byte)v);
+            }
+        }
+
+        src.position(src.position() + 2 * n);
+        dst.position(dst.position() + n);
+        return n;
+    }
+}
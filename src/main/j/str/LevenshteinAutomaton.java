@@ -0,0 +1,311 @@
+package j.str;
+
+import java.util.*;
+
+/**
+ * A deterministic automaton that accepts exactly the strings within a
+ * given Levenshtein distance of a word, for finding the fuzzy matches of
+ * one query in a sorted dictionary or a trie without computing the
+ * distance to every entry.
+ *
+ * Feeding a string char by char with {@link #step(int, char)} returns
+ * {@link #DEAD} as soon as no extension of the prefix fed so far can be
+ * within the distance, so a trie walk prunes whole subtrees and a scan
+ * of a sorted list skips every entry that shares a dead prefix with the
+ * previous one, see {@link #scanSorted(List, MatchHandler)}.
+ *
+ * A state is a row of the dynamic programming matrix with its entries
+ * capped at maxEdits + 1; the chars that do not occur in the word share
+ * one transition. States and transitions are built lazily on first use
+ * and then cost one array lookup per char, so after warming up a lookup
+ * allocates nothing. The number of states grows quickly with maxEdits,
+ * which should be small, typically 1 to 3.
+ *
+ * This class is not thread-safe.
+ *
+ * @see EditDistance
+ */
+public final class LevenshteinAutomaton
+{
+    /** The state from which no string is accepted. */
+    public static final int DEAD = -1;
+
+    private static final int UNKNOWN = -2;
+
+    private final char[] word;
+    private final int maxEdits;
+
+    /** Class of each ASCII char; 0 for chars not in the word */
+    private final int[] asciiClass;
+
+    /** Sorted distinct non-ASCII chars of the word and their classes */
+    private final char[] wideChars;
+    private final int[] wideClass;
+
+    /** The char of each class; unused for class 0 */
+    private final char[] classChar;
+
+    /** Rows of the states, encoded as one char per entry */
+    private final List<String> rows = new ArrayList<String>();
+    private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+    /** trans[state * classChar.length + class] */
+    private int[] trans = new int[0];
+
+    /** State after each prefix of the previous entry in scanSorted */
+    private int[] stack = new int[16];
+
+    /**
+     * Handles the matches found by scanSorted.
+     */
+    public interface MatchHandler
+    {
+        /**
+         * @param index Index of the entry in the list.
+         * @param distance The distance from the word to the entry.
+         * @return false to stop scanning.
+         */
+        boolean onMatch(int index, CharSequence entry, int distance);
+    }
+
+    /**
+     * @param maxEdits The greatest distance accepted.
+     * @exception IllegalArgumentException if maxEdits is negative or
+     *            greater than 100.
+     */
+    public LevenshteinAutomaton(CharSequence word, int maxEdits)
+    {
+        if (maxEdits < 0 || maxEdits > 100)
+            throw new IllegalArgumentException("maxEdits: " + maxEdits);
+
+        this.maxEdits = maxEdits;
+        this.word = new char[word.length()];
+        this.asciiClass = new int[128];
+
+        final TreeSet<Character> wide = new TreeSet<Character>();
+        final StringBuilder classes = new StringBuilder().append('\0');
+        for (int i = 0; i < this.word.length; i++)
+        {
+            final char c = word.charAt(i);
+            this.word[i] = c;
+
+            if (c < 128)
+            {
+                if (this.asciiClass[c] == 0)
+                {
+                    this.asciiClass[c] = classes.length();
+                    classes.append(c);
+                }
+            }
+            else
+            {
+                wide.add(c);
+            }
+        }
+
+        this.wideChars = new char[wide.size()];
+        this.wideClass = new int[wide.size()];
+        int k = 0;
+        for (char c : wide)
+        {
+            this.wideChars[k] = c;
+            this.wideClass[k++] = classes.length();
+            classes.append(c);
+        }
+
+        this.classChar = classes.toString().toCharArray();
+
+        // Row 0 is D[0][i] = i.
+        final char[] start = new char[this.word.length + 1];
+        for (int i = 0; i < start.length; i++)
+            start[i] = (char)Math.min(i, maxEdits + 1);
+        state(start);
+    }
+
+    /**
+     * Gets the greatest distance accepted.
+     */
+    public int maxEdits()
+    {
+        return this.maxEdits;
+    }
+
+    /**
+     * Gets the state before any char is fed.
+     */
+    public int start()
+    {
+        return 0;
+    }
+
+    /**
+     * Gets the state after feeding a char in a state.
+     * @param state A state other than DEAD.
+     * @return DEAD if no string with the prefix fed so far is accepted.
+     */
+    public int step(int state, char c)
+    {
+        final int cls = classOf(c);
+        final int i = state * this.classChar.length + cls;
+        int next = this.trans[i];
+        if (next == UNKNOWN)
+        {
+            next = computeStep(state, cls);
+            this.trans[i] = next;
+        }
+
+        return next;
+    }
+
+    /**
+     * Tells whether the string fed so far to reach a state is accepted.
+     */
+    public boolean isMatch(int state)
+    {
+        return state != DEAD && distance(state) <= this.maxEdits;
+    }
+
+    /**
+     * Gets the distance from the word to the string fed so far to reach
+     * a state.
+     * @return maxEdits + 1 if the distance is greater than maxEdits.
+     */
+    public int distance(int state)
+    {
+        if (state == DEAD) return this.maxEdits + 1;
+        return this.rows.get(state).charAt(this.word.length);
+    }
+
+    /**
+     * Computes the distance from the word to a string.
+     * @return maxEdits + 1 if the distance is greater than maxEdits.
+     */
+    public int distance(CharSequence s)
+    {
+        int state = start();
+        for (int i = 0, n = s.length(); i < n && state != DEAD; i++)
+            state = step(state, s.charAt(i));
+
+        return distance(state);
+    }
+
+    /**
+     * Tells whether a string is within maxEdits of the word.
+     */
+    public boolean matches(CharSequence s)
+    {
+        return distance(s) <= this.maxEdits;
+    }
+
+    /**
+     * Finds the entries of a list that are within maxEdits of the word.
+     * The states after each prefix of an entry are reused for the next
+     * entry that shares the prefix, and entries that extend a dead prefix
+     * of the previous entry are skipped, so the list should be sorted,
+     * though any order gives correct results.
+     * @return The number of matches handled.
+     */
+    public int scanSorted(List<? extends CharSequence> entries, MatchHandler handler)
+    {
+        CharSequence prev = null;
+
+        // The states in stack[0..valid] are for the prefixes of prev.
+        int valid = 0;
+        boolean prevDead = false;
+        int count = 0;
+        int index = -1;
+
+        this.stack[0] = start();
+
+        for (CharSequence entry : entries)
+        {
+            index++;
+
+            final int len = entry.length();
+            int lcp = 0;
+            if (prev != null)
+            {
+                final int limit = Math.min(len, valid);
+                while (lcp < limit && prev.charAt(lcp) == entry.charAt(lcp)) lcp++;
+            }
+
+            // The entry extends the dead prefix of prev.
+            if (prevDead && lcp == valid) continue;
+
+            if (this.stack.length < len + 1)
+                this.stack = Arrays.copyOf(this.stack, Math.max(len + 1, 2 * this.stack.length));
+
+            int state = this.stack[lcp];
+            int i = lcp;
+            while (i < len && state != DEAD)
+            {
+                state = step(state, entry.charAt(i++));
+                this.stack[i] = state;
+            }
+
+            prev = entry;
+            valid = i;
+            prevDead = state == DEAD;
+
+            if (isMatch(state))
+            {
+                count++;
+                if (!handler.onMatch(index, entry, distance(state))) break;
+            }
+        }
+
+        return count;
+    }
+
+    private int classOf(char c)
+    {
+        if (c < 128) return this.asciiClass[c];
+
+        final int k = Arrays.binarySearch(this.wideChars, c);
+        return k < 0 ? 0 : this.wideClass[k];
+    }
+
+    private int computeStep(int state, int cls)
+    {
+        final String row = this.rows.get(state);
+        final int cap = this.maxEdits + 1;
+        final char[] next = new char[row.length()];
+        boolean alive = false;
+
+        next[0] = (char)Math.min(row.charAt(0) + 1, cap);
+        alive |= next[0] < cap;
+
+        for (int i = 1; i < next.length; i++)
+        {
+            final int sub = row.charAt(i - 1) +
+                (cls != 0 && this.word[i - 1] == this.classChar[cls] ? 0 : 1);
+            final int v = Math.min(sub, Math.min(row.charAt(i), next[i - 1]) + 1);
+            next[i] = (char)Math.min(v, cap);
+            alive |= next[i] < cap;
+        }
+
+        // Once every entry reaches the cap, so does every later row.
+        return alive ? state(next) : DEAD;
+    }
+
+    private int state(char[] row)
+    {
+        final String key = new String(row);
+        final Integer id = this.ids.get(key);
+        if (id != null) return id;
+
+        final int newId = this.rows.size();
+        this.rows.add(key);
+        this.ids.put(key, newId);
+
+        final int width = this.classChar.length;
+        if (this.trans.length < (newId + 1) * width)
+        {
+            final int old = this.trans.length;
+            this.trans = Arrays.copyOf(this.trans, Math.max((newId + 1) * width, 2 * old));
+            Arrays.fill(this.trans, old, this.trans.length, UNKNOWN);
+        }
+
+        return newId;
+    }
+}
@@ -0,0 +1,523 @@
+package j.str;
+
+import java.math.BigInteger;
+
+/**
+ * Parses numbers directly from ranges of byte arrays, char arrays and
+ * char sequences, without creating a String or any other object.
+ *
+ * Each scan method parses the longest number that starts at a given
+ * index, returns the index just past it, and keeps the value to be read
+ * with {@link #intValue()}, {@link #longValue()} or
+ * {@link #doubleValue()}. A caller that expects the whole range to be a
+ * number checks that the returned index is the end of the range.
+ * Bytes are read as ISO-8859-1 chars.
+ *
+ * Input is validated strictly: no whitespace is skipped, at least one
+ * digit is required, and a value that does not fit its type is an error
+ * rather than being wrapped or clamped.
+ *
+ * Doubles are converted with the algorithm of Eisel and Lemire, which
+ * gives the correctly rounded result, the same as Double.parseDouble(),
+ * from one or two 64 x 64-bit multiplications by a table of powers of
+ * five. Only numbers with more than 19 significant digits that lie very
+ * close to halfway between two doubles fall back to Double.parseDouble().
+ *
+ * This class is not thread-safe.
+ */
+public final class NumberScanner
+{
+    private long longValue;
+    private double doubleValue;
+
+    /**
+     * Gets the value of the last int scanned.
+     */
+    public int intValue()
+    {
+        return (int)this.longValue;
+    }
+
+    /**
+     * Gets the value of the last int, long or hex number scanned.
+     */
+    public long longValue()
+    {
+        return this.longValue;
+    }
+
+    /**
+     * Gets the value of the last double scanned.
+     */
+    public double doubleValue()
+    {
+        return this.doubleValue;
+    }
+
+    // ------------------------------------------------------------------
+    // Public entry points. Each kind of number has one implementation
+    // over an Object that is a byte[], char[] or CharSequence; the type
+    // test in at() is the same for every char, so it predicts perfectly.
+
+    /**
+     * Scans a decimal int in b[from..to), with an optional sign.
+     * @return The index just past the number.
+     * @exception NumberFormatException if there is no digit at from
+     *            (after the sign) or the value does not fit in an int.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public int scanInt(byte[] b, int from, int to)
+    {
+        checkRange(b.length, from, to);
+        return scanInt(b, from, to, false);
+    }
+
+    /**
+     * Same as scanInt(byte[], int, int), but over chars.
+     */
+    public int scanInt(char[] c, int from, int to)
+    {
+        checkRange(c.length, from, to);
+        return scanInt(c, from, to, false);
+    }
+
+    /**
+     * Same as scanInt(byte[], int, int), but over chars.
+     */
+    public int scanInt(CharSequence s, int from, int to)
+    {
+        checkRange(s.length(), from, to);
+        return scanInt(s, from, to, false);
+    }
+
+    /**
+     * Scans a decimal long in b[from..to), with an optional sign.
+     * @return The index just past the number.
+     * @exception NumberFormatException if there is no digit at from
+     *            (after the sign) or the value does not fit in a long.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public int scanLong(byte[] b, int from, int to)
+    {
+        checkRange(b.length, from, to);
+        return scanInt(b, from, to, true);
+    }
+
+    /**
+     * Same as scanLong(byte[], int, int), but over chars.
+     */
+    public int scanLong(char[] c, int from, int to)
+    {
+        checkRange(c.length, from, to);
+        return scanInt(c, from, to, true);
+    }
+
+    /**
+     * Same as scanLong(byte[], int, int), but over chars.
+     */
+    public int scanLong(CharSequence s, int from, int to)
+    {
+        checkRange(s.length(), from, to);
+        return scanInt(s, from, to, true);
+    }
+
+    /**
+     * Scans up to 16 hex digits in b[from..to), in either case, without
+     * a sign or prefix. Sixteen digits give the two's complement bits of
+     * the long.
+     * @return The index just past the number.
+     * @exception NumberFormatException if there is no hex digit at from,
+     *            or there are more than 16 digits.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public int scanHex(byte[] b, int from, int to)
+    {
+        checkRange(b.length, from, to);
+        return scanHex((Object)b, from, to);
+    }
+
+    /**
+     * Same as scanHex(byte[], int, int), but over chars.
+     */
+    public int scanHex(char[] c, int from, int to)
+    {
+        checkRange(c.length, from, to);
+        return scanHex((Object)c, from, to);
+    }
+
+    /**
+     * Same as scanHex(byte[], int, int), but over chars.
+     */
+    public int scanHex(CharSequence s, int from, int to)
+    {
+        checkRange(s.length(), from, to);
+        return scanHex((Object)s, from, to);
+    }
+
+    /**
+     * Scans a decimal floating-point number in b[from..to), of the form
+     * [sign] digits [. [digits]] [(e|E) [sign] digits], where the
+     * fraction may also stand alone as in ".5". An exponent marker that is
+     * not followed by digits ends the number before it. NaN, Infinity and
+     * hex notation are not accepted.
+     * @return The index just past the number.
+     * @exception NumberFormatException if there is no digit in the
+     *            mantissa.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public int scanDouble(byte[] b, int from, int to)
+    {
+        checkRange(b.length, from, to);
+        return scanDouble((Object)b, from, to);
+    }
+
+    /**
+     * Same as scanDouble(byte[], int, int), but over chars.
+     */
+    public int scanDouble(char[] c, int from, int to)
+    {
+        checkRange(c.length, from, to);
+        return scanDouble((Object)c, from, to);
+    }
+
+    /**
+     * Same as scanDouble(byte[], int, int), but over chars.
+     */
+    public int scanDouble(CharSequence s, int from, int to)
+    {
+        checkRange(s.length(), from, to);
+        return scanDouble((Object)s, from, to);
+    }
+
+    private static void checkRange(int len, int from, int to)
+    {
+        if (from < 0 || to > len || from > to)
+            throw new IndexOutOfBoundsException(
+                "range: [" + from + ", " + to + ")");
+    }
+
+    private static int at(Object src, int i)
+    {
+        if (src instanceof byte[]) return ((byte[])src)[i] & 255;
+        if (src instanceof char[]) return ((char[])src)[i];
+        return ((CharSequence)src).charAt(i);
+    }
+
+    private static NumberFormatException error(String msg, int index)
+    {
+        return new NumberFormatException(msg + " at index " + index);
+    }
+
+    // ------------------------------------------------------------------
+    // Integers
+
+    private int scanInt(Object src, int from, int to, boolean isLong)
+    {
+        int i = from;
+        boolean neg = false;
+        if (i < to)
+        {
+            final int c = at(src, i);
+            if (c == '-' || c == '+')
+            {
+                neg = c == '-';
+                i++;
+            }
+        }
+
+        final int start = i;
+
+        // Accumulate negatively so that MIN_VALUE, whose magnitude exceeds
+        // that of MAX_VALUE, is reachable.
+        final long limit = isLong
+            ? (neg ? Long.MIN_VALUE : -Long.MAX_VALUE)
+            : (neg ? Integer.MIN_VALUE : -Integer.MAX_VALUE);
+        final long multMin = isLong ? Long.MIN_VALUE / 10 : Integer.MIN_VALUE / 10;
+        long r = 0;
+
+        for (; i < to; i++)
+        {
+            final int d = at(src, i) - '0';
+            if (d < 0 || d > 9) break;
+
+            if (r < multMin) throw error("overflow", i);
+            r *= 10;
+            if (r < limit + d) throw error("overflow", i);
+            r -= d;
+        }
+
+        if (i == start) throw error("no digit", start);
+
+        this.longValue = neg ? r : -r;
+        return i;
+    }
+
+    private int scanHex(Object src, int from, int to)
+    {
+        long r = 0;
+        int i = from;
+        for (; i < to; i++)
+        {
+            final int d = hexDigit(at(src, i));
+            if (d < 0) break;
+            if (i - from == 16) throw error("more than 16 hex digits", i);
+            r = (r << 4) | d;
+        }
+
+        if (i == from) throw error("no hex digit", from);
+
+        this.longValue = r;
+        return i;
+    }
+
+    private static int hexDigit(int c)
+    {
+        if ('0' <= c && c <= '9') return c - '0';
+        c |= 0x20; // to lower case
+        if ('a' <= c && c <= 'f') return c - ('a' - 10);
+        return -1;
+    }
+
+    // ------------------------------------------------------------------
+    // Doubles
+
+    /** Largest number of decimal digits that always fits in a long. */
+    private static final int MAX_DIGITS = 19;
+
+    /** Exactly representable powers of ten. */
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private int scanDouble(Object src, int from, int to)
+    {
+        int i = from;
+        boolean neg = false;
+        if (i < to)
+        {
+            final int c = at(src, i);
+            if (c == '-' || c == '+')
+            {
+                neg = c == '-';
+                i++;
+            }
+        }
+
+        // w holds the first 19 significant digits; exp10 is the power of
+        // ten to scale it by.
+        long w = 0;
+        int digits = 0;     // significant digits seen, including dropped
+        int exp10 = 0;
+        int numDigits = 0;  // all mantissa digits, for validation
+        int c = 0;
+
+        for (; i < to; i++)
+        {
+            c = at(src, i);
+            final int d = c - '0';
+            if (d < 0 || d > 9) break;
+
+            numDigits++;
+            if (digits < MAX_DIGITS)
+            {
+                w = w * 10 + d;
+                if (w != 0) digits++;
+            }
+            else
+            {
+                digits++;
+                exp10++;
+            }
+        }
+
+        if (i < to && c == '.')
+        {
+            for (i++; i < to; i++)
+            {
+                c = at(src, i);
+                final int d = c - '0';
+                if (d < 0 || d > 9) break;
+
+                numDigits++;
+                if (digits < MAX_DIGITS)
+                {
+                    w = w * 10 + d;
+                    exp10--;
+                    if (w != 0) digits++;
+                }
+                else
+                {
+                    digits++;
+                }
+            }
+        }
+
+        if (numDigits == 0) throw error("no digit", from);
+
+        if (i < to && (c == 'e' || c == 'E'))
+        {
+            int j = i + 1;
+            boolean expNeg = false;
+            if (j < to)
+            {
+                final int s = at(src, j);
+                if (s == '-' || s == '+')
+                {
+                    expNeg = s == '-';
+                    j++;
+                }
+            }
+
+            final int expStart = j;
+            int e = 0;
+            for (; j < to; j++)
+            {
+                final int d = at(src, j) - '0';
+                if (d < 0 || d > 9) break;
+                // Saturate; such exponents give zero or infinity anyway.
+                if (e < 100000) e = e * 10 + d;
+            }
+
+            if (j > expStart)
+            {
+                exp10 += expNeg ? -e : e;
+                i = j;
+            }
+        }
+
+        final boolean truncated = digits > MAX_DIGITS;
+        double v;
+
+        if (!truncated && w >= 0 && w <= (1L << 53) && -22 <= exp10 && exp10 <= 22)
+        {
+            // Both w and the power of ten are exact, so one rounding.
+            v = exp10 >= 0 ? w * POW10[exp10] : w / POW10[-exp10];
+        }
+        else
+        {
+            final long bits = toDoubleBits(w, exp10);
+            if (truncated && bits != toDoubleBits(w + 1, exp10))
+            {
+                // The dropped digits decide the rounding.
+                final StringBuilder sb = new StringBuilder(i - from);
+                for (int k = from; k < i; k++) sb.append((char)at(src, k));
+                this.doubleValue = Double.parseDouble(sb.toString());
+                return i;
+            }
+            v = Double.longBitsToDouble(bits);
+        }
+
+        this.doubleValue = neg ? -v : v;
+        return i;
+    }
+
+    private static final int SMALLEST_POWER_OF_TEN = -342;
+    private static final int LARGEST_POWER_OF_TEN = 308;
+
+    /** 128-bit approximations of 5^q for q in [-342, 308], high word
+     * first, normalized so that bit 127 is set. */
+    private static final long[] POW5_128 = pow5Table();
+
+    private static long[] pow5Table()
+    {
+        final long[] t = new long[2 * (LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1)];
+        final BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+        int k = 0;
+
+        for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; q++)
+        {
+            BigInteger v;
+            if (q < 0)
+            {
+                // Reciprocal, rounded up.
+                final BigInteger p5 = BigInteger.valueOf(5).pow(-q);
+                final int z = p5.bitLength();
+                final int b = q >= -27 ? z + 127 : 2 * z + 128;
+                v = BigInteger.ONE.shiftLeft(b).divide(p5).add(BigInteger.ONE);
+            }
+            else
+            {
+                v = BigInteger.valueOf(5).pow(q);
+            }
+
+            // Normalize to 128 bits, truncating.
+            final int shift = v.bitLength() - 128;
+            v = shift >= 0 ? v.shiftRight(shift) : v.shiftLeft(-shift);
+            assert v.compareTo(two128) < 0;
+
+            t[k++] = v.shiftRight(64).longValue();
+            t[k++] = v.longValue();
+        }
+
+        return t;
+    }
+
+    /** Gets the high 64 bits of the unsigned 128-bit product x * y. */
+    private static long multiplyHigh(long x, long y)
+    {
+        final long x0 = x & 0xFFFFFFFFL, x1 = x >>> 32;
+        final long y0 = y & 0xFFFFFFFFL, y1 = y >>> 32;
+        final long p01 = x0 * y1;
+        final long mid = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL);
+        return x1 * y1 + (mid >>> 32) + (p01 >>> 32);
+    }
+
+    /**
+     * Converts w * 10^q to the bits of the nearest double (Eisel-Lemire).
+     * @param w Unsigned.
+     */
+    private static long toDoubleBits(long w, int q)
+    {
+        if (w == 0 || q < SMALLEST_POWER_OF_TEN) return 0;
+        if (q > LARGEST_POWER_OF_TEN) return 0x7FFL << 52;
+
+        final int lz = Long.numberOfLeadingZeros(w);
+        w <<= lz;
+
+        // Multiply by the 128-bit power of five. The low word is needed
+        // only when the high word's bits below the 55 that are kept are
+        // all ones, as a carry might then change them.
+        final int idx = 2 * (q - SMALLEST_POWER_OF_TEN);
+        long hi = multiplyHigh(w, POW5_128[idx]);
+        long lo = w * POW5_128[idx];
+        if ((hi & 0x1FF) == 0x1FF)
+        {
+            final long hi2 = multiplyHigh(w, POW5_128[idx + 1]);
+            lo += hi2;
+            if (Long.compareUnsigned(hi2, lo) > 0) hi++;
+        }
+
+        final int upper = (int)(hi >>> 63);
+        final int shift = upper + 9;
+        long m = hi >>> shift;
+        int power2 = (((152170 + 65536) * q) >> 16) + 63 + upper - lz + 1023;
+
+        if (power2 <= 0)
+        {
+            // Subnormal
+            if (-power2 + 1 >= 64) return 0;
+            m >>>= -power2 + 1;
+            m += m & 1;
+            m >>>= 1;
+            power2 = m < (1L << 52) ? 0 : 1;
+            return ((long)power2 << 52) | (m & ((1L << 52) - 1));
+        }
+
+        // Exactly halfway between two doubles: round to even.
+        if (Long.compareUnsigned(lo, 1) <= 0 && q >= -4 && q <= 23
+            && (m & 3) == 1 && (m << shift) == hi)
+            m &= ~1L;
+
+        m += m & 1;
+        m >>>= 1;
+        if (m >= (2L << 52))
+        {
+            m = 1L << 52;
+            power2++;
+        }
+        m &= ~(1L << 52);
+
+        if (power2 >= 0x7FF) return 0x7FFL << 52;
+        return ((long)power2 << 52) | m;
+    }
+}
@@ -0,0 +1,575 @@
+package j.str;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Utilities to enumerate the permutations of arrays of chars or ints in
+ * lexicographic order without allocating.
+ *
+ * Unlike {@link PermIterator}, the elements may contain duplicates: each
+ * distinct arrangement is produced exactly once. Each step takes O(1)
+ * amortized time and rearranges the array in place, so callers can
+ * visit billions of permutations without creating any object.
+ *
+ * Permutations can also be ranked, i.e. numbered from 0 in lexicographic
+ * order, and unranked, and the range of ranks can be split with a
+ * {@link Spliterator} to enumerate them on a ForkJoinPool, or cut into
+ * index ranges to share the work among processes. Ranks are longs, so
+ * these methods support up to {@link #MAX_RANKED_LENGTH} elements.
+ */
+public final class Permutations
+{
+    private Permutations()
+    {
+    }
+
+    /**
+     * The maximum number of elements that rank(), unrank() and the
+     * spliterators support, since 20! is the greatest factorial that
+     * fits in a long.
+     */
+    public static final int MAX_RANKED_LENGTH = 20;
+
+    /**
+     * Visits permutations of chars.
+     */
+    public interface CharVisitor
+    {
+        /**
+         * @param perm The current permutation. The same array is passed
+         *        on every call and must not be modified; copy it to keep it.
+         * @return true to continue; false to stop.
+         */
+        boolean visit(char[] perm);
+    }
+
+    /**
+     * Visits permutations of ints.
+     */
+    public interface IntVisitor
+    {
+        /**
+         * @param perm The current permutation. The same array is passed
+         *        on every call and must not be modified; copy it to keep it.
+         * @return true to continue; false to stop.
+         */
+        boolean visit(int[] perm);
+    }
+
+    /**
+     * Rearranges an array into the next greater permutation in
+     * lexicographic order. Equal elements are not told apart, so repeated
+     * calls starting from a sorted array produce each distinct
+     * permutation once.
+     * @return true if there is a next permutation; false if the array
+     *         was the last one, in which case it is sorted back into the
+     *         first.
+     */
+    public static boolean nextPermutation(char[] a)
+    {
+        // Find the longest non-increasing suffix a[i+1..].
+        int i = a.length - 2;
+        while (i >= 0 && a[i] >= a[i + 1]) i--;
+
+        if (i >= 0)
+        {
+            // Swap the pivot with the rightmost element greater than it.
+            int j = a.length - 1;
+            while (a[j] <= a[i]) j--;
+            final char t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+
+        // Reverse the suffix to make it the smallest.
+        for (int l = i + 1, r = a.length - 1; l < r; l++, r--)
+        {
+            final char t = a[l];
+            a[l] = a[r];
+            a[r] = t;
+        }
+
+        return i >= 0;
+    }
+
+    /**
+     * Same as nextPermutation(char[]), but for ints.
+     */
+    public static boolean nextPermutation(int[] a)
+    {
+        int i = a.length - 2;
+        while (i >= 0 && a[i] >= a[i + 1]) i--;
+
+        if (i >= 0)
+        {
+            int j = a.length - 1;
+            while (a[j] <= a[i]) j--;
+            final int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+
+        for (int l = i + 1, r = a.length - 1; l < r; l++, r--)
+        {
+            final int t = a[l];
+            a[l] = a[r];
+            a[r] = t;
+        }
+
+        return i >= 0;
+    }
+
+    /**
+     * Visits every distinct permutation of the chars of a sequence in
+     * lexicographic order, passing the same array on every call.
+     * @return The number of permutations visited.
+     * @exception NullPointerException if s or visitor is null.
+     */
+    public static long forEach(CharSequence s, CharVisitor visitor)
+    {
+        final char[] perm = new char[s.length()];
+        for (int i = 0; i < perm.length; i++) perm[i] = s.charAt(i);
+        Arrays.sort(perm);
+
+        long count = 0;
+        do
+        {
+            count++;
+            if (!visitor.visit(perm)) break;
+        }
+        while (nextPermutation(perm));
+
+        return count;
+    }
+
+    /**
+     * Visits every distinct permutation of some ints in lexicographic
+     * order, passing the same array on every call.
+     * @param elements Not modified.
+     * @return The number of permutations visited.
+     * @exception NullPointerException if elements or visitor is null.
+     */
+    public static long forEach(int[] elements, IntVisitor visitor)
+    {
+        final int[] perm = elements.clone();
+        Arrays.sort(perm);
+
+        long count = 0;
+        do
+        {
+            count++;
+            if (!visitor.visit(perm)) break;
+        }
+        while (nextPermutation(perm));
+
+        return count;
+    }
+
+    /**
+     * Gets n!.
+     * @exception IllegalArgumentException if n is negative or greater
+     *            than MAX_RANKED_LENGTH.
+     */
+    public static long factorial(int n)
+    {
+        checkLength(n);
+
+        long f = 1;
+        for (int i = 2; i <= n; i++) f *= i;
+        return f;
+    }
+
+    /**
+     * Gets the number of distinct permutations of the chars of a
+     * sequence, which is n! divided by the factorial of the number of
+     * times each char occurs.
+     * @exception IllegalArgumentException if s is longer than
+     *            MAX_RANKED_LENGTH.
+     */
+    public static long count(CharSequence s)
+    {
+        final char[] c = sortedChars(s);
+
+        // Multiply in one element at a time: C(i, r) = C(i-1, r-1) * i / r
+        // where r is the number of copies of c[i-1] so far.
+        long total = 1;
+        int run = 0;
+        for (int i = 1; i <= c.length; i++)
+        {
+            run = (i > 1 && c[i - 1] == c[i - 2]) ? run + 1 : 1;
+            total = mulDiv(total, i, run);
+        }
+        return total;
+    }
+
+    private static void checkLength(int n)
+    {
+        if (n < 0 || n > MAX_RANKED_LENGTH)
+            throw new IllegalArgumentException(
+                "length must be in [0, " + MAX_RANKED_LENGTH + "]: " + n);
+    }
+
+    private static char[] sortedChars(CharSequence s)
+    {
+        checkLength(s.length());
+
+        final char[] c = new char[s.length()];
+        for (int i = 0; i < c.length; i++) c[i] = s.charAt(i);
+        Arrays.sort(c);
+        return c;
+    }
+
+    /**
+     * Computes a * b / d, which must be an integer that fits in a long,
+     * without overflowing in between.
+     */
+    static long mulDiv(long a, int b, int d)
+    {
+        final int g = gcd(b, d);
+        return (a / (d / g)) * (b / g);
+    }
+
+    private static int gcd(int a, int b)
+    {
+        while (b != 0)
+        {
+            final int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Gets the lexicographic rank of a permutation of 0 to n-1, from its
+     * Lehmer code.
+     * @return A number in [0, n!).
+     * @exception IllegalArgumentException if perm is not a permutation of
+     *            0 to n-1 or n is greater than MAX_RANKED_LENGTH.
+     */
+    public static long rank(int[] perm)
+    {
+        final int n = perm.length;
+        checkLength(n);
+
+        // Bit v of unused is set iff v has not appeared yet, so the
+        // Lehmer digit of v is the number of lower bits set.
+        int unused = (1 << n) - 1;
+        long rank = 0;
+        for (int i = 0; i < n; i++)
+        {
+            final int v = perm[i];
+            if (v < 0 || v >= n || (unused & (1 << v)) == 0)
+                throw new IllegalArgumentException("not a permutation");
+
+            rank = rank * (n - i) + Integer.bitCount(unused & ((1 << v) - 1));
+            unused &= ~(1 << v);
+        }
+        return rank;
+    }
+
+    /**
+     * Sets an array to the permutation of 0 to n-1 of a given rank, where
+     * n is the length of the array.
+     * @exception IllegalArgumentException if n is greater than
+     *            MAX_RANKED_LENGTH, or index is not in [0, n!).
+     */
+    public static void unrank(long index, int[] perm)
+    {
+        final int n = perm.length;
+        if (index < 0 || index >= factorial(n))
+            throw new IllegalArgumentException("index out of range: " + index);
+
+        // Extract the Lehmer digits, least significant first.
+        for (int i = n - 1; i >= 0; i--)
+        {
+            perm[i] = (int)(index % (n - i));
+            index /= n - i;
+        }
+
+        int unused = (1 << n) - 1;
+        for (int i = 0; i < n; i++)
+        {
+            // Select the (digit+1)-th lowest unused value.
+            int bits = unused;
+            for (int d = perm[i]; d > 0; d--) bits &= bits - 1;
+            final int v = Integer.numberOfTrailingZeros(bits);
+            perm[i] = v;
+            unused &= ~(1 << v);
+        }
+    }
+
+    /**
+     * Gets the lexicographic rank of a sequence among the distinct
+     * permutations of its chars.
+     * @return A number in [0, count(s)).
+     * @exception IllegalArgumentException if s is longer than
+     *            MAX_RANKED_LENGTH.
+     */
+    public static long rank(CharSequence s)
+    {
+        final char[] c = sortedChars(s);
+        final int[] counts = new int[c.length];
+        countRuns(c, counts);
+
+        long total = count(s);
+        long rank = 0;
+        for (int i = 0, rem = c.length; i < c.length; i++, rem--)
+        {
+            final char x = s.charAt(i);
+            int k = 0;
+            for (; c[k] != x; k++)
+            {
+                // Permutations of the rest that start with the smaller c[k].
+                if (counts[k] > 0) rank += mulDiv(total, counts[k], rem);
+            }
+
+            total = mulDiv(total, counts[k], rem);
+            counts[k]--;
+        }
+
+        return rank;
+    }
+
+    /**
+     * Rearranges some chars into their distinct permutation of a given
+     * lexicographic rank.
+     * @param chars The chars to permute, in any order.
+     * @exception IllegalArgumentException if chars is longer than
+     *            MAX_RANKED_LENGTH, or index is not in [0, count).
+     */
+    public static void unrank(long index, char[] chars)
+    {
+        final long count = count(new String(chars));
+        if (index < 0 || index >= count)
+            throw new IllegalArgumentException("index out of range: " + index);
+
+        Arrays.sort(chars);
+        final char[] c = chars.clone();
+        final int[] counts = new int[c.length];
+        countRuns(c, counts);
+
+        long total = count;
+        for (int i = 0, rem = c.length; i < c.length; i++, rem--)
+        {
+            for (int k = 0; ; k++)
+            {
+                if (counts[k] == 0) continue;
+
+                final long sub = mulDiv(total, counts[k], rem);
+                if (index < sub)
+                {
+                    chars[i] = c[k];
+                    counts[k]--;
+                    total = sub;
+                    break;
+                }
+                index -= sub;
+            }
+        }
+    }
+
+    /**
+     * Collapses a sorted array into its distinct chars, in place, and
+     * their numbers of occurrences.
+     * @return The number of distinct chars.
+     */
+    private static int countRuns(char[] c, int[] counts)
+    {
+        int d = 0;
+        for (int i = 0; i < c.length; i++)
+        {
+            if (i == 0 || c[i] != c[d - 1])
+                c[d++] = c[i];
+            counts[d - 1]++;
+        }
+        return d;
+    }
+
+    /**
+     * Creates a spliterator over all permutations of 0 to n-1, in
+     * lexicographic order.
+     * @exception IllegalArgumentException if n is negative or greater
+     *            than MAX_RANKED_LENGTH.
+     * @see #spliterator(int, long, long)
+     */
+    public static Spliterator<int[]> spliterator(int n)
+    {
+        return spliterator(n, 0, factorial(n));
+    }
+
+    /**
+     * Creates a spliterator over the permutations of 0 to n-1 whose ranks
+     * are in [from, to), in lexicographic order. Each spliterator passes
+     * the same array, which it owns, to every action; the action must
+     * not modify it, and must copy it to keep it.
+     * @exception IllegalArgumentException if n is negative or greater
+     *            than MAX_RANKED_LENGTH, or the range is not within [0, n!].
+     */
+    public static Spliterator<int[]> spliterator(final int n, long from, long to)
+    {
+        checkRange(from, to, factorial(n));
+
+        return new RangeSpliterator<int[]>(from, to)
+        {
+            @Override
+            protected int[] unrank(long index)
+            {
+                final int[] perm = new int[n];
+                Permutations.unrank(index, perm);
+                return perm;
+            }
+
+            @Override
+            protected void next(int[] perm)
+            {
+                nextPermutation(perm);
+            }
+
+            @Override
+            protected RangeSpliterator<int[]> create(long from, long to)
+            {
+                return (RangeSpliterator<int[]>)spliterator(n, from, to);
+            }
+        };
+    }
+
+    /**
+     * Creates a spliterator over all distinct permutations of the chars
+     * of a sequence, in lexicographic order.
+     * @exception IllegalArgumentException if s is longer than
+     *            MAX_RANKED_LENGTH.
+     * @see #spliterator(CharSequence, long, long)
+     */
+    public static Spliterator<char[]> spliterator(CharSequence s)
+    {
+        return spliterator(s, 0, count(s));
+    }
+
+    /**
+     * Creates a spliterator over the distinct permutations of the chars
+     * of a sequence whose ranks are in [from, to), in lexicographic
+     * order. Each spliterator passes the same array, which it owns, to
+     * every action; the action must not modify it, and must copy it to
+     * keep it.
+     * @exception IllegalArgumentException if s is longer than
+     *            MAX_RANKED_LENGTH, or the range is not within [0, count(s)].
+     */
+    public static Spliterator<char[]> spliterator(CharSequence s, long from, long to)
+    {
+        checkRange(from, to, count(s));
+
+        final char[] chars = sortedChars(s);
+        return new RangeSpliterator<char[]>(from, to)
+        {
+            @Override
+            protected char[] unrank(long index)
+            {
+                final char[] perm = chars.clone();
+                Permutations.unrank(index, perm);
+                return perm;
+            }
+
+            @Override
+            protected void next(char[] perm)
+            {
+                nextPermutation(perm);
+            }
+
+            @Override
+            protected RangeSpliterator<char[]> create(long from, long to)
+            {
+                return (RangeSpliterator<char[]>)spliterator(
+                    new String(chars), from, to);
+            }
+        };
+    }
+
+    private static void checkRange(long from, long to, long count)
+    {
+        if (from < 0 || to > count || from > to)
+            throw new IllegalArgumentException(
+                "range: [" + from + ", " + to + ")");
+    }
+
+    /**
+     * A spliterator over the arrangements with ranks in [from, to), such
+     * as permutations or combinations. It unranks the first one when it
+     * starts, then steps to the successor in place, and splits by handing
+     * off the lower half of its remaining range.
+     */
+    abstract static class RangeSpliterator<T> implements Spliterator<T>
+    {
+        private long from;
+        private final long to;
+
+        /** The current permutation; null until the first is produced. */
+        private T perm;
+
+        RangeSpliterator(long from, long to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        protected abstract T unrank(long index);
+
+        protected abstract void next(T perm);
+
+        protected abstract RangeSpliterator<T> create(long from, long to);
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action)
+        {
+            if (this.from >= this.to) return false;
+
+            if (this.perm == null)
+                this.perm = unrank(this.from);
+            else
+                next(this.perm);
+
+            this.from++;
+            action.accept(this.perm);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action)
+        {
+            while (tryAdvance(action))
+            {
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit()
+        {
+            final long n = this.to - this.from;
+            if (n < 2) return null;
+
+            // An ordered spliterator must hand off a prefix. The current
+            // permutation goes with it, as it precedes the prefix.
+            final long mid = this.from + n / 2;
+            final RangeSpliterator<T> lo = create(this.from, mid);
+            lo.perm = this.perm;
+
+            this.perm = null;
+            this.from = mid;
+            return lo;
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return this.to - this.from;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+}
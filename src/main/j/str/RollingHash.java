@@ -0,0 +1,183 @@
+package j.str;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A hash of a fixed-size window of bytes that can be rolled forward one
+ * byte in constant time, for finding repeated content or content-defined
+ * boundaries in large byte streams.
+ *
+ * Two window hashes are provided: {@link #buzhash(int)}, which hashes by
+ * rotating and xoring table entries, and {@link #rabinKarp(int)}, a
+ * polynomial hash modulo 2^64. The windowless Gear hash,
+ * {@link #gear(long, byte)}, needs no byte to be removed, since each byte
+ * is shifted out of the hash after 64 more bytes; it is the cheapest to
+ * update and is what content-defined chunking uses.
+ *
+ * Hashes are computed from bytes passed in, so the same instance serves
+ * byte arrays, buffers and streams, and allocates nothing. The tables
+ * are fixed, so hashes are stable across runs and machines.
+ *
+ * Instances are immutable and thread-safe.
+ *
+ * @see j.io.ContentDefinedChunker
+ */
+public abstract class RollingHash
+{
+    /** 256 random 64-bit values for Gear and Buzhash, from SplitMix64 */
+    private static final long[] TABLE = new long[256];
+
+    static
+    {
+        long x = 0x5EED5EED5EED5EEDL;
+        for (int i = 0; i < 256; i++)
+        {
+            x += 0x9E3779B97F4A7C15L;
+            long z = x;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            TABLE[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private final int window;
+
+    RollingHash(int window)
+    {
+        if (window <= 0)
+            throw new IllegalArgumentException("window must > 0");
+
+        this.window = window;
+    }
+
+    /**
+     * Gets a Buzhash over windows of a given size.
+     * @exception IllegalArgumentException if window is non-positive.
+     */
+    public static RollingHash buzhash(int window)
+    {
+        return new Buzhash(window);
+    }
+
+    /**
+     * Gets a Rabin-Karp polynomial hash over windows of a given size.
+     * @exception IllegalArgumentException if window is non-positive.
+     */
+    public static RollingHash rabinKarp(int window)
+    {
+        return new RabinKarp(window);
+    }
+
+    /**
+     * Updates a Gear hash with the next byte. Start with a hash of 0.
+     * The hash depends only on the last 64 bytes fed, and its high bits
+     * are the best mixed.
+     */
+    public static long gear(long h, byte in)
+    {
+        return (h << 1) + TABLE[in & 255];
+    }
+
+    /**
+     * Gets the window size.
+     */
+    public final int window()
+    {
+        return this.window;
+    }
+
+    /**
+     * Hashes the window b[off..off+window()).
+     * @exception IndexOutOfBoundsException if the window is out of bounds.
+     */
+    public final long hash(byte[] b, int off)
+    {
+        if (off < 0 || off > b.length - this.window)
+            throw new IndexOutOfBoundsException("off: " + off);
+
+        long h = 0;
+        for (int i = off; i < off + this.window; i++) h = push(h, b[i]);
+        return h;
+    }
+
+    /**
+     * Hashes the window of a buffer starting at an absolute index. The
+     * position of the buffer is not changed.
+     * @exception IndexOutOfBoundsException if the window is out of bounds.
+     */
+    public final long hash(ByteBuffer buf, int index)
+    {
+        if (index < 0 || index > buf.limit() - this.window)
+            throw new IndexOutOfBoundsException("index: " + index);
+
+        long h = 0;
+        for (int i = index; i < index + this.window; i++) h = push(h, buf.get(i));
+        return h;
+    }
+
+    /**
+     * Rolls the hash of a window forward by one byte.
+     * @param h The hash of the window starting with out.
+     * @param out The first byte of the window.
+     * @param in The byte just after the window.
+     * @return The hash of the window without out and with in.
+     */
+    public abstract long roll(long h, byte out, byte in);
+
+    /**
+     * Appends a byte to a hash of fewer than window() bytes.
+     */
+    abstract long push(long h, byte in);
+
+    private static final class Buzhash extends RollingHash
+    {
+        Buzhash(int window)
+        {
+            super(window);
+        }
+
+        @Override
+        long push(long h, byte in)
+        {
+            return Long.rotateLeft(h, 1) ^ TABLE[in & 255];
+        }
+
+        @Override
+        public long roll(long h, byte out, byte in)
+        {
+            return Long.rotateLeft(h, 1) ^
+                Long.rotateLeft(TABLE[out & 255], window()) ^
+                TABLE[in & 255];
+        }
+    }
+
+    private static final class RabinKarp extends RollingHash
+    {
+        /** An odd base, so that multiplying by it loses no bits */
+        private static final long BASE = 0x100000001B3L;
+
+        /** BASE^window */
+        private final long outFactor;
+
+        RabinKarp(int window)
+        {
+            super(window);
+
+            long p = 1;
+            for (int i = 0; i < window; i++) p *= BASE;
+            this.outFactor = p;
+        }
+
+        @Override
+        long push(long h, byte in)
+        {
+            return h * BASE + (in & 255) + 1;
+        }
+
+        @Override
+        public long roll(long h, byte out, byte in)
+        {
+            return h * BASE + (in & 255) + 1 - ((out & 255) + 1) * this.outFactor;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package j.str;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.*;
+
+/**
+ * An immutable char sequence stored as a balanced binary tree of chunks,
+ * for building and editing large texts without the repeated copying and
+ * doubling of a single array.
+ *
+ * Concatenation takes O(|log m - log n|) time for ropes of lengths m and
+ * n, and charAt(), subSequence(), insert() and delete() take O(log n).
+ * Every operation returns a new rope that shares all unchanged chunks
+ * with the old one, so older versions remain valid and cheap to keep.
+ *
+ * The tree is kept height-balanced like an AVL tree. Chunks hold up to
+ * {@link #CHUNK_SIZE} chars, and adjacent chunks that are small enough
+ * are merged on concatenation so that appending in small pieces does not
+ * degrade into a tree of tiny chunks. To stream a rope out without
+ * flattening it, use {@link #chunks()} or {@link #writeTo(Writer)}.
+ *
+ * This class is immutable and thread-safe.
+ *
+ * @see j.io.RopeWriter
+ */
+public final class Rope implements CharSequence
+{
+    /** The greatest number of chars in a chunk made by this class. */
+    public static final int CHUNK_SIZE = 4096;
+
+    /** Adjacent chunks are merged if they have at most this many chars
+     * in total. */
+    private static final int MERGE_SIZE = 512;
+
+    public static final Rope EMPTY = new Rope(new char[0], 0, 0);
+
+    /** Non-null for a chunk, a leaf of the tree */
+    private final char[] chars;
+    private final int off;
+
+    /** Non-null for an inner node */
+    private final Rope left;
+    private final Rope right;
+
+    private final int length;
+    private final int height;
+
+    private Rope(char[] chars, int off, int len)
+    {
+        this.chars = chars;
+        this.off = off;
+        this.length = len;
+        this.left = null;
+        this.right = null;
+        this.height = 0;
+    }
+
+    private Rope(Rope left, Rope right)
+    {
+        this.chars = null;
+        this.off = 0;
+        this.left = left;
+        this.right = right;
+        this.length = left.length + right.length;
+        this.height = 1 + Math.max(left.height, right.height);
+    }
+
+    /**
+     * Gets a rope with the chars of a char sequence.
+     * @return s itself if it is a rope.
+     */
+    public static Rope of(CharSequence s)
+    {
+        if (s instanceof Rope) return (Rope)s;
+
+        final int n = s.length();
+        if (n == 0) return EMPTY;
+
+        final char[] c = new char[n];
+        if (s instanceof String)
+        {
+            ((String)s).getChars(0, n, c, 0);
+        }
+        else
+        {
+            for (int i = 0; i < n; i++) c[i] = s.charAt(i);
+        }
+
+        return build(c, 0, n);
+    }
+
+    /**
+     * Gets a rope with the chars c[off..off+len), which are copied.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public static Rope of(char[] c, int off, int len)
+    {
+        if (off < 0 || len < 0 || len > c.length - off)
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len);
+
+        if (len == 0) return EMPTY;
+        return build(Arrays.copyOfRange(c, off, off + len), 0, len);
+    }
+
+    /**
+     * Builds a perfectly balanced tree over chunks of an array that is
+     * not modified afterwards.
+     */
+    private static Rope build(char[] c, int off, int len)
+    {
+        if (len <= CHUNK_SIZE) return new Rope(c, off, len);
+
+        // Split at a chunk boundary so that chunks stay full.
+        final int chunks = (len + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final int mid = (chunks / 2) * CHUNK_SIZE;
+        return new Rope(build(c, off, mid), build(c, off + mid, len - mid));
+    }
+
+    @Override
+    public int length()
+    {
+        return this.length;
+    }
+
+    /**
+     * @exception IndexOutOfBoundsException if index is out of bounds.
+     */
+    @Override
+    public char charAt(int index)
+    {
+        if (index < 0 || index >= this.length)
+            throw new IndexOutOfBoundsException("index: " + index);
+
+        Rope r = this;
+        while (r.chars == null)
+        {
+            if (index < r.left.length)
+            {
+                r = r.left;
+            }
+            else
+            {
+                index -= r.left.length;
+                r = r.right;
+            }
+        }
+
+        return r.chars[r.off + index];
+    }
+
+    /**
+     * Gets the chars [start, end) as a rope that shares the chunks of
+     * this one.
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    @Override
+    public Rope subSequence(int start, int end)
+    {
+        if (start < 0 || end > this.length || start > end)
+            throw new IndexOutOfBoundsException(
+                "range: [" + start + ", " + end + ")");
+
+        return suffix(prefix(this, end), start);
+    }
+
+    /**
+     * Gets the concatenation of this rope and another.
+     */
+    public Rope concat(Rope other)
+    {
+        return join(this, other);
+    }
+
+    /**
+     * Gets the concatenation of this rope and a char sequence.
+     */
+    public Rope append(CharSequence s)
+    {
+        return join(this, of(s));
+    }
+
+    /**
+     * Gets this rope with a char sequence inserted at an index.
+     * @exception IndexOutOfBoundsException if index is negative or
+     *            greater than the length.
+     */
+    public Rope insert(int index, CharSequence s)
+    {
+        if (index < 0 || index > this.length)
+            throw new IndexOutOfBoundsException("index: " + index);
+
+        return join(join(prefix(this, index), of(s)), suffix(this, index));
+    }
+
+    /**
+     * Gets this rope without the chars [start, end).
+     * @exception IndexOutOfBoundsException if the range is out of bounds.
+     */
+    public Rope delete(int start, int end)
+    {
+        if (start < 0 || end > this.length || start > end)
+            throw new IndexOutOfBoundsException(
+                "range: [" + start + ", " + end + ")");
+
+        return join(prefix(this, start), suffix(this, end));
+    }
+
+    /**
+     * Copies the chars [srcBegin, srcEnd) to dst at dstBegin, like
+     * String.getChars().
+     * @exception IndexOutOfBoundsException if a range is out of bounds.
+     */
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin)
+    {
+        if (srcBegin < 0 || srcEnd > this.length || srcBegin > srcEnd ||
+            dstBegin < 0 || srcEnd - srcBegin > dst.length - dstBegin)
+            throw new IndexOutOfBoundsException();
+
+        copy(this, srcBegin, srcEnd, dst, dstBegin);
+    }
+
+    private static void copy(Rope r, int from, int to, char[] dst, int at)
+    {
+        while (from < to)
+        {
+            if (r.chars != null)
+            {
+                System.arraycopy(r.chars, r.off + from, dst, at, to - from);
+                return;
+            }
+
+            final int l = r.left.length;
+            if (from < l)
+            {
+                final int end = Math.min(to, l);
+                copy(r.left, from, end, dst, at);
+                at += end - from;
+            }
+
+            // Continue in the right subtree without recursing.
+            from = Math.max(from - l, 0);
+            to -= l;
+            r = r.right;
+        }
+    }
+
+    /**
+     * Iterates over the chunks of this rope in order, each as a read-only
+     * CharBuffer that shares the chars of the chunk.
+     */
+    public Iterator<CharBuffer> chunks()
+    {
+        return new ChunkIterator(this);
+    }
+
+    /**
+     * Writes the chars of this rope chunk by chunk.
+     */
+    public void writeTo(Writer w) throws IOException
+    {
+        final ChunkIterator it = new ChunkIterator(this);
+        while (it.hasNext())
+        {
+            final Rope leaf = it.nextLeaf();
+            w.write(leaf.chars, leaf.off, leaf.length);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        final char[] c = new char[this.length];
+        copy(this, 0, this.length, c, 0);
+        return new String(c);
+    }
+
+    // ------------------------------------------------------------------
+    // Tree operations
+
+    /**
+     * Gets the first n chars of r.
+     */
+    private static Rope prefix(Rope r, int n)
+    {
+        if (n == 0) return EMPTY;
+        if (n == r.length) return r;
+        if (r.chars != null) return new Rope(r.chars, r.off, n);
+
+        if (n <= r.left.length) return prefix(r.left, n);
+        return join(r.left, prefix(r.right, n - r.left.length));
+    }
+
+    /**
+     * Gets the chars of r from index n on.
+     */
+    private static Rope suffix(Rope r, int n)
+    {
+        if (n == 0) return r;
+        if (n == r.length) return EMPTY;
+        if (r.chars != null) return new Rope(r.chars, r.off + n, r.length - n);
+
+        if (n >= r.left.length) return suffix(r.right, n - r.left.length);
+        return join(suffix(r.left, n), r.right);
+    }
+
+    /**
+     * Concatenates two balanced trees into one, after the join of AVL
+     * trees: descends the taller tree along its inner edge to a subtree
+     * of about the height of the shorter one, and rebalances on the way
+     * back up.
+     */
+    private static Rope join(Rope a, Rope b)
+    {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+
+        if (a.chars != null && b.chars != null && a.length + b.length <= MERGE_SIZE)
+        {
+            final char[] c = new char[a.length + b.length];
+            System.arraycopy(a.chars, a.off, c, 0, a.length);
+            System.arraycopy(b.chars, b.off, c, a.length, b.length);
+            return new Rope(c, 0, c.length);
+        }
+
+        if (a.height > b.height + 1) return balance(a.left, join(a.right, b));
+        if (b.height > a.height + 1) return balance(join(a, b.left), b.right);
+
+        // Merge a small chunk into the adjacent edge chunk of the other
+        // tree, so that appending small pieces keeps chunks large.
+        if (b.chars != null && b.length < MERGE_SIZE && a.chars == null)
+            return balance(a.left, join(a.right, b));
+        if (a.chars != null && a.length < MERGE_SIZE && b.chars == null)
+            return balance(join(a, b.left), b.right);
+
+        return new Rope(a, b);
+    }
+
+    /**
+     * Makes a node of two trees whose heights differ by at most two,
+     * rotating once or twice if they differ by two.
+     */
+    private static Rope balance(Rope l, Rope r)
+    {
+        if (l.height > r.height + 1)
+        {
+            if (l.left.height >= l.right.height)
+                return new Rope(l.left, new Rope(l.right, r));
+
+            return new Rope(new Rope(l.left, l.right.left),
+                new Rope(l.right.right, r));
+        }
+
+        if (r.height > l.height + 1)
+        {
+            if (r.right.height >= r.left.height)
+                return new Rope(new Rope(l, r.left), r.right);
+
+            return new Rope(new Rope(l, r.left.left),
+                new Rope(r.left.right, r.right));
+        }
+
+        return new Rope(l, r);
+    }
+
+    /**
+     * In-order walk over the chunks with an explicit stack.
+     */
+    private static final class ChunkIterator implements Iterator<CharBuffer>
+    {
+        private final ArrayDeque<Rope> stack = new ArrayDeque<Rope>();
+
+        ChunkIterator(Rope root)
+        {
+            if (root.length > 0) pushLeft(root);
+        }
+
+        private void pushLeft(Rope r)
+        {
+            while (r.chars == null)
+            {
+                this.stack.push(r);
+                r = r.left;
+            }
+
+            this.stack.push(r);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return !this.stack.isEmpty();
+        }
+
+        Rope nextLeaf()
+        {
+            if (this.stack.isEmpty()) throw new NoSuchElementException();
+
+            final Rope leaf = this.stack.pop();
+            if (!this.stack.isEmpty()) pushLeft(this.stack.pop().right);
+            return leaf;
+        }
+
+        @Override
+        public CharBuffer next()
+        {
+            final Rope leaf = nextLeaf();
+            return CharBuffer.wrap(leaf.chars, leaf.off, leaf.length).slice().asReadOnlyBuffer();
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
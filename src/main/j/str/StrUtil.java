@@ -4,59 +4,75 @@ public final class StrUtil
 {
     private StrUtil(){}
     
-    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
-
+    /**
+     * Encodes bytes as uppercase hex.
+     * @see Hex
+     */
     public static String toHex(byte[] b)
     {
-        char [] c = new char[b.length*2];
-        for (int i = 0; i < b.length; i++)
-        {
-            int v = (int)b[i];
-            c[i*2]   = HEX[(v >> 4) & 15];
-            c[i*2+1] = HEX[v & 15];
-        }
-
-        return new String(c);
+        return Hex.UPPER.encode(b);
     }
 
     /**
      * Parses a hex string in to a byte array.
      * @param hex This is handled in a case-insensitive manner. It must
      *        consists of only hex chars, not even spaces.
-     * @exception IllegalArgumentException if it contains a non-hex char.
+     * @exception IllegalArgumentException if it contains a non-hex char
+     *            or has an odd length.
+     * @see Hex
      */
     public static byte[] fromHex(String hex)
     {
-        final int hexLen = hex.length();
-        byte[] b = new byte[hexLen / 2];
+        return Hex.decode(hex);
+    }
 
-        for (int i = 0; i < hexLen; i += 2)
-        {
-            int v = 0;
-            char c = hex.charAt(i);
-            if ('0' <= c && c <= '9')
-                v = (c - '0') << 4;
-            else if ('A' <= c && c <= 'F')
-                v = (c - 'A' + 10) << 4;
-            else if ('a' <= c && c <= 'f')
-                v = (c - 'a' + 10) << 4;
-            else
-                throw new IllegalArgumentException();
+    /**
+     * Folds the case of a char so that two chars that are equal ignoring
+     * case fold to the same char. ASCII chars take a fast path.
+     */
+    public static char foldCase(char c)
+    {
+        if (c < 128)
+            return ('A' <= c && c <= 'Z') ? (char)(c + ('a' - 'A')) : c;
 
-            c = hex.charAt(i+1);
-            if ('0' <= c && c <= '9')
-                v |= (c - '0');
-            else if ('A' <= c && c <= 'F')
-                v |= (c - 'A' + 10);
-            else if ('a' <= c && c <= 'f')
-                v |= (c - 'a' + 10);
-            else
-                throw new IllegalArgumentException();
-            
-            b[i / 2] = (byte)v;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Computes a hash code of a char sequence that ignores case, in the
+     * same way as String.hashCode() does but over the case-folded chars.
+     * No object is allocated.
+     * @exception NullPointerException if cs is null.
+     * @see #foldCase(char)
+     */
+    public static int caselessHashCode(CharSequence cs)
+    {
+        final int len = cs.length();
+        int h = 0;
+        for (int i = 0; i < len; i++)
+            h = 31 * h + foldCase(cs.charAt(i));
+        return h;
+    }
+
+    /**
+     * Compares two char sequences char by char, ignoring case. 
+     * No object is allocated.
+     * @exception NullPointerException if a or b is null.
+     * @see #foldCase(char)
+     */
+    public static boolean equalsIgnoreCase(CharSequence a, CharSequence b)
+    {
+        final int len = a.length();
+        if (len != b.length()) return false;
+
+        for (int i = 0; i < len; i++)
+        {
+            final char x = a.charAt(i);
+            final char y = b.charAt(i);
+            if (x != y && foldCase(x) != foldCase(y)) return false;
         }
-        
-        return b;
+
+        return true;
     }
 
     /**
@@ -120,6 +136,7 @@ public final class StrUtil
      * @return
      * @throws NumberFormatException
      *             if overflow or underflow.
+     * @see NumberScanner for strict parsing of ranges without allocating.
      */
     public static int parseInt(String s)
     {
@@ -0,0 +1,175 @@
+package j.str;
+
+import java.util.Arrays;
+
+/**
+ * Builds suffix arrays with the SA-IS algorithm of Nong, Zhang and Chan,
+ * which sorts all suffixes of a text in linear time by inducing the
+ * order of most suffixes from the order of a few, recursing on a reduced
+ * text for those few.
+ *
+ * Building a suffix array of n bytes takes about 13n bytes of memory at
+ * the peak, so texts of several GB are best split into shards.
+ *
+ * @see FmIndex
+ */
+public final class SuffixArray
+{
+    private SuffixArray(){}
+
+    /**
+     * Builds the suffix array of a byte string, compared as unsigned
+     * bytes.
+     * @return sa such that the suffixes starting at sa[0], sa[1], ... are
+     *         in ascending order, a proper prefix of a suffix first.
+     */
+    public static int[] build(byte[] text)
+    {
+        final int[] s = new int[text.length];
+        for (int i = 0; i < s.length; i++) s[i] = text[i] & 255;
+        return sais(s, 255);
+    }
+
+    /**
+     * Builds the suffix array of a char sequence.
+     * @see #build(byte[])
+     */
+    public static int[] build(CharSequence text)
+    {
+        final int[] s = new int[text.length()];
+        int upper = 0;
+        for (int i = 0; i < s.length; i++)
+        {
+            s[i] = text.charAt(i);
+            upper = Math.max(upper, s[i]);
+        }
+
+        return sais(s, upper);
+    }
+
+    /**
+     * Builds the suffix array of a string of ints in [0, upper].
+     */
+    static int[] sais(int[] s, int upper)
+    {
+        final int n = s.length;
+        if (n == 0) return new int[0];
+        if (n == 1) return new int[] {0};
+        if (n == 2) return s[0] < s[1] ? new int[] {0, 1} : new int[] {1, 0};
+
+        // ls[i] is whether suffix i is S-type, that is, smaller than
+        // suffix i + 1.
+        final boolean[] ls = new boolean[n];
+        for (int i = n - 2; i >= 0; i--)
+            ls[i] = s[i] == s[i + 1] ? ls[i + 1] : s[i] < s[i + 1];
+
+        // The start of the L-type part and of the S-type part of the
+        // bucket of each symbol.
+        final int[] sumL = new int[upper + 2];
+        final int[] sumS = new int[upper + 2];
+        for (int i = 0; i < n; i++)
+        {
+            if (!ls[i]) sumS[s[i]]++;
+            else sumL[s[i] + 1]++;
+        }
+
+        for (int i = 0; i <= upper; i++)
+        {
+            sumS[i] += sumL[i];
+            sumL[i + 1] += sumS[i];
+        }
+
+        final int[] sa = new int[n];
+        final int[] buf = new int[upper + 2];
+
+        // LMS positions: S-type suffixes preceded by an L-type one.
+        final int[] lmsMap = new int[n + 1];
+        Arrays.fill(lmsMap, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++)
+            if (!ls[i - 1] && ls[i]) lmsMap[i] = m++;
+
+        final int[] lms = new int[m];
+        for (int i = 1, k = 0; i < n; i++)
+            if (!ls[i - 1] && ls[i]) lms[k++] = i;
+
+        induce(s, ls, sumL, sumS, buf, sa, lms);
+
+        if (m > 0)
+        {
+            // The LMS positions in the order induced from their substrings.
+            final int[] sortedLms = new int[m];
+            for (int i = 0, k = 0; i < n; i++)
+                if (lmsMap[sa[i]] != -1) sortedLms[k++] = sa[i];
+
+            // Name each LMS substring by its rank among distinct ones.
+            final int[] recS = new int[m];
+            int recUpper = 0;
+            recS[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++)
+            {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                final int endL = lmsMap[l] + 1 < m ? lms[lmsMap[l] + 1] : n;
+                final int endR = lmsMap[r] + 1 < m ? lms[lmsMap[r] + 1] : n;
+
+                boolean same = true;
+                if (endL - l != endR - r)
+                {
+                    same = false;
+                }
+                else
+                {
+                    while (l < endL && s[l] == s[r])
+                    {
+                        l++;
+                        r++;
+                    }
+
+                    if (l == n || s[l] != s[r]) same = false;
+                }
+
+                if (!same) recUpper++;
+                recS[lmsMap[sortedLms[i]]] = recUpper;
+            }
+
+            final int[] recSa = sais(recS, recUpper);
+            for (int i = 0; i < m; i++) sortedLms[i] = lms[recSa[i]];
+
+            induce(s, ls, sumL, sumS, buf, sa, sortedLms);
+        }
+
+        return sa;
+    }
+
+    /**
+     * Sorts all suffixes given the order of the LMS suffixes.
+     */
+    private static void induce(int[] s, boolean[] ls, int[] sumL, int[] sumS,
+        int[] buf, int[] sa, int[] lms)
+    {
+        final int n = s.length;
+        Arrays.fill(sa, -1);
+
+        System.arraycopy(sumS, 0, buf, 0, buf.length);
+        for (int d : lms)
+            if (d != n) sa[buf[s[d]]++] = d;
+
+        // L-type suffixes, left to right.
+        System.arraycopy(sumL, 0, buf, 0, buf.length);
+        sa[buf[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++)
+        {
+            final int v = sa[i];
+            if (v >= 1 && !ls[v - 1]) sa[buf[s[v - 1]]++] = v - 1;
+        }
+
+        // S-type suffixes, right to left.
+        System.arraycopy(sumL, 0, buf, 0, buf.length);
+        for (int i = n - 1; i >= 0; i--)
+        {
+            final int v = sa[i];
+            if (v >= 1 && ls[v - 1]) sa[--buf[s[v - 1] + 1]] = v - 1;
+        }
+    }
+}
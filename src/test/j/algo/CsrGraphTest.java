@@ -0,0 +1,126 @@
+package j.algo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import j.collections.ArrayQueue;
+
+public class CsrGraphTest
+{
+    @Test
+    public void buildTest()
+    {
+        int[] src = {2, 0, 0, 1};
+        int[] dst = {0, 1, 2, 2};
+        float[] w = {5, 1, 2, 3};
+        CsrGraph g = CsrGraph.fromEdges(4, src, dst, w);
+
+        assertEquals(4, g.numVertices());
+        assertEquals(4, g.numEdges());
+        assertTrue(g.isWeighted());
+        assertEquals(2, g.degree(0));
+        assertEquals(0, g.degree(3));
+        assertEquals(1, g.target(g.firstEdge(0)));
+        assertEquals(2, g.target(g.firstEdge(0) + 1));
+        assertEquals(2f, g.weight(g.firstEdge(0) + 1), 0);
+        assertEquals(g.endEdge(2), g.firstEdge(3));
+
+        CsrGraph t = g.transpose();
+        assertEquals(2, t.degree(2));
+        assertEquals(0, t.degree(1) - 1);
+        assertEquals(5f, t.weight(t.firstEdge(0)), 0);
+
+        CsrGraph u = CsrGraph.fromUndirectedEdges(4, src, dst);
+        assertEquals(8, u.numEdges());
+        assertEquals(3, u.degree(2));
+        assertEquals(1f, u.weight(0), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void badVertex()
+    {
+        CsrGraph.fromEdges(2, new int[]{0}, new int[]{2});
+    }
+
+    @Test
+    public void bfsTest()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Random r = new Random(3);
+
+        // Sparse graphs stay top-down; denser ones switch to bottom-up.
+        for (int avgDegree : new int[]{1, 3, 20})
+        {
+            final int n = 20000;
+            final int m = n * avgDegree / 2;
+            int[] src = new int[m];
+            int[] dst = new int[m];
+            for (int i = 0; i < m; i++)
+            {
+                src[i] = r.nextInt(n);
+                dst[i] = r.nextInt(n);
+            }
+
+            CsrGraph g = CsrGraph.fromEdges(n, src, dst);
+            ParallelBfs bfs = new ParallelBfs(g, g.transpose(), pool);
+            int[] level = new int[n];
+            int[] parent = new int[n];
+
+            // Searches reuse the workspace.
+            for (int source = 0; source < 3; source++)
+            {
+                int reached = bfs.search(source, level, parent);
+                int[] expected = sequentialBfs(g, source);
+                assertArrayEquals(expected, level);
+
+                int count = 0;
+                for (int v = 0; v < n; v++)
+                {
+                    if (level[v] < 0) continue;
+                    count++;
+                    if (v == source) continue;
+                    assertEquals(level[v] - 1, level[parent[v]]);
+                }
+                assertEquals(count, reached);
+            }
+        }
+
+        pool.shutdown();
+    }
+
+    @Test
+    public void undirectedBfs()
+    {
+        CsrGraph g = CsrGraph.fromUndirectedEdges(5,
+            new int[]{0, 1, 3}, new int[]{1, 2, 2});
+        assertArrayEquals(new int[]{2, 1, 0, 1, -1}, ParallelBfs.levels(g, 2));
+    }
+
+    private static int[] sequentialBfs(CsrGraph g, int source)
+    {
+        int[] level = new int[g.numVertices()];
+        Arrays.fill(level, -1);
+        level[source] = 0;
+        ArrayQueue<Integer> q = new ArrayQueue<Integer>();
+        q.add(source);
+        while (!q.isEmpty())
+        {
+            int u = q.poll();
+            for (int e = g.firstEdge(u); e < g.endEdge(u); e++)
+            {
+                int v = g.target(e);
+                if (level[v] >= 0) continue;
+                level[v] = level[u] + 1;
+                q.add(v);
+            }
+        }
+        return level;
+    }
+}
@@ -0,0 +1,122 @@
+package j.algo;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class FenwickTreeTest
+{
+    @Test
+    public void longTest()
+    {
+        Random r = new Random(2);
+        final int n = 257;
+        long[] ref = new long[n];
+        for (int i = 0; i < n; i++) ref[i] = r.nextInt(100);
+
+        LongFenwickTree t = new LongFenwickTree(ref);
+        assertEquals(n, t.size());
+
+        for (int k = 0; k < 2000; k++)
+        {
+            int i = r.nextInt(n);
+            if (r.nextBoolean())
+            {
+                long d = r.nextInt(50);
+                ref[i] += d;
+                t.add(i, d);
+            }
+            else
+            {
+                ref[i] = r.nextInt(100);
+                t.set(i, ref[i]);
+            }
+
+            int from = r.nextInt(n + 1);
+            int to = from + r.nextInt(n + 1 - from);
+            long s = 0;
+            for (int j = from; j < to; j++) s += ref[j];
+            assertEquals(s, t.sum(from, to));
+            assertEquals(ref[i], t.get(i));
+        }
+
+        // lowerBound over non-negative values
+        long prefix = 0;
+        for (int end = 1; end <= n; end++)
+        {
+            if (ref[end - 1] == 0) continue;
+            prefix += ref[end - 1];
+            assertEquals(end, t.lowerBound(prefix));
+            assertEquals(end, t.lowerBound(prefix - ref[end - 1] + 1));
+        }
+        assertEquals(n + 1, t.lowerBound(prefix + 1));
+        assertEquals(0, t.lowerBound(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void longOutOfBounds()
+    {
+        new LongFenwickTree(4).add(4, 1);
+    }
+
+    @Test
+    public void doubleTest()
+    {
+        DoubleFenwickTree t = new DoubleFenwickTree(new double[]{0.5, 1, 2});
+        t.add(1, 0.25);
+        assertEquals(3.75, t.prefixSum(3), 0);
+        assertEquals(1.25, t.sum(1, 2), 0);
+        assertEquals(0, t.sum(2, 2), 0);
+        t.clear();
+        assertEquals(0, t.prefixSum(3), 0);
+    }
+
+    @Test
+    public void segmentTreeTest()
+    {
+        Random r = new Random(4);
+        for (int n : new int[]{0, 1, 7, 64, 100})
+        {
+            long[] ref = new long[n];
+            for (int i = 0; i < n; i++) ref[i] = r.nextInt(1000) - 500;
+            LongSegmentTree t = new LongSegmentTree(ref);
+
+            for (int k = 0; k < 1000; k++)
+            {
+                int from = r.nextInt(n + 1);
+                int to = from + r.nextInt(n + 1 - from);
+                long d = r.nextInt(100) - 50;
+                t.add(from, to, d);
+                for (int j = from; j < to; j++) ref[j] += d;
+
+                if (n > 0 && r.nextInt(4) == 0)
+                {
+                    int i = r.nextInt(n);
+                    ref[i] = r.nextInt(1000);
+                    t.set(i, ref[i]);
+                }
+
+                from = r.nextInt(n + 1);
+                to = from + r.nextInt(n + 1 - from);
+                long s = 0, lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+                for (int j = from; j < to; j++)
+                {
+                    s += ref[j];
+                    lo = Math.min(lo, ref[j]);
+                    hi = Math.max(hi, ref[j]);
+                }
+                assertEquals(s, t.sum(from, to));
+                assertEquals(lo, t.min(from, to));
+                assertEquals(hi, t.max(from, to));
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void segmentTreeBadRange()
+    {
+        new LongSegmentTree(4).max(3, 2);
+    }
+}
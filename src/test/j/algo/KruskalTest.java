@@ -0,0 +1,103 @@
+package j.algo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class KruskalTest
+{
+    @Test
+    public void smallTest()
+    {
+        // 0 -1- 1 -2- 2      3 -1- 4
+        //  \____5____/
+        int[] src = {0, 1, 0, 3};
+        int[] dst = {1, 2, 2, 4};
+        float[] w = {1, 2, 5, 1};
+
+        int[] mst = Kruskal.minimumSpanningForest(5, src, dst, w);
+        Arrays.sort(mst);
+        assertArrayEquals(new int[]{0, 1, 3}, mst);
+
+        assertArrayEquals(new int[]{0, 0, 0, 1, 1},
+            Kruskal.cluster(5, 2, src, dst, w));
+        assertArrayEquals(new int[]{0, 0, 1, 2, 2},
+            Kruskal.cluster(5, 3, src, dst, w));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4},
+            Kruskal.cluster(5, 5, src, dst, w));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lengthMismatch()
+    {
+        Kruskal.minimumSpanningForest(2, new int[1], new int[1], new double[2]);
+    }
+
+    @Test
+    public void randomTest()
+    {
+        Random r = new Random(7);
+        final int n = 300;
+        final int m = 20000;
+        int[] src = new int[m];
+        int[] dst = new int[m];
+        double[] w = new double[m];
+        float[] fw = new float[m];
+        for (int i = 0; i < m; i++)
+        {
+            src[i] = r.nextInt(n);
+            dst[i] = r.nextInt(n);
+            fw[i] = (float)(w[i] = r.nextInt(1000) - 500);
+        }
+
+        int[] mst = Kruskal.minimumSpanningForest(n, src, dst, w);
+        assertEquals(n - 1, mst.length);
+        assertEquals(primWeight(n, src, dst, w), sum(w, mst), 0);
+
+        int[] fmst = Kruskal.minimumSpanningForest(n, src, dst, fw);
+        assertEquals(sum(w, mst), sum(w, fmst), 0);
+
+        for (int i = 1; i < mst.length; i++)
+            assertTrue(w[mst[i - 1]] <= w[mst[i]]);
+    }
+
+    private static double sum(double[] w, int[] edges)
+    {
+        double s = 0;
+        for (int e : edges) s += w[e];
+        return s;
+    }
+
+    /** Naive O(n^2) Prim's algorithm over a dense weight matrix. */
+    private static double primWeight(int n, int[] src, int[] dst, double[] w)
+    {
+        double[][] adj = new double[n][n];
+        for (double[] row : adj) Arrays.fill(row, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < src.length; i++)
+        {
+            adj[src[i]][dst[i]] = Math.min(adj[src[i]][dst[i]], w[i]);
+            adj[dst[i]][src[i]] = adj[src[i]][dst[i]];
+        }
+
+        boolean[] in = new boolean[n];
+        double[] best = adj[0].clone();
+        in[0] = true;
+        double total = 0;
+        for (int k = 1; k < n; k++)
+        {
+            int v = -1;
+            for (int i = 0; i < n; i++)
+                if (!in[i] && (v < 0 || best[i] < best[v])) v = i;
+            in[v] = true;
+            total += best[v];
+            for (int i = 0; i < n; i++)
+                best[i] = Math.min(best[i], adj[v][i]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,180 @@
+package j.algo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+public class ShortestPathsTest
+{
+    @Test
+    public void heapTest()
+    {
+        IndexedDoubleHeap h = new IndexedDoubleHeap(10);
+        assertTrue(h.isEmpty());
+        assertTrue(h.offer(3, 5));
+        assertTrue(h.offer(7, 2));
+        assertTrue(h.offer(1, 9));
+        assertFalse(h.offer(3, 6));
+        assertTrue(h.offer(1, 1));
+        assertEquals(3, h.size());
+        assertEquals(1, h.peek());
+
+        h.update(1, 10);
+        assertEquals(7, h.poll());
+        assertEquals(3, h.poll());
+        assertEquals(10, h.getKey(1), 0);
+        assertEquals(1, h.poll());
+        assertTrue(h.isEmpty());
+        assertFalse(h.contains(1));
+
+        h.offer(4, 1);
+        h.clear();
+        assertFalse(h.contains(4));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void heapEmpty()
+    {
+        new IndexedDoubleHeap(1).poll();
+    }
+
+    @Test
+    public void heapSortTest()
+    {
+        Random r = new Random(5);
+        final int n = 1000;
+        IndexedDoubleHeap h = new IndexedDoubleHeap(n);
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++)
+            h.offer(i, keys[i] = r.nextDouble());
+        for (int i = 0; i < n; i += 3)
+            h.update(i, keys[i] = r.nextDouble());
+
+        double last = -1;
+        while (!h.isEmpty())
+        {
+            double k = h.peekKey();
+            assertEquals(keys[h.poll()], k, 0);
+            assertTrue(last <= k);
+            last = k;
+        }
+    }
+
+    @Test
+    public void dijkstraTest()
+    {
+        Random r = new Random(11);
+        final int n = 500;
+        final int m = 3000;
+        int[] src = new int[m];
+        int[] dst = new int[m];
+        float[] w = new float[m];
+        for (int i = 0; i < m; i++)
+        {
+            src[i] = r.nextInt(n);
+            dst[i] = r.nextInt(n);
+            w[i] = r.nextInt(100);
+        }
+
+        CsrGraph g = CsrGraph.fromEdges(n, src, dst, w);
+        ShortestPaths sp = new ShortestPaths(g);
+        for (int source = 0; source < 5; source++)
+        {
+            double[] expected = bellmanFord(n, src, dst, w, source);
+            sp.dijkstra(source);
+            for (int v = 0; v < n; v++)
+            {
+                assertEquals(expected[v], sp.distance(v), 0);
+                checkPath(g, sp, source, v);
+            }
+
+            int target = r.nextInt(n);
+            assertEquals(expected[target], sp.dijkstra(source, target), 0);
+            checkPath(g, sp, source, target);
+        }
+    }
+
+    @Test
+    public void aStarTest()
+    {
+        // A width x width grid with unit weights.
+        final int width = 50;
+        final int n = width * width;
+        int[] src = new int[2 * n];
+        int[] dst = new int[2 * n];
+        int m = 0;
+        for (int v = 0; v < n; v++)
+        {
+            if (v % width + 1 < width) { src[m] = v; dst[m++] = v + 1; }
+            if (v + width < n) { src[m] = v; dst[m++] = v + width; }
+        }
+
+        CsrGraph g = CsrGraph.fromUndirectedEdges(n,
+            Arrays.copyOf(src, m), Arrays.copyOf(dst, m));
+        ShortestPaths sp = new ShortestPaths(g);
+
+        final int target = n - 1;
+        IntToDoubleFunction manhattan = new IntToDoubleFunction() {
+            @Override
+            public double applyAsDouble(int v)
+            {
+                return (width - 1 - v % width) + (width - 1 - v / width);
+            }
+        };
+
+        assertEquals(2 * (width - 1), sp.aStar(0, target, manhattan), 0);
+        checkPath(g, sp, 0, target);
+        assertEquals(2 * (width - 1), sp.dijkstra(0, target), 0);
+
+        // Unreachable target.
+        CsrGraph two = CsrGraph.fromEdges(2, new int[0], new int[0]);
+        ShortestPaths sp2 = new ShortestPaths(two);
+        assertEquals(Double.POSITIVE_INFINITY, sp2.dijkstra(0, 1), 0);
+        assertNull(sp2.path(1));
+        assertArrayEquals(new int[]{0}, sp2.path(0));
+    }
+
+    private static void checkPath(CsrGraph g, ShortestPaths sp,
+        int source, int target)
+    {
+        int[] path = sp.path(target);
+        if (path == null)
+        {
+            assertEquals(Double.POSITIVE_INFINITY, sp.distance(target), 0);
+            return;
+        }
+
+        assertEquals(source, path[0]);
+        assertEquals(target, path[path.length - 1]);
+        double total = 0;
+        for (int i = 1; i < path.length; i++)
+        {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = g.firstEdge(path[i - 1]); e < g.endEdge(path[i - 1]); e++)
+                if (g.target(e) == path[i]) best = Math.min(best, g.weight(e));
+            total += best;
+        }
+        assertEquals(sp.distance(target), total, 0);
+    }
+
+    private static double[] bellmanFord(int n, int[] src, int[] dst,
+        float[] w, int source)
+    {
+        double[] d = new double[n];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        d[source] = 0;
+        for (int k = 0; k < n; k++)
+            for (int i = 0; i < src.length; i++)
+                d[dst[i]] = Math.min(d[dst[i]], d[src[i]] + w[i]);
+        return d;
+    }
+}
@@ -0,0 +1,111 @@
+package j.algo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+public class UnionFindTest
+{
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroElems()
+    {
+        new UnionFind(0);
+    }
+
+    @Test
+    public void basicTest()
+    {
+        UnionFind uf = new UnionFind(5);
+        assertEquals(5, uf.getDistinctCount());
+        assertFalse(uf.connected(0, 1));
+        assertTrue(uf.connected(3, 3));
+
+        assertTrue(uf.union(0, 1));
+        assertTrue(uf.union(3, 4));
+        assertFalse(uf.union(1, 0));
+        assertTrue(uf.connected(1, 0));
+        assertFalse(uf.connected(1, 4));
+        assertEquals(3, uf.getDistinctCount());
+
+        assertTrue(uf.union(2, 4));
+        assertTrue(uf.union(0, 3));
+        assertTrue(uf.areAllConnected());
+        assertEquals(1, uf.getDistinctCount());
+    }
+
+    @Test
+    public void growableTest()
+    {
+        GrowableUnionFind uf = new GrowableUnionFind();
+        assertEquals(0, uf.size());
+        assertEquals(0, uf.add());
+        assertEquals(1, uf.add());
+        assertEquals(2, uf.getDistinctCount());
+        assertTrue(uf.union(0, 1));
+        assertTrue(uf.areAllConnected());
+
+        // Grow across several chunks.
+        uf.ensureSize(200000);
+        assertEquals(200000, uf.size());
+        assertEquals(199999, uf.getDistinctCount());
+        assertTrue(uf.union(1, 199999));
+        assertTrue(uf.connected(0, 199999));
+        assertEquals(200000, uf.add());
+        assertFalse(uf.connected(0, 200000));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void growableOutOfBounds()
+    {
+        GrowableUnionFind uf = new GrowableUnionFind(10);
+        uf.connected(0, 10);
+    }
+
+    @Test
+    public void longTest() throws IOException
+    {
+        File file = File.createTempFile("unionfind", ".bin");
+        file.deleteOnExit();
+
+        LongUnionFind mapped = new LongUnionFind(1000, file);
+        LongUnionFind direct = new LongUnionFind(1000);
+        try
+        {
+            compare(new UnionFind(1000), direct);
+            compare(new UnionFind(1000), mapped);
+        }
+        finally
+        {
+            mapped.close();
+            direct.close();
+            file.delete();
+        }
+    }
+
+    /**
+     * Performs the same random unions on a reference UnionFind and a
+     * LongUnionFind and checks that they agree.
+     */
+    private static void compare(UnionFind ref, LongUnionFind uf)
+    {
+        Random r = new Random(1);
+        final int n = (int)uf.size();
+
+        for (int i = 0; i < 2000; i++)
+        {
+            int a = r.nextInt(n);
+            int b = r.nextInt(n);
+            assertEquals(ref.connected(a, b), uf.connected(a, b));
+            assertEquals(ref.union(a, b), uf.union(a, b));
+            assertEquals(ref.getDistinctCount(), uf.getDistinctCount());
+        }
+
+        assertEquals(ref.areAllConnected(), uf.areAllConnected());
+    }
+}
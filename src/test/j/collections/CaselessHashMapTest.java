@@ -0,0 +1,106 @@
+package j.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import j.str.ByteSlice;
+
+public class CaselessHashMapTest
+{
+    @Test
+    public void basicTest() throws Exception
+    {
+        CaselessHashMap<Integer> m = new CaselessHashMap<Integer>();
+        assertTrue(m.isEmpty());
+        assertNull(m.put("Content-Type", 1));
+        assertEquals(1, (int)m.put("CONTENT-TYPE", 2));
+        assertEquals(1, m.size());
+        assertEquals("Content-Type", m.getKey("content-type"));
+        assertEquals(2, (int)m.get(new StringBuilder("content-TYPE")));
+        assertFalse(m.containsKey("Content-Length"));
+        assertFalse(m.containsKey(42));
+
+        byte[] req = "GET / HTTP/1.1\r\ncontent-type: text/plain\r\n"
+            .getBytes("ISO-8859-1");
+        ByteSlice name = new ByteSlice(req, 16, 12);
+        assertEquals("content-type", name.toString());
+        assertEquals(2, (int)m.get(name));
+
+        assertEquals(2, (int)m.remove(name));
+        assertTrue(m.isEmpty());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void concurrentModification()
+    {
+        CaselessHashMap<Integer> m = new CaselessHashMap<Integer>();
+        m.put("a", 1);
+        m.put("b", 2);
+        Iterator<Map.Entry<String, Integer>> it = m.entrySet().iterator();
+        it.next();
+        m.put("c", 3);
+        it.next();
+    }
+
+    @Test
+    public void randomTest()
+    {
+        Random r = new Random(6);
+        CaselessHashMap<Integer> mine = new CaselessHashMap<Integer>(2);
+        TreeMap<String, Integer> ref =
+            new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+
+        for (int k = 0; k < 50000; k++)
+        {
+            String key = randomKey(r);
+            switch (r.nextInt(3))
+            {
+            case 0:
+                assertEquals(ref.put(key, k), mine.put(key, k));
+                break;
+            case 1:
+                assertEquals(ref.remove(key), mine.remove(key));
+                break;
+            default:
+                assertEquals(ref.get(key), mine.get(key));
+                assertEquals(ref.containsKey(key), mine.containsKey(key));
+                break;
+            }
+            assertEquals(ref.size(), mine.size());
+        }
+
+        int count = 0;
+        for (Map.Entry<String, Integer> e : mine.entrySet())
+        {
+            assertEquals(ref.get(e.getKey()), e.getValue());
+            count++;
+        }
+        assertEquals(ref.size(), count);
+
+        mine.clear();
+        assertEquals(0, mine.size());
+        assertNull(mine.get("a"));
+    }
+
+    private static String randomKey(Random r)
+    {
+        StringBuilder sb = new StringBuilder();
+        int len = 1 + r.nextInt(3);
+        for (int i = 0; i < len; i++)
+        {
+            char c = (char)('a' + r.nextInt(6));
+            sb.append(r.nextBoolean() ? Character.toUpperCase(c) : c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package j.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class ContentDefinedChunkerTest
+{
+    private static List<Long> chunk(byte[] data, int min, int avg, int max) throws IOException
+    {
+        // Trickle the stream so chunks span reads.
+        final InputStream in = new ByteArrayInputStream(data)
+        {
+            @Override
+            public int read(byte[] b, int off, int len)
+            {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+
+        final ContentDefinedChunker c = new ContentDefinedChunker(in, min, avg, max);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        final List<Long> hashes = new ArrayList<Long>();
+        long pos = 0;
+
+        while (c.next())
+        {
+            assertEquals(pos, c.position());
+            assertTrue(c.length() <= max);
+            if (pos + c.length() < data.length) assertTrue(c.length() >= min);
+
+            for (int i = 0; i < c.length(); i++)
+                assertEquals(data[(int)pos + i], c.buffer()[c.offset() + i]);
+
+            // Same cut over the data in memory, in an array and in a
+            // direct buffer, which has none.
+            assertEquals(c.length(), c.nextCut(data, (int)pos, data.length - (int)pos));
+            assertEquals(c.length(), c.nextCut(ByteBuffer.wrap(data, (int)pos, data.length - (int)pos)));
+            direct.position((int)pos);
+            assertEquals(c.length(), c.nextCut(direct));
+            assertEquals(pos, direct.position());
+
+            hashes.add(c.hash());
+            pos += c.length();
+        }
+
+        assertEquals(data.length, pos);
+        c.close();
+        return hashes;
+    }
+
+    @Test
+    public void chunkerTest() throws Exception
+    {
+        final Random rand = new Random(43);
+        final byte[] data = new byte[400000];
+        rand.nextBytes(data);
+
+        final List<Long> before = chunk(data, 256, 1024, 4096);
+        assertTrue(before.size() > 200 && before.size() < 800);
+
+        // Insert a few bytes near the start; most chunks survive.
+        final byte[] edited = new byte[data.length + 5];
+        System.arraycopy(data, 0, edited, 0, 1000);
+        System.arraycopy(data, 1000, edited, 1005, data.length - 1000);
+
+        final Set<Long> after = new HashSet<Long>(chunk(edited, 256, 1024, 4096));
+        int kept = 0;
+        for (long h : before) if (after.contains(h)) kept++;
+        assertTrue(kept >= before.size() - 10);
+
+        assertEquals(0, chunk(new byte[0], 256, 1024, 4096).size());
+
+        // Constant data hits max every time.
+        assertEquals(100, chunk(new byte[409600], 256, 1024, 4096).size());
+    }
+}
@@ -0,0 +1,89 @@
+package j.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class FileUtilTest
+{
+    /** readAll(File, String) as it was, line by line. */
+    private static String readLines(File f, String charset) throws IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+        final BufferedReader br = new BufferedReader(new InputStreamReader(
+            new FileInputStream(f), charset));
+        try
+        {
+            String line;
+            String lineSep = "";
+            while ((line = br.readLine()) != null)
+            {
+                sb.append(lineSep).append(line);
+                lineSep = FileUtil.LINE_SEP;
+            }
+            return sb.toString();
+        }
+        finally
+        {
+            br.close();
+        }
+    }
+
+    private static byte[] random(Random rand, int lines, int maxLen) throws IOException
+    {
+        return TestFiles.randomLines(rand, lines, maxLen, maxLen, null).getBytes("UTF-8");
+    }
+
+    @Test
+    public void readAllTest() throws Exception
+    {
+        final Random rand = new Random(71);
+        final List<byte[]> inputs = new ArrayList<byte[]>();
+        inputs.add(new byte[0]);
+        for (String s : new String[] {"\n", "\r", "\r\n", "a\n\n", "\n\r\r\n", "a\r\n"})
+            inputs.add(s.getBytes("US-ASCII"));
+        for (int i = 0; i < 30; i++) inputs.add(random(rand, rand.nextInt(50), 20));
+
+        // Past the mapping threshold.
+        inputs.add(random(rand, 60000, 40));
+
+        for (byte[] data : inputs)
+        {
+            final File f = TestFiles.write(data);
+            final String text = new String(data, "UTF-8");
+            assertEquals(readLines(f, "UTF-8"), FileUtil.readAll(f));
+            assertEquals(readLines(f, "UTF-8"), FileUtil.readAll(f.getPath(), "UTF-8"));
+            assertEquals(text, FileUtil.readAll(f, StandardCharsets.UTF_8, true));
+            assertArrayEquals(data, FileUtil.readAllBytes(f));
+
+            final CharBuffer c = FileUtil.readAllChars(f, StandardCharsets.UTF_8);
+            assertEquals(0, c.position());
+            assertEquals(text, c.toString());
+
+            final File f16 = TestFiles.write(text.getBytes("UTF-16"));
+            assertEquals(readLines(f16, "UTF-16"), FileUtil.readAll(f16, "UTF-16"));
+        }
+    }
+
+    @Test
+    public void malformedTest() throws Exception
+    {
+        final byte[] data = {'a', (byte)0xC3, '\n', (byte)0xFF, (byte)0xE2, (byte)0x82};
+        final File f = TestFiles.write(data);
+        assertEquals(new String(data, "UTF-8"),
+            FileUtil.readAllChars(f, StandardCharsets.UTF_8).toString());
+        assertEquals(new String(data, "UTF-16"),
+            FileUtil.readAllChars(f, StandardCharsets.UTF_16).toString());
+    }
+
+    @Test(expected=UnsupportedEncodingException.class)
+    public void charsetTest() throws Exception
+    {
+        FileUtil.readAll(TestFiles.write(new byte[1]), "no-such-charset");
+    }
+}
@@ -0,0 +1,165 @@
+package j.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class LineIndexTest
+{
+    private static File write(File f, String s) throws IOException
+    {
+        return TestFiles.write(f, s.getBytes("UTF-8"));
+    }
+
+    private static File tempFile() throws IOException
+    {
+        final File f = File.createTempFile("lineindex", ".txt");
+        f.deleteOnExit();
+        LineIndex.indexFile(f).deleteOnExit();
+        return f;
+    }
+
+    @Test
+    public void readLineTest() throws Exception
+    {
+        final Random rand = new Random(67);
+        final List<String> lines = new ArrayList<String>();
+        final File f = write(tempFile(), TestFiles.randomLines(rand, 3000, 30, 30, lines));
+        for (int rate : new int[] {1, 3, 1024, 5000})
+        {
+            for (int segments : new int[] {1, 5, 100})
+            {
+                final LineIndex index = LineIndex.build(f, rate, ForkJoinPool.commonPool(), segments);
+                assertEquals(lines.size(), index.lineCount());
+
+                for (int n = 1; n <= lines.size(); n += 1 + rand.nextInt(7))
+                    assertEquals(lines.get(n - 1), index.readLine(n));
+
+                // Ranges across samples and segments.
+                for (int k = 0; k < 50; k++)
+                {
+                    final int first = 1 + rand.nextInt(lines.size());
+                    final int count = rand.nextInt(lines.size() - first + 2);
+                    assertEquals(lines.subList(first - 1, first - 1 + count),
+                        index.readLines(first, count));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void openTest() throws Exception
+    {
+        final File f = write(tempFile(), "a\nb\nc");
+        final File idx = LineIndex.indexFile(f);
+        idx.delete();
+
+        LineIndex index = LineIndex.open(f, 2);
+        assertTrue(idx.isFile());
+        assertEquals(3, index.lineCount());
+        assertEquals("c", index.readLine(3));
+
+        // A fresh saved index is loaded as is.
+        final byte[] saved = readAll(idx);
+        idx.setLastModified(idx.lastModified() - 10000);
+        final long mtime = idx.lastModified();
+        index = LineIndex.open(f, 2);
+        assertEquals(mtime, idx.lastModified());
+        assertEquals("b", index.readLine(2));
+
+        // A changed file is reindexed.
+        write(f, "a\nb\nc\nd\n");
+        f.setLastModified(f.lastModified() + 2000);
+        index = LineIndex.open(f, 2);
+        assertEquals(4, index.lineCount());
+        assertEquals("d", index.readLine(4));
+        assertFalse(Arrays.equals(saved, readAll(idx)));
+
+        // So is a corrupt one.
+        write(idx, "junk");
+        index = LineIndex.open(f, 2);
+        assertEquals(4, index.lineCount());
+        assertEquals(4, LineIndex.open(f).lineCount());
+        assertEquals(LineIndex.DEFAULT_RATE, LineIndex.open(f).rate());
+    }
+
+    @Test
+    public void samplesTest() throws Exception
+    {
+        final File f = write(tempFile(), "a\nb\nc\nd\ne");
+        final File idx = LineIndex.indexFile(f);
+        idx.delete();
+        LineIndex.open(f, 2);
+        final byte[] saved = readAll(idx);
+
+        // Samples {0, 4, 8} that are not at 0, out of order or past the
+        // end, behind a valid header.
+        for (long[] samples : new long[][] {{1, 4, 8}, {0, 8, 4}, {0, 4, 4}, {0, 4, 9}})
+        {
+            final ByteBuffer b = ByteBuffer.wrap(saved.clone()).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < samples.length; i++)
+                b.putLong(saved.length - 8 * (samples.length - i), samples[i]);
+            TestFiles.write(idx, b.array());
+            idx.setLastModified(f.lastModified());
+
+            final LineIndex index = LineIndex.open(f, 2);
+            assertEquals("c", index.readLine(3));
+            assertEquals("e", index.readLine(5));
+            assertArrayEquals(saved, readAll(idx));
+        }
+    }
+
+    @Test
+    public void unreadableTest() throws Exception
+    {
+        final File f = write(tempFile(), "a\nb\nc");
+        final File idx = LineIndex.indexFile(f);
+        idx.delete();
+        LineIndex.open(f, 2);
+
+        // The index cannot be read, unless running as a superuser.
+        assertTrue(idx.setReadable(false, false));
+        final LineIndex index = LineIndex.open(f, 2);
+        assertEquals(3, index.lineCount());
+        assertEquals("b", index.readLine(2));
+    }
+
+    private static byte[] readAll(File f) throws IOException
+    {
+        final byte[] b = new byte[(int)f.length()];
+        final DataInputStream in = new DataInputStream(new FileInputStream(f));
+        try
+        {
+            in.readFully(b);
+        }
+        finally
+        {
+            in.close();
+        }
+        return b;
+    }
+
+    @Test
+    public void boundsTest() throws Exception
+    {
+        final LineIndex index = LineIndex.build(write(tempFile(), ""), 4, ForkJoinPool.commonPool());
+        assertEquals(0, index.lineCount());
+        assertEquals(0, index.readLines(1, 0).size());
+
+        try
+        {
+            index.readLine(1);
+            fail();
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package j.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import j.str.ByteSlice;
+
+import java.io.*;
+import java.util.*;
+
+public class LineInputStreamTest
+{
+    private static LineInputStream stream(String s) throws Exception
+    {
+        return new LineInputStream(new ByteArrayInputStream(s.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void readLineTest() throws Exception
+    {
+        final LineInputStream in = stream("a\nbc\r\nd\re\u00E9\u20AC\n\nlast");
+        assertEquals("a", in.readLine());
+        assertEquals("bc", in.readLine());
+        assertEquals("d", in.readLine());
+        assertEquals("e\u00E9\u20AC", in.readLine());
+        assertEquals("", in.readLine());
+        assertEquals("last", in.readLine());
+        assertNull(in.readLine());
+        assertNull(in.readLine());
+    }
+
+    @Test
+    public void readAfterLineTest() throws Exception
+    {
+        // The byte after a lone CR is read ahead and must be returned by
+        // the byte reads that follow.
+        LineInputStream in = stream("head\rbody");
+        assertEquals("head", in.readLine());
+        assertEquals('b', in.read());
+        final byte[] b = new byte[10];
+        assertEquals(3, in.read(b, 0, 10));
+        assertEquals("ody", new String(b, 0, 3, "US-ASCII"));
+        assertEquals(-1, in.read());
+
+        in = stream("head\rbody");
+        assertEquals("head", in.readLine());
+        assertEquals(4, readFully(in, b));
+        assertEquals("body", new String(b, 0, 4, "US-ASCII"));
+
+        in = stream("head\r\nbody");
+        assertEquals("head", in.readLine());
+        assertEquals(2, in.skip(2));
+        assertEquals('d', in.read());
+    }
+
+    private static int readFully(InputStream in, byte[] b) throws IOException
+    {
+        int total = 0;
+        for (int n; total < b.length && (n = in.read(b, total, b.length - total)) > 0; )
+            total += n;
+        return total;
+    }
+
+    @Test
+    public void byteSliceTest() throws Exception
+    {
+        final LineInputStream in = stream("GET / HTTP/1.1\r\nHost: x\r\n\r\n");
+        final ByteSlice slice = new ByteSlice();
+        assertSame(slice, in.readLine(slice));
+        assertEquals("GET / HTTP/1.1", slice.toString());
+        assertEquals("Host: x", in.readLine(slice).toString());
+        assertEquals(0, in.readLine(slice).length());
+        assertNull(in.readLine(slice));
+    }
+
+    @Test
+    public void randomTest() throws Exception
+    {
+        final List<String> lines = new ArrayList<String>();
+        final LineInputStream in = stream(
+            TestFiles.randomLines(new Random(47), 2000, 40, 20000, lines));
+        for (String line : lines) assertEquals(line, in.readLine());
+        assertNull(in.readLine());
+    }
+
+    /** Returns at most 3 bytes per read. */
+    private static InputStream trickle(byte[] b)
+    {
+        return new ByteArrayInputStream(b)
+        {
+            private int k;
+
+            @Override
+            public int read(byte[] b, int off, int len)
+            {
+                return super.read(b, off, Math.min(len, 1 + this.k++ % 3));
+            }
+        };
+    }
+
+    @Test
+    public void bufferTest() throws Exception
+    {
+        final byte[] data = "head1\r\nhead2\rX\r\n\rbody\nmore\r".getBytes("US-ASCII");
+
+        // Every buffer size puts the CRs at a different place in the buffer.
+        for (int size = 1; size <= data.length + 1; size++)
+        {
+            for (int t = 0; t < 2; t++)
+            {
+                final InputStream inner = t == 0 ? new ByteArrayInputStream(data) : trickle(data);
+                final LineInputStream in = new LineInputStream(inner, size);
+                assertEquals("head1", in.readLine());
+                assertEquals("head2", in.readLine());
+                assertEquals("X", in.readLine());
+                assertEquals("", in.readLine());
+
+                // The byte after the lone CR comes first.
+                final byte[] b = new byte[64];
+                final int n = readFully(in, b);
+                assertEquals("body\nmore\r", new String(b, 0, n, "US-ASCII"));
+                assertEquals(-1, in.read());
+                assertNull(in.readLine());
+                in.close();
+            }
+        }
+    }
+
+    @Test
+    public void mixedTest() throws Exception
+    {
+        // Interleave lines and byte reads of a stream with known content.
+        final Random rand = new Random(53);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 500; i++)
+        {
+            final char[] c = new char[1 + rand.nextInt(i % 50 == 0 ? 300 : 30)];
+            for (int j = 0; j < c.length; j++) c[j] = (char)('a' + rand.nextInt(26));
+            lines.add(new String(c));
+            out.write(new String(c).getBytes("US-ASCII"));
+            out.write(rand.nextBoolean() ? '\n' : '\r');
+
+            // A block of bytes read with read(byte[]) or skip().
+            final byte[] body = new byte[rand.nextInt(100)];
+            for (int j = 0; j < body.length; j++) body[j] = (byte)('0' + rand.nextInt(10));
+            lines.add(new String(body, "US-ASCII"));
+            out.write(body);
+        }
+
+        final byte[] data = out.toByteArray();
+        for (int size : new int[] {1, 7, 64, 8192})
+        {
+            final LineInputStream in = new LineInputStream(trickle(data), size);
+            for (int i = 0; i < lines.size(); i += 2)
+            {
+                assertEquals(lines.get(i), in.readLine());
+
+                final String body = lines.get(i + 1);
+                if (i % 4 == 0)
+                {
+                    final byte[] b = new byte[body.length()];
+                    assertEquals(b.length, readFully(in, b));
+                    assertEquals(body, new String(b, "US-ASCII"));
+                }
+                else
+                {
+                    long left = body.length();
+                    while (left > 0) left -= in.skip(left);
+                }
+            }
+
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void maxLineLengthTest() throws Exception
+    {
+        // Each buffer size splits the long lines differently.
+        for (int size = 1; size <= 20; size++)
+        {
+            final LineInputStream in = new LineInputStream(new ByteArrayInputStream(
+                "abc\r\nabcdef\nab\rabcdefgh\r\nxyz\nabcd\rbody".getBytes("US-ASCII")), size);
+            in.setMaxLineLength(3);
+            assertEquals("abc", in.readLine(new ByteSlice()).toString());
+            assertLong(in);
+
+            // The stream continues at the line after the long one.
+            assertEquals("ab", in.readLine(new ByteSlice()).toString());
+            assertLong(in);
+            assertEquals("xyz", in.readLine());
+            assertLong(in);
+
+            // The byte read past a lone CR comes first, as after readLine.
+            final byte[] b = new byte[8];
+            assertEquals(4, readFully(in, b));
+            assertEquals("body", new String(b, 0, 4, "US-ASCII"));
+        }
+    }
+
+    private static void assertLong(LineInputStream in)
+    {
+        try
+        {
+            in.readLine();
+            fail();
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void sizeTest()
+    {
+        new LineInputStream(new ByteArrayInputStream(new byte[0]), 0);
+    }
+}
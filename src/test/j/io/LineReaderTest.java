@@ -0,0 +1,114 @@
+package j.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import j.str.CharSlice;
+
+import java.io.*;
+import java.util.*;
+
+public class LineReaderTest
+{
+    @Test
+    public void readLineTest() throws Exception
+    {
+        // Every buffer size splits the CRLFs differently.
+        final String s = "a\nbc\r\nd\re\u00E9\u20AC\n\r\n\r\rlast";
+        for (int size = 1; size <= s.length() + 1; size++)
+        {
+            final LineReader r = new LineReader(new StringReader(s), size);
+            final CharSlice slice = new CharSlice();
+            assertEquals("a", r.readLine());
+            assertSame(slice, r.readLine(slice));
+            assertEquals("bc", slice.toString());
+            assertEquals("d", r.readLine());
+            assertEquals("e\u00E9\u20AC", r.readLine(slice).toString());
+            assertEquals("", r.readLine());
+            assertEquals(0, r.readLine(slice).length());
+            assertEquals("", r.readLine());
+            assertEquals(7, r.getLineNum());
+            assertEquals('l', r.read());
+            assertEquals("ast", r.readLine());
+            assertNull(r.readLine());
+            assertNull(r.readLine(slice));
+            assertEquals(8, r.getLineNum());
+            r.close();
+        }
+    }
+
+    @Test
+    public void sameAsBufferedReaderTest() throws Exception
+    {
+        final Random rand = new Random(59);
+        final String[] terms = {"\n", "\r\n", "\r"};
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++)
+        {
+            final char[] c = new char[rand.nextInt(i % 100 == 0 ? 20000 : 40)];
+            for (int j = 0; j < c.length; j++) c[j] = (char)('a' + rand.nextInt(26));
+            sb.append(c).append(terms[rand.nextInt(3)]);
+        }
+
+        final BufferedReader expected = new BufferedReader(new StringReader(sb.toString()));
+        final LineReader r = new LineReader(new StringReader(sb.toString()), 100);
+        final CharSlice slice = new CharSlice();
+        for (int i = 0; ; i++)
+        {
+            final String line = expected.readLine();
+            if (line == null) break;
+            assertEquals(line, i % 2 == 0 ? r.readLine() : r.readLine(slice).toString());
+        }
+
+        assertNull(r.readLine());
+    }
+
+    @Test
+    public void maxLineLengthTest() throws Exception
+    {
+        // Each buffer size splits the long lines differently.
+        for (int size = 1; size <= 20; size++)
+        {
+            final LineReader r = new LineReader(new StringReader(
+                "abc\nabcdef\nab\rabcdefgh\r\nxyz\nabcd\rabcd"), size);
+            r.setMaxLineLength(3);
+            final CharSlice slice = new CharSlice();
+            assertEquals("abc", r.readLine());
+            assertLong(r);
+
+            // The reader continues at the line after the long one.
+            assertEquals("ab", r.readLine(slice).toString());
+            assertEquals(3, r.getLineNum());
+            assertLong(r);
+            assertEquals("xyz", r.readLine());
+            assertEquals(5, r.getLineNum());
+            assertLong(r);
+            assertLong(r);
+            assertEquals(7, r.getLineNum());
+            assertNull(r.readLine());
+        }
+    }
+
+    private static void assertLong(LineReader r)
+    {
+        try
+        {
+            r.readLine();
+            fail();
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void closedTest() throws Exception
+    {
+        final LineReader r = new LineReader(new StringReader("a"));
+        r.close();
+        r.close();
+        r.readLine();
+    }
+}
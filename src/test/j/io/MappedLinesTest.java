@@ -0,0 +1,99 @@
+package j.io;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class MappedLinesTest
+{
+    /** Lines as "lineNum:offset:text", in the order processed. */
+    private static List<String> process(File f, int segments) throws IOException
+    {
+        return MappedLines.process(f, segments, ForkJoinPool.commonPool(),
+            ArrayList::new,
+            (List<String> acc, long lineNum, long offset, ByteBuffer line) ->
+                acc.add(lineNum + ":" + offset + ":" + StandardCharsets.UTF_8.decode(line)),
+            (a, b) -> { a.addAll(b); return a; });
+    }
+
+    private static List<String> expected(byte[] data) throws IOException
+    {
+        final List<String> lines = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i <= data.length; i++)
+        {
+            if (i < data.length && data[i] != '\n' && data[i] != '\r')
+                continue;
+
+            if (i == data.length && start == i) break;
+
+            lines.add((lines.size() + 1) + ":" + start + ":" +
+                new String(data, start, i - start, "UTF-8"));
+
+            if (i < data.length && data[i] == '\r' && i + 1 < data.length && data[i + 1] == '\n')
+                i++;
+            start = i + 1;
+        }
+        return lines;
+    }
+
+    @Test
+    public void processTest() throws Exception
+    {
+        final Random rand = new Random(61);
+
+        for (int round = 0; round < 20; round++)
+        {
+            final byte[] data = TestFiles.randomLines(rand, rand.nextInt(200), 20, 300, null)
+                .getBytes("UTF-8");
+            final File f = TestFiles.write(data);
+            final List<String> expected = expected(data);
+
+            for (int segments : new int[] {1, 2, 3, 7, 64, 1000})
+                assertEquals(expected, process(f, segments));
+
+            assertEquals(expected, MappedLines.process(f, ArrayList::new,
+                (List<String> acc, long lineNum, long offset, ByteBuffer line) ->
+                    acc.add(lineNum + ":" + offset + ":" + StandardCharsets.UTF_8.decode(line)),
+                (a, b) -> { a.addAll(b); return a; }));
+        }
+    }
+
+    @Test
+    public void terminatorTest() throws Exception
+    {
+        // Every split of lines of only terminators.
+        final byte[] data = "\r\n\r\r\n\n\r\rx\n".getBytes("US-ASCII");
+        final File f = TestFiles.write(data);
+        for (int segments = 1; segments <= data.length + 1; segments++)
+            assertEquals(expected(data), process(f, segments));
+
+        assertEquals(0, process(TestFiles.write(new byte[0]), 4).size());
+    }
+
+    @Test
+    public void nextTerminatorTest()
+    {
+        final ByteBuffer b = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 40; i++) b.put(i, (byte)(0x80 | i));
+
+        // The high-bit bytes must not be mistaken for terminators.
+        assertEquals(40, MappedLines.nextTerminator(b, 0, 40));
+
+        for (int t = 0; t < 40; t++)
+        {
+            b.put(t, (byte)(t % 2 == 0 ? '\n' : '\r'));
+            for (int from = 0; from <= t; from++)
+                assertEquals(t, MappedLines.nextTerminator(b, from, 40));
+            assertEquals(t, MappedLines.nextTerminator(b, 0, t));
+            b.put(t, (byte)0x0B);
+        }
+    }
+}
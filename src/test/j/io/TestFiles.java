@@ -0,0 +1,63 @@
+package j.io;
+
+import java.io.*;
+import java.util.*;
+
+/** Temp files and random text shared by the line tests. */
+final class TestFiles
+{
+    private TestFiles(){}
+
+    private static final String[] TERMS = {"\n", "\r\n", "\r"};
+
+    /** Writes data to a temp file deleted on exit. */
+    static File write(byte[] data) throws IOException
+    {
+        final File f = File.createTempFile("test", ".txt");
+        f.deleteOnExit();
+        return write(f, data);
+    }
+
+    static File write(File f, byte[] data) throws IOException
+    {
+        final OutputStream out = new FileOutputStream(f);
+        try
+        {
+            out.write(data);
+        }
+        finally
+        {
+            out.close();
+        }
+        return f;
+    }
+
+    /**
+     * Generates lines of random letters and some non-ASCII chars, each
+     * terminated by a random LF, CRLF or CR. The last line may be left
+     * unterminated unless it is empty.
+     *
+     * @param maxLen Bound on the length of a line.
+     * @param longMaxLen Bound on the length of every 50th line.
+     * @param lines Receives the lines as they read back, if not null.
+     */
+    static String randomLines(Random rand, int count, int maxLen, int longMaxLen,
+        List<String> lines)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++)
+        {
+            // An empty line after a CR would read as part of a CRLF.
+            final int min = sb.length() > 0 && sb.charAt(sb.length() - 1) == '\r' ? 1 : 0;
+            final char[] c = new char[min + rand.nextInt(i % 50 == 0 ? longMaxLen : maxLen)];
+            for (int j = 0; j < c.length; j++)
+                c[j] = rand.nextInt(20) == 0 ? '\u00E9' : (char)('a' + rand.nextInt(26));
+
+            if (lines != null) lines.add(new String(c));
+            sb.append(c);
+            if (i < count - 1 || c.length == 0 || rand.nextBoolean())
+                sb.append(TERMS[rand.nextInt(3)]);
+        }
+        return sb.toString();
+    }
+}
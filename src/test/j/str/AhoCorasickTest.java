@@ -0,0 +1,175 @@
+package j.str;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class AhoCorasickTest
+{
+    /** Collects matches as "pattern@end" strings. */
+    private static class Collector implements AhoCorasick.MatchHandler
+    {
+        final List<String> found = new ArrayList<String>();
+
+        @Override
+        public boolean onMatch(int pattern, long end)
+        {
+            this.found.add(pattern + "@" + end);
+            return true;
+        }
+    }
+
+    /** Finds matches naively, in the order the automaton reports them. */
+    private static List<String> naive(List<String> patterns, String text,
+        boolean ignoreCase)
+    {
+        final List<String> found = new ArrayList<String>();
+        for (int end = 1; end <= text.length(); end++)
+        {
+            for (int len = end; len >= 1; len--)
+            {
+                final String sub = text.substring(end - len, end);
+                for (int p = 0; p < patterns.size(); p++)
+                {
+                    final String pat = patterns.get(p);
+                    if (pat.length() == len && (ignoreCase
+                        ? StrUtil.equalsIgnoreCase(pat, sub) : pat.equals(sub)))
+                        found.add(p + "@" + end);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static String random(Random rand, String alphabet, int len)
+    {
+        final char[] c = new char[len];
+        for (int i = 0; i < len; i++)
+            c[i] = alphabet.charAt(rand.nextInt(alphabet.length()));
+        return new String(c);
+    }
+
+    @Test
+    public void basicTest()
+    {
+        final List<String> patterns = Arrays.asList("he", "she", "his", "hers");
+        final AhoCorasick ac = new AhoCorasick(patterns, false);
+
+        final Collector col = new Collector();
+        assertEquals(6, ac.matcher().feed("ushers", col));
+        assertEquals(Arrays.asList("1@4", "0@4", "3@6"), col.found);
+
+        assertTrue(ac.containsAny("this"));
+        assertFalse(ac.containsAny("HIS"));
+        assertTrue(new AhoCorasick(patterns, true).containsAny("HIS"));
+        assertEquals(4, ac.patternCount());
+        assertEquals("hers", ac.pattern(3));
+        assertEquals(4, ac.patternLength(3));
+    }
+
+    @Test
+    public void randomTest()
+    {
+        final Random rand = new Random(42);
+        final String alphabet = "abAsS-\u00E9\u00C9\u017F\u4E2D";
+
+        for (int iter = 0; iter < 300; iter++)
+        {
+            final boolean ignoreCase = rand.nextBoolean();
+            final List<String> patterns = new ArrayList<String>();
+            final int n = 1 + rand.nextInt(12);
+            for (int i = 0; i < n; i++)
+                patterns.add(random(rand, alphabet, 1 + rand.nextInt(4)));
+
+            final String text = random(rand, alphabet, rand.nextInt(200));
+            final List<String> expected = naive(patterns, text, ignoreCase);
+            final AhoCorasick ac = new AhoCorasick(patterns, ignoreCase);
+
+            Collector col = new Collector();
+            ac.matcher().feed(text, col);
+            assertEquals(expected, col.found);
+
+            // Feed char[] pieces at random boundaries.
+            col = new Collector();
+            final AhoCorasick.Matcher m = ac.matcher();
+            final char[] c = text.toCharArray();
+            for (int i = 0; i < c.length; )
+            {
+                final int len = Math.min(c.length - i, rand.nextInt(8));
+                assertEquals(len, m.feed(c, i, len, col));
+                i += len;
+            }
+            assertEquals(expected, col.found);
+            assertEquals(text.length(), m.position());
+        }
+    }
+
+    @Test
+    public void bytesTest() throws Exception
+    {
+        final Random rand = new Random(7);
+        final String alphabet = "xyXY\u00E9\u00C9\u00FF";
+
+        for (int iter = 0; iter < 300; iter++)
+        {
+            final boolean ignoreCase = rand.nextBoolean();
+            final List<String> patterns = new ArrayList<String>();
+            final int n = 1 + rand.nextInt(8);
+            for (int i = 0; i < n; i++)
+                patterns.add(random(rand, alphabet, 1 + rand.nextInt(3)));
+
+            final String text = random(rand, alphabet, rand.nextInt(100));
+            final byte[] b = text.getBytes("ISO-8859-1");
+            final List<String> expected = naive(patterns, text, ignoreCase);
+            final AhoCorasick ac = new AhoCorasick(patterns, ignoreCase);
+
+            Collector col = new Collector();
+            AhoCorasick.Matcher m = ac.matcher();
+            final int split = rand.nextInt(b.length + 1);
+            m.feed(b, 0, split, col);
+            m.feed(b, split, b.length - split, col);
+            assertEquals(expected, col.found);
+
+            col = new Collector();
+            m.reset();
+            final ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+            direct.put(b).flip();
+            m.feed(direct, col);
+            assertEquals(expected, col.found);
+            assertFalse(direct.hasRemaining());
+        }
+    }
+
+    @Test
+    public void stopTest()
+    {
+        final AhoCorasick ac = new AhoCorasick(Arrays.asList("ab", "b"), false);
+        final AhoCorasick.MatchHandler stop = new AhoCorasick.MatchHandler()
+        {
+            @Override
+            public boolean onMatch(int pattern, long end)
+            {
+                return false;
+            }
+        };
+
+        final AhoCorasick.Matcher m = ac.matcher();
+        final ByteBuffer buf = ByteBuffer.wrap(new byte[] { 'x', 'a', 'b', 'a', 'b' });
+        assertEquals(3, m.feed(buf, stop));
+        assertEquals(3, buf.position());
+        assertEquals(2, m.feed(buf, stop));
+        assertEquals(5, m.position());
+        assertFalse(ac.containsAny(new byte[] { 'a', 'a' }, 0, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyPatternTest()
+    {
+        new AhoCorasick(Arrays.asList("a", ""), false);
+    }
+}
@@ -0,0 +1,99 @@
+package j.str;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class BoyerMooreHorspoolTest
+{
+    private static String random(Random rand, String alphabet, int len)
+    {
+        final char[] c = new char[len];
+        for (int i = 0; i < len; i++)
+            c[i] = alphabet.charAt(rand.nextInt(alphabet.length()));
+        return new String(c);
+    }
+
+    @Test
+    public void indexInTest() throws Exception
+    {
+        final Random rand = new Random(3);
+
+        for (int iter = 0; iter < 2000; iter++)
+        {
+            final String pat = random(rand, "ab\u00E9", 1 + rand.nextInt(5));
+            final String text = random(rand, "ab\u00E9", rand.nextInt(60));
+            final BoyerMooreHorspool bmh = new BoyerMooreHorspool(pat);
+            final byte[] b = text.getBytes("ISO-8859-1");
+            final ByteBuffer direct = ByteBuffer.allocateDirect(b.length + 2);
+            direct.put(new byte[2]).put(b).position(2);
+
+            for (int from = 0; from <= text.length(); from++)
+            {
+                final int expected = text.indexOf(pat, from);
+                assertEquals(expected, bmh.indexIn(text, from));
+                assertEquals(expected, bmh.indexIn(text.toCharArray(), from, text.length()));
+                assertEquals(expected, bmh.indexIn(b, from, b.length));
+            }
+
+            final int expected = text.indexOf(pat);
+            assertEquals(expected < 0 ? -1 : expected + 2, bmh.indexIn(direct));
+        }
+    }
+
+    @Test
+    public void wideCharTest()
+    {
+        // U+0161 has the same low 8 bits as 'a'.
+        final BoyerMooreHorspool bmh = new BoyerMooreHorspool("x\u0161a");
+        assertEquals(3, bmh.indexIn("xaax\u0161a", 0));
+        assertEquals(-1, bmh.indexIn(new byte[] { 'x', 0x61, 'a' }, 0, 3));
+        assertEquals(1, new BoyerMooreHorspool(new byte[] { -1 }).indexIn("a\u00FF", 0));
+    }
+
+    @Test
+    public void streamTest() throws Exception
+    {
+        final Random rand = new Random(5);
+
+        for (int iter = 0; iter < 2000; iter++)
+        {
+            final String pat = random(rand, "ab", 1 + rand.nextInt(6));
+            final String text = random(rand, "ab", rand.nextInt(80));
+            final byte[] b = text.getBytes("ISO-8859-1");
+
+            // Non-overlapping occurrences, left to right.
+            final List<Long> expected = new ArrayList<Long>();
+            for (int i = text.indexOf(pat); i >= 0; i = text.indexOf(pat, i + pat.length()))
+                expected.add((long)i);
+
+            final List<Long> found = new ArrayList<Long>();
+            final BoyerMooreHorspool.StreamMatcher m = new BoyerMooreHorspool(pat).matcher();
+            for (int off = 0; off < b.length; )
+            {
+                int len = Math.min(b.length - off, rand.nextInt(6));
+                while (true)
+                {
+                    final int n = m.find(b, off, len);
+                    if (n < 0) break;
+                    found.add(m.matchStart());
+                    off += n;
+                    len -= n;
+                }
+                off += len;
+            }
+
+            assertEquals(expected, found);
+            assertEquals(b.length, m.position());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyTest()
+    {
+        new BoyerMooreHorspool("");
+    }
+}
@@ -0,0 +1,113 @@
+package j.str;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class CaselessStringPoolTest
+{
+    private static byte[] latin1(String s) throws Exception
+    {
+        return s.getBytes("ISO-8859-1");
+    }
+
+    @Test
+    public void seedTest() throws Exception
+    {
+        CaselessStringPool pool = new CaselessStringPool();
+        assertEquals(CaselessStringPool.HTTP_HEADER_NAMES.size(), pool.seedCount());
+
+        CaselessString ct = pool.intern("Content-Type");
+        assertEquals("Content-Type", ct.toString());
+        assertSame(ct, pool.intern("content-TYPE"));
+        assertSame(ct, pool.intern(new StringBuilder("CONTENT-TYPE")));
+        assertSame(ct, pool.intern(new CaselessString("content-type")));
+
+        char[] c = "xxcontent-typexx".toCharArray();
+        assertSame(ct, pool.intern(c, 2, 12));
+
+        byte[] b = latin1("GET / HTTP/1.1\r\ncontent-type: text/plain");
+        assertSame(ct, pool.intern(b, 16, 12));
+        assertSame(ct, pool.intern(new ByteSlice(b, 16, 12)));
+
+        for (String name : CaselessStringPool.HTTP_HEADER_NAMES)
+        {
+            byte[] lower = latin1(name.toLowerCase());
+            assertEquals(name, pool.intern(lower, 0, lower.length).toString());
+        }
+    }
+
+    @Test
+    public void cacheTest() throws Exception
+    {
+        CaselessStringPool pool = new CaselessStringPool(
+            Arrays.asList("Host", "HOST", "Date"), 16);
+        assertEquals(2, pool.seedCount());
+
+        CaselessString x = pool.intern("X-Custom");
+        byte[] b = latin1("x-custom");
+        assertSame(x, pool.intern(b, 0, b.length));
+
+        CaselessString y = new CaselessString("X-Other");
+        assertSame(y, pool.intern(y));
+        assertSame(y, pool.intern("x-other"));
+
+        // Fill the cache with many names; seeds are never evicted.
+        CaselessString host = pool.intern("host");
+        for (int i = 0; i < 1000; i++)
+            assertEquals("N" + i, pool.intern("N" + i).toString());
+        assertSame(host, pool.intern("HOST"));
+    }
+
+    @Test
+    public void noCacheTest()
+    {
+        CaselessStringPool pool = new CaselessStringPool(Arrays.asList("Host"), 0);
+        assertSame(pool.intern("host"), pool.intern("HOST"));
+
+        CaselessString a = pool.intern("Other");
+        CaselessString b = pool.intern("Other");
+        assertNotSame(a, b);
+        assertEquals(a, b);
+    }
+
+    @Test
+    public void nonAsciiTest()
+    {
+        // Unicode case folding matches these with Origin and Host, but
+        // CaselessString does not, so they must not get the seeds.
+        CaselessStringPool pool = new CaselessStringPool(
+            Arrays.asList("Origin", "Host", "Stra\u00DFe"), 16);
+        for (String name : new String[] {"Or\u0131g\u0131n", "Ho\u017Ft"})
+        {
+            CaselessString s = pool.intern(name);
+            assertEquals(name, s.toString());
+            assertEquals(new CaselessString(name), s);
+            assertEquals(new CaselessString(name).hashCode(), s.hashCode());
+            assertFalse(s.equals(pool.intern(name.replace('\u0131', 'i').replace('\u017F', 's'))));
+            assertSame(s, pool.intern(name));
+        }
+
+        // Non-ASCII names equal under CaselessString still match.
+        CaselessString strasse = pool.intern("STRA\u00DFE");
+        assertEquals(new CaselessString("Stra\u00DFe"), strasse);
+        assertEquals(new CaselessString("Stra\u00DFe").hashCode(), strasse.hashCode());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rangeTest()
+    {
+        new CaselessStringPool().intern(new byte[4], 2, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cacheSizeTest()
+    {
+        new CaselessStringPool(Arrays.asList("Host"), -1);
+    }
+}
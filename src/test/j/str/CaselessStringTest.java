@@ -0,0 +1,88 @@
+package j.str;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.text.Collator;
+import java.util.Locale;
+import java.util.Random;
+
+public class CaselessStringTest
+{
+    @Test
+    public void equalsTest()
+    {
+        CaselessString a = new CaselessString("Content-Type");
+        assertTrue(a.equals(new CaselessString("content-type")));
+        assertTrue(a.equals("CONTENT-TYPE"));
+        assertFalse(a.equals("Content Type"));
+        assertFalse(a.equals("ContentType"));
+        assertFalse(a.equals(new Object()));
+        assertEquals(a.hashCode(), new CaselessString("CONTENT-type").hashCode());
+        assertEquals("content-type".hashCode(), a.hashCode());
+        assertEquals("Content-Type", a.toString());
+
+        CaselessString e = new CaselessString("\u00C9T\u00C9");
+        assertTrue(e.equals("\u00E9t\u00E9"));
+        assertFalse(e.equals("ete"));
+        assertEquals("\u00E9t\u00E9".hashCode(), e.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullTest()
+    {
+        new CaselessString(null);
+    }
+
+    /**
+     * The ASCII fast path must agree with the collator it replaces.
+     */
+    @Test
+    public void collatorTest()
+    {
+        Collator c = Collator.getInstance(Locale.ROOT);
+        c.setStrength(Collator.SECONDARY);
+        c.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+
+        Random r = new Random(9);
+        for (int k = 0; k < 200000; k++)
+        {
+            String a = randomString(r);
+            String b = r.nextInt(4) == 0 ? randomCase(a, r) : randomString(r);
+
+            CaselessString ca = new CaselessString(a);
+            CaselessString cb = new CaselessString(b);
+            assertEquals(a + "|" + b, 
+                Integer.signum(c.compare(a, b)), 
+                Integer.signum(ca.compareTo(cb)));
+            assertEquals(c.equals(a, b), ca.equals(b));
+            assertEquals(a.toLowerCase(Locale.ROOT).hashCode(), ca.hashCode());
+        }
+    }
+
+    private static String randomString(Random r)
+    {
+        final String extra = "aA-_ \t\u00E9\u00C9";
+        StringBuilder sb = new StringBuilder();
+        int len = r.nextInt(8);
+        for (int i = 0; i < len; i++)
+        {
+            if (r.nextBoolean())
+                sb.append((char)r.nextInt(128));
+            else
+                sb.append(extra.charAt(r.nextInt(extra.length())));
+        }
+        return sb.toString();
+    }
+
+    private static String randomCase(String s, Random r)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (char ch : s.toCharArray())
+            sb.append(r.nextBoolean() ? Character.toUpperCase(ch) : ch);
+        return sb.toString();
+    }
+}
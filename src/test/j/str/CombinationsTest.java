@@ -0,0 +1,191 @@
+package j.str;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.StreamSupport;
+
+public class CombinationsTest
+{
+    @Test
+    public void binomialTest()
+    {
+        assertEquals(1, Combinations.binomial(0, 0));
+        assertEquals(0, Combinations.binomial(3, 4));
+        assertEquals(10, Combinations.binomial(5, 2));
+        assertEquals(1832624140942590534L, Combinations.binomial(64, 32));
+        assertEquals(7219428434016265740L, Combinations.binomial(66, 33));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void binomialOverflowTest()
+    {
+        Combinations.binomial(70, 35);
+    }
+
+    @Test
+    public void combinationTest()
+    {
+        for (int n = 0; n <= 9; n++)
+        {
+            for (int k = 0; k <= n; k++)
+            {
+                final int nn = n;
+                final List<String> list = new ArrayList<String>();
+                final long count = Combinations.forEach(n, k, new Permutations.IntVisitor()
+                {
+                    @Override
+                    public boolean visit(int[] c)
+                    {
+                        final long r = list.size();
+                        assertEquals(r, Combinations.rank(c, nn));
+                        final int[] u = new int[c.length];
+                        Combinations.unrank(r, nn, u);
+                        assertArrayEquals(c, u);
+                        list.add(Arrays.toString(c));
+                        return true;
+                    }
+                });
+
+                assertEquals(Combinations.binomial(n, k), count);
+                final List<String> sorted = new ArrayList<String>(new TreeSet<String>(list));
+                assertEquals(list.size(), sorted.size());
+
+                // Masks: increasing, k bits each, ranked in order.
+                final long[] prev = { -1 };
+                final long maskCount = Combinations.forEachMask(n, k, new Combinations.MaskVisitor()
+                {
+                    @Override
+                    public boolean visit(long mask)
+                    {
+                        assertTrue(mask > prev[0]);
+                        assertEquals(r(prev[0]), Combinations.rankMask(mask));
+                        assertEquals(mask, Combinations.unrankMask(Combinations.rankMask(mask), Long.bitCount(mask)));
+                        prev[0] = mask;
+                        return true;
+                    }
+
+                    private long r(long p)
+                    {
+                        return p < 0 ? 0 : Combinations.rankMask(p) + 1;
+                    }
+                });
+                assertEquals(count, maskCount);
+            }
+        }
+
+        final int[] c = { 2, 3, 4 };
+        assertFalse(Combinations.nextCombination(c, 5));
+        assertArrayEquals(new int[] { 0, 1, 2 }, c);
+    }
+
+    @Test
+    public void mask64Test()
+    {
+        assertEquals(64, Combinations.forEachMask(64, 1, new Combinations.MaskVisitor()
+        {
+            @Override
+            public boolean visit(long mask)
+            {
+                return true;
+            }
+        }));
+        assertEquals(0, Combinations.nextCombination(Long.MIN_VALUE));
+        assertEquals(-1L, Combinations.unrankMask(0, 64));
+        assertEquals(0xFFFFFFFF00000000L,
+            Combinations.unrankMask(Combinations.binomial(64, 32) - 1, 32));
+    }
+
+    @Test
+    public void kPermutationTest()
+    {
+        for (int n = 0; n <= 6; n++)
+        {
+            for (int k = 0; k <= n; k++)
+            {
+                final int[] a = new int[k];
+                for (int j = 0; j < k; j++) a[j] = j;
+
+                String prev = null;
+                long r = 0;
+                do
+                {
+                    assertEquals(r, Combinations.rankKPermutation(a, n));
+                    final int[] u = new int[k];
+                    Combinations.unrankKPermutation(r, n, u);
+                    assertArrayEquals(a, u);
+
+                    final String s = Arrays.toString(a);
+                    assertTrue(prev == null || compare(prev, s) < 0);
+                    prev = s;
+                    r++;
+                }
+                while (Combinations.nextKPermutation(a, n));
+
+                assertEquals(Combinations.kPermutationCount(n, k), r);
+            }
+        }
+
+        // n above 64 takes the scanning path.
+        final int[] a = { 99, 98, 97 };
+        assertFalse(Combinations.nextKPermutation(a, 100));
+        assertArrayEquals(new int[] { 0, 1, 2 }, a);
+        final int[] b = { 5, 70, 99 };
+        assertTrue(Combinations.nextKPermutation(b, 100));
+        assertArrayEquals(new int[] { 5, 71, 0 }, b);
+        assertEquals(Combinations.rankKPermutation(new int[] { 5, 70, 99 }, 100) + 1,
+            Combinations.rankKPermutation(b, 100));
+    }
+
+    /** Compares "[1, 2]" style strings by their elements. */
+    private static int compare(String x, String y)
+    {
+        final String[] a = x.substring(1, x.length() - 1).split(", ");
+        final String[] b = y.substring(1, y.length() - 1).split(", ");
+        for (int i = 0; i < a.length; i++)
+        {
+            final int d = Integer.parseInt(a[i]) - Integer.parseInt(b[i]);
+            if (d != 0) return d;
+        }
+        return 0;
+    }
+
+    @Test
+    public void spliteratorTest()
+    {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong rankSum = new AtomicLong();
+        StreamSupport.stream(Combinations.spliterator(20, 6), true).forEach(
+            c -> { count.incrementAndGet(); rankSum.addAndGet(Combinations.rank(c, 20)); });
+        final long n = Combinations.binomial(20, 6);
+        assertEquals(n, count.get());
+        assertEquals(n * (n - 1) / 2, rankSum.get());
+
+        assertEquals(Combinations.kPermutationCount(9, 4),
+            StreamSupport.stream(Combinations.kPermutationSpliterator(9, 4), true)
+                .filter(a -> a[0] != a[1]).count());
+
+        final long masks = StreamSupport.longStream(Combinations.maskSpliterator(30, 5), true)
+            .filter(m -> Long.bitCount(m) == 5 && m < (1L << 30)).distinct().count();
+        assertEquals(Combinations.binomial(30, 5), masks);
+
+        assertEquals(1L << 16, StreamSupport.longStream(
+            Combinations.subsetSpliterator(16), true).distinct().count());
+
+        long sub = 0;
+        int subsets = 0;
+        do
+        {
+            subsets++;
+            sub = Combinations.nextSubset(sub, 0x2C);
+        }
+        while (sub != 0);
+        assertEquals(8, subsets);
+    }
+}
@@ -0,0 +1,144 @@
+package j.str;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.*;
+
+public class EditDistanceTest
+{
+    private static int naive(CharSequence a, CharSequence b)
+    {
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+
+        for (int i = 1; i <= a.length(); i++)
+        {
+            cur[0] = i;
+            for (int j = 1; j <= b.length(); j++)
+            {
+                final int sub = prev[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                cur[j] = Math.min(sub, Math.min(prev[j], cur[j - 1]) + 1);
+            }
+
+            final int[] t = prev; prev = cur; cur = t;
+        }
+
+        return prev[b.length()];
+    }
+
+    private static String random(Random rand, String alphabet, int len)
+    {
+        final char[] c = new char[len];
+        for (int i = 0; i < len; i++)
+            c[i] = alphabet.charAt(rand.nextInt(alphabet.length()));
+        return new String(c);
+    }
+
+    @Test
+    public void distanceTest()
+    {
+        final Random rand = new Random(11);
+        final String alphabet = "abc\u00E9\u0161";
+
+        for (int iter = 0; iter < 3000; iter++)
+        {
+            // Up to three blocks.
+            final int maxLen = iter % 3 == 0 ? 200 : 20;
+            final String a = random(rand, alphabet, rand.nextInt(maxLen));
+            final String b = rand.nextBoolean() ?
+                random(rand, alphabet, rand.nextInt(maxLen)) :
+                mutate(rand, a, alphabet);
+
+            final int expected = naive(a, b);
+            final EditDistance ed = new EditDistance(a);
+            assertEquals(a + " / " + b, expected, ed.distance(b));
+            assertEquals(expected, EditDistance.levenshtein(a, b));
+            assertEquals(expected, EditDistance.levenshtein(b, a));
+
+            for (int max = 0; max < 6; max++)
+            {
+                assertEquals(Math.min(expected, max + 1), ed.distance(b, max));
+                assertEquals(expected <= max, ed.isWithin(b, max));
+            }
+        }
+    }
+
+    private static String mutate(Random rand, String s, String alphabet)
+    {
+        final StringBuilder sb = new StringBuilder(s);
+        for (int k = rand.nextInt(4); k > 0; k--)
+        {
+            final int op = rand.nextInt(3);
+            final char c = alphabet.charAt(rand.nextInt(alphabet.length()));
+            if (op == 0 || sb.length() == 0)
+                sb.insert(rand.nextInt(sb.length() + 1), c);
+            else if (op == 1)
+                sb.deleteCharAt(rand.nextInt(sb.length()));
+            else
+                sb.setCharAt(rand.nextInt(sb.length()), c);
+        }
+
+        return sb.toString();
+    }
+
+    @Test
+    public void automatonTest()
+    {
+        final Random rand = new Random(13);
+        final String alphabet = "abcd\u00E9";
+
+        for (int iter = 0; iter < 300; iter++)
+        {
+            final String word = random(rand, alphabet, rand.nextInt(8));
+            final int k = rand.nextInt(4);
+            final LevenshteinAutomaton la = new LevenshteinAutomaton(word, k);
+
+            final List<String> dict = new ArrayList<String>();
+            for (int i = 0; i < 200; i++)
+                dict.add(rand.nextBoolean() ?
+                    random(rand, alphabet, rand.nextInt(10)) : mutate(rand, word, alphabet));
+            Collections.sort(dict);
+
+            final List<Integer> expected = new ArrayList<Integer>();
+            for (int i = 0; i < dict.size(); i++)
+            {
+                final int d = naive(word, dict.get(i));
+                assertEquals(Math.min(d, k + 1), la.distance(dict.get(i)));
+                assertEquals(d <= k, la.matches(dict.get(i)));
+                if (d <= k) expected.add(i);
+            }
+
+            final List<Integer> found = new ArrayList<Integer>();
+            final int count = la.scanSorted(dict, new LevenshteinAutomaton.MatchHandler()
+            {
+                @Override
+                public boolean onMatch(int index, CharSequence entry, int distance)
+                {
+                    assertEquals(naive(word, entry), distance);
+                    found.add(index);
+                    return true;
+                }
+            });
+
+            assertEquals(expected, found);
+            assertEquals(expected.size(), count);
+        }
+    }
+
+    @Test
+    public void automatonDeadTest()
+    {
+        final LevenshteinAutomaton la = new LevenshteinAutomaton("kitten", 1);
+        int s = la.start();
+        for (char c : "xy".toCharArray()) s = la.step(s, c);
+        assertEquals(LevenshteinAutomaton.DEAD, s);
+
+        s = la.start();
+        for (char c : "sitten".toCharArray()) s = la.step(s, c);
+        assertTrue(la.isMatch(s));
+        assertEquals(1, la.distance(s));
+    }
+}
@@ -0,0 +1,140 @@
+package j.str;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.*;
+
+public class FmIndexTest
+{
+    private static byte[] random(Random rand, int len, int alphabet)
+    {
+        final byte[] b = new byte[len];
+        for (int i = 0; i < len; i++)
+            b[i] = (byte)(rand.nextInt(alphabet) * 97);
+        return b;
+    }
+
+    private static int compareSuffixes(byte[] t, int a, int b)
+    {
+        while (a < t.length && b < t.length)
+        {
+            final int d = (t[a++] & 255) - (t[b++] & 255);
+            if (d != 0) return d;
+        }
+
+        return (t.length - a) - (t.length - b);
+    }
+
+    @Test
+    public void suffixArrayTest()
+    {
+        final Random rand = new Random(17);
+
+        for (int iter = 0; iter < 300; iter++)
+        {
+            final byte[] t = random(rand, rand.nextInt(300), 1 + rand.nextInt(4));
+            final Integer[] expected = new Integer[t.length];
+            for (int i = 0; i < t.length; i++) expected[i] = i;
+            Arrays.sort(expected, (a, b) -> compareSuffixes(t, a, b));
+
+            final int[] sa = SuffixArray.build(t);
+            assertEquals(t.length, sa.length);
+            for (int i = 0; i < t.length; i++)
+                assertEquals(expected[i].intValue(), sa[i]);
+        }
+
+        assertArrayEquals(new int[] {5, 3, 1, 0, 4, 2}, SuffixArray.build("banana"));
+    }
+
+    private static List<Integer> naiveLocate(byte[] t, byte[] p)
+    {
+        final List<Integer> pos = new ArrayList<Integer>();
+        outer:
+        for (int i = 0; i + p.length <= t.length; i++)
+        {
+            for (int j = 0; j < p.length; j++)
+                if (t[i + j] != p[j]) continue outer;
+            pos.add(i);
+        }
+
+        return pos;
+    }
+
+    private static void check(FmIndex fm, byte[] t, Random rand)
+    {
+        assertEquals(t.length, fm.textLength());
+
+        for (int q = 0; q < 50; q++)
+        {
+            final byte[] p;
+            if (t.length > 0 && rand.nextBoolean())
+            {
+                final int from = rand.nextInt(t.length);
+                p = Arrays.copyOfRange(t, from, Math.min(t.length, from + 1 + rand.nextInt(6)));
+            }
+            else
+            {
+                p = random(rand, 1 + rand.nextInt(4), 5);
+            }
+
+            final List<Integer> expected = naiveLocate(t, p);
+            assertEquals(expected.size(), fm.count(p));
+
+            final int[] found = fm.locate(p);
+            Arrays.sort(found);
+            assertEquals(expected.size(), found.length);
+            for (int i = 0; i < found.length; i++)
+                assertEquals(expected.get(i).intValue(), found[i]);
+
+            assertEquals(Math.min(2, expected.size()), fm.locate(p, 2).length);
+        }
+    }
+
+    @Test
+    public void countLocateTest() throws Exception
+    {
+        final Random rand = new Random(19);
+
+        for (int iter = 0; iter < 100; iter++)
+        {
+            final byte[] t = random(rand, rand.nextInt(2000), 1 + rand.nextInt(4));
+            final int occRate = 1 + rand.nextInt(100);
+            final int saRate = 1 + rand.nextInt(40);
+            check(FmIndex.build(t, occRate, saRate), t, rand);
+        }
+    }
+
+    @Test
+    public void saveMapTest() throws Exception
+    {
+        final Random rand = new Random(23);
+        final byte[] t = random(rand, 5000, 4);
+        final File f = File.createTempFile("fmindex", ".idx");
+        try
+        {
+            FmIndex.build(t, 64, 8).save(f);
+            final FmIndex fm = FmIndex.map(f);
+            try
+            {
+                check(fm, t, rand);
+            }
+            finally
+            {
+                fm.close();
+            }
+        }
+        finally
+        {
+            f.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyPatternTest()
+    {
+        FmIndex.build(new byte[] {1, 2}).count(new byte[0]);
+    }
+}
@@ -0,0 +1,183 @@
+package j.str;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import j.io.HexDecodingInputStream;
+import j.io.HexEncodingOutputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class HexTest
+{
+    private static String naive(byte[] b, int off, int len)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = off; i < off + len; i++)
+            sb.append(String.format("%02x", b[i] & 255));
+        return sb.toString();
+    }
+
+    @Test
+    public void roundTripTest() throws Exception
+    {
+        final Random rand = new Random(5);
+
+        for (int iter = 0; iter < 500; iter++)
+        {
+            final byte[] b = new byte[rand.nextInt(40)];
+            rand.nextBytes(b);
+            final int off = b.length == 0 ? 0 : rand.nextInt(b.length);
+            final int len = rand.nextInt(b.length - off + 1);
+            final String expected = naive(b, off, len);
+
+            assertEquals(expected, Hex.LOWER.encode(b, off, len));
+            assertEquals(expected.toUpperCase(), Hex.UPPER.encode(b, off, len));
+
+            final char[] c = new char[2 * len + 3];
+            Hex.LOWER.encode(b, off, len, c, 3);
+            assertEquals(expected, new String(c, 3, 2 * len));
+
+            final byte[] a = new byte[2 * len + 1];
+            Hex.UPPER.encode(b, off, len, a, 1);
+            assertEquals(expected.toUpperCase(), new String(a, 1, 2 * len, "US-ASCII"));
+
+            final byte[] sub = Arrays.copyOfRange(b, off, off + len);
+            final byte[] d = new byte[len + 2];
+            assertEquals(len, Hex.decode(a, 1, 2 * len, d, 2));
+            assertArrayEquals(sub, Arrays.copyOfRange(d, 2, len + 2));
+            assertEquals(len, Hex.decode(c, 3, 2 * len, d, 1));
+            assertArrayEquals(sub, Arrays.copyOfRange(d, 1, len + 1));
+            assertArrayEquals(sub, Hex.decode(expected));
+            assertArrayEquals(sub, StrUtil.fromHex(StrUtil.toHex(sub)));
+        }
+    }
+
+    @Test
+    public void invalidTest()
+    {
+        // U+0141 has the same low 8 bits as 'A'.
+        for (String s : new String[] {"0g", "g0", "00112233445566778x", "0\u0141", "\u01410"})
+        {
+            try
+            {
+                Hex.decode(s);
+                fail(s);
+            }
+            catch (IllegalArgumentException e) {}
+
+            try
+            {
+                Hex.decode(s.toCharArray(), 0, s.length(), new byte[s.length()], 0);
+                fail(s);
+            }
+            catch (IllegalArgumentException e) {}
+        }
+
+        try
+        {
+            Hex.decode("abc");
+            fail();
+        }
+        catch (IllegalArgumentException e) {}
+
+        for (int c = 0; c < 0x10000; c++)
+        {
+            final boolean valid = ('0' <= c && c <= '9') ||
+                ('a' <= c && c <= 'f') || ('A' <= c && c <= 'F');
+            assertEquals(valid, Hex.digit(c) >= 0);
+        }
+    }
+
+    @Test
+    public void byteBufferTest()
+    {
+        final byte[] b = {1, 2, (byte)0xab, (byte)0xff, 0x10};
+
+        for (boolean direct : new boolean[] {false, true})
+        {
+            final ByteBuffer src = ByteBuffer.wrap(b);
+            final ByteBuffer dst = direct ? ByteBuffer.allocateDirect(7) : ByteBuffer.allocate(7);
+
+            // Only 3 bytes fit.
+            assertEquals(3, Hex.LOWER.encode(src, dst));
+            assertEquals(3, src.position());
+            assertEquals(6, dst.position());
+
+            dst.flip();
+            final ByteBuffer out = ByteBuffer.allocate(5);
+            dst.limit(5);
+            assertEquals(2, Hex.decode(dst, out));
+            assertEquals(4, dst.position());
+            assertEquals(0x0102, out.getShort(0));
+        }
+    }
+
+    @Test
+    public void streamTest() throws Exception
+    {
+        final Random rand = new Random(7);
+        final byte[] b = new byte[10000];
+        rand.nextBytes(b);
+
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        final OutputStream out = new HexEncodingOutputStream(bout, Hex.UPPER, 7);
+        for (int i = 0; i < b.length; )
+        {
+            final int n = Math.min(b.length - i, rand.nextInt(30));
+            if (n == 1) out.write(b[i]); else out.write(b, i, n);
+            i += n;
+        }
+        out.close();
+        out.close();
+        assertEquals(Hex.UPPER.encode(b), new String(bout.toByteArray(), "US-ASCII"));
+
+        // Trickle the digits in odd-sized reads so pairs get split.
+        final byte[] hex = bout.toByteArray();
+        final InputStream trickle = new ByteArrayInputStream(hex)
+        {
+            @Override
+            public int read(byte[] a, int off, int len)
+            {
+                return super.read(a, off, Math.min(len, 3));
+            }
+        };
+
+        final InputStream in = new HexDecodingInputStream(trickle, 5);
+        final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        final byte[] tmp = new byte[13];
+        assertEquals(b[0] & 255, in.read());
+        decoded.write(b[0]);
+        for (int n; (n = in.read(tmp, 0, tmp.length)) >= 0; )
+            decoded.write(tmp, 0, n);
+        assertArrayEquals(b, decoded.toByteArray());
+        assertEquals(-1, in.read());
+        in.close();
+    }
+
+    @Test
+    public void streamErrorTest() throws Exception
+    {
+        try
+        {
+            final InputStream in = new HexDecodingInputStream(
+                new ByteArrayInputStream("abc".getBytes("US-ASCII")));
+            assertEquals(0xab, in.read());
+            in.read();
+            fail();
+        }
+        catch (EOFException e) {}
+
+        try
+        {
+            final InputStream in = new HexDecodingInputStream(
+                new ByteArrayInputStream("ab-c".getBytes("US-ASCII")));
+            in.read(new byte[4], 0, 4);
+            fail();
+        }
+        catch (IOException e) {}
+    }
+}
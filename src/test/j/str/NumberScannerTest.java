@@ -0,0 +1,179 @@
+package j.str;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class NumberScannerTest
+{
+    private static byte[] latin1(String s) throws Exception
+    {
+        return s.getBytes("ISO-8859-1");
+    }
+
+    @Test
+    public void intTest() throws Exception
+    {
+        final NumberScanner ns = new NumberScanner();
+
+        final String[] valid = { "0", "7", "-7", "+42", "2147483647", "-2147483648", "000123" };
+        for (String s : valid)
+        {
+            assertEquals(s.length(), ns.scanInt(s, 0, s.length()));
+            assertEquals(Integer.parseInt(s), ns.intValue());
+            assertEquals(s.length(), ns.scanInt(latin1(s), 0, s.length()));
+            assertEquals(Integer.parseInt(s), ns.intValue());
+            assertEquals(s.length(), ns.scanInt(s.toCharArray(), 0, s.length()));
+            assertEquals(Integer.parseInt(s), ns.intValue());
+        }
+
+        // Stops at the first non-digit and within the range.
+        final byte[] line = latin1("GET 200 12345ms");
+        assertEquals(7, ns.scanInt(line, 4, line.length));
+        assertEquals(200, ns.intValue());
+        assertEquals(11, ns.scanInt(line, 8, 11));
+        assertEquals(123, ns.intValue());
+
+        for (String s : new String[] { "", "-", "+", " 1", "x", "2147483648", "-2147483649" })
+        {
+            try
+            {
+                ns.scanInt(s, 0, s.length());
+                fail(s);
+            }
+            catch (NumberFormatException e)
+            {
+            }
+        }
+    }
+
+    @Test
+    public void longTest()
+    {
+        final NumberScanner ns = new NumberScanner();
+        final Random rand = new Random(11);
+
+        for (int i = 0; i < 10000; i++)
+        {
+            final long v = rand.nextLong() >> rand.nextInt(64);
+            final String s = Long.toString(v);
+            assertEquals(s.length(), ns.scanLong(s, 0, s.length()));
+            assertEquals(v, ns.longValue());
+        }
+
+        final String max = "9223372036854775807,-9223372036854775808";
+        assertEquals(19, ns.scanLong(max, 0, max.length()));
+        assertEquals(Long.MAX_VALUE, ns.longValue());
+        assertEquals(max.length(), ns.scanLong(max, 20, max.length()));
+        assertEquals(Long.MIN_VALUE, ns.longValue());
+
+        try
+        {
+            ns.scanLong("9223372036854775808", 0, 19);
+            fail();
+        }
+        catch (NumberFormatException e)
+        {
+        }
+    }
+
+    @Test
+    public void hexTest()
+    {
+        final NumberScanner ns = new NumberScanner();
+        assertEquals(8, ns.scanHex("DEADbeef!", 0, 9));
+        assertEquals(0xDEADBEEFL, ns.longValue());
+        assertEquals(16, ns.scanHex("ffffffffffffffff", 0, 16));
+        assertEquals(-1L, ns.longValue());
+        assertEquals(1, ns.scanHex("0g", 0, 2));
+
+        for (String s : new String[] { "", "g", "-1", "10000000000000000" })
+        {
+            try
+            {
+                ns.scanHex(s, 0, s.length());
+                fail(s);
+            }
+            catch (NumberFormatException e)
+            {
+            }
+        }
+    }
+
+    private static void checkDouble(NumberScanner ns, String s) throws Exception
+    {
+        final double expected = Double.parseDouble(s);
+        assertEquals(s, s.length(), ns.scanDouble(s, 0, s.length()));
+        assertEquals(s, Double.doubleToRawLongBits(expected),
+            Double.doubleToRawLongBits(ns.doubleValue()));
+
+        final byte[] b = latin1("[" + s + "]");
+        assertEquals(s, s.length() + 1, ns.scanDouble(b, 1, b.length));
+        assertEquals(s, Double.doubleToRawLongBits(expected),
+            Double.doubleToRawLongBits(ns.doubleValue()));
+    }
+
+    @Test
+    public void doubleTest() throws Exception
+    {
+        final NumberScanner ns = new NumberScanner();
+
+        final String[] cases = {
+            "0", "-0", "0.0", "-0.0", "1", "1.5", ".5", "5.", "-.25e1", "1e0",
+            "3.14159", "1e22", "1e23", "9007199254740993", "9007199254740992.5",
+            "4.9e-324", "2.4703282292062327e-324", "2.4703282292062328e-324",
+            "2.2250738585072011e-308", "2.2250738585072014e-308",
+            "1.7976931348623157e308", "1.7976931348623158e308", "1.8e308",
+            "1e-400", "1e400", "123456789012345678901234567890",
+            "0.000000000000000000000000000001", "7.2057594037927933e16",
+            "1.00000000000000011102230246251565404236316680908203125",
+            "1.00000000000000011102230246251565404236316680908203124",
+            "1.00000000000000011102230246251565404236316680908203126",
+            "00000000000000000000000000001.0e5", "1E+10", "1e-10" };
+        for (String s : cases) checkDouble(ns, s);
+
+        final Random rand = new Random(13);
+        for (int i = 0; i < 200000; i++)
+        {
+            final double d = Double.longBitsToDouble(rand.nextLong());
+            if (Double.isNaN(d) || Double.isInfinite(d)) continue;
+            checkDouble(ns, Double.toString(d));
+        }
+
+        for (int i = 0; i < 200000; i++)
+        {
+            final StringBuilder sb = new StringBuilder();
+            final int n = 1 + rand.nextInt(25);
+            for (int k = 0; k < n; k++) sb.append((char)('0' + rand.nextInt(10)));
+            if (rand.nextBoolean()) sb.insert(rand.nextInt(n + 1), '.');
+            sb.append('e').append(rand.nextInt(700) - 350);
+            checkDouble(ns, sb.toString());
+        }
+    }
+
+    @Test
+    public void doubleEndTest()
+    {
+        final NumberScanner ns = new NumberScanner();
+        assertEquals(3, ns.scanDouble("1.5e", 0, 4));
+        assertEquals(1.5, ns.doubleValue(), 0);
+        assertEquals(3, ns.scanDouble("1.5e+x", 0, 6));
+        assertEquals(5, ns.scanDouble("1.5e2,", 0, 6));
+        assertEquals(150.0, ns.doubleValue(), 0);
+
+        for (String s : new String[] { "", "-", ".", "e5", "NaN", "-.e1" })
+        {
+            try
+            {
+                ns.scanDouble(s, 0, s.length());
+                fail(s);
+            }
+            catch (NumberFormatException e)
+            {
+            }
+        }
+    }
+}
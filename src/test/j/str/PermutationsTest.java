@@ -0,0 +1,178 @@
+package j.str;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.StreamSupport;
+
+public class PermutationsTest
+{
+    /** Collects all distinct rearrangements of s, sorted. */
+    private static List<String> brute(String s)
+    {
+        final Set<String> set = new TreeSet<String>();
+        brute("", s, set);
+        return new ArrayList<String>(set);
+    }
+
+    private static void brute(String prefix, String rest, Set<String> out)
+    {
+        if (rest.isEmpty()) out.add(prefix);
+        for (int i = 0; i < rest.length(); i++)
+            brute(prefix + rest.charAt(i),
+                rest.substring(0, i) + rest.substring(i + 1), out);
+    }
+
+    @Test
+    public void forEachTest()
+    {
+        for (String s : new String[] { "", "a", "ab", "ba", "aab", "abcd", "aabbc", "zzzz", "mississ" })
+        {
+            final List<String> list = new ArrayList<String>();
+            final long n = Permutations.forEach(s, new Permutations.CharVisitor()
+            {
+                @Override
+                public boolean visit(char[] perm)
+                {
+                    list.add(new String(perm));
+                    return true;
+                }
+            });
+
+            assertEquals(brute(s), list);
+            assertEquals(list.size(), n);
+        }
+    }
+
+    @Test
+    public void intTest()
+    {
+        final int[] elements = { 3, 1, 2, 1 };
+        final List<String> list = new ArrayList<String>();
+        final long n = Permutations.forEach(elements, new Permutations.IntVisitor()
+        {
+            @Override
+            public boolean visit(int[] perm)
+            {
+                list.add(Arrays.toString(perm));
+                return list.size() < 5;
+            }
+        });
+
+        assertEquals(5, n);
+        assertEquals("[1, 1, 2, 3]", list.get(0));
+        assertEquals("[1, 1, 3, 2]", list.get(1));
+        assertEquals("[1, 3, 1, 2]", list.get(4));
+        assertArrayEquals(new int[] { 3, 1, 2, 1 }, elements);
+
+        final int[] a = { 3, 2, 1 };
+        assertFalse(Permutations.nextPermutation(a));
+        assertArrayEquals(new int[] { 1, 2, 3 }, a);
+        assertTrue(Permutations.nextPermutation(a));
+        assertArrayEquals(new int[] { 1, 3, 2 }, a);
+    }
+
+    @Test
+    public void rankIntTest()
+    {
+        for (int n = 0; n <= 7; n++)
+        {
+            final int[] perm = new int[n];
+            for (int i = 0; i < n; i++) perm[i] = i;
+
+            final int[] u = new int[n];
+            long r = 0;
+            do
+            {
+                assertEquals(r, Permutations.rank(perm));
+                Permutations.unrank(r, u);
+                assertArrayEquals(perm, u);
+                r++;
+            }
+            while (Permutations.nextPermutation(perm));
+
+            assertEquals(Permutations.factorial(n), r);
+        }
+
+        final int[] last = new int[20];
+        Permutations.unrank(Permutations.factorial(20) - 1, last);
+        assertEquals(19, last[0]);
+        assertEquals(0, last[19]);
+        assertEquals(Permutations.factorial(20) - 1, Permutations.rank(last));
+    }
+
+    @Test
+    public void rankCharTest()
+    {
+        for (final String s : new String[] { "", "a", "aab", "abcd", "aabbc", "mississippi" })
+        {
+            final long[] r = { 0 };
+            final long n = Permutations.forEach(s, new Permutations.CharVisitor()
+            {
+                @Override
+                public boolean visit(char[] perm)
+                {
+                    assertEquals(r[0], Permutations.rank(new String(perm)));
+
+                    final char[] u = s.toCharArray();
+                    Permutations.unrank(r[0], u);
+                    assertArrayEquals(perm, u);
+                    r[0]++;
+                    return true;
+                }
+            });
+
+            assertEquals(n, Permutations.count(s));
+        }
+
+        final char[] c = "cba".toCharArray();
+        Permutations.unrank(3, c);
+        assertEquals("bca", new String(c));
+        assertEquals(34650, Permutations.count("mississippi"));
+    }
+
+    @Test
+    public void spliteratorTest()
+    {
+        final int n = 8;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong rankSum = new AtomicLong();
+        StreamSupport.stream(Permutations.spliterator(n), true).forEach(
+            p -> { count.incrementAndGet(); rankSum.addAndGet(Permutations.rank(p)); });
+
+        final long f = Permutations.factorial(n);
+        assertEquals(f, count.get());
+        assertEquals(f * (f - 1) / 2, rankSum.get());
+
+        // A range, split by hand, visits its ranks in order.
+        final Spliterator<char[]> hi = Permutations.spliterator("aabbc", 5, 25);
+        assertTrue(hi.tryAdvance(p -> assertEquals(5, Permutations.rank(new String(p)))));
+        final Spliterator<char[]> lo = hi.trySplit();
+        final List<Long> ranks = new ArrayList<Long>();
+        ranks.add(5L);
+        assertEquals(9, lo.estimateSize());
+        lo.forEachRemaining(p -> ranks.add(Permutations.rank(new String(p))));
+        hi.forEachRemaining(p -> ranks.add(Permutations.rank(new String(p))));
+        assertEquals(20, ranks.size());
+        for (int i = 0; i < 20; i++)
+            assertEquals(5L + i, (long)ranks.get(i));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooLongTest()
+    {
+        Permutations.factorial(21);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void notPermutationTest()
+    {
+        Permutations.rank(new int[] { 0, 2, 2 });
+    }
+}
@@ -0,0 +1,63 @@
+package j.str;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class RollingHashTest
+{
+    @Test
+    public void rollTest()
+    {
+        final Random rand = new Random(37);
+        final byte[] b = new byte[3000];
+        rand.nextBytes(b);
+
+        for (int window : new int[] {1, 7, 64, 65, 200})
+        {
+            for (RollingHash rh : new RollingHash[] {
+                RollingHash.buzhash(window), RollingHash.rabinKarp(window)})
+            {
+                final ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+                direct.put(b);
+
+                long h = rh.hash(b, 0);
+                final Set<Long> seen = new HashSet<Long>();
+                for (int i = 0; i + window < b.length; i++)
+                {
+                    h = rh.roll(h, b[i], b[i + window]);
+                    assertEquals(rh.hash(b, i + 1), h);
+                    assertEquals(h, rh.hash(direct, i + 1));
+                    seen.add(h);
+                }
+
+                // Random windows should not collide.
+                if (window >= 8) assertEquals(b.length - window, seen.size());
+            }
+        }
+    }
+
+    @Test
+    public void gearTest()
+    {
+        // Depends only on the last 64 bytes.
+        final Random rand = new Random(41);
+        final byte[] a = new byte[100];
+        final byte[] b = new byte[100];
+        rand.nextBytes(a);
+        rand.nextBytes(b);
+        System.arraycopy(a, 36, b, 36, 64);
+
+        long ha = 0, hb = 0;
+        for (int i = 0; i < 100; i++)
+        {
+            ha = RollingHash.gear(ha, a[i]);
+            hb = RollingHash.gear(hb, b[i]);
+        }
+
+        assertEquals(ha, hb);
+    }
+}
@@ -0,0 +1,151 @@
+package j.str;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import j.io.RopeWriter;
+import j.io.StringBuilderWriter;
+
+import java.nio.CharBuffer;
+import java.util.*;
+
+public class RopeTest
+{
+    private static String random(Random rand, int len)
+    {
+        final char[] c = new char[len];
+        for (int i = 0; i < len; i++) c[i] = (char)('a' + rand.nextInt(26));
+        return new String(c);
+    }
+
+    private static void assertRope(String expected, Rope r)
+    {
+        assertEquals(expected.length(), r.length());
+        assertEquals(expected, r.toString());
+
+        final StringBuilder sb = new StringBuilder();
+        for (Iterator<CharBuffer> it = r.chunks(); it.hasNext(); )
+        {
+            final CharBuffer chunk = it.next();
+            assertTrue(chunk.isReadOnly());
+            assertTrue(chunk.length() > 0 && chunk.length() <= Rope.CHUNK_SIZE);
+            sb.append(chunk);
+        }
+        assertEquals(expected, sb.toString());
+    }
+
+    @Test
+    public void editTest()
+    {
+        final Random rand = new Random(29);
+        Rope r = Rope.EMPTY;
+        final StringBuilder sb = new StringBuilder();
+
+        for (int iter = 0; iter < 3000; iter++)
+        {
+            final int op = rand.nextInt(5);
+            final String s = random(rand, rand.nextInt(iter % 50 == 0 ? 10000 : 30));
+
+            if (op == 0)
+            {
+                r = r.append(s);
+                sb.append(s);
+            }
+            else if (op == 1)
+            {
+                final int at = rand.nextInt(sb.length() + 1);
+                r = r.insert(at, s);
+                sb.insert(at, s);
+            }
+            else if (op == 2)
+            {
+                final int from = rand.nextInt(sb.length() + 1);
+                final int to = from + rand.nextInt(Math.min(sb.length() - from, 50) + 1);
+                r = r.delete(from, to);
+                sb.delete(from, to);
+            }
+            else if (op == 3 && sb.length() > 0)
+            {
+                final int from = rand.nextInt(sb.length());
+                final int to = from + rand.nextInt(sb.length() - from + 1);
+                assertEquals(sb.substring(from, to), r.subSequence(from, to).toString());
+
+                final char[] c = new char[to - from + 1];
+                r.getChars(from, to, c, 1);
+                assertEquals(sb.substring(from, to), new String(c, 1, to - from));
+            }
+            else
+            {
+                r = r.concat(Rope.of(s));
+                sb.append(s);
+            }
+
+            if (sb.length() > 0)
+            {
+                final int i = rand.nextInt(sb.length());
+                assertEquals(sb.charAt(i), r.charAt(i));
+            }
+
+            if (iter % 100 == 0) assertRope(sb.toString(), r);
+        }
+
+        assertRope(sb.toString(), r);
+    }
+
+    @Test
+    public void persistenceTest()
+    {
+        final Rope a = Rope.of("hello world");
+        final Rope b = a.insert(5, ",").delete(0, 1);
+        assertEquals("hello world", a.toString());
+        assertEquals("ello, world", b.toString());
+        assertSame(a, Rope.of(a));
+    }
+
+    @Test
+    public void manySmallAppendsTest()
+    {
+        // Would overflow the stack if the tree were not balanced.
+        Rope r = Rope.EMPTY;
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200000; i++)
+        {
+            final String s = Integer.toString(i);
+            r = r.append(s);
+            sb.append(s);
+        }
+
+        assertRope(sb.toString(), r);
+        assertEquals(sb.substring(1000, 90000), r.subSequence(1000, 90000).toString());
+    }
+
+    @Test
+    public void writerTest() throws Exception
+    {
+        final Random rand = new Random(31);
+        final RopeWriter w = new RopeWriter();
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 2000; i++)
+        {
+            final String s = random(rand, rand.nextInt(i % 100 == 0 ? 9000 : 20));
+            switch (rand.nextInt(4))
+            {
+                case 0: w.write(s); break;
+                case 1: w.write(s.toCharArray(), 0, s.length()); break;
+                case 2: w.append(Rope.of(s)); break;
+                default: for (char c : s.toCharArray()) w.write(c); break;
+            }
+            sb.append(s);
+
+            if (i == 1000) assertEquals(sb.toString(), w.getRope().toString());
+        }
+
+        assertRope(sb.toString(), w.getRope());
+
+        final StringBuilderWriter out = new StringBuilderWriter();
+        w.getRope().writeTo(out);
+        assertEquals(sb.toString(), out.toString());
+    }
+}